@@ -295,23 +295,19 @@ public class Activator implements BundleActivator {
     protected ServiceTracker provisioningServiceTracker;
     protected ServiceTracker userAdminTracker;
 
+    /**
+     * Tracks the published MBeanServers. The MBeans are registered with a
+     * single server at a time, normally the one shared with the Equinox JMX
+     * server, so they are reachable through that server's connector. Should
+     * the server go away the MBeans move to another published server, if any.
+     */
     class MBeanServiceTracker implements ServiceTrackerCustomizer {
 
         public Object addingService(ServiceReference servicereference) {
             try {
-                log.debug("Adding MBeanServer: " + servicereference);
-                mbeanServer = (MBeanServer) bundleContext.getService(servicereference);
-                Runnable registration = new Runnable() {
-                    public void run() {
-                        registerServices();
-                    }
-                };
-                Thread registrationThread = new Thread(registration,
-                                                       "JMX Core MBean Registration");
-                registrationThread.setDaemon(true);
-                registrationThread.start();
-
-                return mbeanServer;
+                MBeanServer server = (MBeanServer) bundleContext.getService(servicereference);
+                bind(servicereference, server);
+                return server;
             } catch (RuntimeException e) {
                 log.error("uncaught exception in addingService", e);
                 throw e;
@@ -323,13 +319,25 @@ public class Activator implements BundleActivator {
             // no op
         }
 
-        public void removedService(ServiceReference servicereference, Object obj) {
+        public void removedService(final ServiceReference servicereference,
+                                   Object obj) {
             try {
+                bundleContext.ungetService(servicereference);
+                synchronized (Activator.this) {
+                    if (obj != mbeanServer) {
+                        log.debug("Removing unused MBeanServer: "
+                                  + servicereference);
+                        return;
+                    }
+                }
                 log.debug("Removing MBeanServer: " + servicereference);
                 Runnable deregister = new Runnable() {
                     public void run() {
                         deregisterServices();
-                        mbeanServer = null;
+                        synchronized (Activator.this) {
+                            mbeanServer = null;
+                        }
+                        rebind(servicereference);
                     }
                 };
 
@@ -342,6 +350,45 @@ public class Activator implements BundleActivator {
                 log.debug("uncaught exception in removedService", e);
             }
         }
+
+        private void bind(ServiceReference servicereference, MBeanServer server) {
+            synchronized (Activator.this) {
+                if (mbeanServer != null) {
+                    log.debug("Already registered with an MBeanServer, ignoring: "
+                              + servicereference);
+                    return;
+                }
+                log.debug("Adding MBeanServer: " + servicereference);
+                mbeanServer = server;
+            }
+            Runnable registration = new Runnable() {
+                public void run() {
+                    registerServices();
+                }
+            };
+            Thread registrationThread = new Thread(registration,
+                                                   "JMX Core MBean Registration");
+            registrationThread.setDaemon(true);
+            registrationThread.start();
+        }
+
+        private void rebind(ServiceReference removed) {
+            ServiceTracker tracker = mbeanServiceTracker;
+            ServiceReference[] references = tracker == null ? null
+                                                           : tracker.getServiceReferences();
+            if (references == null) {
+                return;
+            }
+            for (int i = 0; i < references.length; i++) {
+                if (references[i] != removed) {
+                    Object server = tracker.getService(references[i]);
+                    if (server != null) {
+                        bind(references[i], (MBeanServer) server);
+                        return;
+                    }
+                }
+            }
+        }
     }
 
     class ConfigAdminTracker implements ServiceTrackerCustomizer {
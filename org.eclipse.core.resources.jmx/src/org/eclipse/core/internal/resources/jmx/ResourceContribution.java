@@ -17,7 +17,6 @@ import javax.management.*;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
-import org.eclipse.equinox.jmx.common.JMXConstants;
 import org.eclipse.equinox.jmx.server.Contribution;
 
 /**
@@ -37,16 +36,19 @@ public abstract class ResourceContribution extends Contribution {
 		super(delegate);
 	}
 
-    /* (non-Javadoc)
-     * @see org.eclipse.equinox.jmx.server.Contribution#getObjectName()
-     */
-    protected ObjectName getObjectName() {
-        try {
-            return new ObjectName(JMXConstants.DEFAULT_DOMAIN +":type=Resource,name=" + getDelegate().getFullPath()); //$NON-NLS-1$
-        } catch (Exception e) {
-            return super.getObjectName();
-        }
-    }
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameType()
+	 */
+	protected String getObjectNameType() {
+		return "Resource"; //$NON-NLS-1$
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameKey()
+	 */
+	protected String getObjectNameKey() {
+		return getDelegate().getFullPath().toString();
+	}
 
 	/*
 	 * Return this contribution's delegate. It is stored in the super-class as
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.*;
+import javax.management.remote.*;
+import javax.security.auth.Subject;
+
+/**
+ * <code>JMXConnector</code> of the binary transport.  All requests and notifications
+ * are multiplexed on a single connection to the server.
+ */
+public class BinaryJMXConnector implements JMXConnector {
+
+	/**
+	 * The environment attribute, or system property, holding the time in milliseconds
+	 * a request waits for its response; <code>0</code> waits indefinitely.
+	 */
+	public static final String REQUEST_TIMEOUT_ATTRIBUTE = "org.eclipse.equinox.jmx.client.binary.requestTimeout"; //$NON-NLS-1$
+
+	private static final long DEFAULT_REQUEST_TIMEOUT = 60 * 1000;
+
+	private final JMXServiceURL url;
+	private final Map environment;
+	private final NotificationBroadcasterSupport broadcaster = new NotificationBroadcasterSupport();
+
+	// guarded by this
+	private FrameChannel channel;
+	private MBeanServerConnection connection;
+	private String connectionId;
+	private long sequenceNumber;
+	private boolean closed;
+
+	public BinaryJMXConnector(JMXServiceURL url, Map environment) {
+		this.url = url;
+		this.environment = environment == null ? new HashMap() : new HashMap(environment);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#connect()
+	 */
+	public void connect() throws IOException {
+		connect(null);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#connect(java.util.Map)
+	 */
+	public void connect(Map env) throws IOException {
+		String id;
+		synchronized (this) {
+			if (closed) {
+				throw new IOException("Connector closed."); //$NON-NLS-1$
+			}
+			if (channel != null) {
+				return;
+			}
+			Map attributes = new HashMap(environment);
+			if (env != null) {
+				attributes.putAll(env);
+			}
+			final BinaryMBeanServerConnection handler = new BinaryMBeanServerConnection(getRequestTimeout(attributes));
+			channel = new FrameChannel(url.getHost(), url.getPort(), new FrameChannel.FrameListener() {
+				public void notificationReceived(int listenerId, ByteBuffer frame) {
+					handler.notificationReceived(listenerId, frame);
+				}
+
+				public void channelClosed(IOException failure) {
+					handler.channelClosed();
+					if (failure != null) {
+						sendConnectionNotification(JMXConnectionNotification.FAILED, failure.getMessage());
+					}
+				}
+			});
+			handler.setChannel(channel);
+			connection = handler.createConnection();
+			connectionId = url.getProtocol() + "://" + url.getHost() + ":" + url.getPort() + " " + Integer.toHexString(System.identityHashCode(this)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			id = connectionId;
+		}
+		sendConnectionNotification(JMXConnectionNotification.OPENED, id);
+	}
+
+	private static long getRequestTimeout(Map attributes) {
+		Object value = attributes.get(REQUEST_TIMEOUT_ATTRIBUTE);
+		if (value == null) {
+			value = System.getProperty(REQUEST_TIMEOUT_ATTRIBUTE);
+		}
+		if (value != null) {
+			try {
+				return Math.max(0, Long.parseLong(value.toString()));
+			} catch (NumberFormatException e) {
+				// use the default
+			}
+		}
+		return DEFAULT_REQUEST_TIMEOUT;
+	}
+
+	void sendConnectionNotification(String type, String message) {
+		String id;
+		long sequence;
+		synchronized (this) {
+			id = connectionId;
+			sequence = ++sequenceNumber;
+		}
+		broadcaster.sendNotification(new JMXConnectionNotification(type, this, id, sequence, message, null));
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#getMBeanServerConnection()
+	 */
+	public synchronized MBeanServerConnection getMBeanServerConnection() throws IOException {
+		if (connection == null || closed) {
+			throw new IOException("Not connected."); //$NON-NLS-1$
+		}
+		return connection;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#getMBeanServerConnection(javax.security.auth.Subject)
+	 */
+	public MBeanServerConnection getMBeanServerConnection(Subject delegationSubject) throws IOException {
+		return getMBeanServerConnection();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#close()
+	 */
+	public void close() throws IOException {
+		FrameChannel current;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			current = channel;
+		}
+		if (current != null) {
+			current.close();
+			sendConnectionNotification(JMXConnectionNotification.CLOSED, null);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#addConnectionNotificationListener(javax.management.NotificationListener, javax.management.NotificationFilter, java.lang.Object)
+	 */
+	public void addConnectionNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+		broadcaster.addNotificationListener(listener, filter, handback);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#removeConnectionNotificationListener(javax.management.NotificationListener)
+	 */
+	public void removeConnectionNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+		broadcaster.removeNotificationListener(listener);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#removeConnectionNotificationListener(javax.management.NotificationListener, javax.management.NotificationFilter, java.lang.Object)
+	 */
+	public void removeConnectionNotificationListener(NotificationListener l, NotificationFilter f, Object handback) throws ListenerNotFoundException {
+		broadcaster.removeNotificationListener(l, f, handback);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnector#getConnectionId()
+	 */
+	public synchronized String getConnectionId() throws IOException {
+		if (connectionId == null) {
+			throw new IOException("Not connected."); //$NON-NLS-1$
+		}
+		return connectionId;
+	}
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.binary;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.Map;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXServiceURL;
+import org.eclipse.equinox.jmx.client.IJMXConnectorProvider;
+
+public class BinaryJMXConnectorProvider implements IJMXConnectorProvider {
+
+	static final String PROTOCOL = "binary"; //$NON-NLS-1$
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnectorProvider#newJMXConnector(javax.management.remote.JMXServiceURL, java.util.Map)
+	 */
+	public JMXConnector newJMXConnector(JMXServiceURL arg0, Map arg1) throws IOException {
+		if (!PROTOCOL.equals(arg0.getProtocol())) {
+			throw new MalformedURLException("Invalid protocol: " + arg0.getProtocol()); //$NON-NLS-1$
+		}
+		return new BinaryJMXConnector(arg0, arg1);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.client.IJMXConnectorProvider#getJMXServiceURL(java.lang.String, int, java.lang.String, java.lang.String)
+	 */
+	public JMXServiceURL getJMXServiceURL(String host, int port, String protocol, String domain) throws MalformedURLException {
+		return new JMXServiceURL("service:jmx:binary://" + host + ":" + port); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
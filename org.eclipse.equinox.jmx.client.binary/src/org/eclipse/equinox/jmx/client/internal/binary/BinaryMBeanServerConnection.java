@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.binary;
+
+import java.io.IOException;
+import java.lang.reflect.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import javax.management.*;
+import org.eclipse.equinox.jmx.common.util.FrameCodec;
+
+/**
+ * Implements the <code>MBeanServerConnection</code> of a <code>BinaryJMXConnector</code>.
+ * <p>
+ * Each method is sent as a request naming the method and its parameter types, the
+ * exceptions thrown by the remote <code>MBeanServer</code> are rethrown to the caller.
+ * Notification listeners stay with the client: the server is asked to forward the
+ * notifications of an mbean under a listener id, and the forwarded notifications are
+ * filtered and delivered by a dedicated thread so a slow listener never holds up the
+ * responses sharing the channel.
+ * </p>
+ */
+final class BinaryMBeanServerConnection implements InvocationHandler {
+
+	private static final String ADD_NOTIFICATION_LISTENER = "addNotificationListener"; //$NON-NLS-1$
+
+	private final long requestTimeout;
+	private FrameChannel channel;
+
+	// listener id -> ListenerEntry, guarded by listeners
+	private final Map listeners = new HashMap();
+	private int nextListenerId;
+
+	// guarded by notifications
+	private final LinkedList notifications = new LinkedList();
+	private Thread notificationThread;
+	private boolean closed;
+
+	BinaryMBeanServerConnection(long requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	synchronized void setChannel(FrameChannel channel) {
+		this.channel = channel;
+	}
+
+	private synchronized FrameChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return A new <code>MBeanServerConnection</code> backed by this handler.
+	 */
+	MBeanServerConnection createConnection() {
+		return (MBeanServerConnection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {MBeanServerConnection.class}, this);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+	 */
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			String name = method.getName();
+			if ("equals".equals(name)) { //$NON-NLS-1$
+				return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+			} else if ("hashCode".equals(name)) { //$NON-NLS-1$
+				return new Integer(System.identityHashCode(proxy));
+			}
+			return "BinaryMBeanServerConnection@" + Integer.toHexString(System.identityHashCode(proxy)); //$NON-NLS-1$
+		}
+		Class[] types = method.getParameterTypes();
+		if (types.length > 1 && types[1] == NotificationListener.class) {
+			if (ADD_NOTIFICATION_LISTENER.equals(method.getName())) {
+				addNotificationListener((ObjectName) args[0], (NotificationListener) args[1], types.length > 2 ? (NotificationFilter) args[2] : null, types.length > 3 ? args[3] : null);
+			} else {
+				removeNotificationListener((ObjectName) args[0], (NotificationListener) args[1], types.length > 2, types.length > 2 ? (NotificationFilter) args[2] : null, types.length > 3 ? args[3] : null);
+			}
+			return null;
+		}
+		String[] signature = new String[types.length];
+		for (int i = 0; i < types.length; i++) {
+			signature[i] = types[i].getName();
+		}
+		try {
+			return call(method.getName(), signature, args == null ? new Object[0] : args);
+		} catch (InvocationTargetException e) {
+			Throwable target = e.getTargetException();
+			if (target instanceof RuntimeException || target instanceof Error) {
+				throw target;
+			}
+			Class[] exceptions = method.getExceptionTypes();
+			for (int i = 0; i < exceptions.length; i++) {
+				if (exceptions[i].isInstance(target)) {
+					throw target;
+				}
+			}
+			throw new IOException(target.toString());
+		}
+	}
+
+	private Object call(String methodName, String[] signature, Object[] args) throws InvocationTargetException, IOException {
+		FrameChannel current = getChannel();
+		if (current == null) {
+			throw new IOException("Not connected."); //$NON-NLS-1$
+		}
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		return current.call(new Object[] {methodName, signature, args}, requestTimeout, loader != null ? loader : getClass().getClassLoader());
+	}
+
+	private void addNotificationListener(ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback) throws InstanceNotFoundException, IOException {
+		Integer listenerId;
+		synchronized (listeners) {
+			listenerId = new Integer(++nextListenerId);
+			listeners.put(listenerId, new ListenerEntry(name, listener, filter, handback));
+		}
+		boolean added = false;
+		try {
+			call(FrameCodec.ADD_LISTENER, new String[] {ObjectName.class.getName(), Integer.class.getName()}, new Object[] {name, listenerId});
+			added = true;
+		} catch (InvocationTargetException e) {
+			if (e.getTargetException() instanceof InstanceNotFoundException) {
+				throw (InstanceNotFoundException) e.getTargetException();
+			}
+			throw new IOException(e.getTargetException().toString());
+		} finally {
+			if (!added) {
+				synchronized (listeners) {
+					listeners.remove(listenerId);
+				}
+			}
+		}
+	}
+
+	private void removeNotificationListener(ObjectName name, NotificationListener listener, boolean exact, NotificationFilter filter, Object handback) throws InstanceNotFoundException, ListenerNotFoundException, IOException {
+		List removed = new ArrayList();
+		synchronized (listeners) {
+			Iterator iter = listeners.entrySet().iterator();
+			while (iter.hasNext()) {
+				Map.Entry mapEntry = (Map.Entry) iter.next();
+				ListenerEntry entry = (ListenerEntry) mapEntry.getValue();
+				if (entry.name.equals(name) && entry.listener == listener && (!exact || (entry.filter == filter && entry.handback == handback))) {
+					removed.add(mapEntry.getKey());
+					iter.remove();
+				}
+			}
+		}
+		if (removed.isEmpty()) {
+			throw new ListenerNotFoundException();
+		}
+		for (int i = 0; i < removed.size(); i++) {
+			try {
+				call(FrameCodec.REMOVE_LISTENER, new String[] {Integer.class.getName()}, new Object[] {removed.get(i)});
+			} catch (InvocationTargetException e) {
+				if (e.getTargetException() instanceof InstanceNotFoundException) {
+					throw (InstanceNotFoundException) e.getTargetException();
+				}
+				// the server no longer knows the listener
+			}
+		}
+	}
+
+	/**
+	 * Queue a notification forwarded by the server for delivery.
+	 *
+	 * @param listenerId The id of the listener registration.
+	 * @param frame The frame, positioned at the serialized notification.
+	 */
+	void notificationReceived(int listenerId, ByteBuffer frame) {
+		synchronized (notifications) {
+			if (closed) {
+				return;
+			}
+			notifications.addLast(new Object[] {new Integer(listenerId), frame});
+			if (notificationThread == null) {
+				notificationThread = new Thread("Binary JMX Notification Dispatcher") { //$NON-NLS-1$
+					public void run() {
+						deliverNotifications();
+					}
+				};
+				notificationThread.setDaemon(true);
+				notificationThread.start();
+			}
+			notifications.notify();
+		}
+	}
+
+	/**
+	 * Stop delivering notifications, the channel has been closed.
+	 */
+	void channelClosed() {
+		synchronized (notifications) {
+			closed = true;
+			notifications.clear();
+			notifications.notifyAll();
+		}
+	}
+
+	void deliverNotifications() {
+		while (true) {
+			Object[] received;
+			synchronized (notifications) {
+				while (notifications.isEmpty() && !closed) {
+					try {
+						notifications.wait();
+					} catch (InterruptedException e) {
+						// check again
+					}
+				}
+				if (closed) {
+					return;
+				}
+				received = (Object[]) notifications.removeFirst();
+			}
+			ListenerEntry entry;
+			synchronized (listeners) {
+				entry = (ListenerEntry) listeners.get(received[0]);
+			}
+			if (entry == null) {
+				// removed while the notification was in transit
+				continue;
+			}
+			ByteBuffer frame = (ByteBuffer) received[1];
+			try {
+				Notification notification = (Notification) FrameCodec.decodePayload(frame.array(), frame.position(), frame.remaining(), entry.listener.getClass().getClassLoader());
+				if (entry.filter == null || entry.filter.isNotificationEnabled(notification)) {
+					entry.listener.handleNotification(notification, entry.handback);
+				}
+			} catch (IOException e) {
+				// the notification cannot be deserialized, skip it
+			} catch (RuntimeException e) {
+				// a failing listener must not stop the delivery to the others
+			}
+		}
+	}
+
+	private static final class ListenerEntry {
+
+		final ObjectName name;
+		final NotificationListener listener;
+		final NotificationFilter filter;
+		final Object handback;
+
+		ListenerEntry(ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback) {
+			this.name = name;
+			this.listener = listener;
+			this.filter = filter;
+			this.handback = handback;
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.binary;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import org.eclipse.equinox.jmx.common.util.FrameCodec;
+
+/**
+ * The client side of a binary transport connection.
+ * <p>
+ * All requests of a connector share one non-blocking channel.  Each request is
+ * tagged with a correlation id, the calling thread waits for the response with
+ * the same id while other threads issue their own requests.  A single thread
+ * reads the incoming frames and writes the frames the channel did not accept
+ * immediately.
+ * </p>
+ */
+final class FrameChannel {
+
+	/**
+	 * Receives the frames which are not responses, and the closure of the channel.
+	 */
+	interface FrameListener {
+
+		/**
+		 * @param listenerId The id of the listener registration.
+		 * @param frame The frame, positioned at the payload.
+		 */
+		public void notificationReceived(int listenerId, ByteBuffer frame);
+
+		/**
+		 * @param failure The failure which closed the channel, <code>null</code> if it was closed deliberately.
+		 */
+		public void channelClosed(IOException failure);
+	}
+
+	private final SocketChannel channel;
+	private final Selector selector;
+	private final FrameListener listener;
+	private final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+	private ByteBuffer frameBuffer;
+
+	// guarded by writeQueue
+	private final LinkedList writeQueue = new LinkedList();
+
+	// guarded by this
+	private final Map pendingCalls = new HashMap();
+	private int nextId;
+	private boolean closed;
+	private IOException failure;
+
+	/**
+	 * Connect to a binary connector server.
+	 *
+	 * @param host The host of the server.
+	 * @param port The port of the server.
+	 * @param listener The listener notified of notification frames and the closure of the channel.
+	 * @throws IOException If the connection cannot be established.
+	 */
+	FrameChannel(String host, int port, FrameListener listener) throws IOException {
+		this.listener = listener;
+		this.channel = SocketChannel.open();
+		try {
+			channel.socket().setTcpNoDelay(true);
+			channel.connect(new InetSocketAddress(host, port));
+			channel.configureBlocking(false);
+			selector = Selector.open();
+			channel.register(selector, SelectionKey.OP_READ);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		Thread thread = new Thread("Binary JMX Connector [" + host + ":" + port + "]") { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			public void run() {
+				runSelector();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Send a request and wait for its response.
+	 *
+	 * @param request The request payload.
+	 * @param timeout The time, in milliseconds, to wait for the response, <code>0</code> to wait indefinitely.
+	 * @param loader The class loader to resolve the response's classes with.
+	 * @return The result.
+	 * @throws InvocationTargetException If the server answered with an exception, which is the target.
+	 * @throws IOException If the request could not be sent or no response was received.
+	 */
+	Object call(Object request, long timeout, ClassLoader loader) throws InvocationTargetException, IOException {
+		PendingCall call = new PendingCall();
+		Integer id;
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+			id = new Integer(++nextId);
+			pendingCalls.put(id, call);
+		}
+		try {
+			send(FrameCodec.encode(id.intValue(), FrameCodec.TYPE_REQUEST, request));
+			ByteBuffer response = call.await(timeout);
+			byte type = response.get();
+			Object result = FrameCodec.decodePayload(response.array(), response.position(), response.remaining(), loader);
+			if (type == FrameCodec.TYPE_EXCEPTION) {
+				throw new InvocationTargetException((Throwable) result);
+			}
+			return result;
+		} finally {
+			synchronized (this) {
+				pendingCalls.remove(id);
+			}
+		}
+	}
+
+	/**
+	 * Send a frame.
+	 *
+	 * @param frame The encoded frame.
+	 * @throws IOException If the channel has been closed.
+	 */
+	void send(byte[] frame) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(frame);
+		synchronized (writeQueue) {
+			synchronized (this) {
+				if (failure != null) {
+					throw failure;
+				}
+			}
+			if (writeQueue.isEmpty()) {
+				channel.write(buffer);
+				if (!buffer.hasRemaining()) {
+					return;
+				}
+			}
+			writeQueue.addLast(buffer);
+		}
+		// let the selector thread register its interest in writing
+		selector.wakeup();
+	}
+
+	/**
+	 * Close the channel, pending requests fail.
+	 */
+	void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		selector.wakeup();
+	}
+
+	void runSelector() {
+		IOException cause = null;
+		try {
+			SelectionKey key = channel.keyFor(selector);
+			while (true) {
+				synchronized (writeQueue) {
+					key.interestOps(writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+				selector.select();
+				synchronized (this) {
+					if (closed) {
+						break;
+					}
+				}
+				if (selector.selectedKeys().remove(key)) {
+					if (key.isReadable()) {
+						read();
+					}
+					if (key.isWritable()) {
+						flush();
+					}
+				}
+			}
+		} catch (IOException e) {
+			cause = e;
+		} catch (CancelledKeyException e) {
+			cause = new IOException(e.toString());
+		} finally {
+			shutdown(cause);
+		}
+	}
+
+	private void read() throws IOException {
+		while (true) {
+			if (frameBuffer == null) {
+				if (channel.read(lengthBuffer) < 0) {
+					throw new EOFException();
+				}
+				if (lengthBuffer.hasRemaining()) {
+					return;
+				}
+				lengthBuffer.flip();
+				int length = lengthBuffer.getInt();
+				lengthBuffer.clear();
+				if (length < FrameCodec.HEADER_LENGTH || length > FrameCodec.MAX_FRAME_LENGTH) {
+					throw new IOException("Invalid frame length: " + length); //$NON-NLS-1$
+				}
+				frameBuffer = ByteBuffer.allocate(length);
+			}
+			if (channel.read(frameBuffer) < 0) {
+				throw new EOFException();
+			}
+			if (frameBuffer.hasRemaining()) {
+				return;
+			}
+			frameBuffer.flip();
+			received(frameBuffer);
+			frameBuffer = null;
+		}
+	}
+
+	private void received(ByteBuffer frame) {
+		int id = frame.getInt();
+		if (frame.get(frame.position()) == FrameCodec.TYPE_NOTIFICATION) {
+			frame.get();
+			listener.notificationReceived(id, frame);
+			return;
+		}
+		PendingCall call;
+		synchronized (this) {
+			call = (PendingCall) pendingCalls.get(new Integer(id));
+		}
+		// responses to requests which timed out are dropped
+		if (call != null) {
+			call.complete(frame, null);
+		}
+	}
+
+	private void flush() throws IOException {
+		synchronized (writeQueue) {
+			while (!writeQueue.isEmpty()) {
+				ByteBuffer buffer = (ByteBuffer) writeQueue.getFirst();
+				channel.write(buffer);
+				if (buffer.hasRemaining()) {
+					return;
+				}
+				writeQueue.removeFirst();
+			}
+		}
+	}
+
+	private void shutdown(IOException cause) {
+		PendingCall[] calls;
+		boolean deliberate;
+		synchronized (this) {
+			deliberate = closed;
+			closed = true;
+			failure = cause != null ? cause : new IOException("Connection closed."); //$NON-NLS-1$
+			calls = (PendingCall[]) pendingCalls.values().toArray(new PendingCall[pendingCalls.size()]);
+			pendingCalls.clear();
+		}
+		synchronized (writeQueue) {
+			writeQueue.clear();
+		}
+		try {
+			channel.close();
+			selector.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		for (int i = 0; i < calls.length; i++) {
+			calls[i].complete(null, failure);
+		}
+		listener.channelClosed(deliberate ? null : failure);
+	}
+
+	private static final class PendingCall {
+
+		// guarded by this
+		private boolean done;
+		private ByteBuffer response;
+		private IOException failure;
+
+		synchronized void complete(ByteBuffer response, IOException failure) {
+			this.response = response;
+			this.failure = failure;
+			this.done = true;
+			notifyAll();
+		}
+
+		synchronized ByteBuffer await(long timeout) throws IOException {
+			long deadline = System.currentTimeMillis() + timeout;
+			while (!done) {
+				long remaining = timeout == 0 ? 0 : deadline - System.currentTimeMillis();
+				if (timeout != 0 && remaining <= 0) {
+					throw new InterruptedIOException("Request timed out after " + timeout + " ms."); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return response;
+		}
+	}
+}
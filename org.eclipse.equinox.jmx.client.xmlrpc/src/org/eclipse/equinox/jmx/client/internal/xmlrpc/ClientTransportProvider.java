@@ -27,6 +27,14 @@ public abstract class ClientTransportProvider {
 
 	public abstract XmlRpcClientConfigImpl getConfig();
 
+	/**
+	 * Release the resources held by the transport layer, such as open
+	 * connections.  The default implementation does nothing.
+	 */
+	public void close() {
+		// nothing to release
+	}
+
 	/**
 	 * Return the xml-rpc client configured with the implementor's
 	 * transport layer.
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.xmlrpc;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Pool of persistent HTTP connections to one server.
+ * <p>
+ * A connection is returned to the pool once its response has been read completely
+ * and the server did not ask to close it.  Idle connections are reused most
+ * recently used first, connections idle for longer than the idle timeout are
+ * closed instead since the server has most likely closed them already.  When all
+ * connections are in use further requests wait for one to be released.
+ * </p>
+ */
+public class HttpConnectionPool {
+
+	private final String host;
+	private final int port;
+	private final int maxConnections;
+	private final long idleTimeout;
+
+	// guarded by this
+	private final LinkedList idleConnections = new LinkedList();
+	private int activeCount;
+	private boolean closed;
+	private long requestCount;
+	private long createdCount;
+	private long reusedCount;
+	private long discardedCount;
+	private long retryCount;
+	private long waitCount;
+
+	/**
+	 * Allocate a new pool.
+	 *
+	 * @param host The host of the server.
+	 * @param port The port of the server.
+	 * @param maxConnections The maximum number of connections, <code>0</code> if unlimited.
+	 * @param idleTimeout The time, in milliseconds, after which an idle connection is closed.
+	 */
+	public HttpConnectionPool(String host, int port, int maxConnections, long idleTimeout) {
+		this.host = host;
+		this.port = port;
+		this.maxConnections = maxConnections;
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Obtain a connection, opening a new one if no idle connection is available.
+	 *
+	 * @param soTimeout The read timeout of the connection, <code>0</code> for none.
+	 * @return The connection, to be returned by {@link #release(Connection)} or {@link #discard(Connection)}.
+	 * @throws IOException If the pool is closed or a connection cannot be opened.
+	 */
+	Connection acquire(int soTimeout) throws IOException {
+		Connection connection = null;
+		synchronized (this) {
+			while (true) {
+				if (closed) {
+					throw new IOException("Connection pool closed."); //$NON-NLS-1$
+				}
+				closeExpired(System.currentTimeMillis());
+				if (!idleConnections.isEmpty()) {
+					connection = (Connection) idleConnections.removeLast();
+					connection.reused = true;
+					reusedCount++;
+					break;
+				}
+				if (maxConnections <= 0 || activeCount < maxConnections) {
+					createdCount++;
+					break;
+				}
+				waitCount++;
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+			activeCount++;
+			requestCount++;
+		}
+		if (connection == null) {
+			try {
+				connection = new Connection(new Socket(host, port));
+			} catch (IOException e) {
+				synchronized (this) {
+					activeCount--;
+					notify();
+				}
+				throw e;
+			}
+		}
+		connection.socket.setSoTimeout(soTimeout);
+		return connection;
+	}
+
+	private void closeExpired(long now) {
+		Iterator iter = idleConnections.iterator();
+		while (iter.hasNext()) {
+			Connection connection = (Connection) iter.next();
+			if (now - connection.lastUsed >= idleTimeout) {
+				iter.remove();
+				connection.close();
+			}
+		}
+	}
+
+	/**
+	 * Return a connection whose response has been read completely to the pool.
+	 *
+	 * @param connection The connection.
+	 */
+	synchronized void release(Connection connection) {
+		activeCount--;
+		if (closed) {
+			connection.close();
+		} else {
+			connection.lastUsed = System.currentTimeMillis();
+			idleConnections.addLast(connection);
+		}
+		notify();
+	}
+
+	/**
+	 * Close a connection which cannot be reused.
+	 *
+	 * @param connection The connection.
+	 */
+	synchronized void discard(Connection connection) {
+		activeCount--;
+		discardedCount++;
+		connection.close();
+		notify();
+	}
+
+	/**
+	 * Record that a request has been sent again because a reused connection had been
+	 * closed by the server.
+	 */
+	synchronized void retried() {
+		retryCount++;
+	}
+
+	/**
+	 * Close the idle connections, connections in use are closed once released.
+	 */
+	public synchronized void close() {
+		closed = true;
+		while (!idleConnections.isEmpty()) {
+			((Connection) idleConnections.removeFirst()).close();
+		}
+		notifyAll();
+	}
+
+	/**
+	 * @return The maximum number of connections, <code>0</code> if unlimited.
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * @return The time, in milliseconds, after which an idle connection is closed.
+	 */
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * @return The number of connections currently in use.
+	 */
+	public synchronized int getActiveCount() {
+		return activeCount;
+	}
+
+	/**
+	 * @return The number of idle connections.
+	 */
+	public synchronized int getIdleCount() {
+		return idleConnections.size();
+	}
+
+	/**
+	 * @return The number of requests which obtained a connection.
+	 */
+	public synchronized long getRequestCount() {
+		return requestCount;
+	}
+
+	/**
+	 * @return The number of connections which have been opened.
+	 */
+	public synchronized long getCreatedCount() {
+		return createdCount;
+	}
+
+	/**
+	 * @return The number of requests which reused an idle connection.
+	 */
+	public synchronized long getReusedCount() {
+		return reusedCount;
+	}
+
+	/**
+	 * @return The number of connections which were closed because they could not be reused.
+	 */
+	public synchronized long getDiscardedCount() {
+		return discardedCount;
+	}
+
+	/**
+	 * @return The number of requests sent again because the server had closed the reused connection.
+	 */
+	public synchronized long getRetryCount() {
+		return retryCount;
+	}
+
+	/**
+	 * @return The number of requests which waited for a connection to be released.
+	 */
+	public synchronized long getWaitCount() {
+		return waitCount;
+	}
+
+	/**
+	 * A pooled connection.
+	 */
+	static final class Connection {
+
+		final Socket socket;
+		final InputStream in;
+		final OutputStream out;
+		long lastUsed;
+		boolean reused;
+
+		Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			this.in = new BufferedInputStream(socket.getInputStream());
+			this.out = new BufferedOutputStream(socket.getOutputStream());
+		}
+
+		void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.xmlrpc;
+
+import java.io.*;
+
+/**
+ * Reads the body of an HTTP response from a persistent connection without reading
+ * past its end, so the connection can carry the next request.  The body is delimited
+ * either by a content length, by chunked transfer encoding or by the end of the stream.
+ */
+class HttpResponseInputStream extends InputStream {
+
+	private static final int MAX_LINE_LENGTH = 8192;
+
+	private final InputStream in;
+	private final boolean chunked;
+	private long remaining;
+	private boolean eof;
+
+	/**
+	 * @param in The stream of the connection, positioned at the body.
+	 * @param contentLength The length of the body, <code>-1</code> if not known.
+	 * @param chunked Whether the body uses chunked transfer encoding.
+	 */
+	HttpResponseInputStream(InputStream in, long contentLength, boolean chunked) {
+		this.in = in;
+		this.chunked = chunked;
+		this.remaining = chunked ? 0 : contentLength;
+		this.eof = !chunked && contentLength == 0;
+	}
+
+	/**
+	 * @return Whether the end of the body is delimited without closing the connection.
+	 */
+	boolean isDelimited() {
+		return chunked || remaining >= 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read()
+	 */
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (eof) {
+			return -1;
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (chunked && remaining == 0) {
+			remaining = readChunkSize();
+			if (remaining == 0) {
+				// skip the trailer
+				while (readLine(in).length() > 0) {
+					// continue
+				}
+				eof = true;
+				return -1;
+			}
+		}
+		if (remaining > 0 && len > remaining) {
+			len = (int) remaining;
+		}
+		int count = in.read(b, off, len);
+		if (count < 0) {
+			if (isDelimited()) {
+				throw new EOFException("Unexpected end of HTTP response."); //$NON-NLS-1$
+			}
+			eof = true;
+			return -1;
+		}
+		if (remaining > 0) {
+			remaining -= count;
+			if (remaining == 0) {
+				if (chunked) {
+					// the line break which terminates the chunk
+					readLine(in);
+				} else {
+					eof = true;
+				}
+			}
+		}
+		return count;
+	}
+
+	private long readChunkSize() throws IOException {
+		String line = readLine(in);
+		int index = line.indexOf(';');
+		if (index >= 0) {
+			line = line.substring(0, index);
+		}
+		try {
+			return Long.parseLong(line.trim(), 16);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid chunk size: " + line); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Read the rest of the body.
+	 *
+	 * @throws IOException If the body cannot be read.
+	 */
+	void drain() throws IOException {
+		byte[] buffer = new byte[1024];
+		while (read(buffer, 0, buffer.length) >= 0) {
+			// discard
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#close()
+	 */
+	public void close() {
+		// the connection is released by the transport
+	}
+
+	/**
+	 * Read a line of the response header, without its line terminator.
+	 *
+	 * @param in The stream to read from.
+	 * @return The line.
+	 * @throws IOException If the stream ends before the line or the line is too long.
+	 */
+	static String readLine(InputStream in) throws IOException {
+		StringBuffer line = new StringBuffer();
+		while (true) {
+			int c = in.read();
+			if (c < 0) {
+				throw new EOFException("Unexpected end of HTTP response."); //$NON-NLS-1$
+			}
+			if (c == '\n') {
+				return line.toString();
+			}
+			if (c != '\r') {
+				if (line.length() >= MAX_LINE_LENGTH) {
+					throw new IOException("HTTP header too long."); //$NON-NLS-1$
+				}
+				line.append((char) c);
+			}
+		}
+	}
+}
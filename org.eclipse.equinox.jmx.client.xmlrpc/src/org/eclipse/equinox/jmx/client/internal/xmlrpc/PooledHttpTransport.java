@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.xmlrpc;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.client.*;
+import org.apache.xmlrpc.common.XmlRpcStreamRequestConfig;
+import org.eclipse.equinox.jmx.common.util.CountingInputStream;
+import org.eclipse.equinox.jmx.common.util.HttpCompression;
+import org.xml.sax.SAXException;
+
+/**
+ * XML-RPC transport sending each request over a persistent HTTP/1.1 connection
+ * obtained from a <code>HttpConnectionPool</code>.  Once the response has been
+ * read the connection is returned to the pool for the next request, unless the
+ * server asked to close it.
+ * <p>
+ * A request sent over a reused connection which the server closed while it was idle
+ * is sent again over another connection if the request could not be written, or if
+ * the server's reply cannot have changed anything as the request only reads.
+ * </p>
+ * <p>
+ * Responses are accepted gzip or deflate compressed.  Request bodies from the
+ * compression threshold of the factory on are compressed once the server announced
+ * the codings it decodes in the <code>Accept-Encoding</code> header of a response.
+ * </p>
+ */
+public class PooledHttpTransport extends XmlRpcHttpTransport {
+
+	private static final String userAgent = USER_AGENT + " (Pooled HTTP Transport)"; //$NON-NLS-1$
+	private static final String CONTENT_LENGTH = "Content-Length"; //$NON-NLS-1$
+	private static final String CRLF = "\r\n"; //$NON-NLS-1$
+	// the server methods which only read, these are sent again if the server may have received them
+	private static final Set readMethods = new HashSet(Arrays.asList(new String[] {"getObjectInstance", "queryMBeans", "queryNames", "isRegistered", "getMBeanCount", "getDefaultDomain", "getDomains", "getMBeanInfo", "isInstanceOf", "getAttribute", "getAttributes"})); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$
+
+	private final PooledHttpTransportFactory factory;
+	private final HttpConnectionPool pool;
+	private final Map headers = new HashMap();
+	private XmlRpcHttpClientConfig config;
+	private String methodName;
+	private HttpConnectionPool.Connection connection;
+	private HttpResponseInputStream body;
+	private CountingInputStream transferredBody;
+	private CountingInputStream decodedBody;
+	private String responseEncoding;
+	private boolean reusable;
+
+	public PooledHttpTransport(XmlRpcClient client, PooledHttpTransportFactory factory) {
+		super(client, userAgent);
+		this.factory = factory;
+		this.pool = factory.getConnectionPool();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.xmlrpc.client.XmlRpcHttpTransport#sendRequest(org.apache.xmlrpc.XmlRpcRequest)
+	 */
+	public Object sendRequest(XmlRpcRequest request) throws XmlRpcException {
+		config = (XmlRpcHttpClientConfig) request.getConfig();
+		methodName = request.getMethodName();
+		headers.clear();
+		return super.sendRequest(request);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.xmlrpc.client.XmlRpcHttpTransport#setRequestHeader(java.lang.String, java.lang.String)
+	 */
+	protected void setRequestHeader(String header, String value) {
+		headers.put(header, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.xmlrpc.client.XmlRpcStreamTransport#writeRequest(org.apache.xmlrpc.client.XmlRpcStreamTransport.ReqWriter)
+	 */
+	protected void writeRequest(ReqWriter writer) throws XmlRpcException, IOException, SAXException {
+		// the request is buffered so it can be sent again, and for its content length
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		writer.write(content);
+		byte[] requestBody = content.toByteArray();
+		String encoding = null;
+		int threshold = factory.getCompressionThreshold();
+		if (threshold > 0 && requestBody.length >= threshold && (encoding = factory.getRequestEncoding()) != null) {
+			byte[] compressed = HttpCompression.compress(requestBody, 0, requestBody.length, encoding);
+			if (compressed.length < requestBody.length) {
+				requestBody = compressed;
+			} else {
+				encoding = null;
+			}
+		}
+		byte[] header = getRequestHeader(requestBody.length, encoding);
+		while (true) {
+			connection = pool.acquire(config.getReplyTimeout());
+			boolean written = false;
+			boolean responding = false;
+			try {
+				connection.out.write(header);
+				connection.out.write(requestBody);
+				connection.out.flush();
+				written = true;
+				connection.in.mark(1);
+				if (connection.in.read() < 0) {
+					throw new EOFException("Connection closed by server."); //$NON-NLS-1$
+				}
+				connection.in.reset();
+				responding = true;
+				factory.getStatistics().recordRequest(content.size(), requestBody.length, encoding != null);
+				readResponseHeader();
+				return;
+			} catch (IOException e) {
+				HttpConnectionPool.Connection failed = connection;
+				connection = null;
+				pool.discard(failed);
+				// an idle connection may have been closed by the server in the meantime; unless
+				// the request could not be written the server may have run it without responding,
+				// so only requests which read are sent again then
+				if (!failed.reused || responding || e instanceof InterruptedIOException || (written && !readMethods.contains(methodName))) {
+					throw e;
+				}
+				pool.retried();
+			}
+		}
+	}
+
+	private byte[] getRequestHeader(int contentLength, String contentEncoding) throws UnsupportedEncodingException {
+		URL url = config.getServerURL();
+		String path = url.getFile();
+		StringBuffer buffer = new StringBuffer();
+		buffer.append("POST ").append(path.length() == 0 ? "/" : path).append(" HTTP/1.1").append(CRLF); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		buffer.append("Host: ").append(url.getHost()); //$NON-NLS-1$
+		if (url.getPort() != -1) {
+			buffer.append(':').append(url.getPort());
+		}
+		buffer.append(CRLF);
+		Iterator iter = headers.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry entry = (Map.Entry) iter.next();
+			String name = (String) entry.getKey();
+			if (!CONTENT_LENGTH.equalsIgnoreCase(name) && !HttpCompression.CONTENT_ENCODING_HEADER.equalsIgnoreCase(name) && !HttpCompression.ACCEPT_ENCODING_HEADER.equalsIgnoreCase(name)) {
+				buffer.append(name).append(": ").append(entry.getValue()).append(CRLF); //$NON-NLS-1$
+			}
+		}
+		if (factory.getCompressionThreshold() > 0) {
+			buffer.append(HttpCompression.ACCEPT_ENCODING_HEADER).append(": ").append(HttpCompression.ACCEPTED_ENCODINGS).append(CRLF); //$NON-NLS-1$
+		}
+		if (contentEncoding != null) {
+			buffer.append(HttpCompression.CONTENT_ENCODING_HEADER).append(": ").append(contentEncoding).append(CRLF); //$NON-NLS-1$
+		}
+		buffer.append(CONTENT_LENGTH).append(": ").append(contentLength).append(CRLF); //$NON-NLS-1$
+		buffer.append(CRLF);
+		return buffer.toString().getBytes("US-ASCII"); //$NON-NLS-1$
+	}
+
+	private void readResponseHeader() throws IOException, XmlRpcException {
+		String version;
+		int status;
+		String statusLine;
+		do {
+			statusLine = HttpResponseInputStream.readLine(connection.in);
+			StringTokenizer tokenizer = new StringTokenizer(statusLine);
+			try {
+				version = tokenizer.nextToken();
+				status = Integer.parseInt(tokenizer.nextToken());
+			} catch (RuntimeException e) {
+				throw new IOException("Invalid HTTP status line: " + statusLine); //$NON-NLS-1$
+			}
+			Map responseHeaders = readHeaderFields();
+			if (status >= 200) {
+				processResponseHeader(version, status, statusLine, responseHeaders);
+			}
+		} while (status < 200);
+	}
+
+	private Map readHeaderFields() throws IOException {
+		Map fields = new HashMap();
+		String line;
+		while ((line = HttpResponseInputStream.readLine(connection.in)).length() > 0) {
+			int index = line.indexOf(':');
+			if (index > 0) {
+				fields.put(line.substring(0, index).trim().toLowerCase(), line.substring(index + 1).trim());
+			}
+		}
+		return fields;
+	}
+
+	private void processResponseHeader(String version, int status, String statusLine, Map fields) throws IOException, XmlRpcException {
+		if (status != 200) {
+			HttpConnectionPool.Connection failed = connection;
+			connection = null;
+			pool.discard(failed);
+			throw new XmlRpcClientException("HTTP server returned unexpected status: " + statusLine, null); //$NON-NLS-1$
+		}
+		String connectionField = (String) fields.get("connection"); //$NON-NLS-1$
+		if ("HTTP/1.0".equals(version)) { //$NON-NLS-1$
+			reusable = connectionField != null && connectionField.toLowerCase().indexOf("keep-alive") != -1; //$NON-NLS-1$
+		} else {
+			reusable = connectionField == null || connectionField.toLowerCase().indexOf("close") == -1; //$NON-NLS-1$
+		}
+		String transferEncoding = (String) fields.get("transfer-encoding"); //$NON-NLS-1$
+		boolean chunked = transferEncoding != null && transferEncoding.toLowerCase().indexOf("chunked") != -1; //$NON-NLS-1$
+		long contentLength = -1;
+		String contentLengthField = (String) fields.get("content-length"); //$NON-NLS-1$
+		if (!chunked && contentLengthField != null) {
+			try {
+				contentLength = Long.parseLong(contentLengthField);
+			} catch (NumberFormatException e) {
+				// read to the end of the stream
+			}
+		}
+		body = new HttpResponseInputStream(connection.in, contentLength, chunked);
+		reusable = reusable && body.isDelimited();
+		String acceptEncoding = (String) fields.get("accept-encoding"); //$NON-NLS-1$
+		if (acceptEncoding != null) {
+			factory.setRequestEncoding(HttpCompression.selectEncoding(acceptEncoding));
+		}
+		responseEncoding = HttpCompression.getEncoding((String) fields.get("content-encoding")); //$NON-NLS-1$
+		transferredBody = new CountingInputStream(body);
+		decodedBody = new CountingInputStream(HttpCompression.decompress(transferredBody, responseEncoding));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.xmlrpc.client.XmlRpcStreamTransport#getInputStream()
+	 */
+	protected InputStream getInputStream() throws XmlRpcException {
+		return decodedBody;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.xmlrpc.client.XmlRpcStreamTransport#isResponseGzipCompressed(org.apache.xmlrpc.common.XmlRpcStreamRequestConfig)
+	 */
+	protected boolean isResponseGzipCompressed(XmlRpcStreamRequestConfig pConfig) {
+		// compressed responses are decoded by getInputStream()
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.xmlrpc.client.XmlRpcStreamTransport#close()
+	 */
+	protected void close() throws XmlRpcClientException {
+		HttpConnectionPool.Connection current = connection;
+		if (current == null) {
+			return;
+		}
+		connection = null;
+		factory.getStatistics().recordResponse(decodedBody.getCount(), transferredBody.getCount(), responseEncoding != null);
+		decodedBody = null;
+		transferredBody = null;
+		if (reusable) {
+			try {
+				body.drain();
+				pool.release(current);
+				return;
+			} catch (IOException e) {
+				// the connection cannot be reused
+			}
+		}
+		pool.discard(current);
+	}
+}
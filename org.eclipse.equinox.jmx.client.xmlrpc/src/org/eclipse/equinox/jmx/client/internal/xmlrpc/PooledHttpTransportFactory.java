@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.xmlrpc;
+
+import org.apache.xmlrpc.client.*;
+import org.eclipse.equinox.jmx.common.util.CompressionStatistics;
+
+/**
+ * Creates <code>PooledHttpTransport</code>s sharing one connection pool, and the
+ * compression settings negotiated with the server.
+ */
+public class PooledHttpTransportFactory extends XmlRpcTransportFactoryImpl {
+
+	private final HttpConnectionPool pool;
+	private final int compressionThreshold;
+	private final CompressionStatistics statistics;
+	// the coding the server announced to decode request bodies in, guarded by this
+	private String requestEncoding;
+
+	public PooledHttpTransportFactory(XmlRpcClient client, HttpConnectionPool pool) {
+		this(client, pool, 0, new CompressionStatistics());
+	}
+
+	/**
+	 * @param client The client the transports send requests for.
+	 * @param pool The pool of connections to the server.
+	 * @param compressionThreshold The size, in bytes, from which request bodies are
+	 * compressed, <code>0</code> to neither compress requests nor accept compressed responses.
+	 * @param statistics The counters of the transferred bodies.
+	 */
+	public PooledHttpTransportFactory(XmlRpcClient client, HttpConnectionPool pool, int compressionThreshold, CompressionStatistics statistics) {
+		super(client);
+		this.pool = pool;
+		this.compressionThreshold = Math.max(0, compressionThreshold);
+		this.statistics = statistics;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.xmlrpc.client.XmlRpcTransportFactoryImpl#getTransport()
+	 */
+	public XmlRpcTransport getTransport() {
+		return new PooledHttpTransport(getClient(), this);
+	}
+
+	HttpConnectionPool getConnectionPool() {
+		return pool;
+	}
+
+	int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	CompressionStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return The coding to compress request bodies in, <code>null</code> until the
+	 * server announced a supported coding.
+	 */
+	synchronized String getRequestEncoding() {
+		return requestEncoding;
+	}
+
+	synchronized void setRequestEncoding(String encoding) {
+		this.requestEncoding = encoding;
+	}
+}
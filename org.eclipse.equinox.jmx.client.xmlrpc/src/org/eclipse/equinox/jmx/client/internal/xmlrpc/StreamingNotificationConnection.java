@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.client.internal.xmlrpc;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.equinox.jmx.client.remote.RemoteMBeanConnection;
+import org.eclipse.equinox.jmx.common.NamedNotification;
+import org.eclipse.equinox.jmx.common.util.NotificationStreamCodec;
+
+/**
+ * A <code>RemoteMBeanConnection</code> receiving notifications over the notification
+ * stream of the server instead of requesting them.  The stream is opened by the first
+ * retrieval and kept open by subsequent retrievals continuing where the previous one
+ * stopped; it is reopened at the requested id otherwise, or after it failed.  If the
+ * server does not provide the stream, retrievals are delegated to the fallback
+ * connection, which polls.
+ */
+public class StreamingNotificationConnection implements RemoteMBeanConnection {
+
+	private final URL streamURL;
+	private final RemoteMBeanConnection fallback;
+	// guarded by this
+	private boolean streamUnsupported;
+	private boolean closed;
+	private HttpURLConnection connection;
+	private BufferedReader reader;
+	// the id of the next notification the open stream delivers
+	private long nextId;
+
+	/**
+	 * @param serverURL The URL of the XML-RPC server.
+	 * @param fallback The connection to retrieve notifications from if the server
+	 * does not stream notifications.
+	 * @throws IOException If the URL of the stream cannot be derived from the server URL.
+	 */
+	public StreamingNotificationConnection(URL serverURL, RemoteMBeanConnection fallback) throws IOException {
+		this.streamURL = new URL(serverURL, NotificationStreamCodec.PATH);
+		this.fallback = fallback;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.client.remote.RemoteMBeanConnection#retrieveNotifications(long)
+	 */
+	public NamedNotification[] retrieveNotifications(long startId) throws IOException {
+		return fallback.retrieveNotifications(startId);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.client.remote.RemoteMBeanConnection#retrieveNotifications(long, long, int)
+	 */
+	public NamedNotification[] retrieveNotifications(long startId, long maxWaitMillis, int maxCount) throws IOException {
+		BufferedReader in;
+		synchronized (this) {
+			if (closed) {
+				throw new IOException("The connection is closed."); //$NON-NLS-1$
+			}
+			if (!streamUnsupported && (reader == null || nextId != startId)) {
+				disconnect();
+				open(startId);
+			}
+			if (streamUnsupported) {
+				in = null;
+			} else {
+				in = reader;
+			}
+		}
+		if (in == null) {
+			return fallback.retrieveNotifications(startId, maxWaitMillis, maxCount);
+		}
+		// the server sends a comment when no notification arrived for a while, the
+		// wait time of the request is bounded by that interval instead of maxWaitMillis
+		List result = new ArrayList();
+		try {
+			do {
+				NamedNotification notification = readEvent(in);
+				if (notification != null && notification.getNotificationId() >= startId) {
+					result.add(notification);
+				}
+			} while (result.size() < maxCount && in.ready());
+		} catch (IOException e) {
+			// return what was received, the next retrieval reopens the stream
+			synchronized (this) {
+				if (reader == in) {
+					disconnect();
+				}
+			}
+			if (result.isEmpty() && isClosed()) {
+				throw e;
+			}
+		}
+		NamedNotification[] notifications = (NamedNotification[]) result.toArray(new NamedNotification[result.size()]);
+		synchronized (this) {
+			if (reader == in && notifications.length > 0) {
+				nextId = notifications[notifications.length - 1].getNotificationId() + 1;
+			}
+		}
+		return notifications;
+	}
+
+	/**
+	 * @return Whether notifications are received over the stream of the server.
+	 */
+	public synchronized boolean isStreaming() {
+		return !streamUnsupported && !closed;
+	}
+
+	private synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Close the stream, subsequent retrievals fail.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			disconnect();
+		}
+	}
+
+	private void open(long startId) throws IOException {
+		HttpURLConnection newConnection = (HttpURLConnection) new URL(streamURL.toExternalForm() + '?' + NotificationStreamCodec.START_ID_PARAMETER + '=' + startId).openConnection();
+		newConnection.setUseCaches(false);
+		newConnection.setRequestProperty("Accept", NotificationStreamCodec.CONTENT_TYPE); //$NON-NLS-1$
+		int status = newConnection.getResponseCode();
+		String contentType = newConnection.getContentType();
+		if (status == HttpURLConnection.HTTP_UNAVAILABLE) {
+			// the server streams to too many clients, poll until the stream is reopened
+			newConnection.disconnect();
+			return;
+		}
+		if (status != HttpURLConnection.HTTP_OK || contentType == null || !contentType.startsWith(NotificationStreamCodec.CONTENT_TYPE)) {
+			// a server without the stream
+			newConnection.disconnect();
+			streamUnsupported = true;
+			return;
+		}
+		connection = newConnection;
+		reader = new BufferedReader(new InputStreamReader(newConnection.getInputStream(), "UTF-8")); //$NON-NLS-1$
+		nextId = startId;
+	}
+
+	private void disconnect() {
+		if (connection != null) {
+			connection.disconnect();
+			connection = null;
+			reader = null;
+		}
+	}
+
+	/**
+	 * Read the next event or comment from the stream.
+	 *
+	 * @param in The stream.
+	 * @return The notification of the event, <code>null</code> for a comment.
+	 * @throws IOException If the stream failed or ended.
+	 */
+	private NamedNotification readEvent(BufferedReader in) throws IOException {
+		String data = null;
+		boolean comment = false;
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.length() == 0) {
+				if (data != null) {
+					return NotificationStreamCodec.decodeData(data, getClass().getClassLoader());
+				} else if (comment) {
+					return null;
+				}
+			} else if (line.charAt(0) == ':') {
+				comment = true;
+			} else if (line.startsWith("data:")) { //$NON-NLS-1$
+				data = line.substring(5).trim();
+			}
+			// the id and type of an event are implied by its data
+		}
+		throw new EOFException("The notification stream ended."); //$NON-NLS-1$
+	}
+}
@@ -12,20 +12,73 @@ package org.eclipse.equinox.jmx.client.internal.xmlrpc;
 
 import java.net.URL;
 import org.apache.xmlrpc.client.*;
+import org.eclipse.equinox.jmx.common.util.CompressionStatistics;
+import org.eclipse.equinox.jmx.common.util.HttpCompression;
 
 public class WebServerTransportProvider extends ClientTransportProvider {
 
+	public static final int DEFAULT_MAX_CONNECTIONS = 4;
+	// well below the 10 seconds after which the server's listener closes idle connections,
+	// so pooled connections are dropped before the server closes them
+	public static final long DEFAULT_IDLE_TIMEOUT = 5 * 1000;
+
 	private URL serverUrl;
+	private final HttpConnectionPool connectionPool;
+	private final int compressionThreshold;
+	private final CompressionStatistics compressionStatistics = new CompressionStatistics();
 
 	public WebServerTransportProvider(URL serverUrl) {
+		this(serverUrl, DEFAULT_MAX_CONNECTIONS, DEFAULT_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * @param serverUrl The url of the server.
+	 * @param maxConnections The maximum number of concurrent connections to the server, <code>0</code> if unlimited.
+	 * @param idleTimeout The time, in milliseconds, an idle connection is kept open.
+	 */
+	public WebServerTransportProvider(URL serverUrl, int maxConnections, long idleTimeout) {
+		this(serverUrl, maxConnections, idleTimeout, HttpCompression.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * @param serverUrl The url of the server.
+	 * @param maxConnections The maximum number of concurrent connections to the server, <code>0</code> if unlimited.
+	 * @param idleTimeout The time, in milliseconds, an idle connection is kept open.
+	 * @param compressionThreshold The size, in bytes, from which request bodies are compressed,
+	 * <code>0</code> to disable compression of requests and responses.
+	 */
+	public WebServerTransportProvider(URL serverUrl, int maxConnections, long idleTimeout, int compressionThreshold) {
 		this.serverUrl = serverUrl;
+		this.compressionThreshold = compressionThreshold;
+		this.connectionPool = new HttpConnectionPool(serverUrl.getHost(), serverUrl.getPort() == -1 ? 80 : serverUrl.getPort(), maxConnections, idleTimeout);
 	}
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.equinox.jmx.client.internal.xmlrpc.ClientTransportProvider#getXmlRpcTransportFactory(org.apache.xmlrpc.client.XmlRpcClient)
 	 */
 	public XmlRpcTransportFactory getXmlRpcTransportFactory(XmlRpcClient client) {
-		return new XmlRpcCommonsTransportFactory(client);
+		return new PooledHttpTransportFactory(client, connectionPool, compressionThreshold, compressionStatistics);
+	}
+
+	/**
+	 * @return The pool of connections to the server.
+	 */
+	public HttpConnectionPool getConnectionPool() {
+		return connectionPool;
+	}
+
+	/**
+	 * @return The sizes of the request and response bodies, before compression and as transferred.
+	 */
+	public CompressionStatistics getCompressionStatistics() {
+		return compressionStatistics;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.client.internal.xmlrpc.ClientTransportProvider#close()
+	 */
+	public void close() {
+		connectionPool.close();
 	}
 
 	/* (non-Javadoc)
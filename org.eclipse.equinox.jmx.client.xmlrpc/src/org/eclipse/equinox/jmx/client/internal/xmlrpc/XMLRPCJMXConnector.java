@@ -16,13 +16,33 @@ import java.util.Map;
 import javax.management.*;
 import javax.management.remote.JMXConnector;
 import javax.security.auth.Subject;
+import org.eclipse.equinox.jmx.common.util.CompressionStatistics;
+import org.eclipse.equinox.jmx.common.util.HttpCompression;
 
 public class XMLRPCJMXConnector implements JMXConnector {
 
+	/**
+	 * The environment attribute, or system property, holding the maximum number of
+	 * concurrent HTTP connections to the server; <code>0</code> is unlimited.
+	 */
+	public static final String MAX_CONNECTIONS_ATTRIBUTE = "org.eclipse.equinox.jmx.client.xmlrpc.maxConnections"; //$NON-NLS-1$
+
+	/**
+	 * The environment attribute, or system property, holding the time in milliseconds
+	 * an idle HTTP connection is kept open for subsequent requests.
+	 */
+	public static final String IDLE_TIMEOUT_ATTRIBUTE = "org.eclipse.equinox.jmx.client.xmlrpc.idleTimeout"; //$NON-NLS-1$
+
+	/**
+	 * The environment attribute, or system property, holding the size in bytes from
+	 * which request bodies are compressed; <code>0</code> disables compression.
+	 */
+	public static final String COMPRESSION_THRESHOLD_ATTRIBUTE = "org.eclipse.equinox.jmx.client.xmlrpc.compressionThreshold"; //$NON-NLS-1$
+
 	private final String host;
 	private final int port;
-	private ClientTransportProvider clientProvider;
-	private MBeanServerConnection mbeanServer;
+	private WebServerTransportProvider clientProvider;
+	private XMLRPCMBeanServerConnection mbeanServer;
 
 	public XMLRPCJMXConnector(String host, int port) {
 		this.host = host;
@@ -40,8 +60,43 @@ public class XMLRPCJMXConnector implements JMXConnector {
 	 * @see javax.management.remote.JMXConnector#connect(java.util.Map)
 	 */
 	public void connect(Map arg0) throws IOException {
-		clientProvider = new WebServerTransportProvider(new URL("http://" + host + ":" + port));
-		mbeanServer = new XMLRPCMBeanServerConnection(clientProvider.getXmlRpcClient());
+		int maxConnections = (int) getLongAttribute(arg0, MAX_CONNECTIONS_ATTRIBUTE, WebServerTransportProvider.DEFAULT_MAX_CONNECTIONS);
+		long idleTimeout = getLongAttribute(arg0, IDLE_TIMEOUT_ATTRIBUTE, WebServerTransportProvider.DEFAULT_IDLE_TIMEOUT);
+		int compressionThreshold = (int) getLongAttribute(arg0, COMPRESSION_THRESHOLD_ATTRIBUTE, HttpCompression.DEFAULT_THRESHOLD);
+		URL serverURL = new URL("http://" + host + ":" + port); //$NON-NLS-1$ //$NON-NLS-2$
+		clientProvider = new WebServerTransportProvider(serverURL, maxConnections, idleTimeout, compressionThreshold);
+		mbeanServer = new XMLRPCMBeanServerConnection(clientProvider.getXmlRpcClient(), serverURL);
+	}
+
+	private static long getLongAttribute(Map env, String key, long defaultValue) {
+		Object value = env != null ? env.get(key) : null;
+		if (value == null) {
+			value = System.getProperty(key);
+		}
+		if (value != null) {
+			try {
+				return Math.max(0, Long.parseLong(value.toString()));
+			} catch (NumberFormatException e) {
+				// use the default
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * @return The pool of HTTP connections to the server, which provides the usage
+	 * statistics of the connections, <code>null</code> if not connected.
+	 */
+	public HttpConnectionPool getConnectionPool() {
+		return clientProvider != null ? clientProvider.getConnectionPool() : null;
+	}
+
+	/**
+	 * @return The sizes of the request and response bodies exchanged with the server,
+	 * before compression and as transferred, <code>null</code> if not connected.
+	 */
+	public CompressionStatistics getCompressionStatistics() {
+		return clientProvider != null ? clientProvider.getCompressionStatistics() : null;
 	}
 
 	/* (non-Javadoc)
@@ -62,8 +117,13 @@ public class XMLRPCJMXConnector implements JMXConnector {
 	 * @see javax.management.remote.JMXConnector#close()
 	 */
 	public void close() throws IOException {
-		// the xmlrpc http transport creates a new connection for each remote operation
-		// thus there is no global close ability associated with this provider
+		if (mbeanServer != null) {
+			mbeanServer.close();
+		}
+		// the http connections kept open by the transport for subsequent remote operations
+		if (clientProvider != null) {
+			clientProvider.close();
+		}
 	}
 
 	/* (non-Javadoc)
@@ -11,12 +11,14 @@
 package org.eclipse.equinox.jmx.client.internal.xmlrpc;
 
 import java.io.IOException;
-import java.util.Set;
+import java.net.URL;
+import java.util.*;
 import javax.management.*;
 import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.client.XmlRpcClient;
 import org.eclipse.equinox.jmx.client.remote.RemoteMBeanConnection;
 import org.eclipse.equinox.jmx.client.remote.RemoteNotificationHandler;
+import org.eclipse.equinox.jmx.common.InvocationResult;
 import org.eclipse.equinox.jmx.common.NamedNotification;
 
 /**
@@ -27,14 +29,42 @@ import org.eclipse.equinox.jmx.common.NamedNotification;
 public class XMLRPCMBeanServerConnection implements MBeanServerConnection, RemoteMBeanConnection {
 
 	private static final String CREATE_MBEAN = "createMBean"; //$NON-NLS-1$
+	private static final String RETRIEVE_NOTIFICATIONS = "retrieveNotifications"; //$NON-NLS-1$
 	private XmlRpcClient clientConnection;
 	private RemoteNotificationHandler notificationHandler;
+	private StreamingNotificationConnection notificationStream;
+	// guarded by this
+	private boolean waitingRetrievalSupported = true;
 
 	public XMLRPCMBeanServerConnection(XmlRpcClient clientConnection) {
 		this.clientConnection = clientConnection;
 		this.notificationHandler = new RemoteNotificationHandler(this);
 	}
 
+	/**
+	 * Create a connection receiving notifications over the notification stream of
+	 * the server, if the server provides it, instead of polling for them.
+	 * 
+	 * @param clientConnection The client to execute requests with.
+	 * @param serverURL The URL of the server.
+	 * @throws IOException If the URL of the notification stream cannot be derived from the server URL.
+	 */
+	public XMLRPCMBeanServerConnection(XmlRpcClient clientConnection, URL serverURL) throws IOException {
+		this.clientConnection = clientConnection;
+		this.notificationStream = new StreamingNotificationConnection(serverURL, this);
+		this.notificationHandler = new RemoteNotificationHandler(notificationStream);
+	}
+
+	/**
+	 * Stop receiving notifications and close the notification stream.
+	 */
+	public void close() {
+		notificationHandler.stop();
+		if (notificationStream != null) {
+			notificationStream.close();
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see javax.management.MBeanServerConnection#createMBean(java.lang.String, javax.management.ObjectName)
 	 */
@@ -176,6 +206,47 @@ public class XMLRPCMBeanServerConnection implements MBeanServerConnection, Remot
 		}
 	}
 
+	/**
+	 * Invoke several operations in a single request.  The server may run the operations
+	 * concurrently, each operation succeeds or fails on its own.
+	 * 
+	 * @param names The object names of the mbeans.
+	 * @param operationNames The names of the operations.
+	 * @param params The parameters of each operation, <code>null</code> entries for none.
+	 * @param signatures The signature of each operation, <code>null</code> entries to derive
+	 * the signature from the classes of the parameters.  May be <code>null</code>.
+	 * @return The result of each operation, in the order of the operations.
+	 * @throws IOException If the request fails as a whole.
+	 */
+	public InvocationResult[] invokeBatch(ObjectName[] names, String[] operationNames, Object[][] params, String[][] signatures) throws IOException {
+		if (operationNames.length != names.length || (params != null && params.length != names.length) || (signatures != null && signatures.length != names.length)) {
+			throw new IllegalArgumentException("The batch arrays differ in length."); //$NON-NLS-1$
+		}
+		String[] nameStrings = new String[names.length];
+		Object[] batchParams = new Object[names.length];
+		Object[] batchSignatures = new Object[names.length];
+		for (int i = 0; i < names.length; i++) {
+			nameStrings[i] = names[i].toString();
+			batchParams[i] = params == null || params[i] == null ? new Object[0] : params[i];
+			batchSignatures[i] = signatures == null || signatures[i] == null ? new String[0] : signatures[i];
+		}
+		Object obj;
+		try {
+			obj = clientConnection.execute("invokeBatch", new Object[] {nameStrings, operationNames, batchParams, batchSignatures}); //$NON-NLS-1$
+		} catch (XmlRpcException e) {
+			throw new IOException(e.getMessage());
+		}
+		if (!(obj instanceof Object[]) || ((Object[]) obj).length != names.length) {
+			throw new IOException("Unexpected batch response."); //$NON-NLS-1$
+		}
+		Object[] objs = (Object[]) obj;
+		InvocationResult[] result = new InvocationResult[objs.length];
+		for (int i = 0; i < objs.length; i++) {
+			result[i] = (InvocationResult) objs[i];
+		}
+		return result;
+	}
+
 	/* (non-Javadoc)
 	 * @see javax.management.MBeanServerConnection#getDefaultDomain()
 	 */
@@ -244,22 +315,52 @@ public class XMLRPCMBeanServerConnection implements MBeanServerConnection, Remot
 	/* (non-Javadoc)
 	 * @see org.eclipse.equinox.jmx.client.remote.RemoteMBeanConnection#retrieveNotifications(long)
 	 */
-	public NamedNotification[] retrieveNotifications(long startId) {
-		try {
-			Object obj = clientConnection.execute("retrieveNotifications", new Object[] {new Long(startId)});
-			if (obj instanceof Object[]) {
-				Object[] objs = (Object[]) obj;
-				NamedNotification[] result = new NamedNotification[objs.length];
-				for (int i = 0; i < objs.length; i++) {
-					if (objs[i] instanceof NamedNotification) {
-						result[i] = (NamedNotification) objs[i];
-					}
-				}
-				return result;
+	public NamedNotification[] retrieveNotifications(long startId) throws IOException {
+		return toNotifications(execute(RETRIEVE_NOTIFICATIONS, new Object[] {new Long(startId)}));
+	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.client.remote.RemoteMBeanConnection#retrieveNotifications(long, long, int)
+	 */
+	public NamedNotification[] retrieveNotifications(long startId, long maxWaitMillis, int maxCount) throws IOException {
+		synchronized (this) {
+			if (!waitingRetrievalSupported) {
+				return retrieveNotifications(startId);
 			}
+		}
+		try {
+			return toNotifications(clientConnection.execute(RETRIEVE_NOTIFICATIONS, new Object[] {new Long(startId), new Long(maxWaitMillis), new Integer(maxCount)}));
 		} catch (XmlRpcException e) {
+			// a server predating waiting retrieval fails to resolve the method
+			if (e.getMessage() == null || e.getMessage().indexOf(RETRIEVE_NOTIFICATIONS) == -1) {
+				throw new IOException(e.getMessage());
+			}
 		}
-		return null;
+		synchronized (this) {
+			waitingRetrievalSupported = false;
+		}
+		return retrieveNotifications(startId);
+	}
+
+	private Object execute(String method, Object[] params) throws IOException {
+		try {
+			return clientConnection.execute(method, params);
+		} catch (XmlRpcException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	private static NamedNotification[] toNotifications(Object obj) throws IOException {
+		if (!(obj instanceof Object[])) {
+			throw new IOException("Unexpected notification response."); //$NON-NLS-1$
+		}
+		Object[] objs = (Object[]) obj;
+		List result = new ArrayList(objs.length);
+		for (int i = 0; i < objs.length; i++) {
+			if (objs[i] instanceof NamedNotification) {
+				result.add(objs[i]);
+			}
+		}
+		return (NamedNotification[]) result.toArray(new NamedNotification[result.size()]);
 	}
 }
@@ -15,4 +15,17 @@ import org.eclipse.equinox.jmx.common.NamedNotification;
 
 public interface RemoteMBeanConnection {
 	public NamedNotification[] retrieveNotifications(long startId) throws IOException;
+
+	/**
+	 * Retrieve the notifications starting at the provided id.  If there are none the
+	 * server holds the request until a notification arrives or the wait time passes.
+	 * A server which does not support waiting answers immediately.
+	 * 
+	 * @param startId The id of the first notification to retrieve.
+	 * @param maxWaitMillis The time, in milliseconds, the server may wait for a notification.
+	 * @param maxCount The maximum number of notifications to retrieve.
+	 * @return The notifications, oldest first, empty if none arrived in time.
+	 * @throws IOException If the notifications cannot be retrieved.
+	 */
+	public NamedNotification[] retrieveNotifications(long startId, long maxWaitMillis, int maxCount) throws IOException;
 }
@@ -18,7 +18,12 @@ import org.eclipse.equinox.jmx.common.NamedNotification;
 
 public class RemoteNotificationHandler {
 
+	// minimum interval between requests which returned no notifications, servers
+	// which support waiting for notifications only answer once the wait time passed
 	private int NOTIFICATION_RETRIEVAL_INTERVAL = 5000;
+	// the time the server may hold a request until a notification arrives
+	private static final long NOTIFICATION_WAIT_TIME = 30000;
+	private static final int MAX_NOTIFICATIONS = 100;
 
 	private final Map objectNameListeners = new HashMap();
 	private final NotificationRetriever retriever = new NotificationRetriever();
@@ -76,17 +81,24 @@ public class RemoteNotificationHandler {
 
 		public NotificationRetriever() {
 			super();
+			// requests may block on the server, they must not keep the vm alive
+			setDaemon(true);
 		}
 
 		public void run() {
 			while (started) {
 				try {
-					NamedNotification[] result = connection.retrieveNotifications(startId);
+					long requestTime = System.currentTimeMillis();
+					NamedNotification[] result = connection.retrieveNotifications(startId, NOTIFICATION_WAIT_TIME, MAX_NOTIFICATIONS);
 					if (result.length > 0) {
 						dispatcher.dispatchNotifications(result);
 						startId = result[result.length - 1].getNotificationId() + 1;
-						synchronized (this) {
-							this.wait(NOTIFICATION_RETRIEVAL_INTERVAL);
+					} else {
+						long remaining = NOTIFICATION_RETRIEVAL_INTERVAL - (System.currentTimeMillis() - requestTime);
+						if (remaining > 0) {
+							synchronized (this) {
+								this.wait(remaining);
+							}
 						}
 					}
 				} catch (Exception e) {
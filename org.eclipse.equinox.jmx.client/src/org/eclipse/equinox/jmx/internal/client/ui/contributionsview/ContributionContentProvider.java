@@ -18,6 +18,7 @@ import org.eclipse.equinox.jmx.common.*;
 import org.eclipse.equinox.jmx.internal.client.MBeanServerProxy;
 import org.eclipse.equinox.jmx.internal.client.ui.ClientUI;
 import org.eclipse.equinox.jmx.internal.client.ui.mbeaninfoview.MBeanInfoViewPart;
+import org.eclipse.equinox.jmx.internal.client.ui.util.ContributionImageCache;
 import org.eclipse.jface.viewers.*;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.PlatformUI;
@@ -28,9 +29,14 @@ import org.eclipse.ui.PlatformUI;
 public class ContributionContentProvider implements ITreeContentProvider, NotificationListener {
 
 	private static final Object[] NO_CHILDS = new Object[0];
+	// expanding a node retrieves its children and grandchildren, so hasChildren() of the children is answered locally
+	private static final int SNAPSHOT_DEPTH = 2;
+	private static final int SNAPSHOT_MAX_NODES = 500;
 	private MBeanServerProxy serverProxy;
 	protected final TreeViewer viewer;
 	protected final Hashtable objNameProxies = new Hashtable();
+	// proxy -> Boolean, whether the proxy has children as of the snapshot which contained it
+	private final Map knownHasChildren = Collections.synchronizedMap(new WeakHashMap());
 
 	/**
 	 * Allocate and a <code>ContributionContentProvider</code>.
@@ -45,6 +51,7 @@ public class ContributionContentProvider implements ITreeContentProvider, Notifi
 		// receiving updated proxy, clear current objectname table
 		removeListeners();
 		objNameProxies.clear();
+		knownHasChildren.clear();
 		this.serverProxy = serverProxy;
 	}
 
@@ -57,8 +64,9 @@ public class ContributionContentProvider implements ITreeContentProvider, Notifi
 			try {
 				monitorProxies(new ContributionProxy[] {parentProxy});
 				MBeanServerConnection mbServer = serverProxy.getMBeanServerConnection();
-				ContributionProxy[] contribs = parentProxy.getChildContributions(mbServer);
+				ContributionProxy[] contribs = getChildContributions(parentProxy, mbServer);
 				monitorProxies(contribs);
+				ContributionImageCache.getDefault().resolve(contribs, mbServer);
 				Object[] ret = null;
 				if (contribs != null && contribs.length > 0) {
 					ret = new Object[contribs.length];
@@ -71,6 +79,7 @@ public class ContributionContentProvider implements ITreeContentProvider, Notifi
 		} else if (parentElement instanceof ContributionProxy[]) {
 			try {
 				monitorProxies((ContributionProxy[]) parentElement);
+				ContributionImageCache.getDefault().resolve((ContributionProxy[]) parentElement, serverProxy.getMBeanServerConnection());
 			} catch (Exception e) {
 				JMXClientPlugin.logError(e);
 			}
@@ -79,6 +88,26 @@ public class ContributionContentProvider implements ITreeContentProvider, Notifi
 		return NO_CHILDS;
 	}
 
+	private ContributionProxy[] getChildContributions(ContributionProxy parentProxy, MBeanServerConnection mbServer) throws Exception {
+		ContributionSnapshot snapshot = null;
+		try {
+			snapshot = parentProxy.getSubtreeSnapshot(mbServer, SNAPSHOT_DEPTH, SNAPSHOT_MAX_NODES);
+		} catch (ReflectionException e) {
+			// server does not support snapshots, fall through
+		}
+		if (snapshot == null || !snapshot.isExpanded(0)) {
+			return parentProxy.getChildContributions(mbServer);
+		}
+		ContributionProxy[] contribs = snapshot.getChildren(0);
+		int firstChild = snapshot.getFirstChildIndex(0);
+		for (int i = 0; i < contribs.length; i++) {
+			if (snapshot.isExpanded(firstChild + i)) {
+				knownHasChildren.put(contribs[i], Boolean.valueOf(snapshot.getChildCount(firstChild + i) > 0));
+			}
+		}
+		return contribs;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.jface.viewers.ITreeContentProvider#getParent(java.lang.Object)
 	 */
@@ -91,6 +120,10 @@ public class ContributionContentProvider implements ITreeContentProvider, Notifi
 	 */
 	public boolean hasChildren(Object element) {
 		if (element instanceof ContributionProxyMBean && serverProxy != null) {
+			Boolean known = (Boolean) knownHasChildren.get(element);
+			if (known != null) {
+				return known.booleanValue();
+			}
 			try {
 				ContributionProxy[] contribs = ((ContributionProxy) element).getChildContributions(serverProxy.getMBeanServerConnection());
 				return (contribs != null && contribs.length > 0);
@@ -165,8 +198,10 @@ public class ContributionContentProvider implements ITreeContentProvider, Notifi
 					// that are references by the same object name
 					while (iter.hasNext()) {
 						ContributionProxy proxy = (ContributionProxy) iter.next();
+						knownHasChildren.remove(proxy);
 						try {
 							proxy.refresh(serverProxy.getMBeanServerConnection());
+							ContributionImageCache.getDefault().resolve(new ContributionProxy[] {proxy}, serverProxy.getMBeanServerConnection());
 							viewer.update(proxy, null);
 							viewer.refresh(proxy);
 						} catch (Exception e) {
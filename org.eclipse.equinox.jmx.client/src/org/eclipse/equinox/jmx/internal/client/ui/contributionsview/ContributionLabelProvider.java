@@ -20,6 +20,7 @@ import org.eclipse.equinox.jmx.common.ContributionProxy;
 import org.eclipse.equinox.jmx.common.ContributionProxyMBean;
 import org.eclipse.equinox.jmx.common.util.ByteArrayHolder;
 import org.eclipse.equinox.jmx.internal.client.ui.util.ByteImageRegistry;
+import org.eclipse.equinox.jmx.internal.client.ui.util.ContributionImageCache;
 import org.eclipse.jface.viewers.*;
 import org.eclipse.swt.graphics.Image;
 
@@ -51,6 +52,19 @@ public class ContributionLabelProvider implements ILabelProvider {
 	 */
 	public Image getImage(Object element) {
 		if (element instanceof ContributionProxy) {
+			String imageId = ((ContributionProxy) element).getImageId();
+			if (imageId != null) {
+				// images are resolved by the content provider when the proxies are retrieved
+				byte[] imageData = ContributionImageCache.getDefault().get(imageId);
+				if (imageData != null) {
+					try {
+						return decorateImage(imageRegistry.getImage(imageId, imageData), element);
+					} catch (IOException e) {
+						JMXClientPlugin.log(e);
+					}
+				}
+				return null;
+			}
 			ByteArrayHolder holder = ((ContributionProxy) element).getImageData();
 			byte[] imageData;
 			if (holder != null && (imageData = holder.value) != null) {
@@ -20,7 +20,7 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.ImageData;
 
 /**
- * Extended image registry to support byte array keys.
+ * Extended image registry to support byte array and image id keys.
  * 
  * @since 1.0
  */
@@ -36,6 +36,22 @@ public class ByteImageRegistry extends ImageRegistry {
 		return result;
 	}
 
+	/**
+	 * Get the image for the provided content based image id, the image is only
+	 * decoded once per id.
+	 * 
+	 * @param imageId The id of the image.
+	 * @param imageData The data of the image, used if the image has not been decoded.
+	 * @return The image.
+	 */
+	public Image getImage(String imageId, byte[] imageData) throws IOException {
+		Image result = (Image) getCache().get(imageId);
+		if (result == null) {
+			getCache().put(imageId, result = super.get(createImageDescriptorFromByteArray(imageData)));
+		}
+		return result;
+	}
+
 	public Map getCache() {
 		if (cache == null) {
 			cache = new HashMap(10);
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.client.ui.util;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.MBeanServerConnection;
+import org.eclipse.equinox.jmx.client.JMXClientPlugin;
+import org.eclipse.equinox.jmx.common.ContributionProxy;
+
+/**
+ * Cache of contribution images keyed by their content based image id.  Images are
+ * stored in the plug-in's state location, so each image is only transferred from a
+ * server once, regardless of the number of contributions or sessions which use it.
+ *
+ * @since 1.0
+ */
+public class ContributionImageCache {
+
+	private static final String IMAGES_DIRECTORY = "images"; //$NON-NLS-1$
+
+	private static ContributionImageCache instance;
+
+	private final Map<String, byte[]> images = new HashMap<String, byte[]>();
+	private File directory;
+
+	private ContributionImageCache() {
+		super();
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionImageCache getDefault() {
+		if (instance == null) {
+			instance = new ContributionImageCache();
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the data of the image with the provided id.
+	 *
+	 * @param imageId The id of the image.
+	 * @return The image data, or <code>null</code> if the image is not cached.
+	 */
+	public synchronized byte[] get(String imageId) {
+		if (!isValidId(imageId)) {
+			return null;
+		}
+		byte[] data = images.get(imageId);
+		if (data == null && (data = load(imageId)) != null) {
+			images.put(imageId, data);
+		}
+		return data;
+	}
+
+	/**
+	 * Ensure the images referenced by the provided proxies are cached, retrieving
+	 * those which are not from the server.
+	 *
+	 * @param proxies The proxies whose images are to be resolved.
+	 * @param server The connection to the server which hosts the contributions.
+	 */
+	public void resolve(ContributionProxy[] proxies, MBeanServerConnection server) {
+		if (proxies == null || server == null) {
+			return;
+		}
+		for (int i = 0; i < proxies.length; i++) {
+			String imageId = proxies[i].getImageId();
+			if (imageId == null || get(imageId) != null) {
+				continue;
+			}
+			try {
+				byte[] data = proxies[i].fetchImage(server);
+				if (data != null) {
+					put(imageId, data);
+				}
+			} catch (Exception e) {
+				JMXClientPlugin.log(e);
+			}
+		}
+	}
+
+	private synchronized void put(String imageId, byte[] data) {
+		if (!isValidId(imageId)) {
+			return;
+		}
+		images.put(imageId, data);
+		store(imageId, data);
+	}
+
+	private byte[] load(String imageId) {
+		File file = getFile(imageId);
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			ByteArrayOutputStream bout = new ByteArrayOutputStream((int) file.length());
+			byte[] buf = new byte[512];
+			int nread;
+			while ((nread = in.read(buf)) != -1) {
+				bout.write(buf, 0, nread);
+			}
+			return bout.toByteArray();
+		} catch (IOException e) {
+			JMXClientPlugin.log(e);
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					JMXClientPlugin.log(e);
+				}
+			}
+		}
+		return null;
+	}
+
+	private void store(String imageId, byte[] data) {
+		File file = getFile(imageId);
+		if (file == null) {
+			return;
+		}
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(file);
+			out.write(data);
+		} catch (IOException e) {
+			JMXClientPlugin.log(e);
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					JMXClientPlugin.log(e);
+				}
+			}
+		}
+	}
+
+	private File getFile(String imageId) {
+		if (directory == null) {
+			JMXClientPlugin plugin = JMXClientPlugin.getDefault();
+			if (plugin == null) {
+				return null;
+			}
+			directory = plugin.getStateLocation().append(IMAGES_DIRECTORY).toFile();
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				directory = null;
+				return null;
+			}
+		}
+		return new File(directory, imageId);
+	}
+
+	// ids are provided by the server and used as file names, only accept hex digests
+	private static boolean isValidId(String imageId) {
+		if (imageId == null || imageId.length() == 0) {
+			return false;
+		}
+		for (int i = 0; i < imageId.length(); i++) {
+			char c = imageId.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common;
+
+import javax.management.MBeanAttributeInfo;
+
+/**
+ * Describes a typed, read-only attribute of a contribution.  In addition to the
+ * <code>MBeanAttributeInfo</code> this describes whether the value is a gauge, which
+ * may go up and down, or a counter, which only increases; clients may e.g. chart the
+ * rate of a counter rather than its value.
+ */
+public class ContributionAttributeInfo extends MBeanAttributeInfo {
+
+	private static final long serialVersionUID = -2398519573860424762L;
+
+	/**
+	 * The kind of an attribute whose value may increase and decrease.
+	 */
+	public static final int GAUGE = 0;
+
+	/**
+	 * The kind of an attribute whose value only increases.
+	 */
+	public static final int COUNTER = 1;
+
+	private final int kind;
+
+	/**
+	 * Allocate a new <code>ContributionAttributeInfo</code>.
+	 * 
+	 * @param name The name of the attribute.
+	 * @param type The class name of the attribute's values, e.g. <code>java.lang.Long</code>.
+	 * @param description The description of the attribute.
+	 * @param kind Either <code>GAUGE</code> or <code>COUNTER</code>.
+	 */
+	public ContributionAttributeInfo(String name, String type, String description, int kind) {
+		super(name, type, description, true, false, false);
+		this.kind = kind;
+	}
+
+	/**
+	 * @return Either <code>GAUGE</code> or <code>COUNTER</code>.
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return <code>true</code> if the attribute is a counter.
+	 */
+	public boolean isCounter() {
+		return kind == COUNTER;
+	}
+}
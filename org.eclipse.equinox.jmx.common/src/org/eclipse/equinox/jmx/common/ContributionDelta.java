@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common;
+
+import java.io.Serializable;
+import java.util.Set;
+import javax.management.MBeanInfo;
+
+/**
+ * A <code>ContributionDelta</code> holds the fields of a contribution which have
+ * changed since a given <code>ContributionProxy</code> version.  Fields which have
+ * not changed are not transferred.
+ *
+ * @see ContributionProxy#refresh(javax.management.MBeanServerConnection)
+ */
+public class ContributionDelta implements Serializable {
+
+	private static final long serialVersionUID = 5361843398209142267L;
+
+	public static final int NAME = 0x1;
+	public static final int PROPERTIES = 0x2;
+	public static final int IMAGE = 0x4;
+	public static final int MBEAN_INFO = 0x8;
+
+	private final long version;
+	private final int changes;
+	private final String name;
+	private final Set contributionProperties;
+	private final String imageId;
+	private final MBeanInfo info;
+
+	/**
+	 * Allocate a new <code>ContributionDelta</code>, only the values of the fields
+	 * flagged in <code>changes</code> are retained.
+	 *
+	 * @param version The version of the contribution's current proxy.
+	 * @param changes The bitwise or of the fields which have changed.
+	 * @param name The current name.
+	 * @param contributionProperties The current properties.
+	 * @param imageId The current image id.
+	 * @param info The current info.
+	 */
+	public ContributionDelta(long version, int changes, String name, Set contributionProperties, String imageId, MBeanInfo info) {
+		this.version = version;
+		this.changes = changes;
+		this.name = (changes & NAME) != 0 ? name : null;
+		this.contributionProperties = (changes & PROPERTIES) != 0 ? contributionProperties : null;
+		this.imageId = (changes & IMAGE) != 0 ? imageId : null;
+		this.info = (changes & MBEAN_INFO) != 0 ? info : null;
+	}
+
+	/**
+	 * Get the version of the contribution's current proxy.
+	 *
+	 * @return The current version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns <code>true</code> if the provided field has changed.
+	 *
+	 * @param field One of <code>NAME</code>, <code>PROPERTIES</code>, <code>IMAGE</code> or <code>MBEAN_INFO</code>.
+	 * @return <code>true</code> if the field is contained in this delta.
+	 */
+	public boolean isChanged(int field) {
+		return (changes & field) != 0;
+	}
+
+	/**
+	 * Returns <code>true</code> if no field has changed.
+	 *
+	 * @return <code>true</code> if the requesting proxy is up to date.
+	 */
+	public boolean isUnchanged() {
+		return changes == 0;
+	}
+
+	/**
+	 * @return The current name, <code>null</code> if unchanged.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The current properties, <code>null</code> if unchanged.
+	 */
+	public Set getContributionProperties() {
+		return contributionProperties;
+	}
+
+	/**
+	 * @return The current image id, <code>null</code> if unchanged or the contribution has no image.
+	 */
+	public String getImageId() {
+		return imageId;
+	}
+
+	/**
+	 * @return The current info, <code>null</code> if unchanged.
+	 */
+	public MBeanInfo getMBeanInfo() {
+		return info;
+	}
+}
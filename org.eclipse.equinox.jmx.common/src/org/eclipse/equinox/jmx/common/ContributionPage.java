@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common;
+
+import java.io.Serializable;
+
+/**
+ * A <code>ContributionPage</code> holds a contiguous range of the child
+ * <code>ContributionProxy</code>s of a contribution, along with the total number
+ * of children so clients are able to request the remaining pages.
+ *
+ * @see ContributionProxy#getChildContributions(javax.management.MBeanServerConnection, int, int)
+ */
+public class ContributionPage implements Serializable {
+
+	private static final long serialVersionUID = -3409245213580384721L;
+
+	private static final ContributionProxy[] NO_CHILDS = new ContributionProxy[0];
+
+	private final ContributionProxy[] childContributions;
+	private final int offset;
+	private final int totalCount;
+
+	/**
+	 * Allocate a new <code>ContributionPage</code>.
+	 *
+	 * @param childContributions The child contributions contained in this page, <code>null</code> if none.
+	 * @param offset The index of the first child contribution of this page.
+	 * @param totalCount The total number of child contributions available.
+	 */
+	public ContributionPage(ContributionProxy[] childContributions, int offset, int totalCount) {
+		this.childContributions = childContributions == null ? NO_CHILDS : childContributions;
+		this.offset = offset;
+		this.totalCount = totalCount;
+	}
+
+	/**
+	 * Get the child contributions contained in this page.
+	 *
+	 * @return The child contributions, never <code>null</code>.
+	 */
+	public ContributionProxy[] getChildContributions() {
+		return childContributions;
+	}
+
+	/**
+	 * Get the index of the first child contribution of this page.
+	 *
+	 * @return The offset of this page.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Get the total number of child contributions available, regardless of
+	 * the number contained in this page.
+	 *
+	 * @return The total number of child contributions.
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * Returns <code>true</code> if child contributions exist beyond this page.
+	 *
+	 * @return <code>true</code> if another page may be requested.
+	 */
+	public boolean hasMore() {
+		return offset + childContributions.length < totalCount;
+	}
+}
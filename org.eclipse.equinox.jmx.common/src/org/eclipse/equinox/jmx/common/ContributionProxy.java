@@ -35,7 +35,11 @@ public class ContributionProxy extends NotificationBroadcasterSupport implements
 
 	// methods of the server contribution resource this proxy invokes
 	public static final String OP_REFRESH_PROXY = "createProxy"; //$NON-NLS-1$
+	public static final String OP_GET_PROXY_DELTA = "getProxyDelta"; //$NON-NLS-1$
+	public static final String OP_GET_IMAGE = "getImage"; //$NON-NLS-1$
 	public static final String OP_GET_CHILD_CONTRIBUTIONS = "getChildContributions"; //$NON-NLS-1$
+	public static final String OP_GET_CHILD_CONTRIBUTIONS_PAGE = "getChildContributionsPage"; //$NON-NLS-1$
+	public static final String OP_GET_SUBTREE_SNAPSHOT = "getSubtreeSnapshot"; //$NON-NLS-1$
 	public static final String OP_GET_CONTRIBUTION_UI_URL = "getContributionUIUrl"; //$NON-NLS-1$
 
 	private String name;
@@ -44,6 +48,8 @@ public class ContributionProxy extends NotificationBroadcasterSupport implements
 	private MBeanInfo info;
 	private Set listeners;
 	private ByteArrayHolder imageData;
+	private String imageId;
+	private long version;
 
 	public ContributionProxy() {
 	}
@@ -56,6 +62,26 @@ public class ContributionProxy extends NotificationBroadcasterSupport implements
 		this.imageData = imageData;
 	}
 
+	/**
+	 * Allocate a versioned <code>ContributionProxy</code> which references its image by id,
+	 * the image data is retrieved separately using {@link #fetchImage(MBeanServerConnection)}.
+	 * 
+	 * @param name The name of the contribution.
+	 * @param contributionProperties The properties of the contribution.
+	 * @param imageId The id of the contribution's image, <code>null</code> if no image.
+	 * @param objectName The object name of the contribution.
+	 * @param info The info of the contribution.
+	 * @param version The version of the contribution state this proxy reflects.
+	 */
+	public ContributionProxy(String name, Set contributionProperties, String imageId, ObjectName objectName, MBeanInfo info, long version) {
+		this.name = name;
+		this.contributionProperties = contributionProperties;
+		this.objectName = objectName;
+		this.info = info;
+		this.imageId = imageId;
+		this.version = version;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.jmx.common.contrib.ContributionProxyMBean#getObjectName()
 	 */
@@ -86,15 +112,90 @@ public class ContributionProxy extends NotificationBroadcasterSupport implements
 
 	/**
 	 * Get the <code>ByteArrayHolder</code> containing the raw image data, or null if no image.
+	 * Proxies which reference their image by id do not hold image data.
 	 * 
 	 * @return The <code>ByteArrayHolder</code> for this contribution or null if no image.
+	 * @see #getImageId()
 	 */
 	public ByteArrayHolder getImageData() {
 		return imageData;
 	}
 
+	/**
+	 * Get the id of this contribution's image.  The id is derived from the image content,
+	 * contributions sharing the same image share the same id.
+	 * 
+	 * @return The image id, or null if no image or the image data is held by this proxy.
+	 */
+	public String getImageId() {
+		return imageId;
+	}
+
+	/**
+	 * Retrieve the data of the image referenced by this proxy's image id.
+	 * 
+	 * @param server The connection to the server which hosts the contribution.
+	 * @return The raw image data, or <code>null</code> if no image.
+	 */
+	public byte[] fetchImage(MBeanServerConnection server) throws InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+		if (imageId == null) {
+			return null;
+		}
+		Object obj = server.invoke(getObjectName(), OP_GET_IMAGE, new Object[] {imageId}, new String[] {String.class.getName()});
+		return obj instanceof byte[] ? (byte[]) obj : null;
+	}
+
+	/**
+	 * Get the version of the contribution state this proxy reflects, used by the server
+	 * to determine which fields must be transferred on refresh.
+	 * 
+	 * @return The version of this proxy, 0 if unversioned.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
 	public ContributionProxy[] getChildContributions(MBeanServerConnection server) throws InstanceNotFoundException, NotCompliantMBeanException, MBeanException, ReflectionException, IOException {
 		Object obj = server.invoke(getObjectName(), ContributionProxy.OP_GET_CHILD_CONTRIBUTIONS, null, null);
+		return toContributionProxies(obj);
+	}
+
+	/**
+	 * Get a range of this contribution's child contributions.  Nodes with a large number
+	 * of children should be loaded in pages to keep the size of each reply bounded.
+	 * 
+	 * @param server The connection to the server which hosts the contribution.
+	 * @param offset The index of the first child contribution to retrieve.
+	 * @param limit The maximum number of child contributions to retrieve, a value less than or equal to zero retrieves all remaining children.
+	 * @return The requested page of child contributions, never <code>null</code>.
+	 */
+	public ContributionPage getChildContributions(MBeanServerConnection server, int offset, int limit) throws InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+		Object obj = server.invoke(getObjectName(), ContributionProxy.OP_GET_CHILD_CONTRIBUTIONS_PAGE, new Object[] {new Integer(offset), new Integer(limit)}, new String[] {Integer.TYPE.getName(), Integer.TYPE.getName()});
+		if (obj instanceof ContributionPage) {
+			return (ContributionPage) obj;
+		}
+		return new ContributionPage(null, offset, 0);
+	}
+
+	/**
+	 * Get the subtree rooted at this contribution in a single request.  Levels are
+	 * expanded breadth first until either <code>depth</code> levels below this contribution
+	 * are contained or expanding another node would exceed <code>maxNodes</code>.
+	 * 
+	 * @param server The connection to the server which hosts the contribution.
+	 * @param depth The number of levels of descendants to retrieve.
+	 * @param maxNodes The maximum number of nodes to retrieve, the server may impose a lower limit.
+	 * @return The snapshot, node <code>0</code> is a proxy of this contribution, <code>null</code> if unavailable.
+	 */
+	public ContributionSnapshot getSubtreeSnapshot(MBeanServerConnection server, int depth, int maxNodes) throws InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+		Object obj = server.invoke(getObjectName(), ContributionProxy.OP_GET_SUBTREE_SNAPSHOT, new Object[] {new Integer(depth), new Integer(maxNodes)}, new String[] {Integer.TYPE.getName(), Integer.TYPE.getName()});
+		if (obj instanceof ContributionSnapshot) {
+			return (ContributionSnapshot) obj;
+		}
+		return null;
+	}
+
+	private static ContributionProxy[] toContributionProxies(Object obj) {
 		if (obj instanceof ContributionProxy[]) {
 			return (ContributionProxy[]) obj;
 		} else if (obj instanceof Object[]) {
@@ -110,12 +211,47 @@ public class ContributionProxy extends NotificationBroadcasterSupport implements
 		return null;
 	}
 
+	/**
+	 * Update this proxy with the current state of its contribution.  Only the fields which
+	 * have changed since this proxy's version are transferred, listeners are not notified if
+	 * the proxy is up to date.
+	 * 
+	 * @param server The connection to the server which hosts the contribution.
+	 */
 	public void refresh(MBeanServerConnection server) throws InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+		Object result = server.invoke(getObjectName(), OP_GET_PROXY_DELTA, new Object[] {new Long(version)}, new String[] {Long.TYPE.getName()});
+		if (result instanceof ContributionDelta) {
+			if (apply((ContributionDelta) result)) {
+				stateChanged();
+			}
+			return;
+		}
+		// contribution does not support delta refresh
 		ContributionProxy updatedProxy = (ContributionProxy) server.invoke(getObjectName(), OP_REFRESH_PROXY, null, null);
 		mirror(updatedProxy);
 		stateChanged();
 	}
 
+	private boolean apply(ContributionDelta delta) {
+		version = delta.getVersion();
+		if (delta.isUnchanged()) {
+			return false;
+		}
+		if (delta.isChanged(ContributionDelta.NAME)) {
+			name = delta.getName();
+		}
+		if (delta.isChanged(ContributionDelta.PROPERTIES)) {
+			contributionProperties = delta.getContributionProperties();
+		}
+		if (delta.isChanged(ContributionDelta.IMAGE)) {
+			imageId = delta.getImageId();
+		}
+		if (delta.isChanged(ContributionDelta.MBEAN_INFO)) {
+			info = delta.getMBeanInfo();
+		}
+		return true;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.jmx.common.contrib.IContributionStateChangedDispatcher#stateChanged()
 	 */
@@ -176,5 +312,6 @@ public class ContributionProxy extends NotificationBroadcasterSupport implements
 		this.contributionProperties = contribution.getContributionProperties();
 		this.objectName = contribution.getObjectName();
 		this.info = contribution.getMBeanInfo();
+		this.imageId = contribution.getImageId();
 	}
 }
\ No newline at end of file
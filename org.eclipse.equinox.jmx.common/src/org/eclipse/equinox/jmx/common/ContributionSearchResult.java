@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common;
+
+import java.io.Serializable;
+
+/**
+ * A contribution matching a search, along with the path from the root contribution.
+ *
+ * @see RootContribution#search(javax.management.MBeanServerConnection, String, int)
+ */
+public class ContributionSearchResult implements Serializable {
+
+	private static final long serialVersionUID = 4420187390341925786L;
+
+	private final ContributionProxy proxy;
+	private final String[] path;
+
+	/**
+	 * Allocate a new <code>ContributionSearchResult</code>.
+	 *
+	 * @param proxy The proxy of the matching contribution.
+	 * @param path The names of the contributions from the root contribution's child to the matching contribution.
+	 */
+	public ContributionSearchResult(ContributionProxy proxy, String[] path) {
+		this.proxy = proxy;
+		this.path = path;
+	}
+
+	/**
+	 * @return The proxy of the matching contribution.
+	 */
+	public ContributionProxy getProxy() {
+		return proxy;
+	}
+
+	/**
+	 * Get the path of the matching contribution, the last element is the name of
+	 * the matching contribution itself.
+	 *
+	 * @return The names of the contributions along the path.
+	 */
+	public String[] getPath() {
+		return path;
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common;
+
+import java.io.Serializable;
+
+/**
+ * A <code>ContributionSnapshot</code> holds a subtree of the contribution model,
+ * retrieved in a single request.  The nodes are stored breadth first in flat arrays;
+ * the children of a node are contiguous, node <code>0</code> is the root of the subtree.
+ * <p>
+ * A node is either expanded, in which case all of its children are contained in the
+ * snapshot, or not expanded because the requested depth or node budget was reached.
+ * Children lists are never partial.
+ * </p>
+ *
+ * @see ContributionProxy#getSubtreeSnapshot(javax.management.MBeanServerConnection, int, int)
+ */
+public class ContributionSnapshot implements Serializable {
+
+	private static final long serialVersionUID = -6018735269121837466L;
+
+	/**
+	 * The child count of a node whose children are not contained in the snapshot.
+	 */
+	public static final int NOT_EXPANDED = -1;
+
+	private static final ContributionProxy[] NO_CHILDS = new ContributionProxy[0];
+
+	private final ContributionProxy[] proxies;
+	private final int[] firstChildIndexes;
+	private final int[] childCounts;
+	private final boolean truncated;
+
+	/**
+	 * Allocate a new <code>ContributionSnapshot</code>.
+	 *
+	 * @param proxies The nodes, breadth first.
+	 * @param firstChildIndexes The index of the first child of each node.
+	 * @param childCounts The number of children of each node, <code>NOT_EXPANDED</code> if not contained.
+	 * @param truncated <code>true</code> if the node budget was exhausted before the requested depth.
+	 */
+	public ContributionSnapshot(ContributionProxy[] proxies, int[] firstChildIndexes, int[] childCounts, boolean truncated) {
+		this.proxies = proxies;
+		this.firstChildIndexes = firstChildIndexes;
+		this.childCounts = childCounts;
+		this.truncated = truncated;
+	}
+
+	/**
+	 * @return The number of nodes contained in the snapshot.
+	 */
+	public int getNodeCount() {
+		return proxies.length;
+	}
+
+	/**
+	 * @param index The index of a node.
+	 * @return The proxy of the node.
+	 */
+	public ContributionProxy getProxy(int index) {
+		return proxies[index];
+	}
+
+	/**
+	 * Returns <code>true</code> if the children of the node are contained in this snapshot.
+	 *
+	 * @param index The index of a node.
+	 * @return <code>true</code> if the node is expanded.
+	 */
+	public boolean isExpanded(int index) {
+		return childCounts[index] != NOT_EXPANDED;
+	}
+
+	/**
+	 * @param index The index of a node.
+	 * @return The number of children of the node, <code>NOT_EXPANDED</code> if unknown.
+	 */
+	public int getChildCount(int index) {
+		return childCounts[index];
+	}
+
+	/**
+	 * @param index The index of an expanded node.
+	 * @return The index of the first child of the node.
+	 */
+	public int getFirstChildIndex(int index) {
+		return firstChildIndexes[index];
+	}
+
+	/**
+	 * Get the children of a node.
+	 *
+	 * @param index The index of a node.
+	 * @return The child proxies, <code>null</code> if the node is not expanded.
+	 */
+	public ContributionProxy[] getChildren(int index) {
+		int count = childCounts[index];
+		if (count == NOT_EXPANDED) {
+			return null;
+		} else if (count == 0) {
+			return NO_CHILDS;
+		}
+		ContributionProxy[] children = new ContributionProxy[count];
+		System.arraycopy(proxies, firstChildIndexes[index], children, 0, count);
+		return children;
+	}
+
+	/**
+	 * Returns <code>true</code> if any node above the requested depth was left
+	 * unexpanded because the node budget was exhausted.
+	 *
+	 * @return <code>true</code> if the snapshot is truncated.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common;
+
+/**
+ * Implemented by the server to answer the searches received by the <code>RootContribution</code>.
+ */
+public interface IContributionSearcher {
+
+	/**
+	 * Find the contributions whose name or properties match the query.
+	 *
+	 * @param query The whitespace separated terms, all of which must match.
+	 * @param maxResults The maximum number of results, a value less than or equal to zero returns all matches.
+	 * @return The matching contributions.
+	 */
+	public ContributionSearchResult[] search(String query, int maxResults);
+}
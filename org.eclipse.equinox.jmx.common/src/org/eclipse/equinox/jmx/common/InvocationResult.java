@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of one operation of a batch invocation: either the value returned
+ * by the operation or the exception it failed with.
+ */
+public class InvocationResult implements Serializable {
+
+	private static final long serialVersionUID = -2791534817293056614L;
+
+	private final Object result;
+	private final Exception exception;
+
+	/**
+	 * @param result The value returned by the operation, <code>null</code> if it failed.
+	 * @param exception The exception the operation failed with, <code>null</code> if it succeeded.
+	 */
+	public InvocationResult(Object result, Exception exception) {
+		this.result = result;
+		this.exception = exception;
+	}
+
+	/**
+	 * @return Whether the operation completed without an exception.
+	 */
+	public boolean isSuccessful() {
+		return exception == null;
+	}
+
+	/**
+	 * @return The value returned by the operation, <code>null</code> if it failed.
+	 */
+	public Object getResult() {
+		return result;
+	}
+
+	/**
+	 * @return The exception the operation failed with, <code>null</code> if it succeeded.
+	 */
+	public Exception getException() {
+		return exception;
+	}
+}
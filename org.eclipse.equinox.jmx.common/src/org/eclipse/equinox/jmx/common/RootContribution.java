@@ -10,8 +10,10 @@
  *******************************************************************************/
 package org.eclipse.equinox.jmx.common;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.*;
-import javax.management.ObjectName;
+import javax.management.*;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.equinox.jmx.internal.common.Activator;
 
@@ -31,6 +33,7 @@ public class RootContribution extends ContributionProxy implements RootContribut
 		}
 	}
 	private final Set contributions;
+	private transient IContributionSearcher searcher;
 
 	/**
 	 * Default constructor for root contribution item.
@@ -51,7 +54,7 @@ public class RootContribution extends ContributionProxy implements RootContribut
 		updateContributionProxies(rootContributionProxies);
 	}
 
-	public void registerContributionProxy(ContributionProxy proxy) {
+	public synchronized void registerContributionProxy(ContributionProxy proxy) {
 		Iterator iter = contributions.iterator();
 		boolean addproxy = true;
 		while (iter.hasNext()) {
@@ -66,7 +69,7 @@ public class RootContribution extends ContributionProxy implements RootContribut
 		}
 	}
 
-	public void unregisterContributionProxy(ContributionProxy proxy) {
+	public synchronized void unregisterContributionProxy(ContributionProxy proxy) {
 		Iterator iter = contributions.iterator();
 		while (iter.hasNext()) {
 			ContributionProxy rootProxy = (ContributionProxy) iter.next();
@@ -77,7 +80,7 @@ public class RootContribution extends ContributionProxy implements RootContribut
 		}
 	}
 
-	public void updateContributionProxies(ContributionProxy[] proxies) {
+	public synchronized void updateContributionProxies(ContributionProxy[] proxies) {
 		Assert.isNotNull(proxies);
 		contributions.clear();
 		for (int i = 0; i < proxies.length; i++) {
@@ -96,10 +99,61 @@ public class RootContribution extends ContributionProxy implements RootContribut
 		return this;
 	}
 
+	/**
+	 * Set the searcher which answers searches on the server.
+	 * 
+	 * @param searcher The searcher, <code>null</code> to disable searching.
+	 */
+	public void setSearcher(IContributionSearcher searcher) {
+		this.searcher = searcher;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.common.RootContributionMBean#search(java.lang.String, int)
+	 */
+	public ContributionSearchResult[] search(String query, int maxResults) {
+		IContributionSearcher current = searcher;
+		if (current == null || query == null) {
+			return new ContributionSearchResult[0];
+		}
+		return current.search(query, maxResults);
+	}
+
+	/**
+	 * Search the contributions of the server in a single request.
+	 * 
+	 * @param server The connection to the server which hosts the contributions.
+	 * @param query The whitespace separated terms, all of which must match.
+	 * @param maxResults The maximum number of results, a value less than or equal to zero returns all matches.
+	 * @return The matching contributions, never <code>null</code>.
+	 * @see RootContributionMBean#search(String, int)
+	 */
+	public ContributionSearchResult[] search(MBeanServerConnection server, String query, int maxResults) throws InstanceNotFoundException, MBeanException, ReflectionException, IOException {
+		Object obj = server.invoke(OBJECT_NAME, OP_SEARCH, new Object[] {query, new Integer(maxResults)}, new String[] {String.class.getName(), Integer.TYPE.getName()});
+		if (obj instanceof ContributionSearchResult[]) {
+			return (ContributionSearchResult[]) obj;
+		} else if (obj instanceof Object[]) {
+			Object[] objs = (Object[]) obj;
+			List results = new ArrayList(objs.length);
+			for (int i = 0; i < objs.length; i++) {
+				if (objs[i] instanceof ContributionSearchResult) {
+					results.add(objs[i]);
+				}
+			}
+			return (ContributionSearchResult[]) results.toArray(new ContributionSearchResult[results.size()]);
+		}
+		return new ContributionSearchResult[0];
+	}
+
 	/* (non-Javadoc)
 	 * @see com.jmx.common.contrib.RootContributionMBean#getRootContributions()
 	 */
-	public ContributionProxy[] queryRootContributions() {
+	public synchronized ContributionProxy[] queryRootContributions() {
 		return (ContributionProxy[]) contributions.toArray(new ContributionProxy[contributions.size()]);
 	}
+
+	// the server adds root proxies while clients may already be querying the root
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+	}
 }
@@ -14,6 +14,7 @@ public interface RootContributionMBean {
 
 	public static final String OP_GET_ROOT_CONTRIBUTIONS = "queryRootContributions";//$NON-NLS-1$
 	public static final String OP_GET_ROOT_CONTRIBUTION = "queryRootContribution";//$NON-NLS-1$
+	public static final String OP_SEARCH = "search";//$NON-NLS-1$
 
 	/**
 	 * Get the list of root <code>ContributionProxy</code>s.
@@ -23,4 +24,14 @@ public interface RootContributionMBean {
 	public ContributionProxy[] queryRootContributions();
 
 	public RootContribution queryRootContribution();
+
+	/**
+	 * Find the contributions whose name or properties contain words starting with
+	 * each of the terms of the query.
+	 * 
+	 * @param query The whitespace separated terms, all of which must match.
+	 * @param maxResults The maximum number of results, a value less than or equal to zero returns all matches.
+	 * @return The matching contributions, never <code>null</code>.
+	 */
+	public ContributionSearchResult[] search(String query, int maxResults);
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common.util;
+
+/**
+ * Counts the bytes of the request and response bodies of a HTTP connector, before
+ * compression and as transferred.
+ */
+public class CompressionStatistics {
+
+	// guarded by this
+	private long requests;
+	private long compressedRequests;
+	private long requestBytes;
+	private long requestTransferBytes;
+	private long responses;
+	private long compressedResponses;
+	private long responseBytes;
+	private long responseTransferBytes;
+
+	/**
+	 * Record a request body.
+	 *
+	 * @param bytes The size of the body.
+	 * @param transferBytes The size of the body as transferred, after compression.
+	 * @param compressed Whether the body was compressed.
+	 */
+	public synchronized void recordRequest(long bytes, long transferBytes, boolean compressed) {
+		requests++;
+		if (compressed) {
+			compressedRequests++;
+		}
+		requestBytes += bytes;
+		requestTransferBytes += transferBytes;
+	}
+
+	/**
+	 * Record a response body.
+	 *
+	 * @param bytes The size of the body.
+	 * @param transferBytes The size of the body as transferred, after compression.
+	 * @param compressed Whether the body was compressed.
+	 */
+	public synchronized void recordResponse(long bytes, long transferBytes, boolean compressed) {
+		responses++;
+		if (compressed) {
+			compressedResponses++;
+		}
+		responseBytes += bytes;
+		responseTransferBytes += transferBytes;
+	}
+
+	/**
+	 * @return The number of requests.
+	 */
+	public synchronized long getRequestCount() {
+		return requests;
+	}
+
+	/**
+	 * @return The number of requests with a compressed body.
+	 */
+	public synchronized long getCompressedRequestCount() {
+		return compressedRequests;
+	}
+
+	/**
+	 * @return The total size of the request bodies before compression.
+	 */
+	public synchronized long getRequestBytes() {
+		return requestBytes;
+	}
+
+	/**
+	 * @return The total size of the request bodies as transferred.
+	 */
+	public synchronized long getRequestTransferBytes() {
+		return requestTransferBytes;
+	}
+
+	/**
+	 * @return The number of responses.
+	 */
+	public synchronized long getResponseCount() {
+		return responses;
+	}
+
+	/**
+	 * @return The number of responses with a compressed body.
+	 */
+	public synchronized long getCompressedResponseCount() {
+		return compressedResponses;
+	}
+
+	/**
+	 * @return The total size of the response bodies before compression.
+	 */
+	public synchronized long getResponseBytes() {
+		return responseBytes;
+	}
+
+	/**
+	 * @return The total size of the response bodies as transferred.
+	 */
+	public synchronized long getResponseTransferBytes() {
+		return responseTransferBytes;
+	}
+
+	/**
+	 * Reset all counters.
+	 */
+	public synchronized void reset() {
+		requests = 0;
+		compressedRequests = 0;
+		requestBytes = 0;
+		requestTransferBytes = 0;
+		responses = 0;
+		compressedResponses = 0;
+		responseBytes = 0;
+		responseTransferBytes = 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString() {
+		return "requests=" + requests + " (" + compressedRequests + " compressed), " + requestBytes + " bytes, " + requestTransferBytes + " transferred; responses=" + responses + " (" + compressedResponses + " compressed), " + responseBytes + " bytes, " + responseTransferBytes + " transferred"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+	}
+}
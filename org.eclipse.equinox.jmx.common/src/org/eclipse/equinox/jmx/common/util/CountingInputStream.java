@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common.util;
+
+import java.io.*;
+
+/**
+ * Counts the bytes read from a stream.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	private long count;
+
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	/**
+	 * @return The number of bytes read so far.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#read()
+	 */
+	public int read() throws IOException {
+		int result = in.read();
+		if (result != -1) {
+			count++;
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#read(byte[], int, int)
+	 */
+	public int read(byte[] b, int off, int len) throws IOException {
+		int result = in.read(b, off, len);
+		if (result > 0) {
+			count += result;
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#skip(long)
+	 */
+	public long skip(long n) throws IOException {
+		long result = in.skip(n);
+		count += result;
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#markSupported()
+	 */
+	public boolean markSupported() {
+		// the count cannot be rewound
+		return false;
+	}
+}
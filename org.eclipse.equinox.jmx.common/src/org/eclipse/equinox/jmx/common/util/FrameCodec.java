@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common.util;
+
+import java.io.*;
+
+/**
+ * Encodes and decodes the frames of the binary transport.
+ * <p>
+ * A frame is made of a four byte length, which counts the bytes following it,
+ * a four byte correlation id, a one byte frame type and the serialized payload.
+ * Requests and their responses carry the same correlation id so many requests
+ * can be outstanding on one connection; notification frames carry the id of the
+ * listener registration instead.
+ * </p>
+ */
+public final class FrameCodec {
+
+	/**
+	 * The length of the correlation id and frame type, which follow the length prefix.
+	 */
+	public static final int HEADER_LENGTH = 5;
+
+	/**
+	 * The maximum length of a frame, larger frames are considered corrupt.
+	 */
+	public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+	/**
+	 * A request, the payload is an <code>Object[]</code> holding the method name,
+	 * the <code>String[]</code> of parameter class names and the <code>Object[]</code> arguments.
+	 */
+	public static final byte TYPE_REQUEST = 1;
+	/**
+	 * The successful response to a request, the payload is the result.
+	 */
+	public static final byte TYPE_RESPONSE = 2;
+	/**
+	 * The failed response to a request, the payload is the thrown exception.
+	 */
+	public static final byte TYPE_EXCEPTION = 3;
+	/**
+	 * A notification, the correlation id is the id of the listener registration.
+	 */
+	public static final byte TYPE_NOTIFICATION = 4;
+
+	/**
+	 * The request which registers a remote listener, the arguments are the
+	 * <code>ObjectName</code> of the broadcaster and the <code>Integer</code> listener id.
+	 */
+	public static final String ADD_LISTENER = "addRemoteListener"; //$NON-NLS-1$
+	/**
+	 * The request which removes a remote listener, the argument is the <code>Integer</code> listener id.
+	 */
+	public static final String REMOVE_LISTENER = "removeRemoteListener"; //$NON-NLS-1$
+
+	private FrameCodec() {
+		super();
+	}
+
+	/**
+	 * Encode a frame, including its length prefix.
+	 *
+	 * @param id The correlation id.
+	 * @param type The frame type.
+	 * @param payload The payload, which must be serializable.
+	 * @return The encoded frame.
+	 * @throws IOException If the payload cannot be serialized.
+	 */
+	public static byte[] encode(int id, byte type, Object payload) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		// placeholder for the length
+		out.writeInt(0);
+		out.writeInt(id);
+		out.writeByte(type);
+		ObjectOutputStream objectOut = new ObjectOutputStream(out);
+		objectOut.writeObject(payload);
+		objectOut.flush();
+		byte[] frame = bytes.toByteArray();
+		int length = frame.length - 4;
+		if (length > MAX_FRAME_LENGTH) {
+			throw new IOException("Frame too large: " + length); //$NON-NLS-1$
+		}
+		frame[0] = (byte) (length >>> 24);
+		frame[1] = (byte) (length >>> 16);
+		frame[2] = (byte) (length >>> 8);
+		frame[3] = (byte) length;
+		return frame;
+	}
+
+	/**
+	 * Deserialize the payload of a frame.
+	 *
+	 * @param bytes The bytes holding the payload.
+	 * @param offset The offset of the payload.
+	 * @param length The length of the payload.
+	 * @param loader The class loader to resolve the payload's classes with, or <code>null</code>.
+	 * @return The payload.
+	 * @throws IOException If the payload is corrupt or a class cannot be resolved.
+	 */
+	public static Object decodePayload(byte[] bytes, int offset, int length, final ClassLoader loader) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length)) {
+			protected Class resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+				if (loader != null) {
+					try {
+						return Class.forName(desc.getName(), false, loader);
+					} catch (ClassNotFoundException e) {
+						// fall back to the default resolution, e.g. for primitive types
+					}
+				}
+				return super.resolveClass(desc);
+			}
+		};
+		try {
+			return in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+}
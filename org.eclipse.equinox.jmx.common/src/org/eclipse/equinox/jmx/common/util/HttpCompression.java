@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common.util;
+
+import java.io.*;
+import java.util.StringTokenizer;
+import java.util.zip.*;
+
+/**
+ * Content codings of the HTTP connectors.
+ * <p>
+ * A peer announces the codings it decodes in the <code>Accept-Encoding</code> header,
+ * of requests as well as of responses.  Bodies smaller than the compression threshold
+ * of the sender are sent as they are, the framing of compressed data outweighs the
+ * savings for them.
+ * </p>
+ */
+public final class HttpCompression {
+
+	/**
+	 * The gzip content coding.
+	 */
+	public static final String GZIP = "gzip"; //$NON-NLS-1$
+
+	/**
+	 * The deflate content coding, zlib framed.
+	 */
+	public static final String DEFLATE = "deflate"; //$NON-NLS-1$
+
+	/**
+	 * The value of the <code>Accept-Encoding</code> header of a peer decoding all
+	 * supported codings.
+	 */
+	public static final String ACCEPTED_ENCODINGS = GZIP + ", " + DEFLATE; //$NON-NLS-1$
+
+	public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding"; //$NON-NLS-1$
+	public static final String CONTENT_ENCODING_HEADER = "Content-Encoding"; //$NON-NLS-1$
+
+	/**
+	 * The default size, in bytes, from which bodies are compressed.
+	 */
+	public static final int DEFAULT_THRESHOLD = 4096;
+
+	private HttpCompression() {
+		super();
+	}
+
+	/**
+	 * Select the coding to compress a body with.
+	 *
+	 * @param acceptEncoding The <code>Accept-Encoding</code> header of the peer, or <code>null</code>.
+	 * @return The preferred supported coding accepted by the peer, <code>null</code> if none.
+	 */
+	public static String selectEncoding(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		boolean deflate = false;
+		StringTokenizer tokenizer = new StringTokenizer(acceptEncoding, ","); //$NON-NLS-1$
+		while (tokenizer.hasMoreTokens()) {
+			String token = tokenizer.nextToken();
+			int index = token.indexOf(';');
+			String coding = (index == -1 ? token : token.substring(0, index)).trim().toLowerCase();
+			if (index != -1 && isRefused(token.substring(index + 1))) {
+				continue;
+			}
+			if (GZIP.equals(coding) || "x-gzip".equals(coding)) { //$NON-NLS-1$
+				return GZIP;
+			} else if (DEFLATE.equals(coding)) {
+				deflate = true;
+			}
+		}
+		return deflate ? DEFLATE : null;
+	}
+
+	private static boolean isRefused(String parameters) {
+		String value = parameters.trim();
+		if (!value.startsWith("q=")) { //$NON-NLS-1$
+			return false;
+		}
+		try {
+			return Double.valueOf(value.substring(2).trim()).doubleValue() <= 0;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param contentEncoding The <code>Content-Encoding</code> header of a body, or <code>null</code>.
+	 * @return The supported coding of the body, <code>null</code> if the body is not compressed.
+	 * @throws IOException If the body is compressed with an unsupported coding.
+	 */
+	public static String getEncoding(String contentEncoding) throws IOException {
+		if (contentEncoding == null) {
+			return null;
+		}
+		String coding = contentEncoding.trim().toLowerCase();
+		if (coding.length() == 0 || "identity".equals(coding)) { //$NON-NLS-1$
+			return null;
+		} else if (GZIP.equals(coding) || "x-gzip".equals(coding)) { //$NON-NLS-1$
+			return GZIP;
+		} else if (DEFLATE.equals(coding)) {
+			return DEFLATE;
+		}
+		throw new IOException("Unsupported content encoding: " + contentEncoding); //$NON-NLS-1$
+	}
+
+	/**
+	 * Compress a body.
+	 *
+	 * @param bytes The body.
+	 * @param offset The offset of the body.
+	 * @param length The length of the body.
+	 * @param encoding The coding, {@link #GZIP} or {@link #DEFLATE}.
+	 * @return The compressed body.
+	 * @throws IOException If the body cannot be compressed.
+	 */
+	public static byte[] compress(byte[] bytes, int offset, int length, String encoding) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(64, length / 4));
+		DeflaterOutputStream out = GZIP.equals(encoding) ? new GZIPOutputStream(result) : new DeflaterOutputStream(result);
+		out.write(bytes, offset, length);
+		out.close();
+		return result.toByteArray();
+	}
+
+	/**
+	 * @param in The compressed body.
+	 * @param encoding The coding of the body, <code>null</code> if not compressed.
+	 * @return The decompressed body.
+	 * @throws IOException If the body cannot be read.
+	 */
+	public static InputStream decompress(InputStream in, String encoding) throws IOException {
+		if (GZIP.equals(encoding)) {
+			return new GZIPInputStream(in);
+		} else if (DEFLATE.equals(encoding)) {
+			return new InflaterInputStream(in);
+		}
+		return in;
+	}
+}
@@ -12,26 +12,60 @@ package org.eclipse.equinox.jmx.common.util;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.*;
 import javax.management.*;
 
 /**
  * Utility class for creating <code>MBeanInfo</code> objects
  * from a specified class.
+ * <p>
+ * The constructors and methods of each class are only introspected once, and
+ * <code>getMBeanInfo(Class, String)</code> shares a single <code>MBeanInfo</code>
+ * between all callers which describe the same class.
+ * </p>
  */
 public class MBeanInfoWrapper {
 
+	private static final MBeanAttributeInfo[] NO_ATTRIBUTES = new MBeanAttributeInfo[0];
+	private static final MBeanNotificationInfo[] NO_NOTIFICATIONS = new MBeanNotificationInfo[0];
+
+	// introspected constructor and operation infos keyed by class
+	private static final Map constructorInfos = new WeakHashMap();
+	private static final Map operationInfos = new WeakHashMap();
+
+	// shared mbean infos keyed by class, each value maps the description to the info
+	private static final Map mbeanInfos = new WeakHashMap();
+
+	/**
+	 * Get the shared <code>MBeanInfo</code> describing the public constructors and methods
+	 * of the provided class, without attributes or notifications.
+	 * 
+	 * @param cls The class to describe.
+	 * @param description The description of the mbean.
+	 * @return The shared <code>MBeanInfo</code>.
+	 */
+	public static MBeanInfo getMBeanInfo(Class cls, String description) {
+		synchronized (mbeanInfos) {
+			Map infos = (Map) mbeanInfos.get(cls);
+			if (infos == null) {
+				infos = new HashMap(2);
+				mbeanInfos.put(cls, infos);
+			}
+			MBeanInfo info = (MBeanInfo) infos.get(description);
+			if (info == null) {
+				info = new MBeanInfo(cls.getName(), description, NO_ATTRIBUTES, getConstructorInfos(cls), getOperationInfos(cls), NO_NOTIFICATIONS);
+				infos.put(description, info);
+			}
+			return info;
+		}
+	}
+
 	public static MBeanInfo createMBeanInfo(Class cls, String description, MBeanAttributeInfo[] attributes, MBeanNotificationInfo[] notifications) {
-		return new MBeanInfo(cls.getName(), description, attributes, createMBeanConstructorInfoAry(cls), createMBeanOperationInfoAry(cls), notifications);
+		return new MBeanInfo(cls.getName(), description, attributes, getConstructorInfos(cls), getOperationInfos(cls), notifications);
 	}
 
 	public static MBeanConstructorInfo[] createMBeanConstructorInfoAry(Class cls) {
-		MBeanConstructorInfo[] ret = new MBeanConstructorInfo[cls.getConstructors().length];
-		Constructor[] constructors = cls.getConstructors();
-		for (int i = 0; i < ret.length; i++) {
-			Constructor c = constructors[i];
-			ret[i] = createMBeanConstructorInfo(c);
-		}
-		return ret;
+		return (MBeanConstructorInfo[]) getConstructorInfos(cls).clone();
 	}
 
 	public static MBeanConstructorInfo createMBeanConstructorInfo(Constructor c) {
@@ -39,16 +73,40 @@ public class MBeanInfoWrapper {
 	}
 
 	public static MBeanOperationInfo[] createMBeanOperationInfoAry(Class cls) {
-		MBeanOperationInfo[] ret = new MBeanOperationInfo[cls.getMethods().length];
-		Method[] methods = cls.getMethods();
-		for (int i = 0; i < ret.length; i++) {
-			Method m = methods[i];
-			ret[i] = createMBeanOperationInfo(m);
-		}
-		return ret;
+		return (MBeanOperationInfo[]) getOperationInfos(cls).clone();
 	}
 
 	public static MBeanOperationInfo createMBeanOperationInfo(Method method) {
 		return new MBeanOperationInfo("", method); //$NON-NLS-1$ //TODO request description
 	}
+
+	private static MBeanConstructorInfo[] getConstructorInfos(Class cls) {
+		synchronized (constructorInfos) {
+			MBeanConstructorInfo[] ret = (MBeanConstructorInfo[]) constructorInfos.get(cls);
+			if (ret == null) {
+				Constructor[] constructors = cls.getConstructors();
+				ret = new MBeanConstructorInfo[constructors.length];
+				for (int i = 0; i < ret.length; i++) {
+					ret[i] = createMBeanConstructorInfo(constructors[i]);
+				}
+				constructorInfos.put(cls, ret);
+			}
+			return ret;
+		}
+	}
+
+	private static MBeanOperationInfo[] getOperationInfos(Class cls) {
+		synchronized (operationInfos) {
+			MBeanOperationInfo[] ret = (MBeanOperationInfo[]) operationInfos.get(cls);
+			if (ret == null) {
+				Method[] methods = cls.getMethods();
+				ret = new MBeanOperationInfo[methods.length];
+				for (int i = 0; i < ret.length; i++) {
+					ret[i] = createMBeanOperationInfo(methods[i]);
+				}
+				operationInfos.put(cls, ret);
+			}
+			return ret;
+		}
+	}
 }
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.common.util;
+
+import java.io.*;
+import org.eclipse.equinox.jmx.common.NamedNotification;
+
+/**
+ * Encodes and decodes the events of the notification stream served next to the
+ * XML-RPC connector.
+ * <p>
+ * The stream follows the Server-Sent Events format: each notification is an event
+ * whose id is the notification id and whose data is the base64 encoded serialized
+ * <code>NamedNotification</code>.  Lines starting with a colon are comments the
+ * server sends to keep idle connections open.  A client resumes a stream by
+ * requesting it with the id of the first notification it has not received.
+ * </p>
+ */
+public final class NotificationStreamCodec {
+
+	/**
+	 * The path of the notification stream.
+	 */
+	public static final String PATH = "/notifications"; //$NON-NLS-1$
+
+	/**
+	 * The query parameter holding the id of the first notification to stream.
+	 */
+	public static final String START_ID_PARAMETER = "startId"; //$NON-NLS-1$
+
+	/**
+	 * The request header holding the id of the last event a reconnecting client received.
+	 */
+	public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID"; //$NON-NLS-1$
+
+	/**
+	 * The content type of the stream.
+	 */
+	public static final String CONTENT_TYPE = "text/event-stream"; //$NON-NLS-1$
+
+	/**
+	 * The type of the notification events.
+	 */
+	public static final String EVENT_TYPE = "notification"; //$NON-NLS-1$
+
+	private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray(); //$NON-NLS-1$
+
+	private NotificationStreamCodec() {
+		super();
+	}
+
+	/**
+	 * Encode a notification as an event.
+	 *
+	 * @param notification The notification.
+	 * @return The event, including the blank line which terminates it.
+	 * @throws IOException If the notification cannot be serialized.
+	 */
+	public static String encodeEvent(NamedNotification notification) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(notification);
+		out.close();
+		StringBuffer event = new StringBuffer();
+		event.append("id: ").append(notification.getNotificationId()).append('\n'); //$NON-NLS-1$
+		event.append("event: ").append(EVENT_TYPE).append('\n'); //$NON-NLS-1$
+		event.append("data: ").append(encodeBase64(bytes.toByteArray())).append("\n\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		return event.toString();
+	}
+
+	/**
+	 * Encode a comment, which clients ignore.
+	 *
+	 * @param comment The comment, a single line.
+	 * @return The comment line.
+	 */
+	public static String encodeComment(String comment) {
+		return ": " + comment + "\n\n"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Decode the data of a notification event.
+	 *
+	 * @param data The data of the event.
+	 * @param loader The class loader to resolve the notification's classes with, or <code>null</code>.
+	 * @return The notification.
+	 * @throws IOException If the data is corrupt.
+	 */
+	public static NamedNotification decodeData(String data, ClassLoader loader) throws IOException {
+		byte[] bytes = decodeBase64(data);
+		Object result = FrameCodec.decodePayload(bytes, 0, bytes.length, loader);
+		if (!(result instanceof NamedNotification)) {
+			throw new IOException("Unexpected event data: " + result); //$NON-NLS-1$
+		}
+		return (NamedNotification) result;
+	}
+
+	private static String encodeBase64(byte[] bytes) {
+		StringBuffer result = new StringBuffer((bytes.length + 2) / 3 * 4);
+		for (int i = 0; i < bytes.length; i += 3) {
+			int b0 = bytes[i] & 0xff;
+			int b1 = i + 1 < bytes.length ? bytes[i + 1] & 0xff : 0;
+			int b2 = i + 2 < bytes.length ? bytes[i + 2] & 0xff : 0;
+			result.append(ALPHABET[b0 >> 2]);
+			result.append(ALPHABET[((b0 & 0x03) << 4) | (b1 >> 4)]);
+			result.append(i + 1 < bytes.length ? ALPHABET[((b1 & 0x0f) << 2) | (b2 >> 6)] : '=');
+			result.append(i + 2 < bytes.length ? ALPHABET[b2 & 0x3f] : '=');
+		}
+		return result.toString();
+	}
+
+	private static byte[] decodeBase64(String data) throws IOException {
+		int length = data.length();
+		while (length > 0 && data.charAt(length - 1) == '=') {
+			length--;
+		}
+		if (data.length() % 4 != 0 || data.length() - length > 2) {
+			throw new IOException("Invalid event data."); //$NON-NLS-1$
+		}
+		byte[] result = new byte[length * 3 / 4];
+		int bits = 0;
+		int count = 0;
+		int index = 0;
+		for (int i = 0; i < length; i++) {
+			bits = (bits << 6) | decodeBase64(data.charAt(i));
+			count += 6;
+			if (count >= 8) {
+				count -= 8;
+				result[index++] = (byte) (bits >> count);
+			}
+		}
+		return result;
+	}
+
+	private static int decodeBase64(char c) throws IOException {
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A';
+		} else if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 26;
+		} else if (c >= '0' && c <= '9') {
+			return c - '0' + 52;
+		} else if (c == '+') {
+			return 62;
+		} else if (c == '/') {
+			return 63;
+		}
+		throw new IOException("Invalid event data."); //$NON-NLS-1$
+	}
+}
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.equinox.jmx.common.util;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class RingBuffer {
 
 	private Object[] buffer;
@@ -50,6 +53,20 @@ public class RingBuffer {
 		return buffer[idx < next ? idx : next - 1];
 	}
 
+	/**
+	 * @return The objects held by the buffer, oldest first.
+	 */
+	public synchronized Object[] toArray() {
+		List result = new ArrayList(size);
+		for (int i = 0; i < size; i++) {
+			Object obj = buffer[(next + i) % size];
+			if (obj != null) {
+				result.add(obj);
+			}
+		}
+		return result.toArray();
+	}
+
 	public int getNextPosition() {
 		return next;
 	}
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.binary;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import javax.management.*;
+import org.eclipse.equinox.jmx.common.util.FrameCodec;
+
+/**
+ * A client connection of the <code>BinaryJMXConnectorServer</code>.
+ * <p>
+ * Frames are read by the selector thread only.  Frames are written by the worker
+ * thread producing them as long as the channel accepts them, the remainder is
+ * queued and written by the selector thread once the channel becomes writable.
+ * </p>
+ */
+final class BinaryConnection {
+
+	private final BinaryJMXConnectorServer server;
+	private final SocketChannel channel;
+	private final MBeanServer mbeanServer;
+	private final String connectionId;
+	private final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+	private ByteBuffer frameBuffer;
+	private SelectionKey key;
+
+	// guarded by writeQueue
+	private final LinkedList writeQueue = new LinkedList();
+	private boolean closed;
+
+	// listener id -> ForwardingListener, guarded by listeners
+	private final Map listeners = new HashMap();
+
+	BinaryConnection(BinaryJMXConnectorServer server, SocketChannel channel, MBeanServer mbeanServer, String connectionId) {
+		this.server = server;
+		this.channel = channel;
+		this.mbeanServer = mbeanServer;
+		this.connectionId = connectionId;
+	}
+
+	String getConnectionId() {
+		return connectionId;
+	}
+
+	synchronized SelectionKey getKey() {
+		return key;
+	}
+
+	synchronized void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Read the frames available on the channel and hand them to the dispatcher.
+	 * Called by the selector thread.
+	 *
+	 * @param dispatcher The dispatcher processing the requests.
+	 * @throws IOException If the channel has been closed or a frame is corrupt.
+	 */
+	void read(RequestDispatcher dispatcher) throws IOException {
+		while (true) {
+			if (frameBuffer == null) {
+				if (channel.read(lengthBuffer) < 0) {
+					throw new EOFException();
+				}
+				if (lengthBuffer.hasRemaining()) {
+					return;
+				}
+				lengthBuffer.flip();
+				int length = lengthBuffer.getInt();
+				lengthBuffer.clear();
+				if (length < FrameCodec.HEADER_LENGTH || length > FrameCodec.MAX_FRAME_LENGTH) {
+					throw new IOException("Invalid frame length: " + length); //$NON-NLS-1$
+				}
+				frameBuffer = ByteBuffer.allocate(length);
+			}
+			if (channel.read(frameBuffer) < 0) {
+				throw new EOFException();
+			}
+			if (frameBuffer.hasRemaining()) {
+				return;
+			}
+			frameBuffer.flip();
+			dispatcher.dispatch(this, frameBuffer);
+			frameBuffer = null;
+		}
+	}
+
+	/**
+	 * Send the response to a request.
+	 *
+	 * @param id The correlation id of the request.
+	 * @param type The response type.
+	 * @param result The result or the thrown exception.
+	 */
+	void reply(int id, byte type, Object result) {
+		byte[] frame;
+		try {
+			frame = FrameCodec.encode(id, type, result);
+		} catch (IOException e) {
+			// the result is not serializable, report the failure instead
+			try {
+				frame = FrameCodec.encode(id, FrameCodec.TYPE_EXCEPTION, new IOException(e.toString()));
+			} catch (IOException e1) {
+				return;
+			}
+		}
+		try {
+			send(frame);
+		} catch (IOException e) {
+			// the connection has been closed, the client fails the request
+		}
+	}
+
+	private void send(byte[] frame) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(frame);
+		synchronized (writeQueue) {
+			if (closed) {
+				throw new IOException("Connection closed."); //$NON-NLS-1$
+			}
+			if (writeQueue.isEmpty()) {
+				channel.write(buffer);
+				if (!buffer.hasRemaining()) {
+					return;
+				}
+			}
+			writeQueue.addLast(buffer);
+		}
+		server.requestWrite(this);
+	}
+
+	/**
+	 * Write the queued frames.  Called by the selector thread when the channel is writable.
+	 *
+	 * @return <code>true</code> if all queued frames have been written.
+	 * @throws IOException If the channel has been closed.
+	 */
+	boolean flush() throws IOException {
+		synchronized (writeQueue) {
+			while (!writeQueue.isEmpty()) {
+				ByteBuffer buffer = (ByteBuffer) writeQueue.getFirst();
+				channel.write(buffer);
+				if (buffer.hasRemaining()) {
+					return false;
+				}
+				writeQueue.removeFirst();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Register a listener which forwards the notifications of an mbean to the client.
+	 *
+	 * @param name The name of the mbean.
+	 * @param listenerId The id the client assigned to the listener.
+	 * @throws InstanceNotFoundException If the mbean does not exist.
+	 */
+	void addListener(ObjectName name, Integer listenerId) throws InstanceNotFoundException {
+		ForwardingListener listener = new ForwardingListener(name, listenerId.intValue());
+		mbeanServer.addNotificationListener(name, listener, null, null);
+		synchronized (listeners) {
+			listeners.put(listenerId, listener);
+		}
+		if (isClosed()) {
+			removeListeners();
+		}
+	}
+
+	/**
+	 * Remove a listener registered by {@link #addListener(ObjectName, Integer)}.
+	 *
+	 * @param listenerId The id the client assigned to the listener.
+	 * @throws InstanceNotFoundException If the mbean does not exist anymore.
+	 * @throws ListenerNotFoundException If no listener with the id is registered.
+	 */
+	void removeListener(Integer listenerId) throws InstanceNotFoundException, ListenerNotFoundException {
+		ForwardingListener listener;
+		synchronized (listeners) {
+			listener = (ForwardingListener) listeners.remove(listenerId);
+		}
+		if (listener == null) {
+			throw new ListenerNotFoundException(listenerId.toString());
+		}
+		mbeanServer.removeNotificationListener(listener.name, listener);
+	}
+
+	private void removeListeners() {
+		ForwardingListener[] registered;
+		synchronized (listeners) {
+			registered = (ForwardingListener[]) listeners.values().toArray(new ForwardingListener[listeners.size()]);
+			listeners.clear();
+		}
+		for (int i = 0; i < registered.length; i++) {
+			try {
+				mbeanServer.removeNotificationListener(registered[i].name, registered[i]);
+			} catch (JMException e) {
+				// the mbean has been unregistered
+			}
+		}
+	}
+
+	private boolean isClosed() {
+		synchronized (writeQueue) {
+			return closed;
+		}
+	}
+
+	/**
+	 * Close the channel and remove the listeners registered by the client.
+	 *
+	 * @return <code>true</code> if the connection was open.
+	 */
+	boolean close() {
+		synchronized (writeQueue) {
+			if (closed) {
+				return false;
+			}
+			closed = true;
+			writeQueue.clear();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		removeListeners();
+		return true;
+	}
+
+	private final class ForwardingListener implements NotificationListener {
+
+		final ObjectName name;
+		private final int listenerId;
+
+		ForwardingListener(ObjectName name, int listenerId) {
+			this.name = name;
+			this.listenerId = listenerId;
+		}
+
+		/* (non-Javadoc)
+		 * @see javax.management.NotificationListener#handleNotification(javax.management.Notification, java.lang.Object)
+		 */
+		public void handleNotification(Notification notification, Object handback) {
+			try {
+				byte[] frame;
+				try {
+					frame = FrameCodec.encode(listenerId, FrameCodec.TYPE_NOTIFICATION, notification);
+				} catch (NotSerializableException e) {
+					// the source is the emitting object, encode a copy sourced by its name, the
+					// notification itself is shared with the other listeners
+					Notification copy = new Notification(notification.getType(), name, notification.getSequenceNumber(), notification.getTimeStamp(), notification.getMessage());
+					copy.setUserData(notification.getUserData());
+					try {
+						frame = FrameCodec.encode(listenerId, FrameCodec.TYPE_NOTIFICATION, copy);
+					} catch (NotSerializableException nse) {
+						copy.setUserData(null);
+						frame = FrameCodec.encode(listenerId, FrameCodec.TYPE_NOTIFICATION, copy);
+					}
+				}
+				send(frame);
+			} catch (IOException e) {
+				// the connection has been closed or the notification cannot be serialized, drop it
+			}
+		}
+	}
+}
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.binary;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.*;
+import javax.management.MBeanServer;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * Connector server of the binary transport.
+ * <p>
+ * A single thread accepts connections and reads and writes the frames of all
+ * connections through a non-blocking selector.  Each connection carries many
+ * concurrent requests, which are processed by a pool of worker threads, and
+ * the notifications of the listeners its client registered.
+ * </p>
+ *
+ * @see org.eclipse.equinox.jmx.common.util.FrameCodec
+ */
+public class BinaryJMXConnectorServer extends JMXConnectorServer {
+
+	/**
+	 * The environment attribute, or system property, holding the number of
+	 * worker threads which process requests.
+	 */
+	public static final String WORKERS_ATTRIBUTE = "org.eclipse.equinox.jmx.server.binary.workers"; //$NON-NLS-1$
+
+	private static final int DEFAULT_WORKERS = 4;
+
+	private final JMXServiceURL url;
+	private final Map attributes;
+	private final int workerCount;
+	// connections which have frames waiting for the channel to become writable
+	private final List pendingWrites = new ArrayList();
+
+	// guarded by this
+	private Thread selectorThread;
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private RequestDispatcher dispatcher;
+	private long connectionCount;
+
+	public BinaryJMXConnectorServer(JMXServiceURL url, Map environment, MBeanServer mbeanServer) {
+		super(mbeanServer);
+		this.url = url;
+		this.attributes = environment == null ? new HashMap() : new HashMap(environment);
+		this.workerCount = Math.max(1, getIntAttribute(WORKERS_ATTRIBUTE, DEFAULT_WORKERS));
+	}
+
+	private int getIntAttribute(String key, int defaultValue) {
+		Object value = attributes.get(key);
+		if (value == null) {
+			value = System.getProperty(key);
+		}
+		if (value != null) {
+			try {
+				return Integer.parseInt(value.toString());
+			} catch (NumberFormatException e) {
+				// use the default
+			}
+		}
+		return defaultValue;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnectorServerMBean#start()
+	 */
+	public synchronized void start() throws IOException {
+		if (selectorThread != null) {
+			return;
+		}
+		MBeanServer mbeanServer = getMBeanServer();
+		if (mbeanServer == null) {
+			throw new IllegalStateException("No MBeanServer to serve."); //$NON-NLS-1$
+		}
+		Selector newSelector = Selector.open();
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		try {
+			channel.configureBlocking(false);
+			channel.socket().setReuseAddress(true);
+			String host = url.getHost();
+			channel.socket().bind(host == null || host.length() == 0 ? new InetSocketAddress(url.getPort()) : new InetSocketAddress(host, url.getPort()));
+			channel.register(newSelector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			channel.close();
+			newSelector.close();
+			throw e;
+		}
+		selector = newSelector;
+		serverChannel = channel;
+		// requests are processed with the class loader of the thread starting the connector
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		dispatcher = new RequestDispatcher(mbeanServer, workerCount, loader != null ? loader : getClass().getClassLoader(), url.getPort());
+		selectorThread = new Thread("Binary JMX Connector Server [" + url.getPort() + "]") { //$NON-NLS-1$ //$NON-NLS-2$
+			public void run() {
+				runSelector(this);
+			}
+		};
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnectorServerMBean#stop()
+	 */
+	public void stop() throws IOException {
+		Thread thread;
+		synchronized (this) {
+			thread = selectorThread;
+			if (thread == null) {
+				return;
+			}
+			selectorThread = null;
+			// release the port right away so the connector can be restarted
+			serverChannel.close();
+			dispatcher.stop();
+			selector.wakeup();
+		}
+		try {
+			thread.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnectorServerMBean#isActive()
+	 */
+	public synchronized boolean isActive() {
+		return selectorThread != null;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnectorServerMBean#getAddress()
+	 */
+	public JMXServiceURL getAddress() {
+		return url;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.JMXConnectorServerMBean#getAttributes()
+	 */
+	public Map getAttributes() {
+		return Collections.unmodifiableMap(attributes);
+	}
+
+	private synchronized boolean isCurrent(Thread thread) {
+		return selectorThread == thread;
+	}
+
+	void runSelector(Thread thread) {
+		Selector currentSelector;
+		RequestDispatcher currentDispatcher;
+		synchronized (this) {
+			currentSelector = selector;
+			currentDispatcher = dispatcher;
+		}
+		try {
+			while (isCurrent(thread)) {
+				currentSelector.select();
+				registerPendingWrites();
+				Iterator keys = currentSelector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = (SelectionKey) keys.next();
+					keys.remove();
+					if (key.isValid()) {
+						processKey(currentSelector, key, currentDispatcher);
+					}
+				}
+			}
+		} catch (IOException e) {
+			// the selector failed, the connector is no longer usable
+			synchronized (this) {
+				if (selectorThread == thread) {
+					selectorThread = null;
+					currentDispatcher.stop();
+				}
+			}
+		} finally {
+			Iterator keys = currentSelector.keys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = (SelectionKey) keys.next();
+				if (key.attachment() instanceof BinaryConnection) {
+					closeConnection((BinaryConnection) key.attachment(), null);
+				} else {
+					closeQuietly(key.channel());
+				}
+			}
+			try {
+				currentSelector.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	private void processKey(Selector currentSelector, SelectionKey key, RequestDispatcher currentDispatcher) {
+		if (key.isAcceptable()) {
+			accept(currentSelector, (ServerSocketChannel) key.channel(), currentDispatcher);
+			return;
+		}
+		BinaryConnection connection = (BinaryConnection) key.attachment();
+		try {
+			if (key.isReadable()) {
+				connection.read(currentDispatcher);
+			}
+			if (key.isValid() && key.isWritable() && connection.flush()) {
+				key.interestOps(SelectionKey.OP_READ);
+			}
+		} catch (IOException e) {
+			closeConnection(connection, e);
+		} catch (CancelledKeyException e) {
+			closeConnection(connection, null);
+		}
+	}
+
+	private void accept(Selector currentSelector, ServerSocketChannel acceptor, RequestDispatcher currentDispatcher) {
+		SocketChannel channel;
+		try {
+			channel = acceptor.accept();
+		} catch (IOException e) {
+			// the client gave up, keep serving the others
+			return;
+		}
+		if (channel == null) {
+			return;
+		}
+		String connectionId;
+		synchronized (this) {
+			connectionId = url.getProtocol() + ":/" + channel.socket().getRemoteSocketAddress() + " " + (++connectionCount); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		try {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			BinaryConnection connection = new BinaryConnection(this, channel, currentDispatcher.getMBeanServer(), connectionId);
+			connection.setKey(channel.register(currentSelector, SelectionKey.OP_READ, connection));
+		} catch (IOException e) {
+			closeQuietly(channel);
+			return;
+		}
+		connectionOpened(connectionId, null, null);
+	}
+
+	private void closeConnection(BinaryConnection connection, IOException failure) {
+		if (!connection.close()) {
+			return;
+		}
+		if (failure == null) {
+			connectionClosed(connection.getConnectionId(), null, null);
+		} else {
+			connectionFailed(connection.getConnectionId(), failure.getMessage(), null);
+		}
+	}
+
+	private static void closeQuietly(Channel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * Ask the selector thread to write the pending frames of the connection once
+	 * its channel becomes writable.
+	 *
+	 * @param connection The connection.
+	 */
+	void requestWrite(BinaryConnection connection) {
+		Selector currentSelector;
+		synchronized (pendingWrites) {
+			pendingWrites.add(connection);
+		}
+		synchronized (this) {
+			currentSelector = selector;
+		}
+		currentSelector.wakeup();
+	}
+
+	private void registerPendingWrites() {
+		BinaryConnection[] connections;
+		synchronized (pendingWrites) {
+			if (pendingWrites.isEmpty()) {
+				return;
+			}
+			connections = (BinaryConnection[]) pendingWrites.toArray(new BinaryConnection[pendingWrites.size()]);
+			pendingWrites.clear();
+		}
+		for (int i = 0; i < connections.length; i++) {
+			SelectionKey key = connections[i].getKey();
+			if (key != null && key.isValid()) {
+				try {
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				} catch (CancelledKeyException e) {
+					// closed concurrently
+				}
+			}
+		}
+	}
+}
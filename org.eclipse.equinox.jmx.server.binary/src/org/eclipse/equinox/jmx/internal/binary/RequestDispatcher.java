@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.binary;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.*;
+import javax.management.*;
+import org.eclipse.equinox.jmx.common.util.FrameCodec;
+
+/**
+ * Processes the requests received by the connections of a <code>BinaryJMXConnectorServer</code>
+ * with a fixed number of worker threads, so a slow mbean does not hold up the selector
+ * thread or the other requests multiplexed on the same connection.
+ */
+final class RequestDispatcher {
+
+	// "name(parameter types)" -> the MBeanServerConnection method
+	private static final Map methods = createMethodTable();
+
+	private final MBeanServer mbeanServer;
+	private final ClassLoader loader;
+	private final Thread[] workers;
+
+	// guarded by queue
+	private final LinkedList queue = new LinkedList();
+	private boolean stopped;
+
+	RequestDispatcher(MBeanServer mbeanServer, int workerCount, ClassLoader loader, int port) {
+		this.mbeanServer = mbeanServer;
+		this.loader = loader;
+		this.workers = new Thread[workerCount];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread("Binary JMX Connector Worker [" + port + "] " + i) { //$NON-NLS-1$ //$NON-NLS-2$
+				public void run() {
+					runWorker();
+				}
+			};
+			workers[i].setContextClassLoader(loader);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	private static Map createMethodTable() {
+		Map table = new HashMap();
+		Method[] candidates = MBeanServerConnection.class.getMethods();
+		for (int i = 0; i < candidates.length; i++) {
+			Class[] types = candidates[i].getParameterTypes();
+			String[] signature = new String[types.length];
+			for (int j = 0; j < types.length; j++) {
+				signature[j] = types[j].getName();
+			}
+			table.put(getKey(candidates[i].getName(), signature), candidates[i]);
+		}
+		return table;
+	}
+
+	private static String getKey(String methodName, String[] signature) {
+		StringBuffer key = new StringBuffer(methodName).append('(');
+		for (int i = 0; i < signature.length; i++) {
+			if (i > 0) {
+				key.append(',');
+			}
+			key.append(signature[i]);
+		}
+		return key.append(')').toString();
+	}
+
+	MBeanServer getMBeanServer() {
+		return mbeanServer;
+	}
+
+	/**
+	 * Queue a frame received by a connection.
+	 *
+	 * @param connection The connection which received the frame.
+	 * @param frame The frame, without its length prefix.
+	 */
+	void dispatch(BinaryConnection connection, ByteBuffer frame) {
+		synchronized (queue) {
+			if (stopped) {
+				return;
+			}
+			queue.addLast(new Request(connection, frame));
+			queue.notify();
+		}
+	}
+
+	/**
+	 * Stop the worker threads, queued requests are dropped.
+	 */
+	void stop() {
+		synchronized (queue) {
+			stopped = true;
+			queue.clear();
+			queue.notifyAll();
+		}
+	}
+
+	void runWorker() {
+		while (true) {
+			Request request;
+			synchronized (queue) {
+				while (queue.isEmpty() && !stopped) {
+					try {
+						queue.wait();
+					} catch (InterruptedException e) {
+						// check again
+					}
+				}
+				if (stopped) {
+					return;
+				}
+				request = (Request) queue.removeFirst();
+			}
+			process(request.connection, request.frame);
+		}
+	}
+
+	private void process(BinaryConnection connection, ByteBuffer frame) {
+		int id = frame.getInt();
+		if (frame.get() != FrameCodec.TYPE_REQUEST) {
+			// the client only sends requests
+			return;
+		}
+		Object result;
+		byte type = FrameCodec.TYPE_RESPONSE;
+		try {
+			Object[] request = (Object[]) FrameCodec.decodePayload(frame.array(), frame.position(), frame.remaining(), loader);
+			result = invoke(connection, (String) request[0], (String[]) request[1], (Object[]) request[2]);
+		} catch (InvocationTargetException e) {
+			result = e.getTargetException();
+			type = FrameCodec.TYPE_EXCEPTION;
+		} catch (Exception e) {
+			result = e;
+			type = FrameCodec.TYPE_EXCEPTION;
+		}
+		connection.reply(id, type, result);
+	}
+
+	private Object invoke(BinaryConnection connection, String methodName, String[] signature, Object[] args) throws Exception {
+		if (FrameCodec.ADD_LISTENER.equals(methodName)) {
+			connection.addListener((ObjectName) args[0], (Integer) args[1]);
+			return null;
+		} else if (FrameCodec.REMOVE_LISTENER.equals(methodName)) {
+			connection.removeListener((Integer) args[0]);
+			return null;
+		}
+		Method method = (Method) methods.get(getKey(methodName, signature));
+		if (method == null) {
+			throw new NoSuchMethodException(getKey(methodName, signature));
+		}
+		return method.invoke(mbeanServer, args);
+	}
+
+	private static final class Request {
+
+		final BinaryConnection connection;
+		final ByteBuffer frame;
+
+		Request(BinaryConnection connection, ByteBuffer frame) {
+			this.connection = connection;
+			this.frame = frame;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server.internal.xmlrpc;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.eclipse.equinox.jmx.common.InvocationResult;
+import org.eclipse.equinox.jmx.server.WorkerPool;
+
+/**
+ * Runs the operations of a batch request, each operation failing or succeeding on
+ * its own.  The requesting thread runs operations itself and is helped by up to
+ * <code>threads - 1</code> threads of the <code>WorkerPool</code>, each taking the
+ * next operation not yet started until none is left.
+ */
+class BatchInvocation implements Runnable {
+
+	private final MBeanServer mbs;
+	private final Object[] names;
+	private final Object[] operations;
+	private final Object[] params;
+	private final Object[] signatures;
+	private final InvocationResult[] results;
+
+	// guarded by this
+	private int next;
+
+	/**
+	 * @param mbs The server to invoke the operations on.
+	 * @param names The object names, as <code>ObjectName</code>s or strings.
+	 * @param operations The operation names.
+	 * @param params The parameter arrays of the operations.
+	 * @param signatures The signature arrays of the operations, an entry is derived from
+	 * the classes of the parameters if <code>null</code> or not matching its parameters.
+	 */
+	BatchInvocation(MBeanServer mbs, Object[] names, Object[] operations, Object[] params, Object[] signatures) {
+		if (operations.length != names.length || params.length != names.length || signatures.length != names.length) {
+			throw new IllegalArgumentException("The batch arrays differ in length."); //$NON-NLS-1$
+		}
+		this.mbs = mbs;
+		this.names = names;
+		this.operations = operations;
+		this.params = params;
+		this.signatures = signatures;
+		this.results = new InvocationResult[names.length];
+	}
+
+	/**
+	 * Run all operations.
+	 *
+	 * @param threads The maximum number of threads running operations concurrently.
+	 * @return The result of each operation.
+	 */
+	InvocationResult[] execute(int threads) {
+		WorkerPool.getDefault().run(this, Math.min(threads, results.length) - 1);
+		return results;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		int index;
+		while ((index = nextIndex()) != -1) {
+			results[index] = invoke(index);
+		}
+	}
+
+	private synchronized int nextIndex() {
+		return next < results.length ? next++ : -1;
+	}
+
+	private InvocationResult invoke(int index) {
+		try {
+			Object name = names[index];
+			ObjectName objectName = name instanceof ObjectName ? (ObjectName) name : ObjectName.getInstance((String) name);
+			Object[] operationParams = params[index] == null ? new Object[0] : (Object[]) params[index];
+			return new InvocationResult(mbs.invoke(objectName, (String) operations[index], operationParams, getSignature(signatures[index], operationParams)), null);
+		} catch (Exception e) {
+			return new InvocationResult(null, e);
+		}
+	}
+
+	private static String[] getSignature(Object signature, Object[] operationParams) {
+		Object[] types = (Object[]) signature;
+		String[] result = new String[operationParams.length];
+		if (types != null && types.length == operationParams.length) {
+			System.arraycopy(types, 0, result, 0, types.length);
+		} else {
+			for (int i = 0; i < operationParams.length; i++) {
+				result[i] = operationParams[i] == null ? Object.class.getName() : operationParams[i].getClass().getName();
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server.internal.xmlrpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.eclipse.equinox.jmx.common.util.HttpCompression;
+
+/**
+ * Buffers a response body and sends it, once complete, compressed in the coding
+ * accepted by the client if it reaches the compression threshold.  The size of
+ * the body is only known once the XML-RPC server wrote it, which is why it is
+ * buffered.
+ */
+class CompressingResponse extends HttpServletResponseWrapper {
+
+	private final int threshold;
+	private final String encoding;
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+	private ServletOutputStream stream;
+	private long bytes;
+	private long transferBytes;
+	private boolean compressed;
+
+	/**
+	 * @param response The response.
+	 * @param threshold The size, in bytes, from which the body is compressed,
+	 * <code>0</code> if never.
+	 * @param encoding The coding the client accepts, <code>null</code> if none.
+	 */
+	CompressingResponse(HttpServletResponse response, int threshold, String encoding) {
+		super(response);
+		this.threshold = threshold;
+		this.encoding = encoding;
+		if (threshold > 0) {
+			// tell the client it may compress its requests
+			response.setHeader(HttpCompression.ACCEPT_ENCODING_HEADER, HttpCompression.ACCEPTED_ENCODINGS);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+	 */
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (stream == null) {
+			stream = new ServletOutputStream() {
+				public void write(int b) {
+					buffer.write(b);
+				}
+
+				public void write(byte[] b, int off, int len) {
+					buffer.write(b, off, len);
+				}
+			};
+		}
+		return stream;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+	 */
+	public void setContentLength(int len) {
+		// set by finish() to the length of the body sent
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+	 */
+	public void flushBuffer() {
+		// the body is sent by finish()
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#resetBuffer()
+	 */
+	public void resetBuffer() {
+		buffer.reset();
+		super.resetBuffer();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletResponseWrapper#reset()
+	 */
+	public void reset() {
+		buffer.reset();
+		super.reset();
+	}
+
+	/**
+	 * Send the buffered body.
+	 *
+	 * @throws IOException If the body cannot be sent.
+	 */
+	void finish() throws IOException {
+		if (stream == null) {
+			return;
+		}
+		byte[] body = buffer.toByteArray();
+		bytes = body.length;
+		if (encoding != null && threshold > 0 && body.length >= threshold) {
+			byte[] result = HttpCompression.compress(body, 0, body.length, encoding);
+			if (result.length < body.length) {
+				body = result;
+				compressed = true;
+				super.setHeader(HttpCompression.CONTENT_ENCODING_HEADER, encoding);
+			}
+		}
+		super.setContentLength(body.length);
+		super.getOutputStream().write(body);
+		transferBytes = body.length;
+	}
+
+	/**
+	 * @return Whether the body was sent compressed.
+	 */
+	boolean isCompressed() {
+		return compressed;
+	}
+
+	/**
+	 * @return The size of the body.
+	 */
+	long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return The size of the body as sent.
+	 */
+	long getTransferBytes() {
+		return transferBytes;
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server.internal.xmlrpc;
+
+import java.io.IOException;
+import java.util.*;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import org.eclipse.equinox.jmx.common.util.CountingInputStream;
+import org.eclipse.equinox.jmx.common.util.HttpCompression;
+
+/**
+ * Decodes a gzip or deflate compressed request body and counts the bytes of the
+ * body.  The encoding headers are hidden from the XML-RPC server, which would
+ * otherwise decode the body, or compress the response, on its own.
+ */
+class DecompressingRequest extends HttpServletRequestWrapper {
+
+	private static final String CONTENT_LENGTH_HEADER = "Content-Length"; //$NON-NLS-1$
+
+	private final String encoding;
+	private final String acceptedEncoding;
+	private CountingInputStream transferredBody;
+	private CountingInputStream decodedBody;
+	private ServletInputStream stream;
+
+	/**
+	 * @param request The request.
+	 * @throws IOException If the body is compressed with an unsupported coding.
+	 */
+	DecompressingRequest(HttpServletRequest request) throws IOException {
+		super(request);
+		this.encoding = HttpCompression.getEncoding(request.getHeader(HttpCompression.CONTENT_ENCODING_HEADER));
+		StringBuffer accepted = new StringBuffer();
+		Enumeration values = request.getHeaders(HttpCompression.ACCEPT_ENCODING_HEADER);
+		while (values != null && values.hasMoreElements()) {
+			accepted.append(values.nextElement()).append(',');
+		}
+		this.acceptedEncoding = HttpCompression.selectEncoding(accepted.toString());
+	}
+
+	/**
+	 * @return The preferred coding the client accepts the response in, <code>null</code> if none.
+	 */
+	String getAcceptedEncoding() {
+		return acceptedEncoding;
+	}
+
+	/**
+	 * @return Whether the body is compressed.
+	 */
+	boolean isCompressed() {
+		return encoding != null;
+	}
+
+	/**
+	 * @return The number of bytes of the decoded body read so far.
+	 */
+	long getBytes() {
+		return decodedBody != null ? decodedBody.getCount() : 0;
+	}
+
+	/**
+	 * @return The number of bytes of the body, as transferred, read so far.
+	 */
+	long getTransferBytes() {
+		return transferredBody != null ? transferredBody.getCount() : 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getInputStream()
+	 */
+	public ServletInputStream getInputStream() throws IOException {
+		if (stream == null) {
+			transferredBody = new CountingInputStream(super.getInputStream());
+			decodedBody = new CountingInputStream(HttpCompression.decompress(transferredBody, encoding));
+			stream = new ServletInputStream() {
+				public int read() throws IOException {
+					return decodedBody.read();
+				}
+
+				public int read(byte[] b, int off, int len) throws IOException {
+					return decodedBody.read(b, off, len);
+				}
+
+				public void close() throws IOException {
+					decodedBody.close();
+				}
+			};
+		}
+		return stream;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.ServletRequestWrapper#getContentLength()
+	 */
+	public int getContentLength() {
+		// the length of the decoded body is not known
+		return encoding != null ? -1 : super.getContentLength();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getHeader(java.lang.String)
+	 */
+	public String getHeader(String name) {
+		return isHidden(name) ? null : super.getHeader(name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServletRequestWrapper#getHeaders(java.lang.String)
+	 */
+	public Enumeration getHeaders(String name) {
+		return isHidden(name) ? Collections.enumeration(Collections.EMPTY_LIST) : super.getHeaders(name);
+	}
+
+	private boolean isHidden(String name) {
+		return HttpCompression.CONTENT_ENCODING_HEADER.equalsIgnoreCase(name) || HttpCompression.ACCEPT_ENCODING_HEADER.equalsIgnoreCase(name) || (encoding != null && CONTENT_LENGTH_HEADER.equalsIgnoreCase(name));
+	}
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server.internal.xmlrpc;
+
+import java.util.*;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.eclipse.equinox.jmx.common.JMXConstants;
+import org.eclipse.equinox.jmx.common.util.CompressionStatistics;
+
+/**
+ * Records the calls and latencies of the methods dispatched by an
+ * <code>XMLRPCMBeanServerAdapter</code>, and the sizes of the request and
+ * response bodies it transferred.
+ *
+ * @since 1.0
+ */
+public class DispatchStatistics implements DispatchStatisticsMBean {
+
+	public static final String OBJECT_NAME_STR = JMXConstants.DEFAULT_DOMAIN + ":type=XMLRPCDispatch"; //$NON-NLS-1$
+
+	private final int port;
+
+	// method -> Counters, guarded by this
+	private final Map counters = new TreeMap();
+	private final CompressionStatistics compressionStatistics = new CompressionStatistics();
+
+	/**
+	 * @param port The port of the adapter.
+	 */
+	public DispatchStatistics(int port) {
+		this.port = port;
+	}
+
+	/**
+	 * @return The name the statistics are registered under.
+	 * @throws MalformedObjectNameException Never, the name is constant but for the port.
+	 */
+	public ObjectName getObjectName() throws MalformedObjectNameException {
+		return ObjectName.getInstance(OBJECT_NAME_STR + ",port=" + port); //$NON-NLS-1$
+	}
+
+	/**
+	 * Record a dispatched call.
+	 *
+	 * @param method The method.
+	 * @param time The time, in milliseconds, spent in the call.
+	 * @param failed Whether the call failed with an exception.
+	 */
+	synchronized void record(String method, long time, boolean failed) {
+		Counters entry = (Counters) counters.get(method);
+		if (entry == null) {
+			entry = new Counters();
+			counters.put(method, entry);
+		}
+		entry.calls++;
+		if (failed) {
+			entry.failures++;
+		}
+		entry.totalTime += time;
+		if (time > entry.maxTime) {
+			entry.maxTime = time;
+		}
+	}
+
+	/**
+	 * @return The sizes of the request and response bodies, before compression and as transferred.
+	 */
+	CompressionStatistics getCompressionStatistics() {
+		return compressionStatistics;
+	}
+
+	private Counters getCounters(String method) {
+		Counters entry = (Counters) counters.get(method);
+		return entry == null ? new Counters() : entry;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getMethods()
+	 */
+	public synchronized String[] getMethods() {
+		return (String[]) counters.keySet().toArray(new String[counters.size()]);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getSummary()
+	 */
+	public synchronized String[] getSummary() {
+		String[] result = new String[counters.size()];
+		Iterator iter = counters.entrySet().iterator();
+		for (int i = 0; iter.hasNext(); i++) {
+			Map.Entry mapEntry = (Map.Entry) iter.next();
+			Counters entry = (Counters) mapEntry.getValue();
+			result[i] = mapEntry.getKey() + ": calls=" + entry.calls + ", failed=" + entry.failures + ", total=" + entry.totalTime + "ms, avg=" + entry.getAverageTime() + "ms, max=" + entry.maxTime + "ms"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getCallCount(java.lang.String)
+	 */
+	public synchronized long getCallCount(String method) {
+		return getCounters(method).calls;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getFailedCount(java.lang.String)
+	 */
+	public synchronized long getFailedCount(String method) {
+		return getCounters(method).failures;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getTotalTime(java.lang.String)
+	 */
+	public synchronized long getTotalTime(String method) {
+		return getCounters(method).totalTime;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getAverageTime(java.lang.String)
+	 */
+	public synchronized long getAverageTime(String method) {
+		return getCounters(method).getAverageTime();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getMaxTime(java.lang.String)
+	 */
+	public synchronized long getMaxTime(String method) {
+		return getCounters(method).maxTime;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#resetStatistics()
+	 */
+	public synchronized void resetStatistics() {
+		counters.clear();
+		compressionStatistics.reset();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getRequestBytes()
+	 */
+	public long getRequestBytes() {
+		return compressionStatistics.getRequestBytes();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getRequestTransferBytes()
+	 */
+	public long getRequestTransferBytes() {
+		return compressionStatistics.getRequestTransferBytes();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getCompressedRequestCount()
+	 */
+	public long getCompressedRequestCount() {
+		return compressionStatistics.getCompressedRequestCount();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getResponseBytes()
+	 */
+	public long getResponseBytes() {
+		return compressionStatistics.getResponseBytes();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getResponseTransferBytes()
+	 */
+	public long getResponseTransferBytes() {
+		return compressionStatistics.getResponseTransferBytes();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.internal.xmlrpc.DispatchStatisticsMBean#getCompressedResponseCount()
+	 */
+	public long getCompressedResponseCount() {
+		return compressionStatistics.getCompressedResponseCount();
+	}
+
+	private static final class Counters {
+
+		long calls;
+		long failures;
+		long totalTime;
+		long maxTime;
+
+		long getAverageTime() {
+			return calls == 0 ? 0 : totalTime / calls;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server.internal.xmlrpc;
+
+/**
+ * Management interface exposing the time the XML-RPC adapter spends in each
+ * method it dispatches, and the bytes of the bodies it transferred.  Server methods are identified by their name and number
+ * of parameters, e.g. <code>retrieveNotifications/1</code>, mbean operations by
+ * <code>invoke(</code><i>operation</i><code>)</code>.
+ *
+ * @since 1.0
+ */
+public interface DispatchStatisticsMBean {
+
+	/**
+	 * @return The methods which have been dispatched since the statistics were reset.
+	 */
+	public String[] getMethods();
+
+	/**
+	 * @return One line per dispatched method summarizing its counters.
+	 */
+	public String[] getSummary();
+
+	/**
+	 * @param method The method.
+	 * @return The number of calls of the method.
+	 */
+	public long getCallCount(String method);
+
+	/**
+	 * @param method The method.
+	 * @return The number of calls of the method which failed with an exception.
+	 */
+	public long getFailedCount(String method);
+
+	/**
+	 * @param method The method.
+	 * @return The total time, in milliseconds, spent in the method.
+	 */
+	public long getTotalTime(String method);
+
+	/**
+	 * @param method The method.
+	 * @return The average time, in milliseconds, of a call of the method.
+	 */
+	public long getAverageTime(String method);
+
+	/**
+	 * @param method The method.
+	 * @return The longest time, in milliseconds, of a call of the method.
+	 */
+	public long getMaxTime(String method);
+
+	/**
+	 * Reset the counters of all methods and bodies.
+	 */
+	public void resetStatistics();
+
+	/**
+	 * @return The total size of the request bodies, after decompression.
+	 */
+	public long getRequestBytes();
+
+	/**
+	 * @return The total size of the request bodies as received.
+	 */
+	public long getRequestTransferBytes();
+
+	/**
+	 * @return The number of requests received compressed.
+	 */
+	public long getCompressedRequestCount();
+
+	/**
+	 * @return The total size of the response bodies, before compression.
+	 */
+	public long getResponseBytes();
+
+	/**
+	 * @return The total size of the response bodies as sent.
+	 */
+	public long getResponseTransferBytes();
+
+	/**
+	 * @return The number of responses sent compressed.
+	 */
+	public long getCompressedResponseCount();
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server.internal.xmlrpc;
+
+import java.io.*;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.*;
+import org.eclipse.equinox.jmx.common.NamedNotification;
+import org.eclipse.equinox.jmx.common.util.NotificationStreamCodec;
+
+/**
+ * Streams the notifications buffered by an <code>XMLRPCMBeanServerAdapter</code>
+ * to a client as Server-Sent Events, sending each notification as soon as it
+ * arrives.  The stream starts at the notification following the one named by the
+ * <code>Last-Event-ID</code> header of a reconnecting client, or else at the id of
+ * the <code>startId</code> query parameter, and ends when the client disconnects
+ * or the adapter stops.
+ */
+public class NotificationStreamServlet extends HttpServlet {
+
+	private static final long serialVersionUID = -2318453629436316540L;
+	// the time without notifications after which a comment is sent, detecting clients
+	// which went away and keeping proxies from closing the connection
+	private static final long KEEP_ALIVE_INTERVAL = 15 * 1000;
+	private static final int MAX_EVENTS = 100;
+
+	private XMLRPCMBeanServerAdapter adapter;
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.GenericServlet#init(javax.servlet.ServletConfig)
+	 */
+	public void init(ServletConfig config) throws ServletException {
+		super.init(config);
+		adapter = (XMLRPCMBeanServerAdapter) config.getServletContext().getAttribute(XMLRPCMBeanServerAdapter.INTERNAL_ADAPTER);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+	 */
+	protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+		long startId;
+		try {
+			startId = getStartId(req);
+		} catch (NumberFormatException e) {
+			res.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid notification id."); //$NON-NLS-1$
+			return;
+		}
+		if (adapter == null || !adapter.openNotificationStream()) {
+			res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+		try {
+			res.setStatus(HttpServletResponse.SC_OK);
+			res.setContentType(NotificationStreamCodec.CONTENT_TYPE);
+			res.setHeader("Cache-Control", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+			Writer out = new OutputStreamWriter(res.getOutputStream(), "UTF-8"); //$NON-NLS-1$
+			// commit the response so the client knows the stream is supported
+			out.write(NotificationStreamCodec.encodeComment("stream")); //$NON-NLS-1$
+			flush(out, res);
+			long next = startId;
+			while (!adapter.isStopping()) {
+				NamedNotification[] notifications = adapter.retrieveNotifications(next, KEEP_ALIVE_INTERVAL, MAX_EVENTS);
+				if (notifications.length == 0) {
+					out.write(NotificationStreamCodec.encodeComment("keep-alive")); //$NON-NLS-1$
+				}
+				for (int i = 0; i < notifications.length; i++) {
+					out.write(NotificationStreamCodec.encodeEvent(notifications[i]));
+					next = notifications[i].getNotificationId() + 1;
+				}
+				flush(out, res);
+			}
+		} catch (IOException e) {
+			// the client went away
+		} finally {
+			adapter.closeNotificationStream();
+		}
+	}
+
+	private static void flush(Writer out, HttpServletResponse res) throws IOException {
+		out.flush();
+		res.flushBuffer();
+	}
+
+	private static long getStartId(HttpServletRequest req) {
+		String lastEventId = req.getHeader(NotificationStreamCodec.LAST_EVENT_ID_HEADER);
+		if (lastEventId != null && lastEventId.length() > 0) {
+			return Long.parseLong(lastEventId.trim()) + 1;
+		}
+		String startId = req.getParameter(NotificationStreamCodec.START_ID_PARAMETER);
+		return startId != null ? Long.parseLong(startId.trim()) : 0;
+	}
+}
@@ -11,22 +11,65 @@
 package org.eclipse.equinox.jmx.server.internal.xmlrpc;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import javax.management.MBeanServer;
 import javax.management.remote.JMXConnectorServer;
 import javax.management.remote.JMXServiceURL;
+import org.eclipse.equinox.jmx.common.util.HttpCompression;
 
 public class XMLRPCJMXConnectorServer extends JMXConnectorServer {
 
+	/**
+	 * The environment attribute, or system property, holding the maximum number of
+	 * threads running the operations of one batch request.
+	 */
+	public static final String BATCH_THREADS_ATTRIBUTE = "org.eclipse.equinox.jmx.server.xmlrpc.batchThreads"; //$NON-NLS-1$
+
+	/**
+	 * The environment attribute, or system property, holding the maximum number of
+	 * clients concurrently receiving the notification stream.
+	 */
+	public static final String MAX_NOTIFICATION_STREAMS_ATTRIBUTE = "org.eclipse.equinox.jmx.server.xmlrpc.maxNotificationStreams"; //$NON-NLS-1$
+
+	/**
+	 * The environment attribute, or system property, holding the size in bytes from
+	 * which response bodies are compressed; <code>0</code> disables compression.
+	 */
+	public static final String COMPRESSION_THRESHOLD_ATTRIBUTE = "org.eclipse.equinox.jmx.server.xmlrpc.compressionThreshold"; //$NON-NLS-1$
+
 	private JMXServiceURL url;
+	private final Map attributes;
 	private XMLRPCMBeanServerAdapter xmlrpcServer;
 
 	public XMLRPCJMXConnectorServer(JMXServiceURL url, MBeanServer mbeanServer) {
+		this(url, null, mbeanServer);
+	}
+
+	public XMLRPCJMXConnectorServer(JMXServiceURL url, Map environment, MBeanServer mbeanServer) {
 		this.url = url;
-		xmlrpcServer = new XMLRPCMBeanServerAdapter(url.getPort(), mbeanServer);
+		this.attributes = environment == null ? new HashMap() : new HashMap(environment);
+		xmlrpcServer = new XMLRPCMBeanServerAdapter(url.getPort(), mbeanServer, getIntAttribute(BATCH_THREADS_ATTRIBUTE, XMLRPCMBeanServerAdapter.DEFAULT_BATCH_THREADS));
+		xmlrpcServer.setMaxNotificationStreams(getIntAttribute(MAX_NOTIFICATION_STREAMS_ATTRIBUTE, XMLRPCMBeanServerAdapter.DEFAULT_MAX_NOTIFICATION_STREAMS));
+		xmlrpcServer.setCompressionThreshold(getIntAttribute(COMPRESSION_THRESHOLD_ATTRIBUTE, HttpCompression.DEFAULT_THRESHOLD));
 		super.setMBeanServerForwarder(xmlrpcServer);
 	}
 
+	private int getIntAttribute(String key, int defaultValue) {
+		Object value = attributes.get(key);
+		if (value == null) {
+			value = System.getProperty(key);
+		}
+		if (value != null) {
+			try {
+				return Integer.parseInt(value.toString());
+			} catch (NumberFormatException e) {
+				// use the default
+			}
+		}
+		return defaultValue;
+	}
+
 	/* (non-Javadoc)
 	 * @see javax.management.remote.JMXConnectorServerMBean#start()
 	 */
@@ -61,6 +104,6 @@ public class XMLRPCJMXConnectorServer extends JMXConnectorServer {
 	 * @see javax.management.remote.JMXConnectorServerMBean#getAttributes()
 	 */
 	public Map getAttributes() {
-		return null;
+		return new HashMap(attributes);
 	}
 }
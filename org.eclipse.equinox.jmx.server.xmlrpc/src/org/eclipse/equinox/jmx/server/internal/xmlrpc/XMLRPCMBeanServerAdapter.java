@@ -12,17 +12,22 @@ package org.eclipse.equinox.jmx.server.internal.xmlrpc;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.lang.reflect.Method;
 import java.util.*;
 import javax.management.*;
 import javax.management.loading.ClassLoaderRepository;
 import javax.management.remote.MBeanServerForwarder;
 import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.apache.xmlrpc.*;
 import org.apache.xmlrpc.server.XmlRpcHandlerMapping;
 import org.apache.xmlrpc.server.XmlRpcNoSuchHandlerException;
 import org.apache.xmlrpc.webserver.XmlRpcServlet;
+import org.eclipse.equinox.jmx.common.InvocationResult;
 import org.eclipse.equinox.jmx.common.NamedNotification;
+import org.eclipse.equinox.jmx.common.util.CompressionStatistics;
+import org.eclipse.equinox.jmx.common.util.HttpCompression;
+import org.eclipse.equinox.jmx.common.util.NotificationStreamCodec;
 import org.eclipse.equinox.jmx.common.util.RingBuffer;
 import org.mortbay.http.*;
 import org.mortbay.jetty.servlet.ServletHandler;
@@ -30,16 +35,61 @@ import org.mortbay.jetty.servlet.ServletHolder;
 
 public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, NotificationListener {
 
+	/**
+	 * The default maximum number of threads running the operations of one batch request.
+	 */
+	public static final int DEFAULT_BATCH_THREADS = 4;
+
+	/**
+	 * The default maximum number of clients concurrently receiving the notification stream.
+	 */
+	public static final int DEFAULT_MAX_NOTIFICATION_STREAMS = 16;
+
+	static final String INTERNAL_ADAPTER = "internal.Adapter"; //$NON-NLS-1$
+
 	private static final int NOTIFICATIONS_BUFFER_SIZE = 100;
+	// upper bound of the time a notification request holds a listener thread
+	private static final long MAX_NOTIFICATION_WAIT = 60 * 1000;
+	// the cache is cleared once full, clients usually address a small set of mbeans
+	private static final int MAX_CACHED_OBJECT_NAMES = 1024;
 	private static final String INTERNAL_CONTEXT_CLASSLOADER = "internal.ContextClassLoader"; //$NON-NLS-1$
 	private static final String INTERNAL_MAPPING = "internal.Mapping"; //$NON-NLS-1$
 
-	final Map notificationBroadcasters = new HashMap();
+	// object names of the broadcasters the adapter listens to, guarded by this
+	private final Set notificationBroadcasters = new HashSet();
+	// follows the registrations of the server, however the mbeans are registered
+	private final NotificationListener registrationListener = new NotificationListener() {
+		public void handleNotification(Notification notification, Object handback) {
+			if (!(notification instanceof MBeanServerNotification)) {
+				return;
+			}
+			ObjectName name = ((MBeanServerNotification) notification).getMBeanName();
+			if (MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType())) {
+				addBroadcaster(name);
+			} else if (MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+				synchronized (XMLRPCMBeanServerAdapter.this) {
+					notificationBroadcasters.remove(name);
+				}
+			}
+		}
+	};
 	private final RingBuffer notificationsBuffer = new RingBuffer(NOTIFICATIONS_BUFFER_SIZE);
 	private final HttpServer webServer;
+	private final int batchThreads;
+	private final DispatchStatistics statistics;
+	// "name/arity" -> ServerMethod
+	private final Map serverMethods = new HashMap();
+	// String -> ObjectName, guarded by objectNames
+	private final Map objectNames = new HashMap();
 	static XmlRpcHandlerMappingImpl mapping;
 	private MBeanServer mbs;
 	private boolean started;
+	// guarded by this
+	private boolean stopping;
+	private boolean subscribed;
+	private int maxNotificationStreams = DEFAULT_MAX_NOTIFICATION_STREAMS;
+	private int notificationStreams;
+	private int compressionThreshold = HttpCompression.DEFAULT_THRESHOLD;
 
 	/**
 	 * XML-RPC Web server adapter that allows for dynamic adding of handlers.  It
@@ -50,11 +100,21 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 	 * @param mbs The <code>MBeanServer</code> which stores the registered mbeans.
 	 */
 	public XMLRPCMBeanServerAdapter(int port, MBeanServer mbs) {
+		this(port, mbs, DEFAULT_BATCH_THREADS);
+	}
+
+	/**
+	 * @param port The port for the web server to listen on.
+	 * @param mbs The <code>MBeanServer</code> which stores the registered mbeans.
+	 * @param batchThreads The maximum number of threads running the operations of one batch request.
+	 */
+	public XMLRPCMBeanServerAdapter(int port, MBeanServer mbs, int batchThreads) {
 		this.webServer = new HttpServer();
 		this.mbs = mbs;
+		this.batchThreads = Math.max(1, batchThreads);
+		this.statistics = new DispatchStatistics(port);
 		mapping = new XmlRpcHandlerMappingImpl();
-		// support retrieval of notifications from clients
-		mapping.addNameHandler("retrieveNotifications"); //$NON-NLS-1$
+		addServerMethods();
 		SocketListener httpListener = new SocketListener();
 		httpListener.setPort(port);
 		if (httpListener != null)
@@ -66,19 +126,308 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 		ServletHolder holder = servlets.addServlet("/", InternalHttpServiceServlet.class.getName()); //$NON-NLS-1$
 		holder.setInitOrder(0);
 		holder.setInitParameter("enabledForExtensions", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		// notifications are pushed to streaming clients, see NotificationStreamServlet
+		servlets.addServlet(NotificationStreamCodec.PATH + "/*", NotificationStreamServlet.class.getName()); //$NON-NLS-1$
 
 		HttpContext httpContext = new HttpContext();
 		httpContext.setAttribute(INTERNAL_CONTEXT_CLASSLOADER, Thread.currentThread().getContextClassLoader());
 		httpContext.setAttribute(INTERNAL_MAPPING, mapping);
+		httpContext.setAttribute(INTERNAL_ADAPTER, this);
 		httpContext.setClassLoader(this.getClass().getClassLoader());
 		httpContext.setContextPath("/"); //$NON-NLS-1$
 		httpContext.addHandler(servlets);
 
 		webServer.addContext(httpContext);
+		if (mbs != null) {
+			try {
+				subscribe();
+			} catch (JMException e) {
+				// retried by start()
+			}
+		}
+	}
+
+	/**
+	 * Fill the dispatch table of the server methods clients may call, besides the
+	 * operations of the mbeans.
+	 */
+	private void addServerMethods() {
+		// support retrieval of notifications from clients
+		addServerMethod("retrieveNotifications", 1, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return retrieveNotifications((Long) params[0]);
+			}
+		});
+		addServerMethod("retrieveNotifications", 3, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return retrieveNotifications(((Number) params[0]).longValue(), ((Number) params[1]).longValue(), ((Number) params[2]).intValue());
+			}
+		});
+		// support running several operations in one request
+		addServerMethod("invokeBatch", 4, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return invokeBatch((Object[]) params[0], (Object[]) params[1], (Object[]) params[2], (Object[]) params[3]);
+			}
+		});
+		addServerMethod("getObjectInstance", 1, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) throws Exception {
+				return getObjectInstance((ObjectName) params[0]);
+			}
+		});
+		addServerMethod("queryMBeans", 2, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return queryMBeans((ObjectName) params[0], (QueryExp) params[1]);
+			}
+		});
+		addServerMethod("queryNames", 2, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return queryNames((ObjectName) params[0], (QueryExp) params[1]);
+			}
+		});
+		addServerMethod("isRegistered", 1, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return isRegistered((ObjectName) params[0]) ? Boolean.TRUE : Boolean.FALSE;
+			}
+		});
+		addServerMethod("getMBeanCount", 0, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return getMBeanCount();
+			}
+		});
+		addServerMethod("getDefaultDomain", 0, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return getDefaultDomain();
+			}
+		});
+		addServerMethod("getDomains", 0, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) {
+				return getDomains();
+			}
+		});
+		addServerMethod("getMBeanInfo", 1, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) throws Exception {
+				return getMBeanInfo((ObjectName) params[0]);
+			}
+		});
+		addServerMethod("isInstanceOf", 2, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) throws Exception {
+				return isInstanceOf((ObjectName) params[0], (String) params[1]) ? Boolean.TRUE : Boolean.FALSE;
+			}
+		});
+		addServerMethod("getAttribute", 2, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) throws Exception {
+				return getAttribute((ObjectName) params[0], (String) params[1]);
+			}
+		});
+		addServerMethod("getAttributes", 2, new ServerMethod() { //$NON-NLS-1$
+			public Object invoke(Object[] params) throws Exception {
+				Object[] names = (Object[]) params[1];
+				String[] attributes = new String[names.length];
+				System.arraycopy(names, 0, attributes, 0, names.length);
+				return getAttributes((ObjectName) params[0], attributes);
+			}
+		});
+	}
+
+	private void addServerMethod(String name, int arity, ServerMethod method) {
+		serverMethods.put(name + '/' + arity, method);
+		mapping.addNameHandler(name);
+	}
+
+	/**
+	 * Parse an object name, reusing the result of an earlier request for the same name.
+	 * 
+	 * @param name The object name.
+	 * @return The parsed object name.
+	 * @throws MalformedObjectNameException If the name is not a valid object name.
+	 */
+	ObjectName getObjectName(String name) throws MalformedObjectNameException {
+		synchronized (objectNames) {
+			ObjectName result = (ObjectName) objectNames.get(name);
+			if (result != null) {
+				return result;
+			}
+		}
+		ObjectName result = ObjectName.getInstance(name);
+		synchronized (objectNames) {
+			if (objectNames.size() >= MAX_CACHED_OBJECT_NAMES) {
+				objectNames.clear();
+			}
+			objectNames.put(name, result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The call counters and latencies of the dispatched methods.
+	 */
+	public DispatchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @param maxStreams The maximum number of clients concurrently receiving the
+	 * notification stream, further clients are rejected and fall back to polling.
+	 */
+	public synchronized void setMaxNotificationStreams(int maxStreams) {
+		this.maxNotificationStreams = Math.max(0, maxStreams);
+	}
+
+	/**
+	 * @param threshold The size, in bytes, from which response bodies are compressed
+	 * for clients accepting gzip or deflate, <code>0</code> to never compress them.
+	 * Compressed requests are decoded regardless.
+	 */
+	public synchronized void setCompressionThreshold(int threshold) {
+		this.compressionThreshold = Math.max(0, threshold);
+	}
+
+	synchronized int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Reserve a notification stream for a client.
+	 * 
+	 * @return Whether the client may open the stream.
+	 */
+	synchronized boolean openNotificationStream() {
+		if (stopping || notificationStreams >= maxNotificationStreams) {
+			return false;
+		}
+		notificationStreams++;
+		return true;
+	}
+
+	/**
+	 * Release a notification stream reserved by <code>openNotificationStream</code>.
+	 */
+	synchronized void closeNotificationStream() {
+		notificationStreams--;
+	}
+
+	/**
+	 * @return Whether the adapter is stopping, streams must end.
+	 */
+	synchronized boolean isStopping() {
+		return stopping;
+	}
+
+	/**
+	 * Listen to the registrations of the server, so the notifications of the broadcasters
+	 * registered from now on are forwarded to clients.  The adapter listens again to the
+	 * broadcasters it listened to before it was stopped, if they are still registered.
+	 * 
+	 * @throws JMException If the registrations of the server cannot be listened to.
+	 */
+	private void subscribe() throws JMException {
+		ObjectName[] names;
+		synchronized (this) {
+			if (subscribed) {
+				return;
+			}
+			names = (ObjectName[]) notificationBroadcasters.toArray(new ObjectName[notificationBroadcasters.size()]);
+			notificationBroadcasters.clear();
+		}
+		getListenerServer().addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener, null, null);
+		synchronized (this) {
+			subscribed = true;
+		}
+		for (int i = 0; i < names.length; i++) {
+			if (getListenerServer().isRegistered(names[i])) {
+				addBroadcaster(names[i]);
+			}
+		}
+	}
+
+	/**
+	 * Stop listening to the server and its broadcasters.  The broadcasters are remembered
+	 * so <code>subscribe()</code> listens to them again.
+	 */
+	private void unsubscribe() {
+		ObjectName[] names;
+		synchronized (this) {
+			if (!subscribed) {
+				return;
+			}
+			subscribed = false;
+			names = (ObjectName[]) notificationBroadcasters.toArray(new ObjectName[notificationBroadcasters.size()]);
+		}
+		MBeanServer server = getListenerServer();
+		try {
+			server.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener);
+		} catch (JMException e) {
+			// not listening
+		}
+		for (int i = 0; i < names.length; i++) {
+			try {
+				server.removeNotificationListener(names[i], this, null, names[i]);
+			} catch (JMException e) {
+				// unregistered meanwhile
+			}
+		}
+	}
+
+	/**
+	 * Get the innermost server of the forwarders this adapter was given.  The adapter listens
+	 * to the registered broadcasters on it; a listener added through the forwarders would count
+	 * as a client subscription, which keeps contributions from being evicted, and would take a
+	 * worker of the connector.
+	 * 
+	 * @return The server to add the listeners of the adapter to.
+	 */
+	private MBeanServer getListenerServer() {
+		MBeanServer server = mbs;
+		while (server instanceof MBeanServerForwarder && ((MBeanServerForwarder) server).getMBeanServer() != null) {
+			server = ((MBeanServerForwarder) server).getMBeanServer();
+		}
+		return server;
+	}
+
+	/**
+	 * Listen to the notifications of the mbean with the provided name, if it is a broadcaster.
+	 * The name is passed as handback, the source of the notifications may be any object.
+	 * 
+	 * @param name The object name of the registered mbean.
+	 */
+	void addBroadcaster(ObjectName name) {
+		MBeanServer server = getListenerServer();
+		try {
+			if (!server.isInstanceOf(name, NotificationBroadcaster.class.getName())) {
+				return;
+			}
+			synchronized (this) {
+				if (!notificationBroadcasters.add(name)) {
+					return;
+				}
+			}
+			server.addNotificationListener(name, this, null, name);
+		} catch (InstanceNotFoundException e) {
+			// unregistered meanwhile
+			synchronized (this) {
+				notificationBroadcasters.remove(name);
+			}
+		}
 	}
 
 	public void start() throws IOException {
 		if (!started) {
+			synchronized (this) {
+				stopping = false;
+			}
+			try {
+				subscribe();
+			} catch (JMException e) {
+				throw new IOException("Unable to listen to the registrations of the server: " + e); //$NON-NLS-1$
+			}
+			try {
+				ObjectName name = statistics.getObjectName();
+				if (!mbs.isRegistered(name)) {
+					mbs.registerMBean(statistics, name);
+				}
+			} catch (JMException e) {
+				throw new IOException("Unable to register the dispatch statistics: " + e); //$NON-NLS-1$
+			}
 			try {
 				webServer.start();
 			} catch (IOException e) {
@@ -89,7 +438,13 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 		}
 	}
 
-	public void stop() {
+	public void stop() throws IOException {
+		synchronized (this) {
+			// release the requests waiting for notifications before the listener stops
+			stopping = true;
+			notifyAll();
+		}
+		unsubscribe();
 		if (webServer.isStarted()) {
 			try {
 				webServer.stop();
@@ -97,6 +452,14 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 				e.printStackTrace();
 			}
 		}
+		try {
+			ObjectName name = statistics.getObjectName();
+			if (mbs.isRegistered(name)) {
+				mbs.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			throw new IOException("Unable to unregister the dispatch statistics: " + e); //$NON-NLS-1$
+		}
 	}
 
 	public boolean isActive() {
@@ -106,11 +469,13 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 	public static class InternalHttpServiceServlet extends XmlRpcServlet {
 		private static final long serialVersionUID = 6297772804215794345L;
 		private ClassLoader contextLoader;
+		private XMLRPCMBeanServerAdapter adapter;
 
 		public void init(ServletConfig config) throws ServletException {
 			ServletContext context = config.getServletContext();
 			contextLoader = (ClassLoader) context.getAttribute(INTERNAL_CONTEXT_CLASSLOADER);
 			mapping = (XmlRpcHandlerMappingImpl) context.getAttribute(INTERNAL_MAPPING);
+			adapter = (XMLRPCMBeanServerAdapter) context.getAttribute(INTERNAL_ADAPTER);
 
 			Thread thread = Thread.currentThread();
 			ClassLoader current = thread.getContextClassLoader();
@@ -139,11 +504,31 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 			ClassLoader current = thread.getContextClassLoader();
 			thread.setContextClassLoader(contextLoader);
 			try {
-				super.service(req, res);
+				if (adapter != null && req instanceof HttpServletRequest && res instanceof HttpServletResponse) {
+					serviceCompressed((HttpServletRequest) req, (HttpServletResponse) res);
+				} else {
+					super.service(req, res);
+				}
 			} finally {
 				thread.setContextClassLoader(current);
 			}
 		}
+
+		private void serviceCompressed(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+			DecompressingRequest request;
+			try {
+				request = new DecompressingRequest(req);
+			} catch (IOException e) {
+				res.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+				return;
+			}
+			CompressingResponse response = new CompressingResponse(res, adapter.getCompressionThreshold(), request.getAcceptedEncoding());
+			super.service(request, response);
+			response.finish();
+			CompressionStatistics compressionStatistics = adapter.getStatistics().getCompressionStatistics();
+			compressionStatistics.recordRequest(request.getBytes(), request.getTransferBytes(), request.isCompressed());
+			compressionStatistics.recordResponse(response.getBytes(), response.getTransferBytes(), response.isCompressed());
+		}
 		
 		protected XmlRpcHandlerMapping newXmlRpcHandlerMapping() {
 			return mapping;
@@ -162,21 +547,26 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 		}
 
 		public void addObjectHandler(ObjectName name, Object obj) {
+			// notifications of the object are forwarded once the server reports its registration
 			handlerMap.put(name.toString(), handler);
-			// if we are to handle the object, we must attempt to register with it 
-			// to receive notifications so we are able to forward them to connected clients.
-			if (obj instanceof NotificationBroadcaster) {
-				((NotificationBroadcaster) obj).addNotificationListener(XMLRPCMBeanServerAdapter.this, null, null);
-				// cache the broadcaster and its associated object name 
-				notificationBroadcasters.put(obj, name);
-			}
 		}
 
 		/* (non-Javadoc)
 		 * @see org.apache.xmlrpc.server.XmlRpcHandlerMapping#getHandler(java.lang.String)
 		 */
 		public XmlRpcHandler getHandler(String handlerName) throws XmlRpcNoSuchHandlerException, XmlRpcException {
-			XmlRpcHandler result = (XmlRpcHandler) handlerMap.get(parseRequest(handlerName)[0]);
+			String name = parseRequest(handlerName)[0];
+			XmlRpcHandler result = (XmlRpcHandler) handlerMap.get(name);
+			if (result == null && name.indexOf(':') != -1) {
+				// mbeans may be resolved by the server on demand, without having been registered through this adapter
+				try {
+					if (mbs.isRegistered(getObjectName(name))) {
+						result = handler;
+					}
+				} catch (MalformedObjectNameException e) {
+					// not an mbean request
+				}
+			}
 			return result;
 		}
 
@@ -197,41 +587,51 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 
 			public Object execute(XmlRpcRequest pRequest) throws XmlRpcException {
 				String request[] = parseRequest(pRequest.getMethodName());
-				String methodName = null;
-				if (request.length == 1) {
-					// mbean server request
-					methodName = request[0];
-				} else if (request.length == 2) {
-					// mbean request
-					methodName = request[1];
-				} else {
-					// unsupported request format
-					return null;
-				}
 				int nParams = pRequest.getParameterCount();
-				Class paramTypes[] = new Class[nParams];
 				Object params[] = new Object[nParams];
-				String signature[] = new String[nParams];
 				for (int i = 0; i < nParams; i++) {
-					Object iParam = pRequest.getParameter(i);
-					paramTypes[i] = iParam.getClass();
-					params[i] = iParam;
-					signature[i] = iParam.getClass().getName();
+					params[i] = pRequest.getParameter(i);
 				}
+				String method = request.length == 1 ? request[0] + '/' + nParams : "invoke(" + request[1] + ')'; //$NON-NLS-1$
+				long start = System.currentTimeMillis();
+				boolean failed = true;
 				try {
+					Object result;
 					if (request.length == 1) {
-						Method method = XMLRPCMBeanServerAdapter.this.getClass().getMethod(methodName, paramTypes);
-						return method.invoke(XMLRPCMBeanServerAdapter.this, params);
+						// mbean server request
+						ServerMethod serverMethod = (ServerMethod) serverMethods.get(method);
+						if (serverMethod == null) {
+							throw new XmlRpcNoSuchHandlerException("No such method: " + method); //$NON-NLS-1$
+						}
+						result = serverMethod.invoke(params);
+					} else {
+						// invoke operation on object instance
+						String signature[] = new String[nParams];
+						for (int i = 0; i < nParams; i++) {
+							signature[i] = params[i] == null ? Object.class.getName() : params[i].getClass().getName();
+						}
+						result = invoke(getObjectName(request[0]), request[1], params, signature);
 					}
-					// invoke operation on object instance
-					return invoke(ObjectName.getInstance(request[0]), methodName, params, signature);
+					failed = false;
+					return result;
+				} catch (XmlRpcException e) {
+					throw e;
 				} catch (Exception e) {
 					throw new XmlRpcException(e.getMessage(), e);
+				} finally {
+					statistics.record(method, System.currentTimeMillis() - start, failed);
 				}
 			}
 		}
 	}
 
+	/**
+	 * A server method clients may call, dispatched without reflection.
+	 */
+	private interface ServerMethod {
+		public Object invoke(Object[] params) throws Exception;
+	}
+
 	/* (non-Javadoc)
 	 * @see javax.management.remote.MBeanServerForwarder#getMBeanServer()
 	 */
@@ -245,6 +645,11 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 	public void setMBeanServer(MBeanServer mbs) {
 		if (this.mbs == null) {
 			this.mbs = mbs;
+			try {
+				subscribe();
+			} catch (JMException e) {
+				// retried by start()
+			}
 		}
 	}
 
@@ -501,24 +906,63 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 		return mbs.getClassLoaderRepository();
 	}
 
-	public synchronized NamedNotification[] retrieveNotifications(Long startId) {
-		int nextPos = notificationsBuffer.getNextPosition();
-		if (nextPos == 0) {
-			return new NamedNotification[0];
-		}
-		NamedNotification lastNotification = (NamedNotification) notificationsBuffer.getObject(nextPos - 1);
-		long pStartId = startId.longValue();
-		if (lastNotification.getNotificationId() < pStartId) {
-			return new NamedNotification[0];
+	/**
+	 * Invoke several operations in one request.  The operations may run concurrently,
+	 * each one succeeds or fails on its own.
+	 * 
+	 * @param names The object names of the mbeans, as strings.
+	 * @param operations The names of the operations.
+	 * @param params The parameter array of each operation.
+	 * @param signatures The signature array of each operation, derived from the
+	 * classes of the parameters if empty.
+	 * @return The result or exception of each operation, in request order.
+	 */
+	public InvocationResult[] invokeBatch(Object[] names, Object[] operations, Object[] params, Object[] signatures) {
+		return new BatchInvocation(this, names, operations, params, signatures).execute(batchThreads);
+	}
+
+	public NamedNotification[] retrieveNotifications(Long startId) {
+		return retrieveNotifications(startId.longValue(), 0, NOTIFICATIONS_BUFFER_SIZE);
+	}
+
+	/**
+	 * Retrieve the buffered notifications starting at the provided id, waiting for
+	 * notifications to arrive if there are none yet.
+	 * 
+	 * @param startId The id of the first notification to retrieve.
+	 * @param maxWait The time, in milliseconds, to wait for a notification.  The wait
+	 * is limited by the server, <code>0</code> returns immediately.
+	 * @param maxCount The maximum number of notifications to return.
+	 * @return The notifications, oldest first, empty if none arrived in time.
+	 */
+	public synchronized NamedNotification[] retrieveNotifications(long startId, long maxWait, int maxCount) {
+		long timeout = Math.min(Math.max(0, maxWait), MAX_NOTIFICATION_WAIT);
+		long deadline = System.currentTimeMillis() + timeout;
+		NamedNotification[] result;
+		while ((result = getNotifications(startId, maxCount)).length == 0 && !stopping) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				break;
+			}
+			try {
+				wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
 		}
-		pStartId %= notificationsBuffer.getSize();
-		List result = new ArrayList(1);
-		for (; pStartId != nextPos; pStartId++) {
-			NamedNotification nn = (NamedNotification) notificationsBuffer.getObject((int) pStartId);
-			if (pStartId == notificationsBuffer.getSize()) {
-				pStartId %= notificationsBuffer.getSize();
-			}
-			result.add(nn);
+		return result;
+	}
+
+	private NamedNotification[] getNotifications(long startId, int maxCount) {
+		// notification ids are not positions in the buffer, select them by id
+		Object[] buffered = notificationsBuffer.toArray();
+		List result = new ArrayList();
+		for (int i = 0; i < buffered.length && result.size() < maxCount; i++) {
+			NamedNotification nn = (NamedNotification) buffered[i];
+			if (nn.getNotificationId() >= startId) {
+				result.add(nn);
+			}
 		}
 		return (NamedNotification[]) result.toArray(new NamedNotification[result.size()]);
 	}
@@ -527,12 +971,12 @@ public class XMLRPCMBeanServerAdapter implements MBeanServerForwarder, Notificat
 	 * @see javax.management.NotificationListener#handleNotification(javax.management.Notification, java.lang.Object)
 	 */
 	public synchronized void handleNotification(Notification notification, Object handback) {
-		// if the source of the notification is registered as a known broadcaster
-		// we store this notification and its object name for requesting clients
-		Object source = notification.getSource();
-		ObjectName broadcasterName = null;
-		if (source != null && (broadcasterName = (ObjectName) notificationBroadcasters.get(source)) != null) {
-			notificationsBuffer.add(new NamedNotification(broadcasterName, notification));
+		// the handback is the object name of the broadcaster, we store this notification
+		// and the object name for requesting clients
+		if (handback instanceof ObjectName && notificationBroadcasters.contains(handback)) {
+			notificationsBuffer.add(new NamedNotification((ObjectName) handback, notification));
+			// wake the clients waiting for notifications
+			notifyAll();
 		}
 	}
 }
@@ -31,6 +31,6 @@ public class XMLRPCServer implements IJMXConnectorServerProvider {
 	 * @see javax.management.remote.JMXConnectorServerProvider#newJMXConnectorServer(javax.management.remote.JMXServiceURL, java.util.Map, javax.management.MBeanServer)
 	 */
 	public JMXConnectorServer newJMXConnectorServer(JMXServiceURL arg0, Map arg1, MBeanServer arg2) throws IOException {
-		return new XMLRPCJMXConnectorServer(arg0, arg2);
+		return new XMLRPCJMXConnectorServer(arg0, arg1, arg2);
 	}
 }
@@ -10,15 +10,20 @@
  *******************************************************************************/
 package org.eclipse.equinox.jmx.internal.server;
 
+import java.io.IOException;
 import java.util.*;
 import javax.management.*;
 import javax.management.remote.JMXConnectorServer;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.equinox.jmx.common.*;
 import org.eclipse.equinox.jmx.internal.server.ServerExtensionManager.ContributionExtensionDefinition;
+import org.eclipse.equinox.jmx.server.Contribution;
 import org.eclipse.equinox.jmx.server.ContributionProvider;
+import org.eclipse.equinox.jmx.server.ContributionSampler;
+import org.eclipse.equinox.jmx.server.WorkerPool;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.log.LogService;
 import org.osgi.util.tracker.ServiceTracker;
 
@@ -29,21 +34,26 @@ import org.osgi.util.tracker.ServiceTracker;
  */
 public class Activator implements BundleActivator {
 
-	static final String PLUGIN_ID = "org.eclipse.equinox.jmx.server"; //$NON-NLS-1$;
-	static final String PI_NAMESPACE = PLUGIN_ID;
+	public static final String PLUGIN_ID = "org.eclipse.equinox.jmx.server"; //$NON-NLS-1$;
+	public static final String PI_NAMESPACE = PLUGIN_ID;
 	static final String PT_CONTRIBUTION = "contribution"; //$NON-NLS-1$
 	static final String PT_PROVIDER = "provider"; //$NON-NLS-1$
 
 	static final String PROTOCOL_PROPERTY_KEY = PI_NAMESPACE + ".protocol"; //$NON-NLS-1$
 	static final String PORT_PROPERTY_KEY = PI_NAMESPACE + ".port"; //$NON-NLS-1$
 	static final String DOMAIN_PROPERTY_KEY = PI_NAMESPACE + ".domain"; //$NON-NLS-1$
+	static final String CONNECTORS_PROPERTY_KEY = PI_NAMESPACE + ".connectors"; //$NON-NLS-1$
 
 	//The shared instance.
 	private static Activator instance;
 	private static BundleContext bundleContext;
-	private static JMXConnectorServer jmxServer;
+	private static MBeanServer mbeanServer;
+	private static JMXConnectorServer[] jmxServers;
 	private static RootContribution rootContribution;
 	private static ServiceTracker logService;
+	private static ServiceRegistration mbeanServerRegistration;
+	// names of the mbeans this bundle registered besides contributions, guarded by itself
+	private static final List registeredNames = new ArrayList();
 
 	/**
 	 * The constructor.
@@ -57,14 +67,65 @@ public class Activator implements BundleActivator {
 	 */
 	public void start(BundleContext context) throws Exception {
 		bundleContext = context;
-		if (jmxServer == null) {
+		if (jmxServers == null) {
 			createServer();
 		}
-		jmxServer.start();
+		startServers();
+		publishMBeanServer(context);
+	}
+
+	/**
+	 * Start the connector servers.  A connector which fails to start, e.g. because its
+	 * port is in use, does not prevent the others from serving requests.
+	 * 
+	 * @throws Exception If none of the connector servers could be started.
+	 */
+	private void startServers() throws Exception {
+		Exception failure = null;
+		for (int i = 0; i < jmxServers.length; i++) {
+			try {
+				jmxServers[i].start();
+			} catch (Exception e) {
+				logError(ServerMessages.connector_not_started, e);
+				failure = e;
+			}
+		}
+		if (failure != null && !isActive()) {
+			throw failure;
+		}
+	}
+
+	private static boolean isActive() {
+		for (int i = 0; i < jmxServers.length; i++) {
+			if (jmxServers[i].isActive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Publish the shared <code>MBeanServer</code> as an OSGi service, unless one has been
+	 * published already, so other bundles register their mbeans with the server exposed
+	 * by this bundle's connector rather than creating their own.
+	 */
+	private void publishMBeanServer(BundleContext context) {
+		if (!JMXServerFactory.isSharedMBeanServer() || mbeanServerRegistration != null) {
+			return;
+		}
+		if (context.getServiceReference(MBeanServer.class.getName()) == null) {
+			mbeanServerRegistration = context.registerService(MBeanServer.class.getName(), mbeanServer, null);
+		}
 	}
 
 	/**
 	 * Create the jmx server.  This should only be invoked once - the first time this bundle is started.
+	 * <p>
+	 * The connectors are configured by the <code>org.eclipse.equinox.jmx.server.connectors</code>
+	 * property, a comma separated list of <code>protocol:port[:maxRequests]</code> entries which
+	 * are all served by the same <code>MBeanServer</code>.  If the property is not set a single
+	 * connector is created according to the <code>protocol</code> and <code>port</code> properties.
+	 * </p>
 	 * 
 	 * @throws Exception If an exception occurs when attempting to start the server.
 	 */
@@ -91,58 +152,143 @@ public class Activator implements BundleActivator {
 		if (domain == null) {
 			domain = JMXConstants.DEFAULT_DOMAIN;
 		}
-		jmxServer = JMXServerFactory.createJMXServer("127.0.0.1", port, protocol, JMXConstants.DEFAULT_DOMAIN, null);
+		String connectors = System.getProperty(CONNECTORS_PROPERTY_KEY);
+		if (connectors == null) {
+			connectors = protocol + ':' + port;
+		}
+		mbeanServer = JMXServerFactory.createMBeanServer(JMXConstants.DEFAULT_DOMAIN);
+		jmxServers = JMXServerFactory.createJMXServers("127.0.0.1", connectors, JMXConstants.DEFAULT_DOMAIN, mbeanServer, null); //$NON-NLS-1$
 		registerContributions();
 	}
 
-	private void registerContributions() throws IntrospectionException, ReflectionException, MBeanRegistrationException, NotCompliantMBeanException {
-		final MBeanServer mbeanServer = jmxServer.getMBeanServer();
+	private void registerContributions() {
+		if (rootContribution != null) {
+			// already initialized by this instance of the bundle
+			return;
+		}
+		// the root is registered empty so the connector is usable immediately, the
+		// providers are added as they are initialized
+		rootContribution = new RootContribution();
+		rootContribution.setSearcher(ContributionIndex.getDefault());
+		final ContributionInitializer initializer = ContributionInitializer.getDefault();
 		try {
-			mbeanServer.getMBeanInfo(RootContribution.OBJECT_NAME);
+			registerMBean(mbeanServer, rootContribution, RootContribution.OBJECT_NAME);
+			registerMBean(mbeanServer, ContributionDelegateRegistry.getDefault(), ObjectName.getInstance(ContributionDelegateRegistry.OBJECT_NAME_STR));
+			registerMBean(mbeanServer, ContributionNotificationDispatcher.getDefault(), ObjectName.getInstance(ContributionNotificationDispatcher.OBJECT_NAME_STR));
+			registerMBean(mbeanServer, initializer, ObjectName.getInstance(ContributionInitializer.OBJECT_NAME_STR));
+			registerMBean(mbeanServer, ContributionEvictionManager.getDefault(), ObjectName.getInstance(ContributionEvictionManager.OBJECT_NAME_STR));
+			registerMBean(mbeanServer, ContributionIndex.getDefault(), ObjectName.getInstance(ContributionIndex.OBJECT_NAME_STR));
+			registerMBean(mbeanServer, ContributionNamingService.getDefault(), ObjectName.getInstance(ContributionNamingService.OBJECT_NAME_STR));
 		} catch (Exception e) {
-			//load extensions and add to contribution model
-			Collection providers = ServerExtensionManager.getInstance().getContributionExtensionDefinitions();
-			Iterator iter = providers.iterator();
-			List proxiesToRegister = new ArrayList();
+			log(e);
+		}
+		initializer.start(new Runnable() {
+			public void run() {
+				initializeProviders(mbeanServer);
+			}
+		});
+	}
+
+	/**
+	 * Register an mbean of this bundle, other than a contribution, with the provided server.
+	 * An mbean registered under the same name is replaced; on a shared server it was left
+	 * behind by a previous instance of this bundle.  The mbean is unregistered when this
+	 * bundle is stopped, if the server is shared.
+	 * 
+	 * @param server The server.
+	 * @param mbean The mbean.
+	 * @param name The object name of the mbean.
+	 * @throws JMException If the mbean cannot be registered.
+	 */
+	static void registerMBean(MBeanServer server, Object mbean, ObjectName name) throws JMException {
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(mbean, name);
+		synchronized (registeredNames) {
+			registeredNames.add(name);
+		}
+	}
+
+	/**
+	 * Unregister all mbeans this bundle registered, including all contributions, from the
+	 * server.  Contributions which are only published are withdrawn.
+	 */
+	private static void unregisterMBeans() {
+		List names = new ArrayList();
+		try {
+			Iterator iter = mbeanServer.queryNames(ObjectName.getInstance(JMXConstants.DEFAULT_DOMAIN + ":*"), null).iterator(); //$NON-NLS-1$
 			while (iter.hasNext()) {
-				ContributionExtensionDefinition defn = (ContributionExtensionDefinition) iter.next();
-				ContributionProvider provider = defn.getContributionProvider();
-				// register the providers with the mbean server
-				provider.registerContribution(mbeanServer);
-				if (defn.isRootProvider()) {
-					proxiesToRegister.add(provider.createProxy());
+				ObjectName name = (ObjectName) iter.next();
+				if (mbeanServer.isInstanceOf(name, Contribution.class.getName())) {
+					names.add(name);
 				}
 			}
-			rootContribution = new RootContribution((ContributionProxy[]) proxiesToRegister.toArray(new ContributionProxy[proxiesToRegister.size()]));
+		} catch (JMException e) {
+			log(e);
+		}
+		synchronized (registeredNames) {
+			names.addAll(registeredNames);
+			registeredNames.clear();
+		}
+		for (int i = 0; i < names.size(); i++) {
+			ObjectName name = (ObjectName) names.get(i);
 			try {
-				mbeanServer.registerMBean(rootContribution, RootContribution.OBJECT_NAME);
-			} catch (Exception e1) {
-				// should not occur since we previously checked for existence
+				if (mbeanServer.isRegistered(name)) {
+					mbeanServer.unregisterMBean(name);
+				}
+			} catch (JMException e) {
+				log(e);
 			}
-			ServerExtensionManager.getInstance().addObserver(new Observer() {
-				public void update(Observable o, Object arg) {
-					if (!(arg instanceof ContributionExtensionDefinition)) {
-						return;
-					}
-					ContributionExtensionDefinition defn = (ContributionExtensionDefinition) arg;
-					ContributionProvider rootProvider = defn.getContributionProvider();
-					if (ServerExtensionManager.getInstance().getContributionExtensionDefinition(defn.getProviderClassName()) == null) {
-						// root provider has been removed
-						rootContribution.unregisterContributionProxy(rootProvider.createProxy());
-						rootProvider.sendNotification(new Notification(ContributionNotificationEvent.NOTIFICATION_REMOVED, rootProvider, 0));
-					} else {
-						// new root provider installed or updated
-						try {
-							rootProvider.registerContribution(mbeanServer);
-							rootContribution.registerContributionProxy(rootProvider.createProxy());
-							rootContribution.sendNotification(new Notification(ContributionNotificationEvent.NOTIFICATION_UPDATED, rootContribution, 0));
-						} catch (Exception e) {
-							log(e);
-						}
+		}
+	}
+
+	void initializeProviders(final MBeanServer mbeanServer) {
+		//load extensions and add to contribution model
+		Collection providers = ServerExtensionManager.getInstance().getContributionExtensionDefinitions();
+		Iterator iter = providers.iterator();
+		List tasks = new ArrayList(providers.size());
+		while (iter.hasNext()) {
+			final ContributionExtensionDefinition defn = (ContributionExtensionDefinition) iter.next();
+			tasks.add(new ContributionInitializer.Task(defn.getProviderClassName()) {
+				public void run() throws Exception {
+					ContributionProvider provider = defn.getContributionProvider();
+					// register the providers with the mbean server
+					provider.registerContribution(mbeanServer);
+					if (defn.isRootProvider()) {
+						rootContribution.registerContributionProxy(provider.createProxy());
+						ContributionIndex.getDefault().addRoot(provider);
 					}
 				}
 			});
 		}
+		ContributionInitializer.getDefault().runAll(tasks);
+		rootContribution.sendNotification(new Notification(ContributionNotificationEvent.NOTIFICATION_UPDATED, rootContribution, 0));
+		ServerExtensionManager.getInstance().addObserver(new Observer() {
+			public void update(Observable o, Object arg) {
+				if (!(arg instanceof ContributionExtensionDefinition)) {
+					return;
+				}
+				ContributionExtensionDefinition defn = (ContributionExtensionDefinition) arg;
+				ContributionProvider rootProvider = defn.getContributionProvider();
+				if (ServerExtensionManager.getInstance().getContributionExtensionDefinition(defn.getProviderClassName()) == null) {
+					// root provider has been removed
+					rootContribution.unregisterContributionProxy(rootProvider.createProxy());
+					ContributionIndex.getDefault().removeRoot(rootProvider);
+					rootProvider.sendNotification(new Notification(ContributionNotificationEvent.NOTIFICATION_REMOVED, rootProvider, 0));
+				} else {
+					// new root provider installed or updated
+					try {
+						rootProvider.registerContribution(mbeanServer);
+						rootContribution.registerContributionProxy(rootProvider.createProxy());
+						ContributionIndex.getDefault().addRoot(rootProvider);
+						rootContribution.sendNotification(new Notification(ContributionNotificationEvent.NOTIFICATION_UPDATED, rootContribution, 0));
+					} catch (Exception e) {
+						log(e);
+					}
+				}
+			}
+		});
 	}
 
 	public static RootContribution getRootContribution() {
@@ -153,7 +299,28 @@ public class Activator implements BundleActivator {
 	 * @see org.osgi.framework.BundleActivator#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
-		jmxServer.stop();
+		if (mbeanServerRegistration != null) {
+			mbeanServerRegistration.unregister();
+			mbeanServerRegistration = null;
+		}
+		for (int i = 0; i < jmxServers.length; i++) {
+			try {
+				jmxServers[i].stop();
+			} catch (IOException e) {
+				log(e);
+			}
+		}
+		ContributionInitializer.getDefault().stop();
+		if (JMXServerFactory.isSharedMBeanServer()) {
+			// the server outlives this bundle, the next instance of the bundle starts afresh
+			unregisterMBeans();
+			jmxServers = null;
+			rootContribution = null;
+		}
+		ContributionNotificationDispatcher.getDefault().stop();
+		ContributionEvictionManager.getDefault().stop();
+		ContributionSampler.getDefault().stop();
+		WorkerPool.getDefault().stop();
 		if (logService != null) {
 			logService.close();
 			logService = null;
@@ -181,7 +348,7 @@ public class Activator implements BundleActivator {
 	 * @return The server.
 	 */
 	public MBeanServer getServer() {
-		return jmxServer.getMBeanServer();
+		return mbeanServer;
 	}
 
 	/**
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.lang.reflect.*;
+import javax.management.*;
+import javax.management.remote.MBeanServerForwarder;
+import org.eclipse.equinox.jmx.common.JMXConstants;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Limits the number of concurrent requests of one connector server and records
+ * its request statistics.
+ * <p>
+ * Each connector server is given its own view of the shared <code>MBeanServer</code>,
+ * see {@link #wrap(MBeanServer)}.  The threads which process the requests are owned
+ * by the transport, so a connector's worker limit is enforced when a request reaches
+ * the <code>MBeanServer</code>: once the limit is reached further requests wait until
+ * a worker of the same connector becomes available, requests of other connectors
+ * are not affected.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ConnectorMetrics implements ConnectorMetricsMBean {
+
+	public static final String OBJECT_NAME_STR = JMXConstants.DEFAULT_DOMAIN + ":type=Connector"; //$NON-NLS-1$
+
+	// set while the current thread processes a request of any connector; calls the request
+	// causes, e.g. a connector listening to a registration, do not take another worker
+	private static final ThreadLocal requestInProgress = new ThreadLocal();
+
+	private final String protocol;
+	private final int port;
+	private final int maxRequests;
+	private final long queueTimeout;
+
+	// guarded by this
+	private int activeRequests;
+	private int peakActiveRequests;
+	private int queuedRequests;
+	private long requestCount;
+	private long failedCount;
+	private long rejectedCount;
+	private long totalRequestTime;
+	private long maxRequestTime;
+	private long totalQueueTime;
+
+	/**
+	 * Allocate the metrics of a connector.
+	 *
+	 * @param protocol The protocol of the connector.
+	 * @param port The port the connector listens on.
+	 * @param maxRequests The maximum number of concurrent requests, <code>0</code> if unlimited.
+	 * @param queueTimeout The time, in milliseconds, a request waits for a worker, <code>0</code> to wait indefinitely.
+	 */
+	public ConnectorMetrics(String protocol, int port, int maxRequests, long queueTimeout) {
+		this.protocol = protocol;
+		this.port = port;
+		this.maxRequests = maxRequests;
+		this.queueTimeout = queueTimeout;
+	}
+
+	/**
+	 * @return The name this connector's metrics are registered under.
+	 * @throws MalformedObjectNameException If the protocol is not a valid key property value.
+	 */
+	public ObjectName getObjectName() throws MalformedObjectNameException {
+		return ObjectName.getInstance(OBJECT_NAME_STR + ",protocol=" + protocol + ",port=" + port); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Wrap the provided server so that requests passed to it are counted and limited
+	 * by this connector's worker limit.  The result is a <code>MBeanServerForwarder</code>
+	 * whose wrapped server cannot be replaced.
+	 *
+	 * @param server The shared server.
+	 * @return The server to pass to the connector server.
+	 */
+	public MBeanServer wrap(final MBeanServer server) {
+		return (MBeanServer) Proxy.newProxyInstance(MBeanServerForwarder.class.getClassLoader(), new Class[] {MBeanServerForwarder.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getDeclaringClass() == Object.class) {
+					return invokeObjectMethod(proxy, method, args, server);
+				} else if (method.getDeclaringClass() == MBeanServerForwarder.class) {
+					// the server is fixed, setMBeanServer() is ignored
+					return "getMBeanServer".equals(method.getName()) ? server : null; //$NON-NLS-1$
+				}
+				if (requestInProgress.get() != null) {
+					try {
+						return method.invoke(server, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+				}
+				acquire();
+				requestInProgress.set(Boolean.TRUE);
+				long start = System.currentTimeMillis();
+				boolean failed = true;
+				try {
+					Object result = method.invoke(server, args);
+					failed = false;
+					return result;
+				} catch (InvocationTargetException e) {
+					throw e.getTargetException();
+				} finally {
+					requestInProgress.set(null);
+					release(System.currentTimeMillis() - start, failed);
+				}
+			}
+		});
+	}
+
+	static Object invokeObjectMethod(Object proxy, Method method, Object[] args, MBeanServer server) {
+		String name = method.getName();
+		if ("equals".equals(name)) { //$NON-NLS-1$
+			return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+		} else if ("hashCode".equals(name)) { //$NON-NLS-1$
+			return new Integer(System.identityHashCode(proxy));
+		}
+		return server.toString();
+	}
+
+	private synchronized void acquire() {
+		if (maxRequests > 0 && activeRequests >= maxRequests) {
+			long start = System.currentTimeMillis();
+			queuedRequests++;
+			try {
+				while (activeRequests >= maxRequests) {
+					if (queueTimeout == 0) {
+						wait();
+						continue;
+					}
+					long remaining = queueTimeout - (System.currentTimeMillis() - start);
+					if (remaining <= 0) {
+						rejectedCount++;
+						throw createRejectedException();
+					}
+					wait(remaining);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				rejectedCount++;
+				throw createRejectedException();
+			} finally {
+				queuedRequests--;
+				totalQueueTime += System.currentTimeMillis() - start;
+			}
+		}
+		activeRequests++;
+		if (activeRequests > peakActiveRequests) {
+			peakActiveRequests = activeRequests;
+		}
+	}
+
+	private synchronized void release(long time, boolean failed) {
+		activeRequests--;
+		requestCount++;
+		if (failed) {
+			failedCount++;
+		}
+		totalRequestTime += time;
+		if (time > maxRequestTime) {
+			maxRequestTime = time;
+		}
+		if (maxRequests > 0) {
+			notify();
+		}
+	}
+
+	private RuntimeException createRejectedException() {
+		String message = NLS.bind(ServerMessages.connector_busy, new Object[] {protocol, new Integer(port), new Long(queueTimeout)});
+		return new RuntimeOperationsException(new IllegalStateException(message), message);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getProtocol()
+	 */
+	public String getProtocol() {
+		return protocol;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getPort()
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getMaxRequests()
+	 */
+	public int getMaxRequests() {
+		return maxRequests;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getQueueTimeout()
+	 */
+	public long getQueueTimeout() {
+		return queueTimeout;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getActiveRequests()
+	 */
+	public synchronized int getActiveRequests() {
+		return activeRequests;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getPeakActiveRequests()
+	 */
+	public synchronized int getPeakActiveRequests() {
+		return peakActiveRequests;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getQueuedRequests()
+	 */
+	public synchronized int getQueuedRequests() {
+		return queuedRequests;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getRequestCount()
+	 */
+	public synchronized long getRequestCount() {
+		return requestCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getFailedCount()
+	 */
+	public synchronized long getFailedCount() {
+		return failedCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getRejectedCount()
+	 */
+	public synchronized long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getAverageRequestTime()
+	 */
+	public synchronized long getAverageRequestTime() {
+		return requestCount == 0 ? 0 : totalRequestTime / requestCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getMaxRequestTime()
+	 */
+	public synchronized long getMaxRequestTime() {
+		return maxRequestTime;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#getTotalQueueTime()
+	 */
+	public synchronized long getTotalQueueTime() {
+		return totalQueueTime;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ConnectorMetricsMBean#resetStatistics()
+	 */
+	public synchronized void resetStatistics() {
+		peakActiveRequests = activeRequests;
+		requestCount = 0;
+		failedCount = 0;
+		rejectedCount = 0;
+		totalRequestTime = 0;
+		maxRequestTime = 0;
+		totalQueueTime = 0;
+	}
+}
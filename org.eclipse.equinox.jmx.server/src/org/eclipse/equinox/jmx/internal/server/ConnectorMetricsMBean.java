@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+/**
+ * Management interface exposing the request statistics of one connector server.
+ *
+ * @since 1.0
+ */
+public interface ConnectorMetricsMBean {
+
+	/**
+	 * @return The protocol of the connector.
+	 */
+	public String getProtocol();
+
+	/**
+	 * @return The port the connector listens on.
+	 */
+	public int getPort();
+
+	/**
+	 * Get the maximum number of requests of this connector which are processed concurrently.
+	 *
+	 * @return The limit, <code>0</code> if unlimited.
+	 */
+	public int getMaxRequests();
+
+	/**
+	 * Get the time, in milliseconds, a request waits for a worker before it is rejected.
+	 *
+	 * @return The queue timeout, <code>0</code> if requests wait indefinitely.
+	 */
+	public long getQueueTimeout();
+
+	/**
+	 * Get the number of requests currently processed.
+	 *
+	 * @return The number of active requests.
+	 */
+	public int getActiveRequests();
+
+	/**
+	 * Get the highest number of requests which were processed concurrently.
+	 *
+	 * @return The peak number of active requests.
+	 */
+	public int getPeakActiveRequests();
+
+	/**
+	 * Get the number of requests currently waiting for a worker.
+	 *
+	 * @return The number of queued requests.
+	 */
+	public int getQueuedRequests();
+
+	/**
+	 * Get the number of requests which have been processed.
+	 *
+	 * @return The number of requests.
+	 */
+	public long getRequestCount();
+
+	/**
+	 * Get the number of processed requests which failed with an exception.
+	 *
+	 * @return The number of failed requests.
+	 */
+	public long getFailedCount();
+
+	/**
+	 * Get the number of requests which were rejected because no worker became
+	 * available within the queue timeout.
+	 *
+	 * @return The number of rejected requests.
+	 */
+	public long getRejectedCount();
+
+	/**
+	 * Get the average time, in milliseconds, spent processing a request.
+	 *
+	 * @return The average request time.
+	 */
+	public long getAverageRequestTime();
+
+	/**
+	 * Get the longest time, in milliseconds, spent processing a request.
+	 *
+	 * @return The maximum request time.
+	 */
+	public long getMaxRequestTime();
+
+	/**
+	 * Get the total time, in milliseconds, requests waited for a worker.
+	 *
+	 * @return The total queue time.
+	 */
+	public long getTotalQueueTime();
+
+	/**
+	 * Reset the counters and timings.
+	 */
+	public void resetStatistics();
+}
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import org.eclipse.equinox.jmx.common.JMXConstants;
+import org.eclipse.equinox.jmx.server.Contribution;
+
+/**
+ * Registry of the delegates of all allocated <code>Contribution</code>s.
+ * <p>
+ * Delegates and their contributions are weakly referenced so the registry never
+ * prevents a bundle, service reference or resource from being garbage collected.
+ * The entry of a contribution is removed when the contribution is released, i.e.
+ * when it fires a removed event or its parent no longer contributes its delegate;
+ * the contribution is unregistered from the server at the same time.  Entries whose
+ * delegate has been collected without being released are expunged.  The registry is
+ * split into segments which are locked independently so lookups from concurrent
+ * requests do not contend on a single lock.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ContributionDelegateRegistry implements ContributionDelegateRegistryMBean {
+
+	public static final String OBJECT_NAME_STR = JMXConstants.DEFAULT_DOMAIN + ":type=ContributionDelegateRegistry"; //$NON-NLS-1$
+
+	// must be a power of two
+	private static final int SEGMENT_COUNT = 16;
+
+	private static ContributionDelegateRegistry instance;
+
+	private final Segment[] segments;
+	private final ReferenceQueue collectedDelegates = new ReferenceQueue();
+	private final Object statsLock = new Object();
+	private long collectedEntryCount;
+
+	private ContributionDelegateRegistry() {
+		segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionDelegateRegistry getDefault() {
+		if (instance == null) {
+			instance = new ContributionDelegateRegistry();
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the <code>Contribution</code> registered for the provided delegate.
+	 *
+	 * @param delegate The contribution delegate.
+	 * @return The contribution, or <code>null</code> if none exists or it has been collected.
+	 */
+	public Contribution getContribution(Object delegate) {
+		DelegateReference ref = find(delegate);
+		return ref == null ? null : (Contribution) ref.contribution.get();
+	}
+
+	/**
+	 * Register the contribution for the provided delegate.  If the delegate is already
+	 * registered its contribution is replaced.  The object names of delegates are
+	 * assigned by the <code>ContributionNamingService</code>.
+	 *
+	 * @param delegate The contribution delegate.
+	 * @param contribution The contribution created for the delegate.
+	 */
+	public void put(Object delegate, Contribution contribution) {
+		expungeCollectedEntries();
+		int hash = hash(delegate);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			DelegateReference ref = segment.find(delegate, hash);
+			if (ref != null) {
+				ref.contribution = new WeakReference(contribution);
+			} else {
+				segment.add(new DelegateReference(delegate, hash, contribution, collectedDelegates));
+			}
+		}
+	}
+
+	/**
+	 * Remove the provided delegate from the registry.
+	 *
+	 * @param delegate The contribution delegate.
+	 */
+	public void remove(Object delegate) {
+		expungeCollectedEntries();
+		int hash = hash(delegate);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			DelegateReference ref = segment.find(delegate, hash);
+			if (ref != null) {
+				segment.remove(ref);
+				ref.clear();
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionDelegateRegistryMBean#getLiveEntryCount()
+	 */
+	public int getLiveEntryCount() {
+		expungeCollectedEntries();
+		int result = 0;
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				result += segments[i].count;
+			}
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionDelegateRegistryMBean#getCollectedEntryCount()
+	 */
+	public long getCollectedEntryCount() {
+		expungeCollectedEntries();
+		synchronized (statsLock) {
+			return collectedEntryCount;
+		}
+	}
+
+	private DelegateReference find(Object delegate) {
+		expungeCollectedEntries();
+		int hash = hash(delegate);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			return segment.find(delegate, hash);
+		}
+	}
+
+	private void expungeCollectedEntries() {
+		DelegateReference ref;
+		while ((ref = (DelegateReference) collectedDelegates.poll()) != null) {
+			Segment segment = segmentFor(ref.hash);
+			synchronized (segment) {
+				if (!segment.remove(ref)) {
+					// explicitly removed prior to being collected
+					continue;
+				}
+			}
+			synchronized (statsLock) {
+				collectedEntryCount++;
+			}
+		}
+	}
+
+	private Segment segmentFor(int hash) {
+		return segments[(hash >>> 24) & (SEGMENT_COUNT - 1)];
+	}
+
+	private static int hash(Object delegate) {
+		int h = delegate.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		return h ^ (h >>> 7) ^ (h >>> 4);
+	}
+
+	/**
+	 * Weak reference to a delegate which is enqueued once the delegate has been collected.
+	 */
+	private static final class DelegateReference extends WeakReference {
+
+		final int hash;
+		WeakReference contribution;
+		DelegateReference next;
+
+		DelegateReference(Object delegate, int hash, Contribution contribution, ReferenceQueue queue) {
+			super(delegate, queue);
+			this.hash = hash;
+			this.contribution = new WeakReference(contribution);
+		}
+	}
+
+	/**
+	 * Chained hash table holding a subset of the registry's entries, instances are used as the lock.
+	 */
+	private static final class Segment {
+
+		DelegateReference[] table = new DelegateReference[16];
+		int count;
+
+		DelegateReference find(Object delegate, int hash) {
+			for (DelegateReference ref = table[hash & (table.length - 1)]; ref != null; ref = ref.next) {
+				if (ref.hash == hash) {
+					Object referent = ref.get();
+					if (referent != null && (referent == delegate || referent.equals(delegate))) {
+						return ref;
+					}
+				}
+			}
+			return null;
+		}
+
+		void add(DelegateReference ref) {
+			if (count >= (table.length >> 1) + (table.length >> 2)) {
+				rehash();
+			}
+			int idx = ref.hash & (table.length - 1);
+			ref.next = table[idx];
+			table[idx] = ref;
+			count++;
+		}
+
+		boolean remove(DelegateReference ref) {
+			int idx = ref.hash & (table.length - 1);
+			DelegateReference prev = null;
+			for (DelegateReference cur = table[idx]; cur != null; prev = cur, cur = cur.next) {
+				if (cur == ref) {
+					if (prev == null) {
+						table[idx] = cur.next;
+					} else {
+						prev.next = cur.next;
+					}
+					cur.next = null;
+					count--;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void rehash() {
+			DelegateReference[] oldTable = table;
+			table = new DelegateReference[oldTable.length << 1];
+			for (int i = 0; i < oldTable.length; i++) {
+				DelegateReference ref = oldTable[i];
+				while (ref != null) {
+					DelegateReference next = ref.next;
+					int idx = ref.hash & (table.length - 1);
+					ref.next = table[idx];
+					table[idx] = ref;
+					ref = next;
+				}
+			}
+		}
+	}
+}
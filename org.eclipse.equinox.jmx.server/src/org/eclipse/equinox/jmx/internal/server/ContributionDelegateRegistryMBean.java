@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+/**
+ * Management interface exposing the footprint of the <code>ContributionDelegateRegistry</code>.
+ *
+ * @since 1.0
+ */
+public interface ContributionDelegateRegistryMBean {
+
+	/**
+	 * Get the number of delegates currently held by the registry.
+	 *
+	 * @return The number of live entries.
+	 */
+	public int getLiveEntryCount();
+
+	/**
+	 * Get the number of entries which have been removed from the registry
+	 * because their delegate was garbage collected.
+	 *
+	 * @return The number of collected entries.
+	 */
+	public long getCollectedEntryCount();
+}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.util.*;
+import javax.management.ObjectName;
+import org.eclipse.equinox.jmx.common.JMXConstants;
+
+/**
+ * Unregisters contribution mbeans which have not been accessed for some time.
+ * <p>
+ * Only contributions which were published in the <code>ContributionNamespace</code>
+ * and registered on first access by the <code>ContributionMBeanServerForwarder</code>
+ * are tracked.  An evicted contribution remains published, so it is registered again
+ * transparently the next time a client accesses it.  Contributions which have
+ * notification listeners are never evicted, listeners would be lost otherwise.
+ * </p>
+ * <p>
+ * Besides the idle timeout, the number of registered transient contributions is
+ * capped; when the cap is exceeded the least recently accessed contributions are
+ * evicted first.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ContributionEvictionManager implements ContributionEvictionManagerMBean {
+
+	public static final String OBJECT_NAME_STR = JMXConstants.DEFAULT_DOMAIN + ":type=ContributionEvictionManager"; //$NON-NLS-1$
+
+	static final String IDLE_TIMEOUT_PROPERTY_KEY = Activator.PI_NAMESPACE + ".eviction.idleTimeout"; //$NON-NLS-1$
+	static final String MAX_REGISTERED_PROPERTY_KEY = Activator.PI_NAMESPACE + ".eviction.maxRegistered"; //$NON-NLS-1$
+
+	private static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+	private static final int DEFAULT_MAX_REGISTERED = 2000;
+	// never evict a contribution which was accessed more recently, a request may still be using it
+	private static final long MIN_IDLE_TIME = 1000;
+	private static final long MAX_SWEEP_INTERVAL = 60 * 1000;
+
+	private static ContributionEvictionManager instance;
+
+	private final long idleTimeout;
+	private final int maxRegistered;
+
+	// guarded by this
+	private final Map entries = new HashMap();
+	// contributions which have been evicted and are still referenced elsewhere
+	private final Map evictedContributions = new WeakHashMap();
+	private ContributionMBeanServerForwarder forwarder;
+	private Thread sweeper;
+	private long evictedCount;
+	private long reregisteredCount;
+
+	private ContributionEvictionManager(long idleTimeout, int maxRegistered) {
+		this.idleTimeout = idleTimeout;
+		this.maxRegistered = maxRegistered;
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionEvictionManager getDefault() {
+		if (instance == null) {
+			instance = new ContributionEvictionManager(SystemProperties.getLong(IDLE_TIMEOUT_PROPERTY_KEY, DEFAULT_IDLE_TIMEOUT), (int) SystemProperties.getLong(MAX_REGISTERED_PROPERTY_KEY, DEFAULT_MAX_REGISTERED));
+		}
+		return instance;
+	}
+
+	/**
+	 * Set the forwarder which registers, and is asked to evict, the tracked contributions.
+	 *
+	 * @param forwarder The forwarder.
+	 */
+	synchronized void setForwarder(ContributionMBeanServerForwarder forwarder) {
+		this.forwarder = forwarder;
+	}
+
+	private boolean isEnabled() {
+		return idleTimeout > 0 || maxRegistered > 0;
+	}
+
+	/**
+	 * Start tracking a contribution which has just been registered on access.
+	 *
+	 * @param name The object name of the contribution.
+	 * @param contribution The registered contribution.
+	 */
+	synchronized void registered(ObjectName name, Object contribution) {
+		if (!isEnabled()) {
+			return;
+		}
+		if (evictedContributions.remove(contribution) != null) {
+			reregisteredCount++;
+		}
+		entries.put(name, new Entry(contribution, System.currentTimeMillis()));
+		startSweeper();
+		if (maxRegistered > 0 && entries.size() > maxRegistered) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Record an access to the contribution with the provided name.
+	 *
+	 * @param name The object name of the accessed mbean.
+	 */
+	synchronized void accessed(ObjectName name) {
+		Entry entry = (Entry) entries.get(name);
+		if (entry != null) {
+			entry.lastAccess = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Record that a notification listener has been added to the contribution.
+	 *
+	 * @param name The object name of the mbean.
+	 * @param listener The listener, a <code>NotificationListener</code> or an <code>ObjectName</code>.
+	 */
+	synchronized void listenerAdded(ObjectName name, Object listener) {
+		Entry entry = (Entry) entries.get(name);
+		if (entry != null) {
+			Integer count = (Integer) entry.listeners.get(listener);
+			entry.listeners.put(listener, new Integer(count == null ? 1 : count.intValue() + 1));
+		}
+	}
+
+	/**
+	 * Record that a notification listener has been removed from the contribution.
+	 *
+	 * @param name The object name of the mbean.
+	 * @param listener The listener, a <code>NotificationListener</code> or an <code>ObjectName</code>.
+	 * @param all <code>true</code> if all registrations of the listener have been removed.
+	 */
+	synchronized void listenerRemoved(ObjectName name, Object listener, boolean all) {
+		Entry entry = (Entry) entries.get(name);
+		if (entry == null) {
+			return;
+		}
+		Integer count = (Integer) entry.listeners.get(listener);
+		if (all || count == null || count.intValue() <= 1) {
+			entry.listeners.remove(listener);
+		} else {
+			entry.listeners.put(listener, new Integer(count.intValue() - 1));
+		}
+	}
+
+	/**
+	 * Stop tracking a contribution which has been unregistered.
+	 *
+	 * @param name The object name of the contribution.
+	 */
+	synchronized void unregistered(ObjectName name) {
+		entries.remove(name);
+	}
+
+	/**
+	 * Stop the sweeper thread.
+	 */
+	public synchronized void stop() {
+		entries.clear();
+		evictedContributions.clear();
+		if (sweeper != null) {
+			sweeper.interrupt();
+			sweeper = null;
+		}
+	}
+
+	private void startSweeper() {
+		if (sweeper == null) {
+			sweeper = new Thread("Contribution Eviction Manager") { //$NON-NLS-1$
+				public void run() {
+					runSweeper(this);
+				}
+			};
+			sweeper.setDaemon(true);
+			sweeper.start();
+		}
+	}
+
+	void runSweeper(Thread thread) {
+		long interval = idleTimeout > 0 ? Math.min(Math.max(idleTimeout / 2, MIN_IDLE_TIME), MAX_SWEEP_INTERVAL) : MAX_SWEEP_INTERVAL;
+		while (true) {
+			ObjectName[] candidates;
+			ContributionMBeanServerForwarder target;
+			synchronized (this) {
+				if (sweeper != thread) {
+					return;
+				}
+				try {
+					wait(interval);
+				} catch (InterruptedException e) {
+					// stopped, re-evaluate
+					continue;
+				}
+				if (sweeper != thread) {
+					return;
+				}
+				candidates = selectCandidates(System.currentTimeMillis());
+				target = forwarder;
+			}
+			if (target == null) {
+				continue;
+			}
+			for (int i = 0; i < candidates.length; i++) {
+				if (target.evict(candidates[i])) {
+					synchronized (this) {
+						evictedCount++;
+					}
+				}
+			}
+		}
+	}
+
+	private ObjectName[] selectCandidates(long now) {
+		List idle = new ArrayList();
+		List lru = new ArrayList();
+		Iterator iter = entries.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry mapEntry = (Map.Entry) iter.next();
+			Entry entry = (Entry) mapEntry.getValue();
+			if (!entry.listeners.isEmpty() || now - entry.lastAccess < MIN_IDLE_TIME) {
+				continue;
+			}
+			if (idleTimeout > 0 && now - entry.lastAccess >= idleTimeout) {
+				idle.add(mapEntry.getKey());
+			} else {
+				lru.add(mapEntry);
+			}
+		}
+		int excess = maxRegistered > 0 ? entries.size() - idle.size() - maxRegistered : 0;
+		if (excess > 0 && !lru.isEmpty()) {
+			Collections.sort(lru, new Comparator() {
+				public int compare(Object o1, Object o2) {
+					long t1 = ((Entry) ((Map.Entry) o1).getValue()).lastAccess;
+					long t2 = ((Entry) ((Map.Entry) o2).getValue()).lastAccess;
+					return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+				}
+			});
+			for (int i = 0; i < excess && i < lru.size(); i++) {
+				idle.add(((Map.Entry) lru.get(i)).getKey());
+			}
+		}
+		return (ObjectName[]) idle.toArray(new ObjectName[idle.size()]);
+	}
+
+	/**
+	 * Returns <code>true</code> if the contribution may be evicted, i.e. it is tracked,
+	 * has no listeners and has not been accessed recently.  The entry is removed if so.
+	 * Called by the forwarder while it holds its registration lock.
+	 *
+	 * @param name The object name of the contribution.
+	 * @return <code>true</code> if the contribution is to be unregistered.
+	 */
+	synchronized boolean claimEviction(ObjectName name) {
+		Entry entry = (Entry) entries.get(name);
+		if (entry == null || !entry.listeners.isEmpty() || System.currentTimeMillis() - entry.lastAccess < MIN_IDLE_TIME) {
+			return false;
+		}
+		entries.remove(name);
+		evictedContributions.put(entry.contribution, Boolean.TRUE);
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionEvictionManagerMBean#getRegisteredCount()
+	 */
+	public synchronized int getRegisteredCount() {
+		return entries.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionEvictionManagerMBean#getEvictedCount()
+	 */
+	public synchronized long getEvictedCount() {
+		return evictedCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionEvictionManagerMBean#getReregisteredCount()
+	 */
+	public synchronized long getReregisteredCount() {
+		return reregisteredCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionEvictionManagerMBean#getIdleTimeout()
+	 */
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionEvictionManagerMBean#getMaxRegistered()
+	 */
+	public int getMaxRegistered() {
+		return maxRegistered;
+	}
+
+	private static final class Entry {
+
+		final Object contribution;
+		long lastAccess;
+		// listener -> Integer, the number of registrations of the listener
+		final Map listeners = new HashMap(2);
+
+		Entry(Object contribution, long lastAccess) {
+			this.contribution = contribution;
+			this.lastAccess = lastAccess;
+		}
+	}
+}
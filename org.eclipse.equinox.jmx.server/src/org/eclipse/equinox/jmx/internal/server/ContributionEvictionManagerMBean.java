@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+/**
+ * Management interface exposing the state of the <code>ContributionEvictionManager</code>.
+ *
+ * @since 1.0
+ */
+public interface ContributionEvictionManagerMBean {
+
+	/**
+	 * Get the number of contributions registered on access which are currently tracked.
+	 *
+	 * @return The number of registered transient contributions.
+	 */
+	public int getRegisteredCount();
+
+	/**
+	 * Get the number of contributions which have been unregistered because they were idle
+	 * or the cap was exceeded.
+	 *
+	 * @return The number of evictions.
+	 */
+	public long getEvictedCount();
+
+	/**
+	 * Get the number of evicted contributions which have been registered again because
+	 * a client accessed them.
+	 *
+	 * @return The number of re-registrations.
+	 */
+	public long getReregisteredCount();
+
+	/**
+	 * Get the time, in milliseconds, after which an unaccessed contribution is evicted.
+	 *
+	 * @return The idle timeout, <code>0</code> if disabled.
+	 */
+	public long getIdleTimeout();
+
+	/**
+	 * Get the maximum number of contributions registered on access.
+	 *
+	 * @return The cap, <code>0</code> if unlimited.
+	 */
+	public int getMaxRegistered();
+}
@@ -0,0 +1,473 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.util.*;
+import javax.management.ObjectName;
+import org.eclipse.equinox.jmx.common.*;
+import org.eclipse.equinox.jmx.server.Contribution;
+
+/**
+ * Word index of the names and properties of all contributions, used to answer the
+ * searches received by the <code>RootContribution</code>.
+ * <p>
+ * The index is built the first time a search is received by walking the contribution
+ * tree from the root providers.  From then on it is maintained incrementally: the
+ * state change events of contributions are queued and applied before the next search,
+ * only the contributions which were updated are re-indexed and only the children of
+ * contributions which added or removed children are walked again.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ContributionIndex implements IContributionSearcher, ContributionIndexMBean {
+
+	public static final String OBJECT_NAME_STR = JMXConstants.DEFAULT_DOMAIN + ":type=ContributionIndex"; //$NON-NLS-1$
+
+	static final String MAX_ENTRIES_PROPERTY_KEY = Activator.PI_NAMESPACE + ".index.maxEntries"; //$NON-NLS-1$
+
+	private static final int DEFAULT_MAX_ENTRIES = 50000;
+	// rebuild rather than queue events without bound
+	private static final int MAX_PENDING_EVENTS = 10000;
+
+	private static final ContributionSearchResult[] NO_RESULTS = new ContributionSearchResult[0];
+
+	private static ContributionIndex instance;
+
+	private final int maxEntries;
+
+	// guarded by pendingEvents, events are recorded by the threads which change contributions
+	private final LinkedList pendingEvents = new LinkedList();
+	private final LinkedList pendingRootEvents = new LinkedList();
+	private boolean active;
+	private boolean overflowed;
+
+	// guarded by this, only accessed by searching threads
+	private final Map roots = new HashMap();
+	private final Map entries = new HashMap();
+	private final SortedMap words = new TreeMap();
+	private final LinkedList crawlQueue = new LinkedList();
+	private boolean truncated;
+	private long searchCount;
+
+	private ContributionIndex(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionIndex getDefault() {
+		if (instance == null) {
+			instance = new ContributionIndex(Math.max(1, SystemProperties.getInt(MAX_ENTRIES_PROPERTY_KEY, DEFAULT_MAX_ENTRIES)));
+		}
+		return instance;
+	}
+
+	/**
+	 * Add a root provider, the contributions below it are indexed.
+	 *
+	 * @param root The root provider.
+	 */
+	public void addRoot(Contribution root) {
+		synchronized (pendingEvents) {
+			pendingRootEvents.add(new Event(root.createProxy().getObjectName(), null, root));
+		}
+	}
+
+	/**
+	 * Remove a root provider and the contributions below it from the index.
+	 *
+	 * @param root The root provider.
+	 */
+	public void removeRoot(Contribution root) {
+		synchronized (pendingEvents) {
+			pendingRootEvents.add(new Event(root.createProxy().getObjectName(), ContributionNotificationEvent.NOTIFICATION_REMOVED, null));
+		}
+	}
+
+	/**
+	 * Record a state change of a contribution, it is applied before the next search.
+	 *
+	 * @param name The object name of the contribution.
+	 * @param type The <code>ContributionNotificationEvent</code> type.
+	 */
+	public void contributionChanged(ObjectName name, String type) {
+		if (name == null) {
+			return;
+		}
+		synchronized (pendingEvents) {
+			if (!active || overflowed) {
+				// nothing has been indexed yet, or the index is rebuilt anyway
+				return;
+			}
+			if (pendingEvents.size() >= MAX_PENDING_EVENTS) {
+				overflowed = true;
+				pendingEvents.clear();
+				return;
+			}
+			pendingEvents.add(new Event(name, type, null));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.common.IContributionSearcher#search(java.lang.String, int)
+	 */
+	public synchronized ContributionSearchResult[] search(String query, int maxResults) {
+		searchCount++;
+		String[] terms = tokenize(query);
+		if (terms.length == 0) {
+			return NO_RESULTS;
+		}
+		update();
+		Set matches = null;
+		for (int i = 0; i < terms.length && (matches == null || !matches.isEmpty()); i++) {
+			Set termMatches = new HashSet();
+			// a term matches all words it is a prefix of
+			Iterator iter = words.subMap(terms[i], terms[i] + Character.MAX_VALUE).values().iterator();
+			while (iter.hasNext()) {
+				termMatches.addAll((Set) iter.next());
+			}
+			if (matches == null) {
+				matches = termMatches;
+			} else {
+				matches.retainAll(termMatches);
+			}
+		}
+		List results = new ArrayList();
+		Iterator iter = matches.iterator();
+		while (iter.hasNext() && (maxResults <= 0 || results.size() < maxResults)) {
+			Entry entry = (Entry) entries.get(iter.next());
+			String[] path = getPath(entry);
+			if (path != null) {
+				results.add(new ContributionSearchResult(entry.proxy, path));
+			}
+		}
+		return (ContributionSearchResult[]) results.toArray(new ContributionSearchResult[results.size()]);
+	}
+
+	private void update() {
+		Event[] rootEvents;
+		Event[] events;
+		boolean rebuild;
+		synchronized (pendingEvents) {
+			rootEvents = (Event[]) pendingRootEvents.toArray(new Event[pendingRootEvents.size()]);
+			pendingRootEvents.clear();
+			events = (Event[]) pendingEvents.toArray(new Event[pendingEvents.size()]);
+			pendingEvents.clear();
+			rebuild = overflowed;
+			overflowed = false;
+			active = true;
+		}
+		for (int i = 0; i < rootEvents.length; i++) {
+			apply(rootEvents[i]);
+		}
+		for (int i = 0; i < events.length; i++) {
+			apply(events[i]);
+		}
+		if (rebuild) {
+			Iterator iter = roots.keySet().iterator();
+			while (iter.hasNext()) {
+				ObjectName name = (ObjectName) iter.next();
+				Entry entry = (Entry) entries.get(name);
+				if (entry != null) {
+					entry.stale = true;
+					markStale(entry.children);
+				}
+				enqueue(name);
+			}
+		}
+		refreshStale();
+		crawl();
+	}
+
+	private void apply(Event event) {
+		if (event.root != null) {
+			roots.put(event.name, event.root);
+			putEntry(event.name, null, event.root.createProxy());
+			enqueue(event.name);
+			return;
+		}
+		Entry entry = (Entry) entries.get(event.name);
+		if (ContributionNotificationEvent.NOTIFICATION_REMOVED.equals(event.type)) {
+			roots.remove(event.name);
+			if (entry != null) {
+				removeEntry(event.name);
+				if (entry.parent != null) {
+					enqueue(entry.parent);
+				}
+			}
+		} else if (entry != null && ContributionNotificationEvent.NOTIFICATION_ADDED.equals(event.type)) {
+			enqueue(event.name);
+		} else if (entry != null) {
+			entry.stale = true;
+		}
+	}
+
+	private void markStale(ObjectName[] names) {
+		if (names == null) {
+			return;
+		}
+		for (int i = 0; i < names.length; i++) {
+			Entry entry = (Entry) entries.get(names[i]);
+			if (entry != null) {
+				entry.stale = true;
+				markStale(entry.children);
+				enqueue(names[i]);
+			}
+		}
+	}
+
+	private void refreshStale() {
+		Object[] names = entries.keySet().toArray();
+		for (int i = 0; i < names.length; i++) {
+			Entry entry = (Entry) entries.get(names[i]);
+			if (entry == null || !entry.stale) {
+				continue;
+			}
+			Contribution contribution = resolve((ObjectName) names[i]);
+			if (contribution == null) {
+				removeEntry((ObjectName) names[i]);
+			} else {
+				putEntry((ObjectName) names[i], entry.parent, contribution.createProxy());
+			}
+		}
+	}
+
+	private void crawl() {
+		while (!crawlQueue.isEmpty()) {
+			ObjectName name = (ObjectName) crawlQueue.removeFirst();
+			Entry entry = (Entry) entries.get(name);
+			if (entry == null) {
+				continue;
+			}
+			entry.queued = false;
+			Contribution contribution = resolve(name);
+			if (contribution == null) {
+				removeEntry(name);
+				continue;
+			}
+			ContributionProxy[] childProxies;
+			try {
+				childProxies = contribution.getChildContributions();
+			} catch (RuntimeException e) {
+				Activator.log(e);
+				continue;
+			}
+			Set current = new HashSet();
+			List children = new ArrayList();
+			if (childProxies != null) {
+				for (int i = 0; i < childProxies.length; i++) {
+					ObjectName childName = childProxies[i].getObjectName();
+					Entry child = (Entry) entries.get(childName);
+					if (child == null) {
+						if (entries.size() >= maxEntries) {
+							truncated = true;
+							continue;
+						}
+						putEntry(childName, name, childProxies[i]);
+						enqueue(childName);
+					} else if (child.proxy.getVersion() != childProxies[i].getVersion() || child.stale) {
+						putEntry(childName, name, childProxies[i]);
+					}
+					current.add(childName);
+					children.add(childName);
+				}
+			}
+			if (entry.children != null) {
+				for (int i = 0; i < entry.children.length; i++) {
+					if (!current.contains(entry.children[i])) {
+						removeEntry(entry.children[i]);
+					}
+				}
+			}
+			entry.children = (ObjectName[]) children.toArray(new ObjectName[children.size()]);
+		}
+	}
+
+	private void enqueue(ObjectName name) {
+		Entry entry = (Entry) entries.get(name);
+		if (entry != null && !entry.queued) {
+			entry.queued = true;
+			crawlQueue.add(name);
+		}
+	}
+
+	private Contribution resolve(ObjectName name) {
+		Contribution root = (Contribution) roots.get(name);
+		return root != null ? root : ContributionNamespace.getDefault().lookup(name);
+	}
+
+	private void putEntry(ObjectName name, ObjectName parent, ContributionProxy proxy) {
+		Entry entry = (Entry) entries.get(name);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(name, entry);
+		} else {
+			unindexWords(name, entry.words);
+		}
+		entry.parent = parent;
+		entry.proxy = proxy;
+		entry.stale = false;
+		entry.words = tokenize(getText(proxy));
+		for (int i = 0; i < entry.words.length; i++) {
+			Set names = (Set) words.get(entry.words[i]);
+			if (names == null) {
+				names = new HashSet(2);
+				words.put(entry.words[i], names);
+			}
+			names.add(name);
+		}
+	}
+
+	private void removeEntry(ObjectName name) {
+		Entry entry = (Entry) entries.remove(name);
+		if (entry == null) {
+			return;
+		}
+		unindexWords(name, entry.words);
+		if (entry.children != null) {
+			for (int i = 0; i < entry.children.length; i++) {
+				removeEntry(entry.children[i]);
+			}
+		}
+	}
+
+	private void unindexWords(ObjectName name, String[] entryWords) {
+		for (int i = 0; i < entryWords.length; i++) {
+			Set names = (Set) words.get(entryWords[i]);
+			if (names != null && names.remove(name) && names.isEmpty()) {
+				words.remove(entryWords[i]);
+			}
+		}
+	}
+
+	private String[] getPath(Entry entry) {
+		LinkedList path = new LinkedList();
+		for (int depth = 0; entry != null; depth++) {
+			if (depth > entries.size()) {
+				// parent chain is cyclic
+				return null;
+			}
+			path.addFirst(entry.proxy.getName());
+			if (entry.parent == null) {
+				return (String[]) path.toArray(new String[path.size()]);
+			}
+			entry = (Entry) entries.get(entry.parent);
+		}
+		// an ancestor has been removed
+		return null;
+	}
+
+	private static String getText(ContributionProxy proxy) {
+		StringBuffer text = new StringBuffer();
+		if (proxy.getName() != null) {
+			text.append(proxy.getName());
+		}
+		Set properties = proxy.getContributionProperties();
+		if (properties != null) {
+			Iterator iter = properties.iterator();
+			while (iter.hasNext()) {
+				text.append(' ').append(iter.next());
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Split the text into lower case words of letters and digits.
+	 */
+	static String[] tokenize(String text) {
+		if (text == null) {
+			return new String[0];
+		}
+		Set result = new HashSet();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				result.add(text.substring(start, i).toLowerCase());
+				start = -1;
+			}
+		}
+		return (String[]) result.toArray(new String[result.size()]);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionIndexMBean#getEntryCount()
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionIndexMBean#getWordCount()
+	 */
+	public synchronized int getWordCount() {
+		return words.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionIndexMBean#getPendingEventCount()
+	 */
+	public int getPendingEventCount() {
+		synchronized (pendingEvents) {
+			return pendingEvents.size() + pendingRootEvents.size();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionIndexMBean#getSearchCount()
+	 */
+	public synchronized long getSearchCount() {
+		return searchCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionIndexMBean#getMaxEntries()
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionIndexMBean#isTruncated()
+	 */
+	public synchronized boolean isTruncated() {
+		return truncated;
+	}
+
+	private static final class Entry {
+
+		ObjectName parent;
+		ContributionProxy proxy;
+		String[] words;
+		// null until the children have been walked
+		ObjectName[] children;
+		boolean stale;
+		boolean queued;
+	}
+
+	private static final class Event {
+
+		final ObjectName name;
+		final String type;
+		final Contribution root;
+
+		Event(ObjectName name, String type, Contribution root) {
+			this.name = name;
+			this.type = type;
+			this.root = root;
+		}
+	}
+}
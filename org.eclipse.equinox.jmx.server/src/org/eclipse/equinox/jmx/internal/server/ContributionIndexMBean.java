@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+/**
+ * Management interface exposing the state of the <code>ContributionIndex</code>.
+ *
+ * @since 1.0
+ */
+public interface ContributionIndexMBean {
+
+	/**
+	 * Get the number of indexed contributions.
+	 *
+	 * @return The number of entries.
+	 */
+	public int getEntryCount();
+
+	/**
+	 * Get the number of distinct words contained in the index.
+	 *
+	 * @return The number of words.
+	 */
+	public int getWordCount();
+
+	/**
+	 * Get the number of contribution state changes which will be applied
+	 * before the next search.
+	 *
+	 * @return The number of pending events.
+	 */
+	public int getPendingEventCount();
+
+	/**
+	 * Get the number of searches which have been received.
+	 *
+	 * @return The number of searches.
+	 */
+	public long getSearchCount();
+
+	/**
+	 * Get the maximum number of contributions which are indexed.
+	 *
+	 * @return The maximum number of entries.
+	 */
+	public int getMaxEntries();
+
+	/**
+	 * Returns <code>true</code> if contributions were left out of the index because
+	 * the maximum number of entries was reached.
+	 *
+	 * @return <code>true</code> if the index is incomplete.
+	 */
+	public boolean isTruncated();
+}
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.util.*;
+import org.eclipse.equinox.jmx.common.JMXConstants;
+import org.eclipse.equinox.jmx.server.WorkerPool;
+
+/**
+ * Initializes the contribution providers off the framework start thread.  The
+ * connector is started immediately, the providers are then instantiated, registered
+ * and asked for their root proxies by threads of the shared <code>WorkerPool</code>.
+ * <p>
+ * The time spent initializing each provider is recorded, and the readiness of the
+ * contribution model is exposed so clients can tell an empty model from one which is
+ * still being built.  Setting the thread count to <code>0</code> initializes the
+ * providers serially on the calling thread.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ContributionInitializer implements ContributionInitializerMBean {
+
+	public static final String OBJECT_NAME_STR = JMXConstants.DEFAULT_DOMAIN + ":type=ContributionInitializer"; //$NON-NLS-1$
+
+	public static final String STATE_INITIALIZING = "initializing"; //$NON-NLS-1$
+	public static final String STATE_READY = "ready"; //$NON-NLS-1$
+
+	static final String THREADS_PROPERTY_KEY = Activator.PI_NAMESPACE + ".init.threads"; //$NON-NLS-1$
+
+	private static final int DEFAULT_THREADS = 4;
+
+	private static ContributionInitializer instance;
+
+	private final int threadCount;
+
+	// guarded by this
+	private final Map initTimes = new HashMap();
+	private String state = STATE_INITIALIZING;
+	private long startTime;
+	private long totalInitTime = -1;
+	private int failedCount;
+	private boolean stopped;
+	// incremented by each start and stop, tasks of a previous run are skipped
+	private int generation;
+
+	/**
+	 * A unit of initialization work attributed to a provider.
+	 */
+	public abstract static class Task {
+
+		private final String name;
+
+		/**
+		 * @param name The name the time spent by this task is recorded under, typically the provider class name.
+		 */
+		public Task(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Perform the initialization.
+		 *
+		 * @throws Exception If the initialization fails, the exception is logged.
+		 */
+		public abstract void run() throws Exception;
+	}
+
+	private ContributionInitializer(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionInitializer getDefault() {
+		if (instance == null) {
+			instance = new ContributionInitializer(SystemProperties.getInt(THREADS_PROPERTY_KEY, DEFAULT_THREADS));
+		}
+		return instance;
+	}
+
+	/**
+	 * Run the provided startup sequence.  Unless the thread count is <code>0</code> the
+	 * sequence runs on a background thread and this method returns immediately.  The
+	 * state becomes ready once the sequence completes.  The statistics of a previous
+	 * run, e.g. before the bundle was restarted, are reset.
+	 *
+	 * @param startup The startup sequence.
+	 */
+	public void start(final Runnable startup) {
+		final int run;
+		synchronized (this) {
+			run = ++generation;
+			stopped = false;
+			state = STATE_INITIALIZING;
+			startTime = System.currentTimeMillis();
+			totalInitTime = -1;
+			failedCount = 0;
+			initTimes.clear();
+		}
+		if (threadCount == 0) {
+			runStartup(startup, run);
+			return;
+		}
+		Thread thread = new Thread("Contribution Initializer") { //$NON-NLS-1$
+			public void run() {
+				runStartup(startup, run);
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	void runStartup(Runnable startup, int run) {
+		try {
+			startup.run();
+		} catch (RuntimeException e) {
+			Activator.logError(e);
+		} finally {
+			synchronized (this) {
+				// a restart supersedes this run
+				if (run == generation) {
+					state = STATE_READY;
+					totalInitTime = System.currentTimeMillis() - startTime;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run the provided tasks on the calling thread and the threads of the <code>WorkerPool</code>,
+	 * and wait for all of them to complete.  Failed tasks are logged and counted, they do
+	 * not prevent the remaining tasks from running.
+	 *
+	 * @param tasks The <code>Task</code>s to run.
+	 */
+	public void runAll(List tasks) {
+		final LinkedList pending = new LinkedList(tasks);
+		final int run;
+		synchronized (this) {
+			run = generation;
+		}
+		// the calling thread takes its share of the work, helped by the shared pool
+		WorkerPool.getDefault().run(new Runnable() {
+			public void run() {
+				runPending(pending, run);
+			}
+		}, Math.min(threadCount, pending.size()) - 1);
+	}
+
+	void runPending(LinkedList pending, int run) {
+		while (true) {
+			Task task;
+			synchronized (pending) {
+				if (pending.isEmpty()) {
+					return;
+				}
+				task = (Task) pending.removeFirst();
+			}
+			synchronized (this) {
+				if (stopped || run != generation) {
+					return;
+				}
+			}
+			long start = System.currentTimeMillis();
+			boolean failed = false;
+			try {
+				task.run();
+			} catch (Exception e) {
+				failed = true;
+				Activator.logError(e);
+			} catch (LinkageError e) {
+				failed = true;
+				Activator.logError(e);
+			}
+			record(task.getName(), System.currentTimeMillis() - start, failed);
+		}
+	}
+
+	private synchronized void record(String name, long time, boolean failed) {
+		Long previous = (Long) initTimes.get(name);
+		initTimes.put(name, new Long(previous == null ? time : previous.longValue() + time));
+		if (failed) {
+			failedCount++;
+		}
+	}
+
+	/**
+	 * Wait until the contribution model is ready.
+	 *
+	 * @param timeout The maximum time to wait in milliseconds, <code>0</code> to wait indefinitely.
+	 * @return <code>true</code> if the model is ready.
+	 * @throws InterruptedException If the waiting thread is interrupted.
+	 */
+	public synchronized boolean waitUntilReady(long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		while (!isReady()) {
+			long remaining = timeout == 0 ? 0 : deadline - System.currentTimeMillis();
+			if (timeout != 0 && remaining <= 0) {
+				return false;
+			}
+			wait(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * Skip the initialization tasks which have not started yet.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		generation++;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionInitializerMBean#getState()
+	 */
+	public synchronized String getState() {
+		return state;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionInitializerMBean#isReady()
+	 */
+	public synchronized boolean isReady() {
+		return STATE_READY.equals(state);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionInitializerMBean#getThreadCount()
+	 */
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionInitializerMBean#getTotalInitTime()
+	 */
+	public synchronized long getTotalInitTime() {
+		return totalInitTime;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionInitializerMBean#getFailedCount()
+	 */
+	public synchronized int getFailedCount() {
+		return failedCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionInitializerMBean#getProviderNames()
+	 */
+	public synchronized String[] getProviderNames() {
+		String[] names = (String[]) initTimes.keySet().toArray(new String[initTimes.size()]);
+		Arrays.sort(names);
+		return names;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionInitializerMBean#getProviderInitTime(java.lang.String)
+	 */
+	public synchronized long getProviderInitTime(String providerName) {
+		Long time = (Long) initTimes.get(providerName);
+		return time == null ? -1 : time.longValue();
+	}
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+/**
+ * Management interface exposing the progress of the <code>ContributionInitializer</code>.
+ *
+ * @since 1.0
+ */
+public interface ContributionInitializerMBean {
+
+	/**
+	 * Get the state of the contribution model.
+	 *
+	 * @return <code>"initializing"</code> or <code>"ready"</code>.
+	 */
+	public String getState();
+
+	/**
+	 * Returns <code>true</code> once all providers have been initialized.
+	 *
+	 * @return <code>true</code> if the contribution model is ready.
+	 */
+	public boolean isReady();
+
+	/**
+	 * Get the number of threads used to initialize providers.
+	 *
+	 * @return The thread count, <code>0</code> if providers are initialized on the start thread.
+	 */
+	public int getThreadCount();
+
+	/**
+	 * Get the time, in milliseconds, taken to build the contribution model.
+	 *
+	 * @return The total initialization time, <code>-1</code> if not yet ready.
+	 */
+	public long getTotalInitTime();
+
+	/**
+	 * Get the number of provider initialization steps which failed.
+	 *
+	 * @return The number of failures.
+	 */
+	public int getFailedCount();
+
+	/**
+	 * Get the names of the providers whose initialization time has been recorded.
+	 *
+	 * @return The provider class names.
+	 */
+	public String[] getProviderNames();
+
+	/**
+	 * Get the time, in milliseconds, spent instantiating, registering and creating
+	 * the root proxy of the provider.
+	 *
+	 * @param providerName The provider class name.
+	 * @return The initialization time, <code>-1</code> if unknown.
+	 */
+	public long getProviderInitTime(String providerName);
+}
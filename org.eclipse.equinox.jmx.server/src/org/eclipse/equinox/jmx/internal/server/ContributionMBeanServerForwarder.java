@@ -0,0 +1,535 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.io.ObjectInputStream;
+import java.util.*;
+import javax.management.*;
+import javax.management.loading.ClassLoaderRepository;
+import javax.management.remote.MBeanServerForwarder;
+import org.eclipse.equinox.jmx.server.Contribution;
+
+/**
+ * <code>MBeanServerForwarder</code> which resolves the names of contributions
+ * published in the <code>ContributionNamespace</code> on demand.
+ * <p>
+ * A name which has not been published yet, e.g. one a client kept from a previous
+ * session while the parent has not been listed since, is resolved through the
+ * <code>ContributionNamingService</code> to the contribution of its delegate, which
+ * is then published.
+ * </p>
+ * <p>
+ * Published contributions are reported as registered and their meta data is
+ * served directly from the contribution.  A contribution is only registered
+ * with the underlying <code>MBeanServer</code> the first time a client invokes
+ * an operation, accesses an attribute or subscribes to its notifications.
+ * Contributions registered this way are unregistered again once idle, see
+ * <code>ContributionEvictionManager</code>.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ContributionMBeanServerForwarder implements MBeanServerForwarder {
+
+	private final ContributionNamespace namespace = ContributionNamespace.getDefault();
+	private final ContributionNamingService namingService = ContributionNamingService.getDefault();
+	private final ContributionEvictionManager evictionManager = ContributionEvictionManager.getDefault();
+	private final Object registrationLock = new Object();
+	private MBeanServer mbs;
+	// the name of the contribution being evicted, guarded by registrationLock
+	private ObjectName evicting;
+
+	/**
+	 * Allocate a forwarder which delegates to the provided server.
+	 *
+	 * @param mbs The <code>MBeanServer</code> which stores the registered mbeans.
+	 */
+	public ContributionMBeanServerForwarder(MBeanServer mbs) {
+		this.mbs = mbs;
+		evictionManager.setForwarder(this);
+	}
+
+	/**
+	 * Register the contribution published under the provided name with the server,
+	 * if it has not been registered yet.
+	 *
+	 * @param name The object name of the mbean about to be accessed.
+	 */
+	private void ensureRegistered(ObjectName name) {
+		if (name == null || name.isPattern()) {
+			return;
+		}
+		if (mbs.isRegistered(name)) {
+			evictionManager.accessed(name);
+			return;
+		}
+		Contribution contribution = lookup(name);
+		if (contribution == null) {
+			return;
+		}
+		synchronized (registrationLock) {
+			if (mbs.isRegistered(name)) {
+				return;
+			}
+			try {
+				// register through the outermost forwarder so connectors observe the registration
+				getRegistrationServer().registerMBean(contribution, name);
+				evictionManager.registered(name, contribution);
+			} catch (JMException e) {
+				Activator.log(e);
+			}
+		}
+	}
+
+	/**
+	 * Get the contribution published under the provided name, or the contribution whose
+	 * delegate was assigned the name if none is published yet.  The latter is published.
+	 *
+	 * @param name The object name, not a pattern.
+	 * @return The contribution, or <code>null</code> if the name is not assigned to a contribution.
+	 */
+	private Contribution lookup(ObjectName name) {
+		Contribution contribution = namespace.lookup(name);
+		if (contribution != null) {
+			return contribution;
+		}
+		Object delegate = namingService.getDelegate(name);
+		if (delegate == null) {
+			return null;
+		}
+		contribution = Contribution.getContribution(delegate);
+		if (contribution == null && delegate instanceof Contribution) {
+			// contributions without a delegate are named after themselves
+			contribution = (Contribution) delegate;
+		}
+		if (contribution != null) {
+			namespace.publish(name, contribution);
+		}
+		return contribution;
+	}
+
+	/**
+	 * Unregister the contribution with the provided name from the server while leaving
+	 * it published, so it is registered again on its next access.
+	 *
+	 * @param name The object name of the contribution.
+	 * @return <code>true</code> if the contribution has been unregistered.
+	 */
+	boolean evict(ObjectName name) {
+		synchronized (registrationLock) {
+			try {
+				if (namespace.lookup(name) == null) {
+					// withdrawn, the contribution has been removed
+					evictionManager.unregistered(name);
+					if (mbs.isRegistered(name)) {
+						getRegistrationServer().unregisterMBean(name);
+					}
+					return false;
+				}
+				if (!evictionManager.claimEviction(name)) {
+					return false;
+				}
+				// unregister through the same server the contribution was registered with, so
+				// connectors observe the unregistration; unregisterMBean() keeps the name published
+				evicting = name;
+				getRegistrationServer().unregisterMBean(name);
+				return true;
+			} catch (JMException e) {
+				Activator.log(e);
+			} finally {
+				evicting = null;
+			}
+		}
+		return false;
+	}
+
+	private MBeanServer getRegistrationServer() {
+		Activator activator = Activator.getDefault();
+		if (activator != null) {
+			try {
+				MBeanServer server = activator.getServer();
+				if (server != null) {
+					return server;
+				}
+			} catch (RuntimeException e) {
+				// server is still being created
+			}
+		}
+		return this;
+	}
+
+	private Contribution getUnregisteredContribution(ObjectName name) {
+		if (name == null || name.isPattern() || mbs.isRegistered(name)) {
+			return null;
+		}
+		return lookup(name);
+	}
+
+	private static boolean isInstanceOf(Class clazz, String className) {
+		for (; clazz != null; clazz = clazz.getSuperclass()) {
+			if (clazz.getName().equals(className)) {
+				return true;
+			}
+			Class[] interfaces = clazz.getInterfaces();
+			for (int i = 0; i < interfaces.length; i++) {
+				if (isInstanceOf(interfaces[i], className)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.MBeanServerForwarder#getMBeanServer()
+	 */
+	public MBeanServer getMBeanServer() {
+		return mbs;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.remote.MBeanServerForwarder#setMBeanServer(javax.management.MBeanServer)
+	 */
+	public void setMBeanServer(MBeanServer mbs) {
+		if (this.mbs == null) {
+			this.mbs = mbs;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#createMBean(java.lang.String, javax.management.ObjectName)
+	 */
+	public ObjectInstance createMBean(String className, ObjectName name) throws ReflectionException, InstanceAlreadyExistsException, MBeanRegistrationException, MBeanException, NotCompliantMBeanException {
+		return mbs.createMBean(className, name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#createMBean(java.lang.String, javax.management.ObjectName, javax.management.ObjectName)
+	 */
+	public ObjectInstance createMBean(String className, ObjectName name, ObjectName loaderName) throws ReflectionException, InstanceAlreadyExistsException, MBeanRegistrationException, MBeanException, NotCompliantMBeanException, InstanceNotFoundException {
+		return mbs.createMBean(className, name, loaderName);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#createMBean(java.lang.String, javax.management.ObjectName, java.lang.Object[], java.lang.String[])
+	 */
+	public ObjectInstance createMBean(String className, ObjectName name, Object[] params, String[] signature) throws ReflectionException, InstanceAlreadyExistsException, MBeanRegistrationException, MBeanException, NotCompliantMBeanException {
+		return mbs.createMBean(className, name, params, signature);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#createMBean(java.lang.String, javax.management.ObjectName, javax.management.ObjectName, java.lang.Object[], java.lang.String[])
+	 */
+	public ObjectInstance createMBean(String className, ObjectName name, ObjectName loaderName, Object[] params, String[] signature) throws ReflectionException, InstanceAlreadyExistsException, MBeanRegistrationException, MBeanException, NotCompliantMBeanException, InstanceNotFoundException {
+		return mbs.createMBean(className, name, loaderName, params, signature);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#registerMBean(java.lang.Object, javax.management.ObjectName)
+	 */
+	public ObjectInstance registerMBean(Object object, ObjectName name) throws InstanceAlreadyExistsException, MBeanRegistrationException, NotCompliantMBeanException {
+		return mbs.registerMBean(object, name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#unregisterMBean(javax.management.ObjectName)
+	 */
+	public void unregisterMBean(ObjectName name) throws InstanceNotFoundException, MBeanRegistrationException {
+		synchronized (registrationLock) {
+			if (name != null && name.equals(evicting)) {
+				mbs.unregisterMBean(name);
+				return;
+			}
+		}
+		boolean published = namespace.withdraw(name);
+		evictionManager.unregistered(name);
+		if (published && !mbs.isRegistered(name)) {
+			return;
+		}
+		mbs.unregisterMBean(name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getObjectInstance(javax.management.ObjectName)
+	 */
+	public ObjectInstance getObjectInstance(ObjectName name) throws InstanceNotFoundException {
+		Contribution contribution = getUnregisteredContribution(name);
+		if (contribution != null) {
+			return new ObjectInstance(name, contribution.getMBeanInfo().getClassName());
+		}
+		return mbs.getObjectInstance(name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#queryMBeans(javax.management.ObjectName, javax.management.QueryExp)
+	 */
+	public Set queryMBeans(ObjectName name, QueryExp query) {
+		Set result = new HashSet(mbs.queryMBeans(name, query));
+		ObjectName[] names = getUnregisteredNames(name, query);
+		for (int i = 0; i < names.length; i++) {
+			try {
+				result.add(getObjectInstance(names[i]));
+			} catch (InstanceNotFoundException e) {
+				// contribution has been withdrawn
+			}
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#queryNames(javax.management.ObjectName, javax.management.QueryExp)
+	 */
+	public Set queryNames(ObjectName name, QueryExp query) {
+		Set result = new HashSet(mbs.queryNames(name, query));
+		result.addAll(Arrays.asList(getUnregisteredNames(name, query)));
+		return result;
+	}
+
+	private ObjectName[] getUnregisteredNames(ObjectName pattern, QueryExp query) {
+		ObjectName[] names = namespace.getNames(pattern);
+		List result = new ArrayList(names.length);
+		for (int i = 0; i < names.length; i++) {
+			if (mbs.isRegistered(names[i])) {
+				continue;
+			}
+			if (query != null) {
+				try {
+					query.setMBeanServer(this);
+					if (!query.apply(names[i])) {
+						continue;
+					}
+				} catch (Exception e) {
+					continue;
+				}
+			}
+			result.add(names[i]);
+		}
+		return (ObjectName[]) result.toArray(new ObjectName[result.size()]);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#isRegistered(javax.management.ObjectName)
+	 */
+	public boolean isRegistered(ObjectName name) {
+		return mbs.isRegistered(name) || (name != null && !name.isPattern() && lookup(name) != null);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getMBeanCount()
+	 */
+	public Integer getMBeanCount() {
+		return new Integer(mbs.getMBeanCount().intValue() + getUnregisteredNames(null, null).length);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getAttribute(javax.management.ObjectName, java.lang.String)
+	 */
+	public Object getAttribute(ObjectName name, String attribute) throws MBeanException, AttributeNotFoundException, InstanceNotFoundException, ReflectionException {
+		ensureRegistered(name);
+		return mbs.getAttribute(name, attribute);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getAttributes(javax.management.ObjectName, java.lang.String[])
+	 */
+	public AttributeList getAttributes(ObjectName name, String[] attributes) throws InstanceNotFoundException, ReflectionException {
+		ensureRegistered(name);
+		return mbs.getAttributes(name, attributes);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#setAttribute(javax.management.ObjectName, javax.management.Attribute)
+	 */
+	public void setAttribute(ObjectName name, Attribute attribute) throws InstanceNotFoundException, AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException {
+		ensureRegistered(name);
+		mbs.setAttribute(name, attribute);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#setAttributes(javax.management.ObjectName, javax.management.AttributeList)
+	 */
+	public AttributeList setAttributes(ObjectName name, AttributeList attributes) throws InstanceNotFoundException, ReflectionException {
+		ensureRegistered(name);
+		return mbs.setAttributes(name, attributes);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#invoke(javax.management.ObjectName, java.lang.String, java.lang.Object[], java.lang.String[])
+	 */
+	public Object invoke(ObjectName name, String operationName, Object[] params, String[] signature) throws InstanceNotFoundException, MBeanException, ReflectionException {
+		ensureRegistered(name);
+		return mbs.invoke(name, operationName, params, signature);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getDefaultDomain()
+	 */
+	public String getDefaultDomain() {
+		return mbs.getDefaultDomain();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getDomains()
+	 */
+	public String[] getDomains() {
+		Set domains = new HashSet(Arrays.asList(mbs.getDomains()));
+		ObjectName[] names = getUnregisteredNames(null, null);
+		for (int i = 0; i < names.length; i++) {
+			domains.add(names[i].getDomain());
+		}
+		return (String[]) domains.toArray(new String[domains.size()]);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#addNotificationListener(javax.management.ObjectName, javax.management.NotificationListener, javax.management.NotificationFilter, java.lang.Object)
+	 */
+	public void addNotificationListener(ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback) throws InstanceNotFoundException {
+		ensureRegistered(name);
+		mbs.addNotificationListener(name, listener, filter, handback);
+		evictionManager.listenerAdded(name, listener);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#addNotificationListener(javax.management.ObjectName, javax.management.ObjectName, javax.management.NotificationFilter, java.lang.Object)
+	 */
+	public void addNotificationListener(ObjectName name, ObjectName listener, NotificationFilter filter, Object handback) throws InstanceNotFoundException {
+		ensureRegistered(name);
+		ensureRegistered(listener);
+		mbs.addNotificationListener(name, listener, filter, handback);
+		evictionManager.listenerAdded(name, listener);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#removeNotificationListener(javax.management.ObjectName, javax.management.ObjectName)
+	 */
+	public void removeNotificationListener(ObjectName name, ObjectName listener) throws InstanceNotFoundException, ListenerNotFoundException {
+		mbs.removeNotificationListener(name, listener);
+		evictionManager.listenerRemoved(name, listener, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#removeNotificationListener(javax.management.ObjectName, javax.management.ObjectName, javax.management.NotificationFilter, java.lang.Object)
+	 */
+	public void removeNotificationListener(ObjectName name, ObjectName listener, NotificationFilter filter, Object handback) throws InstanceNotFoundException, ListenerNotFoundException {
+		mbs.removeNotificationListener(name, listener, filter, handback);
+		evictionManager.listenerRemoved(name, listener, false);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#removeNotificationListener(javax.management.ObjectName, javax.management.NotificationListener)
+	 */
+	public void removeNotificationListener(ObjectName name, NotificationListener listener) throws InstanceNotFoundException, ListenerNotFoundException {
+		mbs.removeNotificationListener(name, listener);
+		evictionManager.listenerRemoved(name, listener, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#removeNotificationListener(javax.management.ObjectName, javax.management.NotificationListener, javax.management.NotificationFilter, java.lang.Object)
+	 */
+	public void removeNotificationListener(ObjectName name, NotificationListener listener, NotificationFilter filter, Object handback) throws InstanceNotFoundException, ListenerNotFoundException {
+		mbs.removeNotificationListener(name, listener, filter, handback);
+		evictionManager.listenerRemoved(name, listener, false);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getMBeanInfo(javax.management.ObjectName)
+	 */
+	public MBeanInfo getMBeanInfo(ObjectName name) throws InstanceNotFoundException, IntrospectionException, ReflectionException {
+		Contribution contribution = getUnregisteredContribution(name);
+		if (contribution != null) {
+			return contribution.getMBeanInfo();
+		}
+		return mbs.getMBeanInfo(name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#isInstanceOf(javax.management.ObjectName, java.lang.String)
+	 */
+	public boolean isInstanceOf(ObjectName name, String className) throws InstanceNotFoundException {
+		Contribution contribution = getUnregisteredContribution(name);
+		if (contribution != null) {
+			return isInstanceOf(contribution.getClass(), className) || contribution.getMBeanInfo().getClassName().equals(className);
+		}
+		return mbs.isInstanceOf(name, className);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#instantiate(java.lang.String)
+	 */
+	public Object instantiate(String className) throws ReflectionException, MBeanException {
+		return mbs.instantiate(className);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#instantiate(java.lang.String, javax.management.ObjectName)
+	 */
+	public Object instantiate(String className, ObjectName loaderName) throws ReflectionException, MBeanException, InstanceNotFoundException {
+		return mbs.instantiate(className, loaderName);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#instantiate(java.lang.String, java.lang.Object[], java.lang.String[])
+	 */
+	public Object instantiate(String className, Object[] params, String[] signature) throws ReflectionException, MBeanException {
+		return mbs.instantiate(className, params, signature);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#instantiate(java.lang.String, javax.management.ObjectName, java.lang.Object[], java.lang.String[])
+	 */
+	public Object instantiate(String className, ObjectName loaderName, Object[] params, String[] signature) throws ReflectionException, MBeanException, InstanceNotFoundException {
+		return mbs.instantiate(className, loaderName, params, signature);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#deserialize(javax.management.ObjectName, byte[])
+	 */
+	public ObjectInputStream deserialize(ObjectName name, byte[] data) throws InstanceNotFoundException, OperationsException {
+		ensureRegistered(name);
+		return mbs.deserialize(name, data);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#deserialize(java.lang.String, byte[])
+	 */
+	public ObjectInputStream deserialize(String className, byte[] data) throws OperationsException, ReflectionException {
+		return mbs.deserialize(className, data);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#deserialize(java.lang.String, javax.management.ObjectName, byte[])
+	 */
+	public ObjectInputStream deserialize(String className, ObjectName loaderName, byte[] data) throws InstanceNotFoundException, OperationsException, ReflectionException {
+		return mbs.deserialize(className, loaderName, data);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getClassLoaderFor(javax.management.ObjectName)
+	 */
+	public ClassLoader getClassLoaderFor(ObjectName mbeanName) throws InstanceNotFoundException {
+		ensureRegistered(mbeanName);
+		return mbs.getClassLoaderFor(mbeanName);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getClassLoader(javax.management.ObjectName)
+	 */
+	public ClassLoader getClassLoader(ObjectName loaderName) throws InstanceNotFoundException {
+		return mbs.getClassLoader(loaderName);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanServer#getClassLoaderRepository()
+	 */
+	public ClassLoaderRepository getClassLoaderRepository() {
+		return mbs.getClassLoaderRepository();
+	}
+}
@@ -18,6 +18,10 @@ import org.eclipse.osgi.util.NLS;
 public class ContributionMessages extends NLS {
 
 	public static String desc_getcontribs;
+	public static String desc_getcontribs_page;
+	public static String desc_getproxydelta;
+	public static String desc_getimage;
+	public static String desc_getsubtree;
 
 	// exceptions
 	public static String excep_typeprovider_exists;
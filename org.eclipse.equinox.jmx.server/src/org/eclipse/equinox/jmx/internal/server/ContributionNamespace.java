@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import javax.management.ObjectName;
+import org.eclipse.equinox.jmx.server.Contribution;
+
+/**
+ * The virtual namespace of all contributions which have been exposed to clients.
+ * <p>
+ * A published contribution is addressable by its <code>ObjectName</code> but is not
+ * registered with the <code>MBeanServer</code> until a client first accesses it, see
+ * <code>ContributionMBeanServerForwarder</code>.  Contributions are weakly referenced,
+ * they are held by the parent contribution which contributed them.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ContributionNamespace {
+
+	private static ContributionNamespace instance;
+
+	// use hashtable as synchronization is required
+	private final Map contributions = new Hashtable();
+
+	private ContributionNamespace() {
+		super();
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionNamespace getDefault() {
+		if (instance == null) {
+			instance = new ContributionNamespace();
+		}
+		return instance;
+	}
+
+	/**
+	 * Publish the contribution under the provided name.
+	 *
+	 * @param name The object name of the contribution.
+	 * @param contribution The contribution to publish.
+	 */
+	public void publish(ObjectName name, Contribution contribution) {
+		if (name != null) {
+			contributions.put(name, new WeakReference(contribution));
+		}
+	}
+
+	/**
+	 * Remove the contribution published under the provided name.
+	 *
+	 * @param name The object name of the contribution.
+	 * @return <code>true</code> if a contribution was published under the name.
+	 */
+	public boolean withdraw(ObjectName name) {
+		WeakReference ref = (WeakReference) contributions.remove(name);
+		return ref != null && ref.get() != null;
+	}
+
+	/**
+	 * Get the contribution published under the provided name.
+	 *
+	 * @param name The object name of the contribution.
+	 * @return The contribution, or <code>null</code> if none is published under the name.
+	 */
+	public Contribution lookup(ObjectName name) {
+		if (name == null) {
+			return null;
+		}
+		WeakReference ref = (WeakReference) contributions.get(name);
+		if (ref == null) {
+			return null;
+		}
+		Contribution contribution = (Contribution) ref.get();
+		if (contribution == null) {
+			expunge(name, ref);
+		}
+		return contribution;
+	}
+
+	/**
+	 * Get the names of all published contributions which match the provided pattern.
+	 *
+	 * @param pattern The object name pattern, <code>null</code> matches all names.
+	 * @return The matching names.
+	 */
+	public ObjectName[] getNames(ObjectName pattern) {
+		Object[] entries;
+		synchronized (contributions) {
+			entries = contributions.entrySet().toArray();
+		}
+		List result = new ArrayList();
+		for (int i = 0; i < entries.length; i++) {
+			Map.Entry entry = (Map.Entry) entries[i];
+			ObjectName name = (ObjectName) entry.getKey();
+			if (((WeakReference) entry.getValue()).get() == null) {
+				// contribution is no longer held by its parent
+				expunge(name, (WeakReference) entry.getValue());
+			} else if (pattern == null || pattern.apply(name)) {
+				result.add(name);
+			}
+		}
+		return (ObjectName[]) result.toArray(new ObjectName[result.size()]);
+	}
+
+	private void expunge(ObjectName name, WeakReference ref) {
+		synchronized (contributions) {
+			// the name may have been published again since the reference was cleared
+			if (contributions.get(name) == ref) {
+				contributions.remove(name);
+			}
+		}
+	}
+}
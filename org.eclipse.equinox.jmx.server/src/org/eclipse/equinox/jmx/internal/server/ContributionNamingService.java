@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.eclipse.equinox.jmx.common.JMXConstants;
+
+/**
+ * Assigns the object names of contributions.
+ * <p>
+ * Names are derived from the type of a contribution and a key which identifies its
+ * delegate, e.g. the symbolic name of a bundle, rather than from identity hash codes;
+ * the same delegate is therefore given the same name after the server is restarted,
+ * and clients may keep their cached proxies and subscriptions.  Should two live
+ * delegates map to the same name, the later is qualified with an <code>index</code> key.
+ * </p>
+ * <p>
+ * Each delegate is assigned a single, canonical <code>ObjectName</code> instance
+ * which is shared by all contributions of the delegate.  The service also maps names
+ * back to their delegates.  Delegates are weakly referenced, their names are released
+ * once they have been collected.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ContributionNamingService implements ContributionNamingServiceMBean {
+
+	public static final String OBJECT_NAME_STR = JMXConstants.DEFAULT_DOMAIN + ":type=ContributionNamingService"; //$NON-NLS-1$
+
+	private static final String TYPE_KEY = "type"; //$NON-NLS-1$
+	private static final String NAME_KEY = "name"; //$NON-NLS-1$
+	private static final String INDEX_KEY = "index"; //$NON-NLS-1$
+
+	// characters which may not appear in an unquoted key property value
+	private static final String SPECIAL_CHARACTERS = ",=:\"*?\n"; //$NON-NLS-1$
+
+	private static ContributionNamingService instance;
+
+	// guarded by this
+	// canonical name string -> NameReference, the reverse index
+	private final Map names = new HashMap();
+	// delegate -> ObjectName
+	private final Map delegateNames = new WeakHashMap();
+	private final ReferenceQueue collectedDelegates = new ReferenceQueue();
+	private long collisionCount;
+
+	private ContributionNamingService() {
+		super();
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionNamingService getDefault() {
+		if (instance == null) {
+			instance = new ContributionNamingService();
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the object name of the provided delegate, assigning one if the delegate has not
+	 * been named yet.
+	 *
+	 * @param delegate The delegate, or the contribution itself if it has no delegate.
+	 * @param type The value of the <code>type</code> key.
+	 * @param key The value of the <code>name</code> key, identifying the delegate among those of the same type.
+	 * @return The canonical object name of the delegate.
+	 * @throws MalformedObjectNameException If no name can be built from the type and key.
+	 */
+	public synchronized ObjectName getObjectName(Object delegate, String type, String key) throws MalformedObjectNameException {
+		expungeCollectedDelegates();
+		ObjectName result = (ObjectName) delegateNames.get(delegate);
+		if (result != null) {
+			return result;
+		}
+		Hashtable properties = new Hashtable();
+		properties.put(TYPE_KEY, quote(type));
+		properties.put(NAME_KEY, quote(key == null ? "" : key)); //$NON-NLS-1$
+		result = ObjectName.getInstance(JMXConstants.DEFAULT_DOMAIN, properties);
+		for (int index = 1; isAssigned(result.getCanonicalName()); index++) {
+			if (index == 1) {
+				collisionCount++;
+			}
+			properties.put(INDEX_KEY, Integer.toString(index));
+			result = ObjectName.getInstance(JMXConstants.DEFAULT_DOMAIN, properties);
+		}
+		String canonicalName = result.getCanonicalName();
+		names.put(canonicalName, new NameReference(delegate, canonicalName, collectedDelegates));
+		delegateNames.put(delegate, result);
+		return result;
+	}
+
+	/**
+	 * Get the delegate which was assigned the provided name.
+	 *
+	 * @param name The object name of a contribution.
+	 * @return The delegate, or <code>null</code> if the name is not assigned.
+	 */
+	public synchronized Object getDelegate(ObjectName name) {
+		NameReference ref = (NameReference) names.get(name.getCanonicalName());
+		return ref == null ? null : ref.get();
+	}
+
+	/**
+	 * Release the name of the provided delegate, the name may be assigned to another delegate.
+	 *
+	 * @param delegate The delegate.
+	 */
+	public synchronized void release(Object delegate) {
+		ObjectName name = (ObjectName) delegateNames.remove(delegate);
+		if (name != null) {
+			NameReference ref = (NameReference) names.remove(name.getCanonicalName());
+			if (ref != null) {
+				ref.clear();
+			}
+		}
+	}
+
+	private boolean isAssigned(String canonicalName) {
+		NameReference ref = (NameReference) names.get(canonicalName);
+		return ref != null && ref.get() != null;
+	}
+
+	private void expungeCollectedDelegates() {
+		NameReference ref;
+		while ((ref = (NameReference) collectedDelegates.poll()) != null) {
+			// the name may have been reassigned since
+			if (names.get(ref.canonicalName) == ref) {
+				names.remove(ref.canonicalName);
+			}
+		}
+	}
+
+	private static String quote(String value) {
+		if (value.length() == 0) {
+			return ObjectName.quote(value);
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (SPECIAL_CHARACTERS.indexOf(value.charAt(i)) != -1) {
+				return ObjectName.quote(value);
+			}
+		}
+		return value;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionNamingServiceMBean#getNameCount()
+	 */
+	public synchronized int getNameCount() {
+		expungeCollectedDelegates();
+		return names.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionNamingServiceMBean#getCollisionCount()
+	 */
+	public synchronized long getCollisionCount() {
+		return collisionCount;
+	}
+
+	/**
+	 * Weak reference to a named delegate.
+	 */
+	private static final class NameReference extends WeakReference {
+
+		final String canonicalName;
+
+		NameReference(Object delegate, String canonicalName, ReferenceQueue queue) {
+			super(delegate, queue);
+			this.canonicalName = canonicalName;
+		}
+	}
+}
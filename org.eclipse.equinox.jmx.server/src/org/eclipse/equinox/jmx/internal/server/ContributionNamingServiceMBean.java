@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+/**
+ * Management interface exposing the state of the <code>ContributionNamingService</code>.
+ *
+ * @since 1.0
+ */
+public interface ContributionNamingServiceMBean {
+
+	/**
+	 * Get the number of object names currently assigned.
+	 *
+	 * @return The number of assigned names.
+	 */
+	public int getNameCount();
+
+	/**
+	 * Get the number of names which had to be qualified with an index because the
+	 * name was already assigned to another delegate.
+	 *
+	 * @return The number of collisions.
+	 */
+	public long getCollisionCount();
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+import java.util.*;
+import javax.management.*;
+import org.eclipse.equinox.jmx.common.ContributionNotificationEvent;
+import org.eclipse.equinox.jmx.common.JMXConstants;
+
+/**
+ * Sends the state change notifications of contributions on a dedicated thread, so
+ * the thread which caused the state change (e.g. the framework event thread or the
+ * display thread) is never blocked by listeners.
+ * <p>
+ * The queue is bounded.  Update notifications for the same <code>ObjectName</code>
+ * which are queued within the coalescing window are merged into a single notification.
+ * When the queue is full further update notifications are dropped, whereas added
+ * and removed notifications are queued beyond the capacity so they are never lost,
+ * nor sent ahead of the notifications already queued for the same <code>ObjectName</code>.
+ * </p>
+ *
+ * @since 1.0
+ */
+public class ContributionNotificationDispatcher implements ContributionNotificationDispatcherMBean {
+
+	public static final String OBJECT_NAME_STR = JMXConstants.DEFAULT_DOMAIN + ":type=ContributionNotificationDispatcher"; //$NON-NLS-1$
+
+	static final String QUEUE_SIZE_PROPERTY_KEY = Activator.PI_NAMESPACE + ".notification.queueSize"; //$NON-NLS-1$
+	static final String COALESCE_WINDOW_PROPERTY_KEY = Activator.PI_NAMESPACE + ".notification.coalesceWindow"; //$NON-NLS-1$
+
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+	private static final long DEFAULT_COALESCE_WINDOW = 250;
+
+	private static ContributionNotificationDispatcher instance;
+
+	private final int capacity;
+	private final long coalesceWindow;
+
+	// guarded by this
+	private final LinkedList queue = new LinkedList();
+	private final Map pendingUpdates = new HashMap();
+	private Thread worker;
+	private long sequenceNumber;
+	private long dispatchedCount;
+	private long mergedCount;
+	private long droppedCount;
+
+	private ContributionNotificationDispatcher(int capacity, long coalesceWindow) {
+		this.capacity = capacity;
+		this.coalesceWindow = coalesceWindow;
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionNotificationDispatcher getDefault() {
+		if (instance == null) {
+			instance = new ContributionNotificationDispatcher(SystemProperties.getInt(QUEUE_SIZE_PROPERTY_KEY, DEFAULT_QUEUE_SIZE), SystemProperties.getInt(COALESCE_WINDOW_PROPERTY_KEY, (int) DEFAULT_COALESCE_WINDOW));
+		}
+		return instance;
+	}
+
+	/**
+	 * Queue a notification of the provided type to be sent by the source.
+	 *
+	 * @param name The object name of the source, used to merge update notifications.
+	 * @param type The <code>ContributionNotificationEvent</code> type.
+	 * @param source The broadcaster which sends the notification.
+	 */
+	public void dispatch(ObjectName name, String type, NotificationBroadcasterSupport source) {
+		boolean update = ContributionNotificationEvent.NOTIFICATION_UPDATED.equals(type);
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			if (update && name != null) {
+				PendingNotification pending = (PendingNotification) pendingUpdates.get(name);
+				if (pending != null && pending.source == source) {
+					pending.timeStamp = now;
+					mergedCount++;
+					return;
+				}
+			} else if (name != null) {
+				// later updates must not be merged into an update preceding this notification
+				pendingUpdates.remove(name);
+			}
+			// the queue is exceeded rather than losing structural changes
+			if (queue.size() < capacity || !update) {
+				PendingNotification pending = new PendingNotification(name, type, source, now, update ? now + coalesceWindow : now);
+				queue.addLast(pending);
+				if (update && name != null) {
+					pendingUpdates.put(name, pending);
+				}
+				startWorker();
+				notifyAll();
+				return;
+			}
+			droppedCount++;
+		}
+	}
+
+	/**
+	 * Stop the dispatch thread, notifications which have not been sent are discarded.
+	 */
+	public synchronized void stop() {
+		queue.clear();
+		pendingUpdates.clear();
+		if (worker != null) {
+			worker.interrupt();
+			worker = null;
+		}
+	}
+
+	private void startWorker() {
+		if (worker == null) {
+			worker = new Thread("Contribution Notification Dispatcher") { //$NON-NLS-1$
+				public void run() {
+					runWorker(this);
+				}
+			};
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	void runWorker(Thread thread) {
+		while (true) {
+			PendingNotification next;
+			synchronized (this) {
+				if (worker != thread) {
+					return;
+				}
+				if (queue.isEmpty()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// stopped or woken for new work, re-evaluate
+					}
+					continue;
+				}
+				next = (PendingNotification) queue.getFirst();
+				long delay = next.dueTime - System.currentTimeMillis();
+				if (delay > 0) {
+					try {
+						wait(delay);
+					} catch (InterruptedException e) {
+						// stopped, re-evaluate
+					}
+					continue;
+				}
+				queue.removeFirst();
+				if (next.name != null && pendingUpdates.get(next.name) == next) {
+					pendingUpdates.remove(next.name);
+				}
+			}
+			send(next);
+		}
+	}
+
+	private void send(PendingNotification pending) {
+		long seq;
+		synchronized (this) {
+			seq = sequenceNumber++;
+			dispatchedCount++;
+		}
+		try {
+			pending.source.sendNotification(new Notification(pending.type, pending.source, seq, pending.timeStamp));
+		} catch (RuntimeException e) {
+			Activator.log(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionNotificationDispatcherMBean#getQueuedCount()
+	 */
+	public synchronized int getQueuedCount() {
+		return queue.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionNotificationDispatcherMBean#getDispatchedCount()
+	 */
+	public synchronized long getDispatchedCount() {
+		return dispatchedCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionNotificationDispatcherMBean#getMergedCount()
+	 */
+	public synchronized long getMergedCount() {
+		return mergedCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionNotificationDispatcherMBean#getDroppedCount()
+	 */
+	public synchronized long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionNotificationDispatcherMBean#getCapacity()
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.internal.server.ContributionNotificationDispatcherMBean#getCoalesceWindow()
+	 */
+	public long getCoalesceWindow() {
+		return coalesceWindow;
+	}
+
+	private static final class PendingNotification {
+
+		final ObjectName name;
+		final String type;
+		final NotificationBroadcasterSupport source;
+		final long dueTime;
+		long timeStamp;
+
+		PendingNotification(ObjectName name, String type, NotificationBroadcasterSupport source, long timeStamp, long dueTime) {
+			this.name = name;
+			this.type = type;
+			this.source = source;
+			this.timeStamp = timeStamp;
+			this.dueTime = dueTime;
+		}
+	}
+}
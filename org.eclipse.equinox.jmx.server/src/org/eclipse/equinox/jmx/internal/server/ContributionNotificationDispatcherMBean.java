@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+/**
+ * Management interface exposing the state of the <code>ContributionNotificationDispatcher</code>.
+ *
+ * @since 1.0
+ */
+public interface ContributionNotificationDispatcherMBean {
+
+	/**
+	 * Get the number of notifications waiting to be dispatched.
+	 *
+	 * @return The number of queued notifications.
+	 */
+	public int getQueuedCount();
+
+	/**
+	 * Get the number of notifications which have been sent to listeners.
+	 *
+	 * @return The number of dispatched notifications.
+	 */
+	public long getDispatchedCount();
+
+	/**
+	 * Get the number of update notifications which were merged into a pending
+	 * update notification for the same contribution.
+	 *
+	 * @return The number of merged notifications.
+	 */
+	public long getMergedCount();
+
+	/**
+	 * Get the number of update notifications which were discarded because the
+	 * queue was full.
+	 *
+	 * @return The number of dropped notifications.
+	 */
+	public long getDroppedCount();
+
+	/**
+	 * Get the maximum number of update notifications which may be queued.  Added and
+	 * removed notifications are queued beyond the capacity.
+	 *
+	 * @return The queue capacity.
+	 */
+	public int getCapacity();
+
+	/**
+	 * Get the period, in milliseconds, during which update notifications for
+	 * the same contribution are merged.
+	 *
+	 * @return The coalescing window.
+	 */
+	public long getCoalesceWindow();
+}
@@ -11,15 +11,15 @@
 package org.eclipse.equinox.jmx.internal.server;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import javax.management.MBeanServer;
-import javax.management.MBeanServerFactory;
+import java.util.*;
+import javax.management.*;
 import javax.management.remote.JMXConnectorServer;
 import javax.management.remote.JMXServiceURL;
 import org.eclipse.core.runtime.*;
 import org.eclipse.equinox.jmx.server.IJMXConnectorServerProvider;
 import org.eclipse.osgi.util.NLS;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
 
 public class JMXServerFactory {
 
@@ -27,6 +27,27 @@ public class JMXServerFactory {
 	private static final String ATTRIBUTE_INITIALIZER_CLASS = "initializerClass"; //$NON-NLS-1$
 	private static final String ATTRIBUTE_PROTOCOL = "protocol"; //$NON-NLS-1$
 
+	static final String MBEAN_SERVER_PROPERTY_KEY = Activator.PI_NAMESPACE + ".mbeanServer"; //$NON-NLS-1$
+	static final String QUEUE_TIMEOUT_PROPERTY_KEY = Activator.PI_NAMESPACE + ".connector.queueTimeout"; //$NON-NLS-1$
+
+	private static final long DEFAULT_QUEUE_TIMEOUT = 30 * 1000;
+
+	/**
+	 * Create a private <code>MBeanServer</code>, the default.
+	 */
+	static final String MBEAN_SERVER_PRIVATE = "private"; //$NON-NLS-1$
+	/**
+	 * Use the platform <code>MBeanServer</code> of the vm, which also hosts the
+	 * <code>java.lang</code> MXBeans.  The server is published as an OSGi service
+	 * so other bundles, e.g. the OSGi JMX implementation, register their mbeans with it.
+	 */
+	static final String MBEAN_SERVER_PLATFORM = "platform"; //$NON-NLS-1$
+	/**
+	 * Use an <code>MBeanServer</code> published as an OSGi service, falling back to
+	 * the platform server if none is available.
+	 */
+	static final String MBEAN_SERVER_SERVICE = "service"; //$NON-NLS-1$
+
 	private static Map jmxProviderCache;
 
 	private JMXServerFactory() {
@@ -39,16 +60,157 @@ public class JMXServerFactory {
 	 * registered transport extension.
 	 */
 	public static JMXConnectorServer createJMXServer(String host, int port, String protocol, String domain, Map environment) throws IOException {
+		return createJMXServer(host, port, protocol, domain, createMBeanServer(domain), environment);
+	}
+
+	/**
+	 * Create and return a new JMXConnectorServer instance which serves the provided
+	 * <code>MBeanServer</code>.
+	 * 
+	 * @see #createMBeanServer(String)
+	 */
+	public static JMXConnectorServer createJMXServer(String host, int port, String protocol, String domain, MBeanServer mbeanServer, Map environment) throws IOException {
 		IJMXConnectorServerProvider provider = getProvider(protocol);
 		if (provider == null)
 			throw new IOException(NLS.bind(ServerMessages.protocol_not_available, protocol));
-		MBeanServer mbeanServer = MBeanServerFactory.createMBeanServer(domain);
 		JMXServiceURL providerURL = provider.getJMXServiceURL(host, port, protocol, domain);
 		if (providerURL == null)
 			providerURL = new JMXServiceURL(protocol, host, port);
 		return provider.newJMXConnectorServer(providerURL, environment, mbeanServer);
 	}
 
+	/**
+	 * Create a connector server which processes at most <code>maxRequests</code> requests
+	 * concurrently.  The requests of the connector are recorded by a <code>ConnectorMetrics</code>
+	 * mbean registered with the provided server.
+	 * 
+	 * @param maxRequests The worker limit of the connector, <code>0</code> if unlimited.
+	 * @see #createJMXServer(String, int, String, String, MBeanServer, Map)
+	 */
+	public static JMXConnectorServer createJMXServer(String host, int port, String protocol, String domain, MBeanServer mbeanServer, int maxRequests, Map environment) throws IOException {
+		ConnectorMetrics metrics = new ConnectorMetrics(protocol, port, maxRequests, SystemProperties.getLong(QUEUE_TIMEOUT_PROPERTY_KEY, DEFAULT_QUEUE_TIMEOUT));
+		JMXConnectorServer server = createJMXServer(host, port, protocol, domain, metrics.wrap(mbeanServer), environment);
+		try {
+			Activator.registerMBean(mbeanServer, metrics, metrics.getObjectName());
+		} catch (JMException e) {
+			Activator.log(e);
+		}
+		return server;
+	}
+
+	/**
+	 * Create a connector server for each entry of a comma separated list of
+	 * <code>protocol:port[:maxRequests]</code> entries, e.g. <code>rmi:8118:8,xmlrpc:8080:2</code>.
+	 * All connectors serve the same <code>MBeanServer</code>, each within its own worker limit.
+	 * Invalid entries, and entries whose connector cannot be created, are logged and left out.
+	 * 
+	 * @param host The hostname or ip address of the server.
+	 * @param connectors The list of connectors.
+	 * @param domain The jmx service url domain.
+	 * @param mbeanServer The shared server, see {@link #createMBeanServer(String)}.
+	 * @param environment The environment passed to each connector server.
+	 * @return The connector servers, not yet started.
+	 * @throws IOException If none of the connectors could be created.
+	 */
+	public static JMXConnectorServer[] createJMXServers(String host, String connectors, String domain, MBeanServer mbeanServer, Map environment) throws IOException {
+		List servers = new ArrayList();
+		IOException failure = null;
+		StringTokenizer tokenizer = new StringTokenizer(connectors, ","); //$NON-NLS-1$
+		while (tokenizer.hasMoreTokens()) {
+			String connector = tokenizer.nextToken().trim();
+			if (connector.length() == 0) {
+				continue;
+			}
+			String[] fields = split(connector);
+			try {
+				int port = Integer.parseInt(fields[1]);
+				int maxRequests = fields.length > 2 ? Math.max(0, Integer.parseInt(fields[2])) : 0;
+				servers.add(createJMXServer(host, port, fields[0], domain, mbeanServer, maxRequests, environment));
+			} catch (NumberFormatException e) {
+				Activator.log(NLS.bind(ServerMessages.invalid_connector, connector));
+			} catch (ArrayIndexOutOfBoundsException e) {
+				Activator.log(NLS.bind(ServerMessages.invalid_connector, connector));
+			} catch (IOException e) {
+				Activator.log(e);
+				failure = e;
+			}
+		}
+		if (servers.isEmpty()) {
+			throw failure != null ? failure : new IOException(NLS.bind(ServerMessages.invalid_connector, connectors));
+		}
+		return (JMXConnectorServer[]) servers.toArray(new JMXConnectorServer[servers.size()]);
+	}
+
+	private static String[] split(String connector) {
+		StringTokenizer tokenizer = new StringTokenizer(connector, ":"); //$NON-NLS-1$
+		String[] fields = new String[tokenizer.countTokens()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = tokenizer.nextToken().trim();
+		}
+		return fields;
+	}
+
+	/**
+	 * Create the <code>MBeanServer</code> exposed by the connector servers.  Depending on
+	 * the <code>org.eclipse.equinox.jmx.server.mbeanServer</code> property this is a
+	 * private server, the platform server or a server published as an OSGi service.
+	 * 
+	 * @param domain The default domain of a private server.
+	 * @return The server, wrapped so that contributions are resolved on demand.
+	 */
+	public static MBeanServer createMBeanServer(String domain) {
+		String mode = getMBeanServerMode();
+		MBeanServer mbeanServer = null;
+		if (MBEAN_SERVER_SERVICE.equals(mode)) {
+			mbeanServer = getServiceMBeanServer();
+		}
+		if (mbeanServer == null && !MBEAN_SERVER_PRIVATE.equals(mode)) {
+			mbeanServer = getPlatformMBeanServer();
+		}
+		if (mbeanServer == null) {
+			mbeanServer = MBeanServerFactory.createMBeanServer(domain);
+		}
+		// contributions are resolved on demand and only registered once accessed by a client
+		return new ContributionMBeanServerForwarder(mbeanServer);
+	}
+
+	/**
+	 * Returns <code>true</code> if the server is configured to share its <code>MBeanServer</code>
+	 * with other bundles.
+	 */
+	static boolean isSharedMBeanServer() {
+		return !MBEAN_SERVER_PRIVATE.equals(getMBeanServerMode());
+	}
+
+	private static String getMBeanServerMode() {
+		String mode = System.getProperty(MBEAN_SERVER_PROPERTY_KEY);
+		if (MBEAN_SERVER_PLATFORM.equals(mode) || MBEAN_SERVER_SERVICE.equals(mode)) {
+			return mode;
+		}
+		return MBEAN_SERVER_PRIVATE;
+	}
+
+	private static MBeanServer getServiceMBeanServer() {
+		Activator activator = Activator.getDefault();
+		BundleContext context = activator == null ? null : activator.getBundleContext();
+		if (context == null) {
+			return null;
+		}
+		ServiceReference reference = context.getServiceReference(MBeanServer.class.getName());
+		return reference == null ? null : (MBeanServer) context.getService(reference);
+	}
+
+	private static MBeanServer getPlatformMBeanServer() {
+		// java.lang.management is not available on all supported execution environments
+		try {
+			Class factoryClass = Class.forName("java.lang.management.ManagementFactory"); //$NON-NLS-1$
+			return (MBeanServer) factoryClass.getMethod("getPlatformMBeanServer", new Class[0]).invoke(null, new Object[0]); //$NON-NLS-1$
+		} catch (Exception e) {
+			Activator.log(ServerMessages.platform_mbean_server_not_available, e, IStatus.WARNING);
+			return null;
+		}
+	}
+
 	private static IJMXConnectorServerProvider getProvider(String protocol) {
 		final Class providerClass = (Class) getJMXProviderCache().get(protocol);
 		if (providerClass != null) {
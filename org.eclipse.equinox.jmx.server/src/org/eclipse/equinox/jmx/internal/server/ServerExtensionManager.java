@@ -18,7 +18,7 @@ public class ServerExtensionManager extends Observable implements IRegistryChang
 
 	public static class ContributionExtensionDefinition {
 
-		private static final String ATTRIBUTE_CLASS = "class"; //$NON-NLS-1$
+		static final String ATTRIBUTE_CLASS = "class"; //$NON-NLS-1$
 		private static final String ATTRIBUTE_IS_ROOT = "isroot"; //$NON-NLS-1$
 		private static final String ELEMENT_CONTRIBUTION = "contribution"; //$NON-NLS-1$
 		private static final String ELEMENT_EXTENDS_CLASS = "extendsClass"; //$NON-NLS-1$
@@ -74,15 +74,72 @@ public class ServerExtensionManager extends Observable implements IRegistryChang
 		}
 	}
 
+	/**
+	 * The providers indexed for a runtime class.  The extending provider candidates are
+	 * computed from the declared <code>extendsClass</code> elements, the providers
+	 * themselves are resolved and memoized by <code>ContributionProvider</code>.
+	 */
+	public static class ProviderIndexEntry {
+
+		private final ContributionExtensionDefinition[] extendingCandidates;
+		private ContributionProvider contributingProvider;
+		private boolean contributingProviderResolved;
+		private ContributionProvider[] extendingProviders;
+		private boolean extendingProvidersResolved;
+
+		ProviderIndexEntry(ContributionExtensionDefinition[] extendingCandidates) {
+			this.extendingCandidates = extendingCandidates;
+		}
+
+		public ContributionExtensionDefinition[] getExtendingCandidates() {
+			return extendingCandidates;
+		}
+
+		public synchronized boolean isContributingProviderResolved() {
+			return contributingProviderResolved;
+		}
+
+		public synchronized ContributionProvider getContributingProvider() {
+			return contributingProvider;
+		}
+
+		public synchronized void setContributingProvider(ContributionProvider contributingProvider) {
+			this.contributingProvider = contributingProvider;
+			this.contributingProviderResolved = true;
+		}
+
+		public synchronized boolean isExtendingProvidersResolved() {
+			return extendingProvidersResolved;
+		}
+
+		public synchronized ContributionProvider[] getExtendingProviders() {
+			return extendingProviders;
+		}
+
+		public synchronized void setExtendingProviders(ContributionProvider[] extendingProviders) {
+			this.extendingProviders = extendingProviders;
+			this.extendingProvidersResolved = true;
+		}
+	}
+
+	private static final ContributionExtensionDefinition[] NO_DEFINITIONS = new ContributionExtensionDefinition[0];
+
 	private static Map providers;
 	private static ServerExtensionManager instance;
+	// incremented whenever the contribution extensions change; guarded by generationLock rather
+	// than the class, which stays locked while the extensions are loaded
+	private static final Object generationLock = new Object();
+	private static int providerGeneration;
+
+	// runtime class -> ProviderIndexEntry, discarded whenever the contribution extensions change
+	private final Map providerIndex = new WeakHashMap();
 
 	private ServerExtensionManager() {
 		providers = new Hashtable();
 		initExtensions();
 	}
 
-	public static ServerExtensionManager getInstance() {
+	public static synchronized ServerExtensionManager getInstance() {
 		if (instance == null) {
 			instance = new ServerExtensionManager();
 		}
@@ -97,6 +154,82 @@ public class ServerExtensionManager extends Observable implements IRegistryChang
 		return (ContributionExtensionDefinition) providers.get(providerClassName);
 	}
 
+	/**
+	 * Get the provider index entry for the provided runtime class.  The entry is
+	 * memoized until the contribution extensions change.
+	 * 
+	 * @param cls The runtime class of an object to be contributed.
+	 * @return The index entry for the class.
+	 */
+	public ProviderIndexEntry getProviderIndexEntry(Class cls) {
+		synchronized (providerIndex) {
+			ProviderIndexEntry entry = (ProviderIndexEntry) providerIndex.get(cls);
+			if (entry == null) {
+				entry = new ProviderIndexEntry(computeExtendingCandidates(cls));
+				providerIndex.put(cls, entry);
+			}
+			return entry;
+		}
+	}
+
+	private ContributionExtensionDefinition[] computeExtendingCandidates(Class cls) {
+		Set typeNames = new HashSet();
+		collectTypeNames(cls, typeNames);
+		List result = null;
+		Iterator iter = providers.values().iterator();
+		while (iter.hasNext()) {
+			ContributionExtensionDefinition defn = (ContributionExtensionDefinition) iter.next();
+			Set extendsClasses = defn.getExtendsClasses();
+			if (extendsClasses == null) {
+				continue;
+			}
+			Iterator extendsIter = extendsClasses.iterator();
+			while (extendsIter.hasNext()) {
+				if (typeNames.contains(extendsIter.next())) {
+					if (result == null) {
+						result = new ArrayList(2);
+					}
+					result.add(defn);
+					break;
+				}
+			}
+		}
+		return result == null ? NO_DEFINITIONS : (ContributionExtensionDefinition[]) result.toArray(new ContributionExtensionDefinition[result.size()]);
+	}
+
+	private static void collectTypeNames(Class cls, Set typeNames) {
+		for (; cls != null; cls = cls.getSuperclass()) {
+			if (!typeNames.add(cls.getName())) {
+				continue;
+			}
+			Class[] interfaces = cls.getInterfaces();
+			for (int i = 0; i < interfaces.length; i++) {
+				collectTypeNames(interfaces[i], typeNames);
+			}
+		}
+	}
+
+	private void clearProviderIndex() {
+		synchronized (providerIndex) {
+			providerIndex.clear();
+		}
+		synchronized (generationLock) {
+			providerGeneration++;
+		}
+	}
+
+	/**
+	 * Get the generation of the contribution extensions.  The generation changes whenever
+	 * a provider is added or removed, so providers resolved earlier must be resolved again.
+	 * 
+	 * @return The generation of the contribution extensions.
+	 */
+	public static int getProviderGeneration() {
+		synchronized (generationLock) {
+			return providerGeneration;
+		}
+	}
+
 	private void initExtensions() {
 		registerContributions();
 		RegistryFactory.getRegistry().addRegistryChangeListener(this);
@@ -105,25 +238,48 @@ public class ServerExtensionManager extends Observable implements IRegistryChang
 	private void registerContributions() {
 		IExtensionPoint point = RegistryFactory.getRegistry().getExtensionPoint(Activator.PI_NAMESPACE, Activator.PT_CONTRIBUTION);
 		IExtension[] types = point.getExtensions();
+		List elems = new ArrayList();
 		for (int i = 0; i < types.length; i++) {
-			registerContribution(types[i]);
+			elems.addAll(Arrays.asList(types[i].getConfigurationElements()));
+		}
+		// provider constructors may be expensive, instantiate them in parallel
+		final ContributionExtensionDefinition[] defns = new ContributionExtensionDefinition[elems.size()];
+		List tasks = new ArrayList(defns.length);
+		for (int i = 0; i < defns.length; i++) {
+			final int index = i;
+			final IConfigurationElement elem = (IConfigurationElement) elems.get(i);
+			tasks.add(new ContributionInitializer.Task(elem.getAttribute(ContributionExtensionDefinition.ATTRIBUTE_CLASS)) {
+				public void run() {
+					defns[index] = new ContributionExtensionDefinition(elem);
+				}
+			});
+		}
+		ContributionInitializer.getDefault().runAll(tasks);
+		for (int i = 0; i < defns.length; i++) {
+			if (defns[i] != null) {
+				registerDefinition(defns[i]);
+			}
 		}
 	}
 
 	private void registerContribution(IExtension ext) {
 		IConfigurationElement[] configElems = ext.getConfigurationElements();
 		for (int j = 0; j < configElems.length; j++) {
-			ContributionExtensionDefinition defn = new ContributionExtensionDefinition(configElems[j]);
-			if (defn.getContributionProvider() == null) {
-				// extension was removed or an error loading the class occurred
-				// remove from map if exists
-				defn = (ContributionExtensionDefinition) providers.remove(defn.getProviderClassName());
-			} else {
-				providers.put(defn.getProviderClassName(), defn);
-			}
-			setChanged();
-			notifyObservers(defn);
+			registerDefinition(new ContributionExtensionDefinition(configElems[j]));
+		}
+	}
+
+	private void registerDefinition(ContributionExtensionDefinition defn) {
+		if (defn.getContributionProvider() == null) {
+			// extension was removed or an error loading the class occurred
+			// remove from map if exists
+			defn = (ContributionExtensionDefinition) providers.remove(defn.getProviderClassName());
+		} else {
+			providers.put(defn.getProviderClassName(), defn);
 		}
+		clearProviderIndex();
+		setChanged();
+		notifyObservers(defn);
 	}
 
 	/* (non-Javadoc)
@@ -25,6 +25,10 @@ public final class ServerMessages extends NLS {
 	public static String duplicate_protocol_provider;
 	public static String exception_occurred;
 	public static String protocol_not_available;
+	public static String platform_mbean_server_not_available;
+	public static String invalid_connector;
+	public static String connector_busy;
+	public static String connector_not_started;
 
 	private ServerMessages() {
 		// disallow instantiations
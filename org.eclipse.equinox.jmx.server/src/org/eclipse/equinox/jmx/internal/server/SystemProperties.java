@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.internal.server;
+
+/**
+ * Reads the numeric system properties which tune the server.  Malformed values
+ * are logged and the default applies, negative values are read as <code>0</code>.
+ *
+ * @since 1.0
+ */
+public final class SystemProperties {
+
+	private SystemProperties() {
+		super();
+	}
+
+	/**
+	 * @param key The name of the property.
+	 * @param defaultValue The value if the property is not set or malformed.
+	 * @return The value of the property.
+	 */
+	public static int getInt(String key, int defaultValue) {
+		return (int) Math.min(getLong(key, defaultValue), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param key The name of the property.
+	 * @param defaultValue The value if the property is not set or malformed.
+	 * @return The value of the property.
+	 */
+	public static long getLong(String key, long defaultValue) {
+		String value = System.getProperty(key);
+		if (value != null) {
+			try {
+				return Math.max(0, Long.parseLong(value.trim()));
+			} catch (NumberFormatException nfe) {
+				Activator.log(nfe);
+			}
+		}
+		return defaultValue;
+	}
+}
@@ -13,12 +13,13 @@ package org.eclipse.equinox.jmx.server;
 
 import java.io.*;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import javax.management.*;
+import javax.management.remote.MBeanServerForwarder;
 import org.eclipse.equinox.jmx.common.*;
-import org.eclipse.equinox.jmx.common.util.ByteArrayHolder;
-import org.eclipse.equinox.jmx.internal.server.Activator;
-import org.eclipse.equinox.jmx.internal.server.ContributionMessages;
+import org.eclipse.equinox.jmx.internal.server.*;
 
 /**
  * A <code>Contribution</code> acts as a mediator between the objects which users would like to
@@ -34,26 +35,75 @@ import org.eclipse.equinox.jmx.internal.server.ContributionMessages;
  * @since 1.0
  */
 
-public abstract class Contribution extends NotificationBroadcasterSupport implements DynamicMBean {
-
-	private static long sequenceNumber;
+public abstract class Contribution extends NotificationBroadcasterSupport implements DynamicMBean, MBeanRegistration {
 
 	// container for all contributions' delegate objects, weak insurance for contributions
-	// attempting to utilize the same delegate
-	private static Map contributionDelegates = new Hashtable();
+	// attempting to utilize the same delegate; the entry of a contribution is removed once
+	// the contribution is released, see release()
+	private static final ContributionDelegateRegistry contributionDelegates = ContributionDelegateRegistry.getDefault();
+
+	// operations every contribution exposes in addition to those of the implementing contribution
+	private static MBeanOperationInfo[] contributionOperations;
+
+	// merged mbean infos keyed by the info provided by the implementing contribution; keyed by the
+	// provided info rather than by class as e.g. service contributions describe the service's class.
+	// each value is a MergedMBeanInfo, recording the attributes the info was merged with
+	private static final Map mergedMBeanInfos = new WeakHashMap();
 
-	// contribution image cache
-	private static Map imageCache = new Hashtable();
+	// contribution image cache, image locations are mapped to content based ids which are mapped to the image data
+	private static Map imageIds = new Hashtable();
+	private static Map images = new Hashtable();
 
 	// current proxy for this contribution which is exposed to clients
 	private ContributionProxy proxy;
 
-	// set true when the implementing contribution fires a state changed event, calling create proxy with this set to true would result in a new proxy being allocated
+	// set true when the implementing contribution fires a state changed event, calling create proxy with this set to true would result in a new proxy being allocated; guarded by this
 	private boolean stateChanged;
 
-	// the unique object name of this contribution that is registered with the server
+	// source of proxy versions, seeded with the time so versions of a restarted server are not mistaken for current ones
+	private static long versionSequence = System.currentTimeMillis();
+
+	// fingerprint of the state exposed to clients when it was last sampled, guarded by this
+	private long fingerprint;
+	private boolean fingerprinted;
+
+	// version of the first proxy, and the version at which each proxy field last changed
+	private long initialVersion;
+	private long nameVersion;
+	private long propertiesVersion;
+	private long imageVersion;
+	private long infoVersion;
+
+	// the unique object name of this contribution that is registered with the server, assigned on first use; guarded by this
 	private ObjectName objectName;
 
+	// the name this contribution is registered under with the server, null while not registered; guarded by this
+	private ObjectName registeredName;
+
+	// listeners added while registered, as listener, filter and handback triples; the server does not
+	// remove them when the contribution is unregistered, see postDeregister(); guarded by this
+	private final List registeredListeners = new ArrayList(2);
+
+	// child contributions keyed by their delegate, guards the child contribution cache
+	private final Map childContributions = new HashMap();
+
+	// ordered child contributions, null when they must be recomputed from getChildren()
+	private Contribution[] cachedChildContributions;
+
+	// the thread recomputing the child contributions, null if none
+	private Thread childContributionsComputer;
+	// incremented each time the child contributions are invalidated
+	private int childContributionsVersion;
+
+	// providers which extend this contribution's delegate, resolved on first use
+	private ContributionProvider[] extendingProviders;
+	private boolean extendingProvidersResolved;
+	// the generation of the contribution extensions the providers of the children were resolved with
+	private int providerGeneration;
+
+	// the contribution which contributed this contribution as a child, null if none
+	private Contribution parentContribution;
+
 	/**
 	 * The <code>Object</code> delegate that is associated with this <code>Contribution</code>.
 	 * <p>
@@ -83,22 +133,9 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 	 */
 	public Contribution(Object contributionDelegate) {
 		this.contributionDelegate = contributionDelegate;
-		Contribution priorContrib = null;
-		if (contributionDelegate != null) {
-			priorContrib = (Contribution) contributionDelegates.get(contributionDelegate);
-		}
-		if (priorContrib != null) {
-			objectName = priorContrib.getObjectName();
-		} else {
-			try {
-				String objectNameStr = JMXConstants.DEFAULT_DOMAIN + ":type=" + getClass().getName() + hashCode(); //$NON-NLS-1$
-				objectName = ObjectName.getInstance(objectNameStr);
-			} catch (MalformedObjectNameException e) {
-				Activator.logError(e);
-			}
-			if (contributionDelegate != null) {
-				contributionDelegates.put(this.contributionDelegate, this);
-			}
+		// the object name is assigned lazily, implementations may not be initialized yet
+		if (contributionDelegate != null && contributionDelegates.getContribution(contributionDelegate) == null) {
+			contributionDelegates.put(this.contributionDelegate, this);
 		}
 	}
 
@@ -114,6 +151,14 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 	 * wishes to contribute as sub-contributions.  The objects 
 	 * returned may or may not be available to clients; their availability depends
 	 * on a supporting <code>ContributionProvider</code> existing.
+	 * <p>
+	 * The children are cached, this method is only called again after this contribution
+	 * fires a <code>NOTIFICATION_ADDED</code> or <code>NOTIFICATION_REMOVED</code> event, or
+	 * after one of its children fires a <code>NOTIFICATION_REMOVED</code> event.  Implementations
+	 * must fire one of these events when their children change; neither a <code>NOTIFICATION_UPDATED</code>
+	 * event nor a change detected by sampling refreshes the children.  This method is not called
+	 * while any lock of the contribution is held.
+	 * </p>
 	 * 
 	 * @return The objects this <code>Contribution</code> wishes to contribute.
 	 */
@@ -138,7 +183,9 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 	 * Derived classes must return an <code>MBeanInfo</code> object 
 	 * which contains the operations intended to be exposed.  The object
 	 * returned is manipulated to include <code>Contribution</code> specific
-	 * operations to support traversal.
+	 * operations to support traversal.  The manipulated object is cached
+	 * for as long as the returned object is in use, derived classes should
+	 * therefore return the same object while their description is unchanged.
 	 * 
 	 * @param delegate The delegate object associated with this contribution.
 	 * @return The MBeanInfo object which encapsulates the functionality of the derived contribution.
@@ -156,6 +203,51 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 	 */
 	protected abstract Object invokeOperation(String operationName, Object[] args, String[] argTypes);
 
+	/**
+	 * Get the value of the <code>type</code> key of this contribution's object name.
+	 * 
+	 * @return The type of this contribution, by default the unqualified name of its class.
+	 */
+	protected String getObjectNameType() {
+		String className = getClass().getName();
+		return className.substring(className.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Get the value of the <code>name</code> key of this contribution's object name.  The
+	 * key should identify the delegate among the contributions of the same type, and
+	 * should not change while the delegate exists nor when the server is restarted, so
+	 * clients may keep using the name.
+	 * 
+	 * @return The key of this contribution, by default its name.
+	 */
+	protected String getObjectNameKey() {
+		return getName();
+	}
+
+	/**
+	 * Derived classes may declare typed, read-only attributes which are exposed in this
+	 * contribution's <code>MBeanInfo</code> and returned by <code>getAttribute</code> and
+	 * <code>getAttributes</code>.  The same array should be returned on each call, it is
+	 * typically shared by all instances of the contribution class.
+	 * 
+	 * @return The attributes of this contribution, or <code>null</code> if none.
+	 */
+	protected ContributionAttribute[] getContributionAttributes() {
+		return null;
+	}
+
+	/**
+	 * Take a sample of the state which this contribution's attributes are read from.  The
+	 * sample is taken once per <code>getAttributes</code> request, so that attributes
+	 * read together are consistent and expensive state is only queried once.
+	 * 
+	 * @return The sample passed to <code>ContributionAttribute.getValue</code>, by default the delegate.
+	 */
+	protected Object sampleAttributes() {
+		return contributionDelegate;
+	}
+
 	/**
 	 * Gets the <code>Contribution</code> instance that was constructed with the provided
 	 * <code>contributionDelegate</code> or null if no such <code>Contribution</code> was created.
@@ -163,7 +255,7 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 	 * @return The <code>Contribution</code>, or null if not found.
 	 */
 	public static final Contribution getContribution(final Object contributionDelegate) {
-		return (Contribution)contributionDelegates.get(contributionDelegate);
+		return contributionDelegates.getContribution(contributionDelegate);
 	}
 	
 	/**
@@ -182,42 +274,145 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 	 * @see org.eclipse.equinox.jmx.common.ContributionProxy
 	 * @return A newly allocated <code>ContributionProxy</code>.
 	 */
-	public final ContributionProxy createProxy() {
+	public final synchronized ContributionProxy createProxy() {
 		if (proxy == null || stateChanged) {
-			ByteArrayHolder holder = null;
-			URL imageUrl = getImageLocation();
-			// image URL may be null depending on contribution state
-			if (imageUrl != null) {
-				if ((holder = (ByteArrayHolder) imageCache.get(imageUrl)) == null) {
-					// create byte array holder from image data and add to cache
-					InputStream in = null;
+			String name = getName();
+			Set properties = getProperties();
+			String imageId = getImageId();
+			MBeanInfo info = getMBeanInfo();
+			if (proxy == null) {
+				long version = nextVersion();
+				initialVersion = nameVersion = propertiesVersion = imageVersion = infoVersion = version;
+				proxy = new ContributionProxy(name, properties, imageId, getObjectName(), info, version);
+			} else {
+				// only allocate a new version if the state exposed to clients has changed
+				boolean nameChanged = !isEqual(name, proxy.getName());
+				boolean propertiesChanged = !isEqual(properties, proxy.getContributionProperties());
+				boolean imageChanged = !isEqual(imageId, proxy.getImageId());
+				boolean infoChanged = !isEqual(info, proxy.getMBeanInfo());
+				if (nameChanged || propertiesChanged || imageChanged || infoChanged) {
+					long version = nextVersion();
+					if (nameChanged) {
+						nameVersion = version;
+					}
+					if (propertiesChanged) {
+						propertiesVersion = version;
+					}
+					if (imageChanged) {
+						imageVersion = version;
+					}
+					if (infoChanged) {
+						infoVersion = version;
+					}
+					proxy = new ContributionProxy(name, properties, imageId, getObjectName(), info, version);
+				}
+			}
+			stateChanged = false;
+		}
+		return proxy;
+	}
+
+	/**
+	 * Get the fields of this contribution's proxy which have changed since the provided version.
+	 * All fields are returned if the version is unknown to this contribution.
+	 * 
+	 * @param version The version of the client's <code>ContributionProxy</code>.
+	 * @return The changed fields along with the current version.
+	 */
+	public final synchronized ContributionDelta getProxyDelta(long version) {
+		ContributionProxy current = createProxy();
+		if (version == current.getVersion()) {
+			return new ContributionDelta(version, 0, null, null, null, null);
+		}
+		int changes = 0;
+		if (version < initialVersion || version > current.getVersion()) {
+			changes = ContributionDelta.NAME | ContributionDelta.PROPERTIES | ContributionDelta.IMAGE | ContributionDelta.MBEAN_INFO;
+		} else {
+			if (nameVersion > version) {
+				changes |= ContributionDelta.NAME;
+			}
+			if (propertiesVersion > version) {
+				changes |= ContributionDelta.PROPERTIES;
+			}
+			if (imageVersion > version) {
+				changes |= ContributionDelta.IMAGE;
+			}
+			if (infoVersion > version) {
+				changes |= ContributionDelta.MBEAN_INFO;
+			}
+		}
+		return new ContributionDelta(current.getVersion(), changes, current.getName(), current.getContributionProperties(), current.getImageId(), current.getMBeanInfo());
+	}
+
+	private static synchronized long nextVersion() {
+		return ++versionSequence;
+	}
+
+	private static boolean isEqual(Object o1, Object o2) {
+		return o1 == o2 || (o1 != null && o1.equals(o2));
+	}
+
+	/**
+	 * Get the data of the image with the provided id.  Any image of any contribution
+	 * may be retrieved from any contribution.
+	 * 
+	 * @param imageId The id of the image, as provided by <code>ContributionProxy.getImageId()</code>.
+	 * @return The raw image data, or <code>null</code> if no image with the id has been loaded.
+	 */
+	public final byte[] getImage(String imageId) {
+		return imageId == null ? null : (byte[]) images.get(imageId);
+	}
+
+	private String getImageId() {
+		URL imageUrl = getImageLocation();
+		// image URL may be null depending on contribution state
+		if (imageUrl == null) {
+			return null;
+		}
+		String imageId = (String) imageIds.get(imageUrl);
+		if (imageId == null) {
+			// load image data, the same image provided from different locations is shared under the same id
+			InputStream in = null;
+			try {
+				in = imageUrl.openStream();
+				ByteArrayOutputStream bout = new ByteArrayOutputStream();
+				byte[] buf = new byte[512];
+				int nread;
+				while ((nread = in.read(buf)) != -1) {
+					bout.write(buf, 0, nread);
+				}
+				byte[] data = bout.toByteArray();
+				imageId = computeImageId(data);
+				images.put(imageId, data);
+				imageIds.put(imageUrl, imageId);
+			} catch (IOException e) {
+				Activator.logError(e);
+			} catch (NoSuchAlgorithmException e) {
+				Activator.logError(e);
+			} finally {
+				if (in != null) {
 					try {
-						in = imageUrl.openStream();
-						ByteArrayOutputStream bout = new ByteArrayOutputStream();
-						byte[] buf = new byte[512];
-						int nread;
-						while ((nread = in.read(buf)) != -1) {
-							bout.write(buf, 0, nread);
-						}
-						holder = new ByteArrayHolder(bout.toByteArray());
-						imageCache.put(imageUrl, holder);
+						in.close();
 					} catch (IOException e) {
 						Activator.logError(e);
-					} finally {
-						if (in != null) {
-							try {
-								in.close();
-							} catch (IOException e) {
-								Activator.logError(e);
-							}
-						}
 					}
 				}
 			}
-			proxy = new ContributionProxy(getName(), getProperties(), holder, getObjectName(), getMBeanInfo());
-			stateChanged = false;
 		}
-		return proxy;
+		return imageId;
+	}
+
+	private static String computeImageId(byte[] data) throws NoSuchAlgorithmException {
+		byte[] digest = MessageDigest.getInstance("SHA-1").digest(data); //$NON-NLS-1$
+		StringBuffer result = new StringBuffer(digest.length * 2);
+		for (int i = 0; i < digest.length; i++) {
+			int b = digest[i] & 0xff;
+			if (b < 0x10) {
+				result.append('0');
+			}
+			result.append(Integer.toHexString(b));
+		}
+		return result.toString();
 	}
 
 	/**
@@ -225,58 +420,227 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 	 * A <code>Contribution</code>s children are only registered with the server if
 	 * <code>ContributionProvider</code> exists which can wrap each child returned by
 	 * the <code>Contribution</code>.
+	 * <p>
+	 * Child contributions are cached per delegate, see {@link #getChildren()} for when the
+	 * cache is recomputed.  The contributions of delegates which are no longer children are
+	 * released and unregistered from the server when the cache is recomputed.
+	 * </p>
 	 * 
 	 * @return The list of child contributions, null if no children.
 	 */
 	public final ContributionProxy[] getChildContributions() {
-		ContributionProxy[] result = getChildContributionProxies();
+		Contribution[] children = getChildContributionList();
+		if (children.length == 0) {
+			return null;
+		}
+		ContributionProxy[] proxies = new ContributionProxy[children.length];
+		for (int i = 0; i < children.length; i++) {
+			proxies[i] = children[i].createProxy();
+		}
+		return proxies;
+	}
+
+	/**
+	 * Get the contributions whose proxies are returned by {@link #getChildContributions()}.
+	 * 
+	 * @return The child contributions, never <code>null</code>.
+	 */
+	final Contribution[] getChildContributionList() {
+		Contribution[] result = getCachedChildContributions();
 		if (!(this instanceof ContributionProvider)) {
 			// attempt to locate any providers which may also contribute to
 			// this contributions's delegate.
 			if (contributionDelegate != null) {
-				ContributionProxy[] delegateProxies = null;
-				ContributionProvider[] delegateProviders = ContributionProvider.getExtendingProviders(contributionDelegate);
+				Contribution[] delegateContributions = null;
+				ContributionProvider[] delegateProviders = getDelegateProviders();
 				if (delegateProviders != null) {
-					delegateProxies = getChildContributions(delegateProviders);
+					delegateContributions = getChildContributions(delegateProviders);
 				}
-				if (delegateProxies != null) {
-					ContributionProxy[] oldResult = (result == null ? (result = new ContributionProxy[0]) : result);
-					result = new ContributionProxy[result.length + delegateProxies.length];
+				if (delegateContributions != null) {
+					Contribution[] oldResult = result;
+					result = new Contribution[oldResult.length + delegateContributions.length];
 					System.arraycopy(oldResult, 0, result, 0, oldResult.length);
-					System.arraycopy(delegateProxies, 0, result, oldResult.length, delegateProxies.length);
+					System.arraycopy(delegateContributions, 0, result, oldResult.length, delegateContributions.length);
 				}
 			}
 		}
 		return result;
 	}
 
-	private ContributionProxy[] getChildContributionProxies() {
-		List proxies = null;
-		Object[] childs = getChildren();
-		if (childs != null) {
-			for (int i = 0; i < childs.length; i++) {
-				ContributionProvider provider = null;
-				if (this instanceof ContributionProvider && ((ContributionProvider) this).contributesType(childs[i])) {
-					provider = (ContributionProvider) this;
-				} else {
-					provider = ContributionProvider.getProvider(childs[i]);
-				}
-				if (provider == null) {
-					continue;
+	/**
+	 * Get a range of this contribution's list of child contributions.  The children are
+	 * ordered as returned by {@link #getChildContributions()}.
+	 * 
+	 * @param offset The index of the first child contribution to return.
+	 * @param limit The maximum number of child contributions to return, a value less than or equal to zero returns all remaining children.
+	 * @return The requested page of child contributions along with the total number of children.
+	 */
+	public final ContributionPage getChildContributionsPage(int offset, int limit) {
+		Contribution[] children = getChildContributionList();
+		int totalCount = children.length;
+		offset = Math.min(Math.max(offset, 0), totalCount);
+		int count = totalCount - offset;
+		if (limit > 0 && limit < count) {
+			count = limit;
+		}
+		// only the proxies of the requested page are created
+		ContributionProxy[] page = new ContributionProxy[count];
+		for (int i = 0; i < count; i++) {
+			page[i] = children[offset + i].createProxy();
+		}
+		return new ContributionPage(page, offset, totalCount);
+	}
+
+	/**
+	 * Get the subtree rooted at this contribution.  Levels are expanded breadth first,
+	 * the children of the contributions of a level are computed in parallel.
+	 * 
+	 * @param depth The number of levels of descendants to include.
+	 * @param maxNodes The maximum number of nodes to include, a value less than or equal to zero applies the server's limit.
+	 * @return The snapshot, node <code>0</code> is a proxy of this contribution.
+	 */
+	public final ContributionSnapshot getSubtreeSnapshot(int depth, int maxNodes) {
+		return ContributionSnapshotBuilder.getDefault().build(this, depth, maxNodes);
+	}
+
+	private Contribution[] getCachedChildContributions() {
+		Map previousContributions;
+		int version;
+		int generation = ServerExtensionManager.getProviderGeneration();
+		synchronized (childContributions) {
+			checkProviderGeneration(generation);
+			boolean interrupted = false;
+			while (cachedChildContributions == null && childContributionsComputer != null) {
+				if (childContributionsComputer == Thread.currentThread()) {
+					// asked for while contributing the children, answer the previous children
+					return (Contribution[]) childContributions.values().toArray(new Contribution[childContributions.size()]);
 				}
 				try {
-					Contribution contrib = provider.createContribution(childs[i]);
-					contrib.registerContribution(Activator.getDefault().getServer());
-					if (proxies == null) {
-						proxies = new ArrayList();
+					childContributions.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if (cachedChildContributions != null) {
+				return cachedChildContributions;
+			}
+			childContributionsComputer = Thread.currentThread();
+			version = childContributionsVersion;
+			previousContributions = new HashMap(childContributions);
+		}
+		// the children are collected and contributed without holding the lock, implementations
+		// and providers may be slow or call back into this contribution
+		Contribution[] result = null;
+		Map contributions = new HashMap();
+		try {
+			// reuse the contributions of children that are still present, only new delegates are contributed
+			List children = new ArrayList();
+			Object[] childs = getChildren();
+			if (childs != null) {
+				for (int i = 0; i < childs.length; i++) {
+					Contribution contrib = (Contribution) previousContributions.remove(childs[i]);
+					if (contrib == null && (contrib = createChildContribution(childs[i])) == null) {
+						continue;
+					}
+					contributions.put(childs[i], contrib);
+					children.add(contrib);
+				}
+			}
+			result = (Contribution[]) children.toArray(new Contribution[children.size()]);
+		} finally {
+			synchronized (childContributions) {
+				childContributionsComputer = null;
+				if (result != null) {
+					childContributions.clear();
+					childContributions.putAll(contributions);
+					if (version == childContributionsVersion) {
+						cachedChildContributions = result;
 					}
-					proxies.add(contrib.createProxy());
-				} catch (Exception e) {
-					Activator.log(e);
 				}
+				childContributions.notifyAll();
 			}
 		}
-		return proxies == null ? null : (ContributionProxy[]) proxies.toArray(new ContributionProxy[proxies.size()]);
+		// the delegates of the remaining contributions are no longer children of this contribution
+		for (Iterator iter = previousContributions.values().iterator(); iter.hasNext();) {
+			Contribution contrib = (Contribution) iter.next();
+			if (contrib.parentContribution == this) {
+				contrib.release();
+				contrib.unregisterContribution();
+			}
+		}
+		return result;
+	}
+
+	private Contribution createChildContribution(Object child) {
+		ContributionProvider provider = null;
+		if (this instanceof ContributionProvider && ((ContributionProvider) this).contributesType(child)) {
+			provider = (ContributionProvider) this;
+		} else {
+			provider = ContributionProvider.getProvider(child);
+		}
+		if (provider == null) {
+			return null;
+		}
+		try {
+			Contribution contrib = provider.createContribution(child);
+			if (contrib != null) {
+				contrib.parentContribution = this;
+				contrib.publishContribution();
+			}
+			return contrib;
+		} catch (Exception e) {
+			Activator.log(e);
+		}
+		return null;
+	}
+
+	private ContributionProvider[] getDelegateProviders() {
+		int generation = ServerExtensionManager.getProviderGeneration();
+		synchronized (childContributions) {
+			checkProviderGeneration(generation);
+			if (!extendingProvidersResolved) {
+				extendingProviders = ContributionProvider.getExtendingProviders(contributionDelegate);
+				extendingProvidersResolved = true;
+			}
+			return extendingProviders;
+		}
+	}
+
+	/**
+	 * Discard the child contributions and extending providers if they were resolved before
+	 * the contribution extensions last changed, providers may have been added or removed.
+	 * Called while holding the child contributions lock.
+	 * 
+	 * @param generation The current generation of the contribution extensions.
+	 */
+	private void checkProviderGeneration(int generation) {
+		if (generation != providerGeneration) {
+			providerGeneration = generation;
+			extendingProviders = null;
+			extendingProvidersResolved = false;
+			cachedChildContributions = null;
+			childContributionsVersion++;
+		}
+	}
+
+	private void invalidateChildContributions() {
+		synchronized (childContributions) {
+			cachedChildContributions = null;
+			childContributionsVersion++;
+		}
+	}
+
+	private void childContributionRemoved(Contribution child) {
+		synchronized (childContributions) {
+			if (child.getContributionDelegate() != null) {
+				childContributions.remove(child.getContributionDelegate());
+			}
+			cachedChildContributions = null;
+			childContributionsVersion++;
+		}
 	}
 
 	/**
@@ -288,7 +652,12 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 	 * @throws NotCompliantMBeanException
 	 */
 	public final void registerContribution(MBeanServer mbeanServer) throws MBeanRegistrationException, NotCompliantMBeanException {
-		if (!mbeanServer.isRegistered(getObjectName())) {
+		// a forwarder reports the names it resolves on demand as registered, check the server it forwards to
+		MBeanServer server = mbeanServer;
+		while (server instanceof MBeanServerForwarder && ((MBeanServerForwarder) server).getMBeanServer() != null) {
+			server = ((MBeanServerForwarder) server).getMBeanServer();
+		}
+		if (!server.isRegistered(getObjectName())) {
 			try {
 				mbeanServer.registerMBean(this, getObjectName());
 			} catch (InstanceAlreadyExistsException e) {
@@ -298,10 +667,64 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 		}
 	}
 
+	/**
+	 * Unregister this contribution from the server if it is registered.  The contribution
+	 * is unregistered through the server exposed by the connectors, which also forgets
+	 * any state it keeps for the name.
+	 */
+	final void unregisterContribution() {
+		ObjectName name;
+		synchronized (this) {
+			name = registeredName;
+		}
+		Activator activator = Activator.getDefault();
+		if (name == null || activator == null) {
+			return;
+		}
+		try {
+			activator.getServer().unregisterMBean(name);
+		} catch (InstanceNotFoundException e) {
+			// unregistered meanwhile
+		} catch (MBeanRegistrationException e) {
+			Activator.log(e);
+		}
+	}
+
+	/**
+	 * Release this contribution once its delegate is no longer contributed: the
+	 * contribution is withdrawn from clients and its hold on the delegate is released.
+	 * The contribution is not unregistered, see {@link #unregisterContribution()}.
+	 */
+	private void release() {
+		if (contributionDelegate != null && contributionDelegates.getContribution(contributionDelegate) == this) {
+			contributionDelegates.remove(contributionDelegate);
+		}
+		ContributionNamingService.getDefault().release(contributionDelegate != null ? contributionDelegate : this);
+		ObjectName name = getObjectName();
+		if (ContributionNamespace.getDefault().lookup(name) == this) {
+			ContributionNamespace.getDefault().withdraw(name);
+		}
+		invalidateChildContributions();
+	}
+
+	/**
+	 * Publish this contribution in the virtual contribution namespace.  The contribution is
+	 * addressable by clients, but is only registered with the server the first time a
+	 * client invokes one of its operations or subscribes to its notifications.
+	 */
+	final void publishContribution() {
+		ContributionNamespace.getDefault().publish(getObjectName(), this);
+	}
+
 	/**
 	 * Invoked by the underlying <code>Contribution</code> when its internal state
 	 * has changed and a new <code>ContributionProxy</code> should be created
 	 * to reflect this change.
+	 * <p>
+	 * <code>NOTIFICATION_UPDATED</code> events are dropped if the name, properties, image
+	 * and attributes of the contribution are unchanged.  Registered contributions are
+	 * sampled periodically, so firing update events is optional.
+	 * </p>
 	 * 
 	 * @param event The event describing the state transition.
 	 */
@@ -309,16 +732,202 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 		if (event == null) {
 			return;
 		}
+		if (event.getType().equals(ContributionNotificationEvent.NOTIFICATION_UPDATED) && !updateFingerprint()) {
+			// nothing clients can observe has changed, spare them the refresh
+			return;
+		}
+		fireStateChanged(event);
+	}
+
+	private void fireStateChanged(ContributionNotificationEvent event) {
 		if (event.getType().equals(ContributionNotificationEvent.NOTIFICATION_REMOVED)) {
-			// self from currently contributed objects and release hold on delegate
-			contributionDelegates.remove(contributionDelegate);
+			// self from currently contributed objects and release hold on delegate, the
+			// contribution is unregistered once listeners have been sent the notification
+			release();
+			if (parentContribution != null) {
+				parentContribution.childContributionRemoved(this);
+			}
 		} else if (event.getType().equals(ContributionNotificationEvent.NOTIFICATION_ADDED)) {
 			// not required to add contribution and delegate to map, this is handled in getChildren
+			invalidateChildContributions();
 		} else if (event.getType().equals(ContributionNotificationEvent.NOTIFICATION_UPDATED)) {
 			// currently not required to perform any operations
 		}
-		stateChanged = true;
-		sendNotification(new Notification(event.getType(), this, sequenceNumber++, new Date().getTime()));
+		synchronized (this) {
+			stateChanged = true;
+		}
+		ContributionIndex.getDefault().contributionChanged(getObjectName(), event.getType());
+		// listeners are notified asynchronously, the calling thread may be the framework or display thread
+		ContributionNotificationDispatcher.getDefault().dispatch(getObjectName(), event.getType(), this);
+	}
+
+	/**
+	 * Sample the state of this contribution, clients are notified if it has changed since
+	 * the previous sample.  Called periodically by the <code>ContributionSampler</code>
+	 * while this contribution is registered.
+	 */
+	final void sample() {
+		if (updateFingerprint()) {
+			fireStateChanged(new ContributionNotificationEvent(ContributionNotificationEvent.NOTIFICATION_UPDATED));
+		}
+	}
+
+	/**
+	 * Recompute the fingerprint of this contribution.
+	 * 
+	 * @return <code>true</code> if the fingerprint changed, or had not been computed before.
+	 */
+	private boolean updateFingerprint() {
+		long current;
+		try {
+			current = computeFingerprint();
+		} catch (RuntimeException e) {
+			// the state can not be determined, assume it has changed
+			Activator.log(e);
+			return true;
+		}
+		synchronized (this) {
+			boolean changed = !fingerprinted || current != fingerprint;
+			fingerprint = current;
+			fingerprinted = true;
+			return changed;
+		}
+	}
+
+	/**
+	 * Compute a hash of the name, properties, image and attributes of this contribution;
+	 * together these are the state exposed to clients which changes over time.
+	 */
+	private long computeFingerprint() {
+		long result = hash(getName());
+		result = 31 * result + hash(getProperties());
+		URL imageLocation = getImageLocation();
+		// URL.hashCode() may resolve the host
+		result = 31 * result + (imageLocation == null ? 0 : imageLocation.toExternalForm().hashCode());
+		ContributionAttribute[] attributes = getContributionAttributes();
+		if (attributes != null && attributes.length > 0) {
+			Object sample = sampleAttributes();
+			for (int i = 0; i < attributes.length; i++) {
+				result = 31 * result + hash(attributes[i].getValue(this, sample));
+			}
+		}
+		return result;
+	}
+
+	private static int hash(Object o) {
+		return o == null ? 0 : o.hashCode();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanRegistration#preRegister(javax.management.MBeanServer, javax.management.ObjectName)
+	 */
+	public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
+		ObjectName result = name != null ? name : getObjectName();
+		synchronized (this) {
+			registeredName = result;
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanRegistration#postRegister(java.lang.Boolean)
+	 */
+	public void postRegister(Boolean registrationDone) {
+		if (!registrationDone.booleanValue()) {
+			synchronized (this) {
+				registeredName = null;
+			}
+		} else {
+			// take the initial sample so only subsequent changes are reported
+			updateFingerprint();
+			ContributionSampler.getDefault().add(this);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanRegistration#preDeregister()
+	 */
+	public void preDeregister() throws Exception {
+		// nothing to do
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.MBeanRegistration#postDeregister()
+	 */
+	public void postDeregister() {
+		Object[] listeners;
+		synchronized (this) {
+			registeredName = null;
+			listeners = registeredListeners.toArray();
+			registeredListeners.clear();
+		}
+		ContributionSampler.getDefault().remove(this);
+		// drop the listeners added through the server, they would otherwise receive the
+		// notifications twice once they are added again when the contribution is re-registered
+		for (int i = 0; i < listeners.length; i++) {
+			Object[] entry = (Object[]) listeners[i];
+			try {
+				super.removeNotificationListener((NotificationListener) entry[0], (NotificationFilter) entry[1], entry[2]);
+			} catch (ListenerNotFoundException e) {
+				// already removed
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.NotificationBroadcasterSupport#addNotificationListener(javax.management.NotificationListener, javax.management.NotificationFilter, java.lang.Object)
+	 */
+	public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+		super.addNotificationListener(listener, filter, handback);
+		synchronized (this) {
+			if (registeredName != null) {
+				registeredListeners.add(new Object[] {listener, filter, handback});
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.NotificationBroadcasterSupport#removeNotificationListener(javax.management.NotificationListener)
+	 */
+	public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+		super.removeNotificationListener(listener);
+		synchronized (this) {
+			for (Iterator iter = registeredListeners.iterator(); iter.hasNext();) {
+				if (((Object[]) iter.next())[0] == listener) {
+					iter.remove();
+				}
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.NotificationBroadcasterSupport#removeNotificationListener(javax.management.NotificationListener, javax.management.NotificationFilter, java.lang.Object)
+	 */
+	public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) throws ListenerNotFoundException {
+		super.removeNotificationListener(listener, filter, handback);
+		synchronized (this) {
+			for (Iterator iter = registeredListeners.iterator(); iter.hasNext();) {
+				Object[] entry = (Object[]) iter.next();
+				if (entry[0] == listener && entry[1] == filter && entry[2] == handback) {
+					iter.remove();
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send the notification to the listeners of this contribution.  A contribution which
+	 * sends a <code>NOTIFICATION_REMOVED</code> event is unregistered from the server once
+	 * its listeners have been sent the event.
+	 * 
+	 * @see javax.management.NotificationBroadcasterSupport#sendNotification(javax.management.Notification)
+	 */
+	public void sendNotification(Notification notification) {
+		super.sendNotification(notification);
+		if (ContributionNotificationEvent.NOTIFICATION_REMOVED.equals(notification.getType())) {
+			unregisterContribution();
+		}
 	}
 
 	/* (non-Javadoc)
@@ -328,16 +937,35 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 		// retrieve implementors exposed operations
 		MBeanInfo info = getMBeanInfo(contributionDelegate);
 		if (info != null) {
-			// insert our required getContributions() operation
-			MBeanOperationInfo[] ops = info.getOperations();
-			MBeanOperationInfo[] opsNew = new MBeanOperationInfo[ops.length + 2];
-			System.arraycopy(ops, 0, opsNew, 0, ops.length);
-			try {
-				opsNew[opsNew.length - 2] = new MBeanOperationInfo(ContributionMessages.desc_getcontribs, Contribution.class.getMethod("getChildContributions", new Class[0])); //$NON-NLS-1$
-				opsNew[opsNew.length - 1] = new MBeanOperationInfo("", Contribution.class.getMethod("createProxy", new Class[0])); //$NON-NLS-1$ //$NON-NLS-2$
-				return new MBeanInfo(info.getClassName(), info.getDescription(), info.getAttributes(), info.getConstructors(), opsNew /* our customized operations */, info.getNotifications());
-			} catch (Exception e) {
-				Activator.logError(e);
+			ContributionAttribute[] attributes = getContributionAttributes();
+			synchronized (mergedMBeanInfos) {
+				MergedMBeanInfo merged = (MergedMBeanInfo) mergedMBeanInfos.get(info);
+				if (merged != null && merged.attributes == attributes) {
+					return merged.info;
+				}
+			}
+			MBeanOperationInfo[] contributionOps = getContributionOperations();
+			if (contributionOps != null) {
+				// insert our required getContributions() operation
+				MBeanOperationInfo[] ops = info.getOperations();
+				MBeanOperationInfo[] opsNew = new MBeanOperationInfo[ops.length + contributionOps.length];
+				System.arraycopy(ops, 0, opsNew, 0, ops.length);
+				System.arraycopy(contributionOps, 0, opsNew, ops.length, contributionOps.length);
+				// append the typed attributes to those described by the implementing contribution
+				MBeanAttributeInfo[] attrs = info.getAttributes();
+				if (attributes != null && attributes.length > 0) {
+					MBeanAttributeInfo[] attrsNew = new MBeanAttributeInfo[attrs.length + attributes.length];
+					System.arraycopy(attrs, 0, attrsNew, 0, attrs.length);
+					for (int i = 0; i < attributes.length; i++) {
+						attrsNew[attrs.length + i] = attributes[i].getInfo();
+					}
+					attrs = attrsNew;
+				}
+				MBeanInfo merged = new MBeanInfo(info.getClassName(), info.getDescription(), attrs, info.getConstructors(), opsNew /* our customized operations */, info.getNotifications());
+				synchronized (mergedMBeanInfos) {
+					mergedMBeanInfos.put(info, new MergedMBeanInfo(attributes, merged));
+				}
+				return merged;
 			}
 		} else {
 			info = new MBeanInfo(getClass().getName(), getName(), new MBeanAttributeInfo[0], new MBeanConstructorInfo[0], new MBeanOperationInfo[0], new MBeanNotificationInfo[0]);
@@ -345,14 +973,103 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 		return info;
 	}
 
+	/* (non-Javadoc)
+	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 */
+	public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
+		ContributionAttribute contributionAttribute = findAttribute(attribute);
+		if (contributionAttribute == null) {
+			throw new AttributeNotFoundException(attribute);
+		}
+		return contributionAttribute.getValue(this, sampleAttributes());
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
+	 */
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList result = new AttributeList();
+		if (attributes == null || getContributionAttributes() == null) {
+			return result;
+		}
+		// all requested attributes are read from a single sample
+		Object sample = null;
+		boolean sampled = false;
+		for (int i = 0; i < attributes.length; i++) {
+			ContributionAttribute contributionAttribute = findAttribute(attributes[i]);
+			if (contributionAttribute == null) {
+				// unknown attributes are omitted from the result
+				continue;
+			}
+			try {
+				if (!sampled) {
+					sample = sampleAttributes();
+					sampled = true;
+				}
+				result.add(new Attribute(attributes[i], contributionAttribute.getValue(this, sample)));
+			} catch (RuntimeException e) {
+				Activator.log(e);
+			}
+		}
+		return result;
+	}
+
+	private ContributionAttribute findAttribute(String name) {
+		ContributionAttribute[] attributes = getContributionAttributes();
+		if (attributes != null && name != null) {
+			for (int i = 0; i < attributes.length; i++) {
+				if (name.equals(attributes[i].getName())) {
+					return attributes[i];
+				}
+			}
+		}
+		return null;
+	}
+
+	private static synchronized MBeanOperationInfo[] getContributionOperations() {
+		if (contributionOperations == null) {
+			try {
+				contributionOperations = new MBeanOperationInfo[] {new MBeanOperationInfo(ContributionMessages.desc_getcontribs, Contribution.class.getMethod("getChildContributions", new Class[0])), //$NON-NLS-1$
+						new MBeanOperationInfo(ContributionMessages.desc_getcontribs_page, Contribution.class.getMethod("getChildContributionsPage", new Class[] {Integer.TYPE, Integer.TYPE})), //$NON-NLS-1$
+						new MBeanOperationInfo(ContributionMessages.desc_getsubtree, Contribution.class.getMethod("getSubtreeSnapshot", new Class[] {Integer.TYPE, Integer.TYPE})), //$NON-NLS-1$
+						new MBeanOperationInfo("", Contribution.class.getMethod("createProxy", new Class[0])), //$NON-NLS-1$ //$NON-NLS-2$
+						new MBeanOperationInfo(ContributionMessages.desc_getproxydelta, Contribution.class.getMethod("getProxyDelta", new Class[] {Long.TYPE})), //$NON-NLS-1$
+						new MBeanOperationInfo(ContributionMessages.desc_getimage, Contribution.class.getMethod("getImage", new Class[] {String.class}))}; //$NON-NLS-1$
+			} catch (Exception e) {
+				Activator.logError(e);
+			}
+		}
+		return contributionOperations;
+	}
+
 	/* (non-Javadoc)
 	 * @see javax.management.DynamicMBean#invoke(java.lang.String, java.lang.Object[], java.lang.String[])
 	 */
 	public Object invoke(String arg0, Object[] arg1, String[] arg2) throws MBeanException, ReflectionException {
 		if (arg0.equals(ContributionProxy.OP_GET_CHILD_CONTRIBUTIONS)) {
 			return getChildContributions();
+		} else if (arg0.equals(ContributionProxy.OP_GET_CHILD_CONTRIBUTIONS_PAGE)) {
+			if (arg1 == null || arg1.length != 2 || !(arg1[0] instanceof Number) || !(arg1[1] instanceof Number)) {
+				throw new ReflectionException(new IllegalArgumentException(arg0));
+			}
+			return getChildContributionsPage(((Number) arg1[0]).intValue(), ((Number) arg1[1]).intValue());
+		} else if (arg0.equals(ContributionProxy.OP_GET_SUBTREE_SNAPSHOT)) {
+			if (arg1 == null || arg1.length != 2 || !(arg1[0] instanceof Number) || !(arg1[1] instanceof Number)) {
+				throw new ReflectionException(new IllegalArgumentException(arg0));
+			}
+			return getSubtreeSnapshot(((Number) arg1[0]).intValue(), ((Number) arg1[1]).intValue());
 		} else if (arg0.equals(ContributionProxy.OP_REFRESH_PROXY)) {
 			return createProxy();
+		} else if (arg0.equals(ContributionProxy.OP_GET_PROXY_DELTA)) {
+			if (arg1 == null || arg1.length != 1 || !(arg1[0] instanceof Number)) {
+				throw new ReflectionException(new IllegalArgumentException(arg0));
+			}
+			return getProxyDelta(((Number) arg1[0]).longValue());
+		} else if (arg0.equals(ContributionProxy.OP_GET_IMAGE)) {
+			if (arg1 == null || arg1.length != 1 || !(arg1[0] instanceof String)) {
+				throw new ReflectionException(new IllegalArgumentException(arg0));
+			}
+			return getImage((String) arg1[0]);
 		} else if (arg0.equals(ContributionProxy.OP_GET_CONTRIBUTION_UI_URL)) {
 			//return UIContributionRegistry.getInstance().getContributionUIUrl(contributionDelegate.getClass());
 		}
@@ -360,28 +1077,69 @@ public abstract class Contribution extends NotificationBroadcasterSupport implem
 		return invokeOperation(arg0, arg1, arg2);
 	}
 	
+	/**
+	 * Get the object name of this contribution.  The name is assigned by the
+	 * <code>ContributionNamingService</code> from the type and key of this contribution
+	 * the first time it is requested, and is shared by all contributions of the same delegate.
+	 * Derived classes may override this method to provide a name of their own.
+	 * 
+	 * @return The object name of this contribution.
+	 * @see #getObjectNameType()
+	 * @see #getObjectNameKey()
+	 */
 	protected ObjectName getObjectName() {
+		return getAssignedObjectName();
+	}
+
+	private synchronized ObjectName getAssignedObjectName() {
+		if (objectName == null) {
+			Object owner = contributionDelegate != null ? contributionDelegate : this;
+			try {
+				objectName = ContributionNamingService.getDefault().getObjectName(owner, getObjectNameType(), getObjectNameKey());
+			} catch (MalformedObjectNameException e) {
+				Activator.logError(e);
+				try {
+					objectName = ContributionNamingService.getDefault().getObjectName(owner, getObjectNameType(), Integer.toString(hashCode()));
+				} catch (MalformedObjectNameException e1) {
+					Activator.logError(e1);
+				}
+			}
+		}
 		return objectName;
 	}
 	
-	private final ContributionProxy[] getChildContributions(ContributionProvider[] delegateProviders) {
+	private final Contribution[] getChildContributions(ContributionProvider[] delegateProviders) {
 		try {
 			List delegateProviderList = new ArrayList();
 			for (int i = 0; i < delegateProviders.length; i++) {
 				ContributionProvider delegateProvider = delegateProviders[i];
-				ContributionProxy[] proxies = delegateProvider.getChildContributions();
-				if (proxies != null && proxies.length > 0) {
-					delegateProvider.registerContribution(Activator.getDefault().getServer());
-					delegateProviderList.add(delegateProvider.createProxy());
+				if (delegateProvider.getChildContributionList().length > 0) {
+					delegateProvider.publishContribution();
+					delegateProviderList.add(delegateProvider);
 				}
 			}
 			if (delegateProviderList.size() == 0) {
 				return null;
 			}
-			return (ContributionProxy[]) delegateProviderList.toArray(new ContributionProxy[delegateProviderList.size()]);
+			return (Contribution[]) delegateProviderList.toArray(new Contribution[delegateProviderList.size()]);
 		} catch (Exception e) {
 			Activator.logError(e);
 		}
 		return null;
 	}
+
+	/**
+	 * An <code>MBeanInfo</code> merged with the contribution operations and the
+	 * attributes it was merged with.
+	 */
+	private static final class MergedMBeanInfo {
+
+		final ContributionAttribute[] attributes;
+		final MBeanInfo info;
+
+		MergedMBeanInfo(ContributionAttribute[] attributes, MBeanInfo info) {
+			this.attributes = attributes;
+			this.info = info;
+		}
+	}
 }
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server;
+
+import org.eclipse.equinox.jmx.common.ContributionAttributeInfo;
+
+/**
+ * A typed, read-only attribute of a <code>Contribution</code>.  Attributes are
+ * usually declared once per contribution class, e.g. as a static array, and read
+ * their value from the sample returned by <code>Contribution.sampleAttributes()</code>.
+ * 
+ * @see Contribution#getContributionAttributes()
+ * @since 1.0
+ */
+public abstract class ContributionAttribute {
+
+	private final ContributionAttributeInfo info;
+
+	/**
+	 * Allocate a new <code>ContributionAttribute</code>.
+	 * 
+	 * @param name The name of the attribute.
+	 * @param type The class of the attribute's values, e.g. <code>Long.class</code>.
+	 * @param description The description of the attribute.
+	 * @param kind Either <code>ContributionAttributeInfo.GAUGE</code> or <code>ContributionAttributeInfo.COUNTER</code>.
+	 */
+	public ContributionAttribute(String name, Class type, String description, int kind) {
+		info = new ContributionAttributeInfo(name, type.getName(), description, kind);
+	}
+
+	/**
+	 * @return The name of the attribute.
+	 */
+	public final String getName() {
+		return info.getName();
+	}
+
+	/**
+	 * @return The description of the attribute which is exposed in the contribution's <code>MBeanInfo</code>.
+	 */
+	public final ContributionAttributeInfo getInfo() {
+		return info;
+	}
+
+	/**
+	 * Get the value of this attribute.
+	 * 
+	 * @param contribution The contribution whose attribute is read.
+	 * @param sample The sample returned by <code>contribution.sampleAttributes()</code>; all
+	 * attributes read by one request share the same sample.
+	 * @return The value of the attribute, an instance of the attribute's type.
+	 */
+	protected abstract Object getValue(Contribution contribution, Object sample);
+}
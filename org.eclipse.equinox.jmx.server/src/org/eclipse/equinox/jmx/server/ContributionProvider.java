@@ -14,6 +14,7 @@ import java.util.*;
 import javax.management.MalformedObjectNameException;
 import org.eclipse.equinox.jmx.internal.server.ServerExtensionManager;
 import org.eclipse.equinox.jmx.internal.server.ServerExtensionManager.ContributionExtensionDefinition;
+import org.eclipse.equinox.jmx.internal.server.ServerExtensionManager.ProviderIndexEntry;
 
 /**
  * Required base class for all classes extending the <code>org.eclipse.equinox.jmx.server.contribution</code> extension point.
@@ -84,47 +85,68 @@ public abstract class ContributionProvider extends Contribution {
 	 * Convenience method for classes to query the provider registry to determine
 	 * if a <code>ContributionProvider</code> exists for the object provided.  The first
 	 * provider found that supports contributing the object type is returned.
+	 * <p>
+	 * The provider is resolved once per runtime class and memoized by the
+	 * <code>ServerExtensionManager</code> until the contribution extensions change.
+	 * </p>
 	 * 
 	 * @param obj The object to located a provider for.
 	 * @return A <code>ContributionProvider</code> which supports the provided object, null if no such provider exists.
 	 */
 	public static ContributionProvider getProvider(Object obj) {
+		ProviderIndexEntry entry = ServerExtensionManager.getInstance().getProviderIndexEntry(obj.getClass());
+		if (entry.isContributingProviderResolved()) {
+			return entry.getContributingProvider();
+		}
+		ContributionProvider result = null;
 		Collection contribDefns = ServerExtensionManager.getInstance().getContributionExtensionDefinitions();
 		Iterator iter = contribDefns.iterator();
 		while (iter.hasNext()) {
 			ContributionProvider provider = ((ContributionExtensionDefinition) iter.next()).getContributionProvider();
 			if (provider.contributesType(obj)) {
-				return provider;
+				result = provider;
+				break;
 			}
 		}
-		return null;
+		entry.setContributingProvider(result);
+		return result;
 	}
 
 	/**
 	 * Returns a list of the <code>ContributionProvider</code>s that supports the {@link #providesType(Object)}
 	 * method for the supplied object.
+	 * <p>
+	 * Only providers which declare an <code>extendsClass</code> element matching the object's
+	 * class hierarchy are considered, and the matching providers are memoized per runtime class.
+	 * </p>
 	 * 
 	 * @param obj The object for which to locate a <code>ContributionProvider</code>.
 	 * @return The list of identified providers.
 	 */
 	public static ContributionProvider[] getExtendingProviders(Object obj) {
-		Collection contribDefns = ServerExtensionManager.getInstance().getContributionExtensionDefinitions();
-		Iterator iter = contribDefns.iterator();
-		List providers = null;
-		while (iter.hasNext()) {
-			ContributionExtensionDefinition defn = (ContributionExtensionDefinition) iter.next();
-			// iterate over definitions list of supported class types and for assignable match
-			ContributionProvider provider = defn.getContributionProvider();
-			if (provider.providesType(obj)) {
-				if (providers == null) {
-					providers = new ArrayList(2);
+		ProviderIndexEntry entry = ServerExtensionManager.getInstance().getProviderIndexEntry(obj.getClass());
+		ContributionProvider[] extendingProviders;
+		if (entry.isExtendingProvidersResolved()) {
+			extendingProviders = entry.getExtendingProviders();
+		} else {
+			ContributionExtensionDefinition[] candidates = entry.getExtendingCandidates();
+			List matches = new ArrayList(candidates.length);
+			for (int i = 0; i < candidates.length; i++) {
+				// iterate over definitions whose declared class types are assignable from the object
+				ContributionProvider provider = candidates[i].getContributionProvider();
+				if (provider.providesType(obj)) {
+					matches.add(provider);
 				}
-				providers.add(provider.createProvider(obj));
 			}
+			extendingProviders = (ContributionProvider[]) matches.toArray(new ContributionProvider[matches.size()]);
+			entry.setExtendingProviders(extendingProviders);
+		}
+		if (extendingProviders.length == 0) {
+			return null;
 		}
-		ContributionProvider[] ret = null;
-		if (providers != null) {
-			ret = (ContributionProvider[]) providers.toArray(new ContributionProvider[providers.size()]);
+		ContributionProvider[] ret = new ContributionProvider[extendingProviders.length];
+		for (int i = 0; i < extendingProviders.length; i++) {
+			ret[i] = extendingProviders[i].createProvider(obj);
 		}
 		return ret;
 	}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.eclipse.equinox.jmx.internal.server.Activator;
+import org.eclipse.equinox.jmx.internal.server.SystemProperties;
+
+/**
+ * Periodically samples the fingerprint of every registered contribution on a single
+ * shared thread, and notifies clients of the contributions whose exposed state changed.
+ * Contributions therefore need not poll their own state to detect changes.
+ * <p>
+ * The thread only runs while contributions are registered.
+ * </p>
+ *
+ * @since 1.0
+ */
+public final class ContributionSampler {
+
+	static final String INTERVAL_PROPERTY_KEY = Activator.PI_NAMESPACE + ".sampler.interval"; //$NON-NLS-1$
+
+	private static final int DEFAULT_INTERVAL = 2000;
+
+	private static ContributionSampler instance;
+
+	private final long interval;
+
+	// guarded by this
+	private final Set contributions = new HashSet();
+	private Thread sampler;
+
+	private ContributionSampler(long interval) {
+		this.interval = interval;
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized ContributionSampler getDefault() {
+		if (instance == null) {
+			instance = new ContributionSampler(SystemProperties.getInt(INTERVAL_PROPERTY_KEY, DEFAULT_INTERVAL));
+		}
+		return instance;
+	}
+
+	/**
+	 * Start sampling the provided contribution.  Nothing is sampled if the interval is <code>0</code>.
+	 *
+	 * @param contribution The registered contribution.
+	 */
+	synchronized void add(Contribution contribution) {
+		if (interval <= 0) {
+			return;
+		}
+		contributions.add(contribution);
+		if (sampler == null) {
+			sampler = new Thread("Contribution Sampler") { //$NON-NLS-1$
+				public void run() {
+					runSampler(this);
+				}
+			};
+			sampler.setDaemon(true);
+			sampler.start();
+		}
+	}
+
+	/**
+	 * Stop sampling the provided contribution.
+	 *
+	 * @param contribution The unregistered contribution.
+	 */
+	synchronized void remove(Contribution contribution) {
+		contributions.remove(contribution);
+	}
+
+	/**
+	 * Stop sampling all contributions and end the sampler thread.
+	 */
+	public synchronized void stop() {
+		contributions.clear();
+		sampler = null;
+		notifyAll();
+	}
+
+	void runSampler(Thread thread) {
+		while (true) {
+			Contribution[] sampled;
+			synchronized (this) {
+				try {
+					wait(interval);
+				} catch (InterruptedException e) {
+					// fall through and sample
+				}
+				if (sampler != thread) {
+					// stopped
+					return;
+				}
+				if (contributions.isEmpty()) {
+					// restarted by the next registration
+					sampler = null;
+					return;
+				}
+				sampled = (Contribution[]) contributions.toArray(new Contribution[contributions.size()]);
+			}
+			for (int i = 0; i < sampled.length; i++) {
+				try {
+					sampled[i].sample();
+				} catch (RuntimeException e) {
+					Activator.log(e);
+				}
+			}
+		}
+	}
+}
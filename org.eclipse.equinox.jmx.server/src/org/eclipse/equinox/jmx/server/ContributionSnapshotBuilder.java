@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server;
+
+import org.eclipse.equinox.jmx.common.ContributionProxy;
+import org.eclipse.equinox.jmx.common.ContributionSnapshot;
+import org.eclipse.equinox.jmx.internal.server.Activator;
+import org.eclipse.equinox.jmx.internal.server.SystemProperties;
+
+/**
+ * Builds the <code>ContributionSnapshot</code> of a subtree.  The tree is expanded a
+ * level at a time; the children of the contributions of a level are independent of
+ * each other, so they are computed by several threads of the <code>WorkerPool</code>.
+ *
+ * @since 1.0
+ */
+final class ContributionSnapshotBuilder {
+
+	static final String THREADS_PROPERTY_KEY = Activator.PI_NAMESPACE + ".snapshot.threads"; //$NON-NLS-1$
+	static final String MAX_NODES_PROPERTY_KEY = Activator.PI_NAMESPACE + ".snapshot.maxNodes"; //$NON-NLS-1$
+
+	private static final int DEFAULT_THREADS = 4;
+	private static final int DEFAULT_MAX_NODES = 1000;
+
+	private static ContributionSnapshotBuilder instance;
+
+	private final int threadCount;
+	private final int maxNodesLimit;
+
+	private ContributionSnapshotBuilder(int threadCount, int maxNodesLimit) {
+		this.threadCount = threadCount;
+		this.maxNodesLimit = maxNodesLimit;
+	}
+
+	static synchronized ContributionSnapshotBuilder getDefault() {
+		if (instance == null) {
+			instance = new ContributionSnapshotBuilder(SystemProperties.getInt(THREADS_PROPERTY_KEY, DEFAULT_THREADS), Math.max(1, SystemProperties.getInt(MAX_NODES_PROPERTY_KEY, DEFAULT_MAX_NODES)));
+		}
+		return instance;
+	}
+
+	/**
+	 * Build the snapshot of the subtree rooted at the provided contribution.
+	 *
+	 * @param root The root of the subtree.
+	 * @param depth The number of levels of descendants to include.
+	 * @param maxNodes The maximum number of nodes, a value less than or equal to zero applies the limit.
+	 * @return The snapshot.
+	 */
+	ContributionSnapshot build(Contribution root, int depth, int maxNodes) {
+		if (maxNodes <= 0 || maxNodes > maxNodesLimit) {
+			maxNodes = maxNodesLimit;
+		}
+		Contribution[] nodes = new Contribution[maxNodes];
+		ContributionProxy[] proxies = new ContributionProxy[maxNodes];
+		int[] firstChildIndexes = new int[maxNodes];
+		int[] childCounts = new int[maxNodes];
+		nodes[0] = root;
+		proxies[0] = root.createProxy();
+		int nodeCount = 1;
+		int levelStart = 0;
+		boolean truncated = false;
+		for (int level = 0; level < depth && levelStart < nodeCount; level++) {
+			int levelEnd = nodeCount;
+			Level expanded = expand(nodes, levelStart, levelEnd);
+			for (int i = levelStart; i < levelEnd; i++) {
+				Contribution[] children = expanded.getChildren(i - levelStart);
+				if (children == null || nodeCount + children.length > maxNodes) {
+					// children lists are never partial, a smaller sibling may still fit
+					truncated |= children != null;
+					childCounts[i] = ContributionSnapshot.NOT_EXPANDED;
+					continue;
+				}
+				firstChildIndexes[i] = nodeCount;
+				childCounts[i] = children.length;
+				System.arraycopy(children, 0, nodes, nodeCount, children.length);
+				System.arraycopy(expanded.getProxies(i - levelStart), 0, proxies, nodeCount, children.length);
+				nodeCount += children.length;
+			}
+			levelStart = levelEnd;
+		}
+		for (int i = levelStart; i < nodeCount; i++) {
+			childCounts[i] = ContributionSnapshot.NOT_EXPANDED;
+		}
+		if (nodeCount < maxNodes) {
+			ContributionProxy[] trimmedProxies = new ContributionProxy[nodeCount];
+			int[] trimmedFirstChildIndexes = new int[nodeCount];
+			int[] trimmedChildCounts = new int[nodeCount];
+			System.arraycopy(proxies, 0, trimmedProxies, 0, nodeCount);
+			System.arraycopy(firstChildIndexes, 0, trimmedFirstChildIndexes, 0, nodeCount);
+			System.arraycopy(childCounts, 0, trimmedChildCounts, 0, nodeCount);
+			proxies = trimmedProxies;
+			firstChildIndexes = trimmedFirstChildIndexes;
+			childCounts = trimmedChildCounts;
+		}
+		return new ContributionSnapshot(proxies, firstChildIndexes, childCounts, truncated);
+	}
+
+	private Level expand(Contribution[] nodes, int start, int end) {
+		Level level = new Level(nodes, start, end);
+		// the requesting thread takes its share of the work, helped by the shared pool
+		WorkerPool.getDefault().run(level, Math.min(threadCount, end - start) - 1);
+		return level;
+	}
+
+	/**
+	 * The children of the contributions of one level of the tree.
+	 */
+	private static final class Level implements Runnable {
+
+		private final Contribution[] nodes;
+		private final int start;
+		// guarded by this
+		private final Contribution[][] children;
+		private final ContributionProxy[][] proxies;
+		private int next;
+
+		Level(Contribution[] nodes, int start, int end) {
+			this.nodes = nodes;
+			this.start = start;
+			this.children = new Contribution[end - start][];
+			this.proxies = new ContributionProxy[end - start][];
+		}
+
+		synchronized Contribution[] getChildren(int index) {
+			return children[index];
+		}
+
+		synchronized ContributionProxy[] getProxies(int index) {
+			return proxies[index];
+		}
+
+		private synchronized int nextIndex() {
+			return next < children.length ? next++ : -1;
+		}
+
+		public void run() {
+			int index;
+			while ((index = nextIndex()) != -1) {
+				try {
+					Contribution[] childs = nodes[start + index].getChildContributionList();
+					ContributionProxy[] childProxies = new ContributionProxy[childs.length];
+					for (int i = 0; i < childs.length; i++) {
+						childProxies[i] = childs[i].createProxy();
+					}
+					synchronized (this) {
+						proxies[index] = childProxies;
+						children[index] = childs;
+					}
+				} catch (RuntimeException e) {
+					// leave the node unexpanded
+					Activator.log(e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.equinox.jmx.server;
+
+import java.util.*;
+import org.eclipse.equinox.jmx.internal.server.Activator;
+import org.eclipse.equinox.jmx.internal.server.SystemProperties;
+
+/**
+ * The threads which help requests and the initialization of the providers run
+ * independent units of work in parallel.
+ * <p>
+ * The number of threads is bounded and shared by all users; a job is always run by
+ * the calling thread, and by as many idle threads of the pool as it asks for and are
+ * available.  The calling thread never waits for a thread of the pool to become
+ * available, so requests are not delayed by each other.  The threads are started on
+ * demand and end when the server bundle is stopped.
+ * </p>
+ *
+ * @since 1.0
+ */
+public final class WorkerPool {
+
+	static final String THREADS_PROPERTY_KEY = Activator.PI_NAMESPACE + ".workers"; //$NON-NLS-1$
+
+	private static final int DEFAULT_THREADS = 8;
+
+	private static WorkerPool instance;
+
+	private final int maxThreads;
+
+	// guarded by this
+	private final LinkedList queue = new LinkedList();
+	private final List workers = new ArrayList();
+	private int idleCount;
+
+	private WorkerPool(int maxThreads) {
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * Returns the shared instance.
+	 */
+	public static synchronized WorkerPool getDefault() {
+		if (instance == null) {
+			instance = new WorkerPool(SystemProperties.getInt(THREADS_PROPERTY_KEY, DEFAULT_THREADS));
+		}
+		return instance;
+	}
+
+	/**
+	 * Run the provided job on the calling thread, helped by up to <code>helpers</code>
+	 * threads of the pool.  Each run of the job must take units of work until none is
+	 * left, the runs therefore share the work.  Returns once every run has returned.
+	 *
+	 * @param job The job, run concurrently by several threads.
+	 * @param helpers The maximum number of threads of the pool to help the calling thread.
+	 */
+	public void run(Runnable job, int helpers) {
+		Share share = null;
+		if (helpers > 0 && maxThreads > 0) {
+			share = new Share(job);
+			synchronized (this) {
+				for (int i = 0; i < helpers; i++) {
+					queue.addLast(share);
+				}
+				while (workers.size() < maxThreads && idleCount < queue.size()) {
+					startWorker();
+				}
+				notifyAll();
+			}
+		}
+		try {
+			job.run();
+		} finally {
+			if (share != null) {
+				awaitHelpers(share);
+			}
+		}
+	}
+
+	private synchronized void awaitHelpers(Share share) {
+		// the work has been taken, the helpers which have not started are not needed
+		while (queue.remove(share)) {
+			// continue
+		}
+		boolean interrupted = false;
+		while (share.running > 0) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * End the threads of the pool.  Jobs which are running complete on their calling
+	 * threads, the pool starts new threads when it is used again.
+	 */
+	public synchronized void stop() {
+		for (int i = 0; i < workers.size(); i++) {
+			((Thread) workers.get(i)).interrupt();
+		}
+		workers.clear();
+		queue.clear();
+		idleCount = 0;
+		notifyAll();
+	}
+
+	private void startWorker() {
+		Thread worker = new Thread("Contribution Worker " + workers.size()) { //$NON-NLS-1$
+			public void run() {
+				runWorker(this);
+			}
+		};
+		worker.setDaemon(true);
+		workers.add(worker);
+		idleCount++;
+		worker.start();
+	}
+
+	void runWorker(Thread thread) {
+		while (true) {
+			Share share;
+			synchronized (this) {
+				while (queue.isEmpty() && workers.contains(thread)) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// stopped, re-evaluate
+					}
+				}
+				if (!workers.contains(thread)) {
+					return;
+				}
+				share = (Share) queue.removeFirst();
+				share.running++;
+				idleCount--;
+			}
+			try {
+				share.job.run();
+			} catch (RuntimeException e) {
+				Activator.log(e);
+			} finally {
+				synchronized (this) {
+					share.running--;
+					if (workers.contains(thread)) {
+						idleCount++;
+					}
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A job run by the pool, queued once per requested helper.
+	 */
+	private static final class Share {
+
+		final Runnable job;
+		// the number of threads of the pool running the job, guarded by the pool
+		int running;
+
+		Share(Runnable job) {
+			this.job = job;
+		}
+	}
+}
@@ -15,17 +15,33 @@ import java.net.URL;
 import java.util.HashSet;
 import java.util.Set;
 import javax.management.*;
+import org.eclipse.equinox.jmx.common.ContributionAttributeInfo;
 import org.eclipse.equinox.jmx.common.util.MBeanInfoWrapper;
 import org.eclipse.equinox.jmx.server.Contribution;
+import org.eclipse.equinox.jmx.server.ContributionAttribute;
 
 public class ClassLoadingContribution extends Contribution {
 
 	private static final String ICON_PATH = "icons/classloading.gif"; //$NON-NLS-1$
+
+	private static final ContributionAttribute[] ATTRIBUTES = new ContributionAttribute[] {new ContributionAttribute("LoadedClassCount", Integer.class, VMStatsMessages.cl_loadedclscnt, ContributionAttributeInfo.GAUGE) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Integer(((ClassLoadingMXBean) sample).getLoadedClassCount());
+		}
+	}, new ContributionAttribute("TotalLoadedClassCount", Long.class, VMStatsMessages.cl_totloadedclscnt, ContributionAttributeInfo.COUNTER) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Long(((ClassLoadingMXBean) sample).getTotalLoadedClassCount());
+		}
+	}, new ContributionAttribute("UnloadedClassCount", Long.class, VMStatsMessages.cl_totunloadedclscnt, ContributionAttributeInfo.COUNTER) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Long(((ClassLoadingMXBean) sample).getUnloadedClassCount());
+		}
+	}};
 	private MBeanInfo mbeanInfo;
 
 	public ClassLoadingContribution(ClassLoadingMXBean delegate) {
 		super(delegate);
-		mbeanInfo = MBeanInfoWrapper.createMBeanInfo(delegate.getClass(), delegate.toString(), new MBeanAttributeInfo[0], new MBeanNotificationInfo[0]);
+		mbeanInfo = MBeanInfoWrapper.getMBeanInfo(delegate.getClass(), delegate.toString());
 	}
 
 	/* (non-Javadoc)
@@ -69,10 +85,10 @@ public class ClassLoadingContribution extends Contribution {
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getContributionAttributes()
 	 */
-	public Object getAttribute(String attribute) {
-		return null;
+	protected ContributionAttribute[] getContributionAttributes() {
+		return ATTRIBUTES;
 	}
 
 	/* (non-Javadoc)
@@ -82,13 +98,6 @@ public class ClassLoadingContribution extends Contribution {
 		// do nothing
 	}
 
-	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
-	 */
-	public AttributeList getAttributes(String[] attributes) {
-		return null;
-	}
-
 	/* (non-Javadoc)
 	 * @see javax.management.DynamicMBean#setAttributes(javax.management.AttributeList)
 	 */
@@ -15,17 +15,27 @@ import java.net.URL;
 import java.util.HashSet;
 import java.util.Set;
 import javax.management.*;
+import org.eclipse.equinox.jmx.common.ContributionAttributeInfo;
 import org.eclipse.equinox.jmx.common.util.MBeanInfoWrapper;
 import org.eclipse.equinox.jmx.server.Contribution;
+import org.eclipse.equinox.jmx.server.ContributionAttribute;
 
 public class CompilationContribution extends Contribution {
 
 	private static final String ICON_PATH = "icons/compilation.gif"; //$NON-NLS-1$
+
+	private static final ContributionAttribute[] ATTRIBUTES = new ContributionAttribute[] {new ContributionAttribute("TotalCompilationTime", Long.class, VMStatsMessages.cmp_tottime, ContributionAttributeInfo.COUNTER) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			CompilationMXBean mbean = (CompilationMXBean) sample;
+			// not all vms monitor the compilation time
+			return mbean.isCompilationTimeMonitoringSupported() ? new Long(mbean.getTotalCompilationTime()) : null;
+		}
+	}};
 	private MBeanInfo mbeanInfo;
 
 	public CompilationContribution(CompilationMXBean delegate) {
 		super(delegate);
-		mbeanInfo = MBeanInfoWrapper.createMBeanInfo(delegate.getClass(), delegate.toString(), new MBeanAttributeInfo[0], new MBeanNotificationInfo[0]);
+		mbeanInfo = MBeanInfoWrapper.getMBeanInfo(delegate.getClass(), delegate.toString());
 	}
 
 	/* (non-Javadoc)
@@ -68,10 +78,10 @@ public class CompilationContribution extends Contribution {
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getContributionAttributes()
 	 */
-	public Object getAttribute(String attribute) {
-		return null;
+	protected ContributionAttribute[] getContributionAttributes() {
+		return ATTRIBUTES;
 	}
 
 	/* (non-Javadoc)
@@ -81,13 +91,6 @@ public class CompilationContribution extends Contribution {
 		// do nothing
 	}
 
-	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
-	 */
-	public AttributeList getAttributes(String[] attributes) {
-		return null;
-	}
-
 	/* (non-Javadoc)
 	 * @see javax.management.DynamicMBean#setAttributes(javax.management.AttributeList)
 	 */
@@ -16,36 +16,52 @@ import java.net.URL;
 import java.util.Set;
 import java.util.TreeSet;
 import javax.management.*;
+import org.eclipse.equinox.jmx.common.ContributionAttributeInfo;
 import org.eclipse.equinox.jmx.common.ContributionNotificationEvent;
 import org.eclipse.equinox.jmx.common.util.MBeanInfoWrapper;
 import org.eclipse.equinox.jmx.server.Contribution;
+import org.eclipse.equinox.jmx.server.ContributionAttribute;
 
 public class MemoryContribution extends Contribution implements NotificationListener {
 
 	private static final String ICON_PATH = "icons/memory.gif"; //$NON-NLS-1$
-	private long heapCommited, heapInit, heapMax, heapUsed;
-	private long nonHeapCommited, nonHeapInit, nonHeapMax, nonHeapUsed;
+
+	// indexes of the heap and non-heap usage in the attribute sample
+	private static final int HEAP = 0;
+	private static final int NON_HEAP = 1;
+	private static final ContributionAttribute[] ATTRIBUTES = new ContributionAttribute[] {new MemoryUsageAttribute("HeapMemoryUsed", HEAP, VMStatsMessages.mem_heapusage + " - " + VMStatsMessages.mem_used) { //$NON-NLS-1$ //$NON-NLS-2$
+		long getValue(MemoryUsage usage) {
+			return usage.getUsed();
+		}
+	}, new MemoryUsageAttribute("HeapMemoryCommitted", HEAP, VMStatsMessages.mem_heapusage + " - " + VMStatsMessages.mem_commited) { //$NON-NLS-1$ //$NON-NLS-2$
+		long getValue(MemoryUsage usage) {
+			return usage.getCommitted();
+		}
+	}, new MemoryUsageAttribute("HeapMemoryMax", HEAP, VMStatsMessages.mem_heapusage + " - " + VMStatsMessages.mem_max) { //$NON-NLS-1$ //$NON-NLS-2$
+		long getValue(MemoryUsage usage) {
+			return usage.getMax();
+		}
+	}, new MemoryUsageAttribute("NonHeapMemoryUsed", NON_HEAP, VMStatsMessages.mem_noheapusage + " - " + VMStatsMessages.mem_used) { //$NON-NLS-1$ //$NON-NLS-2$
+		long getValue(MemoryUsage usage) {
+			return usage.getUsed();
+		}
+	}, new MemoryUsageAttribute("NonHeapMemoryCommitted", NON_HEAP, VMStatsMessages.mem_noheapusage + " - " + VMStatsMessages.mem_commited) { //$NON-NLS-1$ //$NON-NLS-2$
+		long getValue(MemoryUsage usage) {
+			return usage.getCommitted();
+		}
+	}, new MemoryUsageAttribute("NonHeapMemoryMax", NON_HEAP, VMStatsMessages.mem_noheapusage + " - " + VMStatsMessages.mem_max) { //$NON-NLS-1$ //$NON-NLS-2$
+		long getValue(MemoryUsage usage) {
+			return usage.getMax();
+		}
+	}};
 	private MBeanInfo mbeanInfo;
 
 	public MemoryContribution(MemoryMXBean delegate) {
 		super(delegate);
 		NotificationEmitter emitter = (NotificationEmitter) delegate;
 		emitter.addNotificationListener(this, null, null);
-		mbeanInfo = MBeanInfoWrapper.createMBeanInfo(delegate.getClass(), delegate.toString(), new MBeanAttributeInfo[0], new MBeanNotificationInfo[0]);
-
-		new Thread() {
-			public void run() {
-				while (true) {
-					if (MemoryContribution.this.memUsageChanged()) {
-						MemoryContribution.this.contributionStateChanged(new ContributionNotificationEvent(ContributionNotificationEvent.NOTIFICATION_UPDATED));
-					}
-					try {
-						sleep(1500);
-					} catch (InterruptedException e) {
-					}
-				}
-			}
-		}.start();
+		mbeanInfo = MBeanInfoWrapper.getMBeanInfo(delegate.getClass(), delegate.toString());
+		// usage changes are detected by the contribution sampler
 	}
 
 	/* (non-Javadoc)
@@ -100,24 +116,26 @@ public class MemoryContribution extends Contribution implements NotificationList
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getContributionAttributes()
 	 */
-	public Object getAttribute(String attribute) {
-		return null;
+	protected ContributionAttribute[] getContributionAttributes() {
+		return ATTRIBUTES;
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#setAttribute(javax.management.Attribute)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#sampleAttributes()
 	 */
-	public void setAttribute(Attribute attribute) {
-		//
+	protected Object sampleAttributes() {
+		// each usage query computes all values of a memory area, query each area once per request
+		MemoryMXBean mbean = (MemoryMXBean) contributionDelegate;
+		return new MemoryUsage[] {mbean.getHeapMemoryUsage(), mbean.getNonHeapMemoryUsage()};
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
+	 * @see javax.management.DynamicMBean#setAttribute(javax.management.Attribute)
 	 */
-	public AttributeList getAttributes(String[] attributes) {
-		return null;
+	public void setAttribute(Attribute attribute) {
+		//
 	}
 
 	/* (non-Javadoc)
@@ -134,32 +152,29 @@ public class MemoryContribution extends Contribution implements NotificationList
 		super.contributionStateChanged(new ContributionNotificationEvent(ContributionNotificationEvent.NOTIFICATION_UPDATED));
 	}
 
-	private boolean memUsageChanged() {
-		MemoryMXBean mbean = (MemoryMXBean) contributionDelegate;
-		MemoryUsage m = mbean.getHeapMemoryUsage();
-		boolean changed = false;
-		if (m.getCommitted() != heapCommited || m.getInit() != heapInit || m.getMax() != heapMax || m.getUsed() != heapUsed) {
-			changed = true;
-			heapCommited = m.getCommitted();
-			heapInit = m.getInit();
-			heapMax = m.getMax();
-			heapUsed = m.getUsed();
-		}
-		m = mbean.getNonHeapMemoryUsage();
-		if (m.getCommitted() != nonHeapCommited || m.getInit() != nonHeapInit || m.getMax() != nonHeapMax || m.getUsed() != nonHeapUsed) {
-			changed = true;
-			nonHeapCommited = m.getCommitted();
-			nonHeapInit = m.getInit();
-			nonHeapMax = m.getMax();
-			nonHeapUsed = m.getUsed();
-		}
-		return changed;
-	}
-
 	/* (non-Javadoc)
 	 * @see org.eclipse.equinox.jmx.server.Contribution#getImageLocation()
 	 */
 	protected URL getImageLocation() {
 		return Activator.getImageLocation(ICON_PATH);
 	}
+
+	/**
+	 * An attribute read from the sampled usage of the heap or non-heap memory area, in bytes.
+	 */
+	private static abstract class MemoryUsageAttribute extends ContributionAttribute {
+
+		private final int area;
+
+		MemoryUsageAttribute(String name, int area, String description) {
+			super(name, Long.class, description, ContributionAttributeInfo.GAUGE);
+			this.area = area;
+		}
+
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Long(getValue(((MemoryUsage[]) sample)[area]));
+		}
+
+		abstract long getValue(MemoryUsage usage);
+	}
 }
@@ -15,17 +15,25 @@ import java.net.URL;
 import java.util.HashSet;
 import java.util.Set;
 import javax.management.*;
+import org.eclipse.equinox.jmx.common.ContributionAttributeInfo;
 import org.eclipse.equinox.jmx.common.util.MBeanInfoWrapper;
 import org.eclipse.equinox.jmx.server.Contribution;
+import org.eclipse.equinox.jmx.server.ContributionAttribute;
 
 public class OperatingSystemContribution extends Contribution {
 
 	private static final String ICON_PATH = "icons/os.gif"; //$NON-NLS-1$
+
+	private static final ContributionAttribute[] ATTRIBUTES = new ContributionAttribute[] {new ContributionAttribute("AvailableProcessors", Integer.class, VMStatsMessages.os_ncpus, ContributionAttributeInfo.GAUGE) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Integer(((OperatingSystemMXBean) sample).getAvailableProcessors());
+		}
+	}};
 	private MBeanInfo mbeanInfo;
 
 	public OperatingSystemContribution(OperatingSystemMXBean delegate) {
 		super(delegate);
-		mbeanInfo = MBeanInfoWrapper.createMBeanInfo(delegate.getClass(), delegate.toString(), new MBeanAttributeInfo[0], new MBeanNotificationInfo[0]);
+		mbeanInfo = MBeanInfoWrapper.getMBeanInfo(delegate.getClass(), delegate.toString());
 	}
 
 	/* (non-Javadoc)
@@ -70,10 +78,10 @@ public class OperatingSystemContribution extends Contribution {
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getContributionAttributes()
 	 */
-	public Object getAttribute(String attribute) {
-		return null;
+	protected ContributionAttribute[] getContributionAttributes() {
+		return ATTRIBUTES;
 	}
 
 	/* (non-Javadoc)
@@ -83,13 +91,6 @@ public class OperatingSystemContribution extends Contribution {
 		//
 	}
 
-	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
-	 */
-	public AttributeList getAttributes(String[] attributes) {
-		return null;
-	}
-
 	/* (non-Javadoc)
 	 * @see javax.management.DynamicMBean#setAttributes(javax.management.AttributeList)
 	 */
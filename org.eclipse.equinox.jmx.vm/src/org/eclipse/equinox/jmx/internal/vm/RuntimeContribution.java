@@ -14,17 +14,29 @@ import java.lang.management.RuntimeMXBean;
 import java.net.URL;
 import java.util.*;
 import javax.management.*;
+import org.eclipse.equinox.jmx.common.ContributionAttributeInfo;
 import org.eclipse.equinox.jmx.common.util.MBeanInfoWrapper;
 import org.eclipse.equinox.jmx.server.Contribution;
+import org.eclipse.equinox.jmx.server.ContributionAttribute;
 
 public class RuntimeContribution extends Contribution {
 
 	private static final String ICON_PATH = "icons/runtime.gif"; //$NON-NLS-1$
+
+	private static final ContributionAttribute[] ATTRIBUTES = new ContributionAttribute[] {new ContributionAttribute("StartTime", Long.class, VMStatsMessages.rt_starttime, ContributionAttributeInfo.GAUGE) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Long(((RuntimeMXBean) sample).getStartTime());
+		}
+	}, new ContributionAttribute("Uptime", Long.class, VMStatsMessages.rt_uptime, ContributionAttributeInfo.COUNTER) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Long(((RuntimeMXBean) sample).getUptime());
+		}
+	}};
 	private MBeanInfo mbeanInfo;
 
 	public RuntimeContribution(RuntimeMXBean delegate) {
 		super(delegate);
-		mbeanInfo = MBeanInfoWrapper.createMBeanInfo(delegate.getClass(), delegate.toString(), new MBeanAttributeInfo[0], new MBeanNotificationInfo[0]);
+		mbeanInfo = MBeanInfoWrapper.getMBeanInfo(delegate.getClass(), delegate.toString());
 	}
 
 	/* (non-Javadoc)
@@ -75,10 +87,10 @@ public class RuntimeContribution extends Contribution {
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getContributionAttributes()
 	 */
-	public Object getAttribute(String attribute) {
-		return null;
+	protected ContributionAttribute[] getContributionAttributes() {
+		return ATTRIBUTES;
 	}
 
 	/* (non-Javadoc)
@@ -88,13 +100,6 @@ public class RuntimeContribution extends Contribution {
 		//
 	}
 
-	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
-	 */
-	public AttributeList getAttributes(String[] attributes) {
-		return null;
-	}
-
 	/* (non-Javadoc)
 	 * @see javax.management.DynamicMBean#setAttributes(javax.management.AttributeList)
 	 */
@@ -103,13 +103,6 @@ public class VMStatsProvider extends ContributionProvider {
 		return null;
 	}
 
-	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
-	 */
-	public Object getAttribute(String attribute) {
-		return null;
-	}
-
 	/* (non-Javadoc)
 	 * @see javax.management.DynamicMBean#setAttribute(javax.management.Attribute)
 	 */
@@ -117,13 +110,6 @@ public class VMStatsProvider extends ContributionProvider {
 		//
 	}
 
-	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
-	 */
-	public AttributeList getAttributes(String[] attributes) {
-		return null;
-	}
-
 	/* (non-Javadoc)
 	 * @see javax.management.DynamicMBean#setAttributes(javax.management.AttributeList)
 	 */
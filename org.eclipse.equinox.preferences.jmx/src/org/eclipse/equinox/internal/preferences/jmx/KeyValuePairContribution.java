@@ -16,7 +16,6 @@ import java.util.*;
 import javax.management.*;
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.Path;
-import org.eclipse.equinox.jmx.common.JMXConstants;
 import org.eclipse.equinox.jmx.server.Contribution;
 import org.osgi.service.prefs.Preferences;
 
@@ -32,17 +31,19 @@ public class KeyValuePairContribution extends Contribution {
 		super(delegate);
 	}
 
-    /* (non-Javadoc)
-     * @see org.eclipse.equinox.jmx.server.Contribution#getObjectName()
-     */
-    protected ObjectName getObjectName() {
-        try {
-            return new ObjectName(JMXConstants.DEFAULT_DOMAIN + ":type=KVPair,Preference=" + getDelegate().getNode().name() //$NON-NLS-1$
-            		+ "name=" + getDelegate().getKey()); //$NON-NLS-1$
-        } catch (Exception e) {
-            return super.getObjectName();
-        }
-    }
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameType()
+	 */
+	protected String getObjectNameType() {
+		return "KVPair"; //$NON-NLS-1$
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameKey()
+	 */
+	protected String getObjectNameKey() {
+		return getDelegate().getNode().absolutePath() + '/' + getDelegate().getKey();
+	}
 
 	/* (non-Javadoc)
 	 * @see com.jmx.server.contrib.Contribution#getName()
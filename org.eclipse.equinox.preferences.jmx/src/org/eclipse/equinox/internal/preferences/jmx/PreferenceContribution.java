@@ -16,7 +16,6 @@ import java.util.*;
 import javax.management.*;
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.Path;
-import org.eclipse.equinox.jmx.common.JMXConstants;
 import org.eclipse.equinox.jmx.server.Contribution;
 import org.osgi.service.prefs.BackingStoreException;
 import org.osgi.service.prefs.Preferences;
@@ -47,16 +46,19 @@ public class PreferenceContribution extends Contribution {
 		super(delegate.absolutePath());
 	}
 
-    /* (non-Javadoc)
-     * @see org.eclipse.equinox.jmx.server.Contribution#getObjectName()
-     */
-    protected ObjectName getObjectName() {
-        try {
-            return new ObjectName(JMXConstants.DEFAULT_DOMAIN + ":type=Preferences,name=" + contributionDelegate); //$NON-NLS-1$
-        } catch (Exception e) {
-            return super.getObjectName();
-        }
-    }
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameType()
+	 */
+	protected String getObjectNameType() {
+		return "Preferences"; //$NON-NLS-1$
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameKey()
+	 */
+	protected String getObjectNameKey() {
+		return (String) contributionDelegate;
+	}
 
 	/*
 	 * Return the delegate associated with this contribution.
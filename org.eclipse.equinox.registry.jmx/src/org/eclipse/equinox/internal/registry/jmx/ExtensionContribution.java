@@ -70,15 +70,17 @@ public class ExtensionContribution extends Contribution {
 	}
 
 	/* (non-Javadoc)
-	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectName()
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameType()
 	 */
-	protected ObjectName getObjectName() {
-		try {
-			return new ObjectName("jmxserver:type=Extension,ExtensionPoint=" + getDelegate().getExtensionPointUniqueIdentifier() //$NON-NLS-1$
-					+ ",name=" + getName()); //$NON-NLS-1$
-		} catch (Exception e) {
-			return super.getObjectName();
-		}
+	protected String getObjectNameType() {
+		return "Extension"; //$NON-NLS-1$
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameKey()
+	 */
+	protected String getObjectNameKey() {
+		return getDelegate().getExtensionPointUniqueIdentifier() + '/' + getName();
 	}
 
 	/* (non-Javadoc)
@@ -59,14 +59,10 @@ public class ExtensionPointContribution extends Contribution {
 	}
 
 	/* (non-Javadoc)
-	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectName()
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameType()
 	 */
-	protected ObjectName getObjectName() {
-		try {
-			return new ObjectName("jmxserver:type=ExtensionPoint,name=" + getName()); //$NON-NLS-1$
-		} catch (Exception e) {
-			return super.getObjectName();
-		}
+	protected String getObjectNameType() {
+		return "ExtensionPoint"; //$NON-NLS-1$
 	}
 
 	/* (non-Javadoc)
@@ -56,14 +56,10 @@ public class ExtensionRegistryContribution extends Contribution {
 	}
 
 	/* (non-Javadoc)
-	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectName()
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameType()
 	 */
-	protected ObjectName getObjectName() {
-		try {
-			return new ObjectName("jmxserver:type=ExtensionRegistry,name=" + getName()); //$NON-NLS-1$
-		} catch (Exception e) {
-			return super.getObjectName();
-		}
+	protected String getObjectNameType() {
+		return "ExtensionRegistry"; //$NON-NLS-1$
 	}
 
 	/* (non-Javadoc)
@@ -15,9 +15,10 @@ import java.net.URL;
 import java.util.*;
 import javax.management.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.equinox.jmx.common.ContributionAttributeInfo;
 import org.eclipse.equinox.jmx.common.ContributionNotificationEvent;
-import org.eclipse.equinox.jmx.common.JMXConstants;
 import org.eclipse.equinox.jmx.server.Contribution;
+import org.eclipse.equinox.jmx.server.ContributionAttribute;
 import org.osgi.framework.*;
 
 /**
@@ -37,6 +38,32 @@ public class BundleContribution extends Contribution implements BundleListener {
 		stateStrings.put(new Integer(Bundle.STOPPING), "STOPPING"); //$NON-NLS-1$
 		stateStrings.put(new Integer(Bundle.UNINSTALLED), "UNINSTALLED"); //$NON-NLS-1$
 	}
+	// attributes are read from the bundle, the delegate of the contribution
+	private static final ContributionAttribute[] ATTRIBUTES = new ContributionAttribute[] {new ContributionAttribute("BundleId", Long.class, BundleContributionMessages.bundle_id_attr_desc, ContributionAttributeInfo.GAUGE) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Long(((Bundle) sample).getBundleId());
+		}
+	}, new ContributionAttribute("State", Integer.class, BundleContributionMessages.bundle_state_attr_desc, ContributionAttributeInfo.GAUGE) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Integer(((Bundle) sample).getState());
+		}
+	}, new ContributionAttribute("LastModified", Long.class, BundleContributionMessages.bundle_lastmodified_attr_desc, ContributionAttributeInfo.GAUGE) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Long(((Bundle) sample).getLastModified());
+		}
+	}, new ContributionAttribute("RegisteredServiceCount", Integer.class, BundleContributionMessages.bundle_registeredservices_attr_desc, ContributionAttributeInfo.GAUGE) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Integer(length(((Bundle) sample).getRegisteredServices()));
+		}
+	}, new ContributionAttribute("ServicesInUseCount", Integer.class, BundleContributionMessages.bundle_servicesinuse_attr_desc, ContributionAttributeInfo.GAUGE) { //$NON-NLS-1$
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Integer(length(((Bundle) sample).getServicesInUse()));
+		}
+	}};
+	// the infos are shared by all bundle contributions, so the merged info of the contribution
+	// is cached once rather than per call; guarded by BundleContribution.class
+	private static MBeanInfo managedBundleInfo;
+	private static MBeanInfo dependencyBundleInfo;
 	private ServiceReference service;
 
 	/**
@@ -63,16 +90,12 @@ public class BundleContribution extends Contribution implements BundleListener {
 		Activator.getBundleContext().addBundleListener(this);
 	}
 
-    /* (non-Javadoc)
-     * @see org.eclipse.equinox.jmx.server.Contribution#getObjectName()
-     */
-    protected ObjectName getObjectName() {
-        try {
-            return new ObjectName(JMXConstants.DEFAULT_DOMAIN + ":type=Bundle,name=" + getName()); //$NON-NLS-1$
-        } catch (Exception e) {
-            return super.getObjectName();
-        }
-    }
+	/* (non-Javadoc)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameType()
+	 */
+	protected String getObjectNameType() {
+		return "Bundle"; //$NON-NLS-1$
+	}
 
 	/* (non-Javadoc)
 	 * @see com.jmx.server.contrib.Contribution#getChildren()
@@ -177,10 +200,10 @@ public class BundleContribution extends Contribution implements BundleListener {
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getContributionAttributes()
 	 */
-	public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
-		return null;
+	protected ContributionAttribute[] getContributionAttributes() {
+		return ATTRIBUTES;
 	}
 
 	/* (non-Javadoc)
@@ -189,13 +212,6 @@ public class BundleContribution extends Contribution implements BundleListener {
 	public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException {
 	}
 
-	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
-	 */
-	public AttributeList getAttributes(String[] attributes) {
-		return null;
-	}
-
 	/* (non-Javadoc)
 	 * @see javax.management.DynamicMBean#setAttributes(javax.management.AttributeList)
 	 */
@@ -207,8 +223,27 @@ public class BundleContribution extends Contribution implements BundleListener {
 	 * @see com.jmx.server.contrib.Contribution#getMBeanInfo(java.lang.Object)
 	 */
 	public MBeanInfo getMBeanInfo(Object delegate) {
-		MBeanInfo info = new MBeanInfo(getClass().getName(), BundleContributionMessages.bundle_description, getAttributes(), getConstructorInfo(), getOperationInfo(), getNotificationInfo());
-		return info;
+		return getBundleInfo(BundleContributionProvider.isPluginDependency(bundle));
+	}
+
+	private MBeanInfo getBundleInfo(boolean dependency) {
+		synchronized (BundleContribution.class) {
+			if (dependency) {
+				if (dependencyBundleInfo == null) {
+					// expose no operations
+					dependencyBundleInfo = createBundleInfo(new MBeanOperationInfo[0]);
+				}
+				return dependencyBundleInfo;
+			}
+			if (managedBundleInfo == null) {
+				managedBundleInfo = createBundleInfo(new MBeanOperationInfo[] {createStartOperation(), createStopOperation(), createUninstallOperation()});
+			}
+			return managedBundleInfo;
+		}
+	}
+
+	private MBeanInfo createBundleInfo(MBeanOperationInfo[] operations) {
+		return new MBeanInfo(getClass().getName(), BundleContributionMessages.bundle_description, new MBeanAttributeInfo[0], new MBeanConstructorInfo[0], operations, getNotificationInfo());
 	}
 
 	/**
@@ -418,22 +453,9 @@ public class BundleContribution extends Contribution implements BundleListener {
 		this.version = version;
 	}
 
-	private MBeanAttributeInfo[] getAttributes() {
-		MBeanAttributeInfo[] ret = new MBeanAttributeInfo[0];
-		return ret;
-	}
-
-	private MBeanConstructorInfo[] getConstructorInfo() {
-		MBeanConstructorInfo[] ret = new MBeanConstructorInfo[0];
-		return ret;
-	}
-
-	private MBeanOperationInfo[] getOperationInfo() {
-		if (BundleContributionProvider.isPluginDependency(bundle)) {
-			// expose no operations
-			return new MBeanOperationInfo[0];
-		}
-		return new MBeanOperationInfo[] {createStartOperation(), createStopOperation(), createUninstallOperation()};
+	private static int length(ServiceReference[] references) {
+		// the framework returns null rather than an empty array
+		return references == null ? 0 : references.length;
 	}
 
 	private void setProperties(Bundle bundle) {
@@ -26,6 +26,11 @@ public class BundleContributionMessages extends NLS {
 	public static String uninstall_operation_desc;
 	public static String bundle_url_desc;
 	public static String excep_null_install_url;
+	public static String bundle_id_attr_desc;
+	public static String bundle_state_attr_desc;
+	public static String bundle_lastmodified_attr_desc;
+	public static String bundle_registeredservices_attr_desc;
+	public static String bundle_servicesinuse_attr_desc;
 
 	private BundleContributionMessages() {
 		// disallow instantiations
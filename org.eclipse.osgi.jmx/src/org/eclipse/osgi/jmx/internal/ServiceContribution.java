@@ -56,19 +56,29 @@ public class ServiceContribution extends Contribution implements ServiceListener
 		} catch (ClassNotFoundException e) {
 			serviceDelegateImplClass = serviceDelegate.getClass();
 		}
-		mbeanInfo = MBeanInfoWrapper.createMBeanInfo(serviceDelegateImplClass, ServiceContributionMessages.service_contribution_name, new MBeanAttributeInfo[0], new MBeanNotificationInfo[0]);
+		mbeanInfo = MBeanInfoWrapper.getMBeanInfo(serviceDelegateImplClass, ServiceContributionMessages.service_contribution_name);
 		Activator.getBundleContext().addServiceListener(this);
 	}
 
 	/* (non-Javadoc)
-	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectName()
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameType()
 	 */
-	protected ObjectName getObjectName() {
-		try {
-			return new ObjectName("jmxserver:type=Service,name=" + getName()); //$NON-NLS-1$
-		} catch (Exception e) {
-			return super.getObjectName();
+	protected String getObjectNameType() {
+		return "Service"; //$NON-NLS-1$
+	}
+
+	/**
+	 * Services of the same interface share their name, they are keyed by their persistent
+	 * identifier instead, or by their service id if they have none.
+	 * 
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getObjectNameKey()
+	 */
+	protected String getObjectNameKey() {
+		Object pid = serviceDelegate.getProperty(Constants.SERVICE_PID);
+		if (pid instanceof String) {
+			return (String) pid;
 		}
+		return String.valueOf(serviceDelegate.getProperty(Constants.SERVICE_ID));
 	}
 
 	/* (non-Javadoc)
@@ -16,9 +16,12 @@ import java.util.TreeSet;
 import javax.management.*;
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.equinox.jmx.common.ContributionAttributeInfo;
 import org.eclipse.equinox.jmx.common.ContributionNotificationEvent;
 import org.eclipse.equinox.jmx.server.Contribution;
+import org.eclipse.equinox.jmx.server.ContributionAttribute;
 import org.eclipse.equinox.jmx.server.ContributionProvider;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.graphics.*;
 import org.eclipse.swt.widgets.Display;
 
@@ -26,6 +29,13 @@ public class SleakContributionProvider extends ContributionProvider {
 
 	private static int DEFAULT_REFRESH_INTERVAL = 10000;
 	private static final String SLEAK_IMG_PATH = "icons/sleak.png"; //$NON-NLS-1$
+	// attributes are read from the counters sampled by sampleAttributes(), in this order
+	private static final ContributionAttribute[] ATTRIBUTES = new ContributionAttribute[] {new ResourceCountAttribute("Colors", 0), //$NON-NLS-1$
+			new ResourceCountAttribute("Cursors", 1), //$NON-NLS-1$
+			new ResourceCountAttribute("Fonts", 2), //$NON-NLS-1$
+			new ResourceCountAttribute("GCs", 3), //$NON-NLS-1$
+			new ResourceCountAttribute("Images", 4), //$NON-NLS-1$
+			new ResourceCountAttribute("Regions", 5)}; //$NON-NLS-1$
 
 	private int colors, cursors, fonts, gcs, images, regions;
 	private boolean started;
@@ -151,23 +161,26 @@ public class SleakContributionProvider extends ContributionProvider {
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttribute(java.lang.String)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#getContributionAttributes()
 	 */
-	public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
-		return null;
+	protected ContributionAttribute[] getContributionAttributes() {
+		return ATTRIBUTES;
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#setAttribute(javax.management.Attribute)
+	 * @see org.eclipse.equinox.jmx.server.Contribution#sampleAttributes()
 	 */
-	public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException {
+	protected Object sampleAttributes() {
+		// the counters are refreshed on the display thread
+		synchronized (mutex) {
+			return new int[] {colors, cursors, fonts, gcs, images, regions};
+		}
 	}
 
 	/* (non-Javadoc)
-	 * @see javax.management.DynamicMBean#getAttributes(java.lang.String[])
+	 * @see javax.management.DynamicMBean#setAttribute(javax.management.Attribute)
 	 */
-	public AttributeList getAttributes(String[] attributes) {
-		return null;
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException, MBeanException, ReflectionException {
 	}
 
 	/* (non-Javadoc)
@@ -194,6 +207,23 @@ public class SleakContributionProvider extends ContributionProvider {
 		return null;
 	}
 
+	/**
+	 * The number of graphics resources of one type.
+	 */
+	private static final class ResourceCountAttribute extends ContributionAttribute {
+
+		private final int index;
+
+		ResourceCountAttribute(String name, int index) {
+			super(name, Integer.class, NLS.bind(SleakMessages.resource_count_desc, name), ContributionAttributeInfo.GAUGE);
+			this.index = index;
+		}
+
+		protected Object getValue(Contribution contribution, Object sample) {
+			return new Integer(((int[]) sample)[index]);
+		}
+	}
+
 	private class Sleak extends Thread {
 
 		Object[] oldObjects = new Object[0];
@@ -225,21 +255,24 @@ public class SleakContributionProvider extends ContributionProvider {
 		}
 
 		void refreshCounters() {
-			colors = cursors = fonts = gcs = images = regions = 0;
-			for (int i = 0; i < objects.length; i++) {
-				Object object = objects[i];
-				if (object instanceof Color)
-					colors++;
-				if (object instanceof Cursor)
-					cursors++;
-				if (object instanceof Font)
-					fonts++;
-				if (object instanceof GC)
-					gcs++;
-				if (object instanceof Image)
-					images++;
-				if (object instanceof Region)
-					regions++;
+			// counters are read together by sampleAttributes()
+			synchronized (mutex) {
+				colors = cursors = fonts = gcs = images = regions = 0;
+				for (int i = 0; i < objects.length; i++) {
+					Object object = objects[i];
+					if (object instanceof Color)
+						colors++;
+					if (object instanceof Cursor)
+						cursors++;
+					if (object instanceof Font)
+						fonts++;
+					if (object instanceof GC)
+						gcs++;
+					if (object instanceof Image)
+						images++;
+					if (object instanceof Region)
+						regions++;
+				}
 			}
 		}
 
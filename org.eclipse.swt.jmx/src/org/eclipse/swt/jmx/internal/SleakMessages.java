@@ -25,6 +25,7 @@ public class SleakMessages extends NLS {
 	public static String regions;
 	public static String gcs;
 	public static String poll_interval_desc;
+	public static String resource_count_desc;
 
 	private SleakMessages() {
 		// disallow instantiations